@@ -0,0 +1,111 @@
+package ru.ecosharing.listing_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ecosharing.listing_service.config.ListingDetailCacheProperties;
+import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.FxRatesChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchCreatedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingFavoriteAddedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingFavoriteRemovedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingReservationsChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingViewCountIncrementedEvent;
+import ru.ecosharing.listing_service.dto.response.ListingResponse;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through кэш неизменной части карточки объявления: сама сущность, категория, изображения и профиль владельца.
+ * Данные, зависящие от пользователя или меняющиеся на каждый просмотр (isFavorite, viewCount),
+ * в кэше не хранятся и подставляются при формировании ответа.
+ * <p>
+ * Записи удаляются при отправке событий изменения объявления (см. ListingEventProducer),
+ * а на остальных инстансах - при получении этих событий из Kafka.
+ */
+@Slf4j
+@Component
+public class ListingDetailCache {
+
+    private final Cache<UUID, Entry> cache;
+    private final boolean enabled;
+
+    public ListingDetailCache(ListingDetailCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "listingDetail");
+    }
+
+    /**
+     * Возвращает закэшированную карточку или загружает ее через loader.
+     * Исключение из loader (например, объявление не найдено) пробрасывается, и в кэш ничего не попадает.
+     */
+    public Entry get(UUID listingId, Function<UUID, Entry> loader) {
+        if (!enabled) {
+            return loader.apply(listingId);
+        }
+        return cache.get(listingId, loader);
+    }
+
+    /**
+     * Удаляет карточку сразу и еще раз после коммита текущей транзакции,
+     * чтобы параллельный запрос не вернул в кэш данные, прочитанные до коммита.
+     */
+    public void evict(UUID listingId) {
+        cache.invalidate(listingId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(listingId);
+                }
+            });
+        }
+        log.debug("Listing {} evicted from detail cache", listingId);
+    }
+
+    /**
+     * Меняет ли событие закэшированную часть карточки.
+     * Счетчик просмотров, избранное и брони в кэше не хранятся.
+     */
+    public static boolean isInvalidatedBy(AbstractListingEvent event) {
+        return !(event instanceof ListingViewCountIncrementedEvent)
+                && !(event instanceof ListingFavoriteAddedEvent)
+                && !(event instanceof ListingFavoriteRemovedEvent)
+                && !(event instanceof ListingReservationsChangedEvent) // Брони в карточку не входят
+                && !(event instanceof ListingBatchCreatedEvent) // Новых объявлений в кэше еще нет
+                && !(event instanceof ListingBatchModerationStatusChangedEvent) // Без listingId, сбрасывается по listingIds
+                && !(event instanceof FxRatesChangedEvent); // Курс в карточку не входит
+    }
+
+    /**
+     * Полная очистка - при изменении категорий (название категории входит в карточку).
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+        log.debug("Listing detail cache cleared");
+    }
+
+    /**
+     * Закэшированная карточка и данные для проверки доступа без обращения к БД.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final UUID ownerUserId;
+        private final ListingResponse response; // viewCount и isFavorite здесь не актуальны
+    }
+}
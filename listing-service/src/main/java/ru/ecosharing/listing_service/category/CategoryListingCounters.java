@@ -0,0 +1,187 @@
+package ru.ecosharing.listing_service.category;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.CategoryCountersProperties;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Число опубликованных (ACTIVE) объявлений по категориям: собственное и с учетом всех подкатегорий.
+ * <p>
+ * Счетчики меняются инкрементально по событиям объявлений (публикация, снятие, перенос в другую категорию,
+ * удаление): изменение прибавляется к категории и ко всей цепочке ее предков. События приходят на каждый
+ * инстанс, поэтому счетчики есть везде и читаются из памяти. Периодическая сверка пересчитывает собственные
+ * счетчики одним GROUP BY по БД и исправляет накопившиеся расхождения.
+ */
+@Slf4j
+@Component
+public class CategoryListingCounters {
+
+    private static final String COUNT_ACTIVE_SQL = """
+            SELECT category_id, count(*) AS listings FROM listings
+            WHERE moderation_status = 'ACTIVE'
+            GROUP BY category_id
+            """;
+
+    private static final String COUNT_BY_CATEGORY_SQL = """
+            SELECT category_id, count(*) AS listings FROM listings
+            WHERE id IN (:ids)
+            GROUP BY category_id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CategoryHierarchyCache categoryHierarchyCache;
+    private final CategoryCountersProperties properties;
+    private final Counter driftCounter;
+
+    // Счетчики меняются атомарно по отдельности; сверка подменяет обе карты целиком
+    private volatile Map<UUID, AtomicLong> ownCounts = new ConcurrentHashMap<>();
+    private volatile Map<UUID, AtomicLong> treeCounts = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public CategoryListingCounters(NamedParameterJdbcTemplate jdbcTemplate,
+                                   CategoryHierarchyCache categoryHierarchyCache,
+                                   CategoryCountersProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryHierarchyCache = categoryHierarchyCache;
+        this.properties = properties;
+        this.driftCounter = Counter.builder("listing.category-counters.drift")
+                .description("Категории, счетчик которых при сверке с БД разошелся с инкрементальным")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Число опубликованных объявлений в категории и ее подкатегориях; null - счетчики еще не загружены.
+     */
+    public Long countWithDescendants(UUID categoryId) {
+        if (!ready) {
+            return null;
+        }
+        AtomicLong count = treeCounts.get(categoryId);
+        return count != null ? Math.max(count.get(), 0L) : 0L;
+    }
+
+    public boolean isReady() {
+        return properties.isCountersEnabled() && ready;
+    }
+
+    /**
+     * Переход одного объявления между состояниями (категория, статус). null в категории - объявления нет.
+     */
+    public void onTransition(UUID oldCategoryId, ModerationStatus oldStatus, UUID newCategoryId, ModerationStatus newStatus) {
+        if (!properties.isCountersEnabled()) {
+            return;
+        }
+        boolean wasCounted = oldCategoryId != null && oldStatus == ModerationStatus.ACTIVE;
+        boolean isCounted = newCategoryId != null && newStatus == ModerationStatus.ACTIVE;
+        if (wasCounted && isCounted && oldCategoryId.equals(newCategoryId)) {
+            return;
+        }
+        if (wasCounted) {
+            adjust(oldCategoryId, -1);
+        }
+        if (isCounted) {
+            adjust(newCategoryId, 1);
+        }
+    }
+
+    /**
+     * Смена статуса у пачки объявлений: категории читаются из БД одним запросом.
+     */
+    public void onBatchTransition(Collection<UUID> listingIds, ModerationStatus oldStatus, ModerationStatus newStatus) {
+        if (!properties.isCountersEnabled() || listingIds.isEmpty()) {
+            return;
+        }
+        int sign = (newStatus == ModerationStatus.ACTIVE ? 1 : 0) - (oldStatus == ModerationStatus.ACTIVE ? 1 : 0);
+        if (sign == 0) {
+            return;
+        }
+        jdbcTemplate.query(COUNT_BY_CATEGORY_SQL, new MapSqlParameterSource("ids", listingIds),
+                rs -> { adjust(rs.getObject("category_id", UUID.class), sign * rs.getLong("listings")); });
+    }
+
+    private void adjust(UUID categoryId, long delta) {
+        ownCounts.computeIfAbsent(categoryId, id -> new AtomicLong()).addAndGet(delta);
+        Map<UUID, AtomicLong> totals = treeCounts;
+        for (UUID category : categoryHierarchyCache.chainOf(categoryId)) {
+            totals.computeIfAbsent(category, id -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${app.categories.reconcile-interval-ms:600000}",
+            initialDelayString = "${app.categories.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!properties.isCountersEnabled()) {
+            return;
+        }
+        Map<UUID, AtomicLong> fresh = new ConcurrentHashMap<>();
+        jdbcTemplate.query(COUNT_ACTIVE_SQL, rs -> {
+            fresh.put(rs.getObject("category_id", UUID.class), new AtomicLong(rs.getLong("listings")));
+        });
+        int drifted = 0;
+        if (ready) {
+            Set<UUID> categories = new HashSet<>(fresh.keySet());
+            categories.addAll(ownCounts.keySet());
+            for (UUID categoryId : categories) {
+                if (value(fresh, categoryId) != value(ownCounts, categoryId)) {
+                    drifted++;
+                }
+            }
+            driftCounter.increment(drifted);
+        }
+        // События, примененные между запросом и подменой карт, теряются до следующей сверки
+        treeCounts = rollUp(fresh);
+        ownCounts = fresh;
+        ready = true;
+        log.debug("Category listing counters reconciled: {} categories, {} drifted", fresh.size(), drifted);
+    }
+
+    /**
+     * Пересчитывает счетчики с учетом подкатегорий по текущему дереву (после переноса категории в другую ветку).
+     */
+    public void rebuildTree() {
+        if (ready) {
+            treeCounts = rollUp(ownCounts);
+        }
+    }
+
+    private Map<UUID, AtomicLong> rollUp(Map<UUID, AtomicLong> own) {
+        Map<UUID, Long> totals = new HashMap<>();
+        own.forEach((categoryId, count) -> {
+            for (UUID category : categoryHierarchyCache.chainOf(categoryId)) {
+                totals.merge(category, count.get(), Long::sum);
+            }
+        });
+        Map<UUID, AtomicLong> result = new ConcurrentHashMap<>();
+        totals.forEach((categoryId, count) -> result.put(categoryId, new AtomicLong(count)));
+        return result;
+    }
+
+    private static long value(Map<UUID, AtomicLong> counts, UUID categoryId) {
+        AtomicLong count = counts.get(categoryId);
+        return count != null ? count.get() : 0L;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.ecosharing.listing_service.category;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ecosharing.listing_service.config.CategoryCountersProperties;
+import ru.ecosharing.listing_service.dto.response.CategoryResponse;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Дерево активных категорий в памяти. Дерево меняется редко, а запрашивается при каждой загрузке каталога;
+ * счетчики объявлений в кэш не входят и подставляются в копию дерева при каждом ответе.
+ */
+@Slf4j
+@Component
+public class CategoryTreeCache {
+
+    private final CategoryListingCounters categoryListingCounters;
+    private final CategoryCountersProperties properties;
+    private volatile CachedTree cached;
+
+    public CategoryTreeCache(CategoryListingCounters categoryListingCounters, CategoryCountersProperties properties) {
+        this.categoryListingCounters = categoryListingCounters;
+        this.properties = properties;
+    }
+
+    /**
+     * Корневые категории с вложенными подкатегориями и счетчиками опубликованных объявлений.
+     * loader строит дерево из БД при промахе.
+     */
+    public List<CategoryResponse> get(Supplier<List<CategoryResponse>> loader) {
+        CachedTree current = cached;
+        if (current == null || current.loadedAtMillis + properties.getTreeCacheTtl().toMillis() < System.currentTimeMillis()) {
+            current = new CachedTree(loader.get(), System.currentTimeMillis());
+            cached = current;
+        }
+        return current.roots.stream().map(this::withCounts).toList();
+    }
+
+    /**
+     * Сбрасывает кэш; внутри транзакции - еще раз после коммита, чтобы не закэшировать дерево до изменения.
+     */
+    public void invalidate() {
+        cached = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cached = null;
+                }
+            });
+        }
+    }
+
+    // Кэшированные узлы не меняются - ответ собирается из их копий
+    private CategoryResponse withCounts(CategoryResponse node) {
+        return CategoryResponse.builder()
+                .id(node.getId())
+                .name(node.getName())
+                .description(node.getDescription())
+                .parentId(node.getParentId())
+                .isActive(node.isActive())
+                .listingCount(categoryListingCounters.countWithDescendants(node.getId()))
+                .children(node.getChildren() != null ? node.getChildren().stream().map(this::withCounts).toList() : null)
+                .build();
+    }
+
+    private static final class CachedTree {
+        private final List<CategoryResponse> roots;
+        private final long loadedAtMillis;
+
+        private CachedTree(List<CategoryResponse> roots, long loadedAtMillis) {
+            this.roots = roots;
+            this.loadedAtMillis = loadedAtMillis;
+        }
+    }
+}
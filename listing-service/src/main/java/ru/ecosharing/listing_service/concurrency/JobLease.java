@@ -0,0 +1,88 @@
+package ru.ecosharing.listing_service.concurrency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Аренда долгой задачи на одном инстансе по строке listing_job_checkpoints.
+ * <p>
+ * Захват, продление и освобождение - отдельные короткие запросы вне транзакции задачи: блокировка строки
+ * на все время работы держала бы xid, а журнал изменений (ListingChangeLog) не отдает записи, пока открыта
+ * хоть одна более ранняя транзакция. Пока задача выполняется, аренда продлевается в фоне; аренду остановленного
+ * инстанса по истечении LEASE_DURATION возьмет другой. Строку задачи создает вызывающий.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JobLease {
+
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(2);
+    private static final Duration RENEW_INTERVAL = Duration.ofSeconds(30);
+
+    private static final String ACQUIRE_SQL = """
+            UPDATE listing_job_checkpoints
+            SET lease_owner = :owner, lease_expires_at = now() + :leaseMillis * INTERVAL '1 millisecond'
+            WHERE job_name = :job AND (lease_expires_at IS NULL OR lease_expires_at < now())
+            """;
+
+    private static final String RENEW_SQL = """
+            UPDATE listing_job_checkpoints
+            SET lease_expires_at = now() + :leaseMillis * INTERVAL '1 millisecond'
+            WHERE job_name = :job AND lease_owner = :owner
+            """;
+
+    private static final String RELEASE_SQL = """
+            UPDATE listing_job_checkpoints SET lease_owner = NULL, lease_expires_at = NULL
+            WHERE job_name = :job AND lease_owner = :owner
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * Выполняет действие, если аренду задачи удалось взять.
+     *
+     * @return false - задачу выполняет другой инстанс, действие не выполнялось.
+     */
+    public boolean runExclusively(String job, Runnable action) {
+        MapSqlParameterSource params = new MapSqlParameterSource("job", job)
+                .addValue("owner", UUID.randomUUID().toString())
+                .addValue("leaseMillis", LEASE_DURATION.toMillis());
+        if (jdbcTemplate.update(ACQUIRE_SQL, params) == 0) {
+            return false;
+        }
+        ScheduledFuture<?> renewal = taskScheduler.scheduleAtFixedRate(() -> renew(params),
+                Instant.now().plus(RENEW_INTERVAL), RENEW_INTERVAL);
+        try {
+            action.run();
+        } finally {
+            renewal.cancel(false);
+            try {
+                jdbcTemplate.update(RELEASE_SQL, params);
+            } catch (Exception e) {
+                // Аренда истечет сама
+                log.warn("Failed to release lease of job {}: {}", job, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void renew(MapSqlParameterSource params) {
+        try {
+            if (jdbcTemplate.update(RENEW_SQL, params) == 0) {
+                log.warn("Lease of job {} was lost, another instance may run it concurrently", params.getValue("job"));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to renew lease of job {}: {}", params.getValue("job"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.ecosharing.listing_service.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.ecosharing.listing_service.config.OptimisticLockRetryProperties;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный повтор системных изменений при конфликте версий.
+ * Каждая попытка выполняется в отдельной транзакции (REQUIRES_NEW), поэтому действие должно само
+ * перечитывать сущность и заново проверять условия - после конфликта в памяти остается устаревшее состояние.
+ * Для правок пользователей не используется: там конфликт отдается клиенту как 409.
+ */
+@Slf4j
+@Component
+public class OptimisticLockRetrier {
+
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticLockRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticLockRetrier(PlatformTransactionManager transactionManager,
+                                 OptimisticLockRetryProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Выполняет действие в новой транзакции, повторяя его при конфликте версий.
+     * @param operation Имя операции для логов и метрик.
+     * @param action Действие; вызывается заново на каждой попытке.
+     * @return Результат действия.
+     * @throws OptimisticLockingFailureException если конфликт не разрешился за отведенные попытки.
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        int maxAttempts = properties.getMaxAttempts();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("listing.optimistic_lock.conflicts", "operation", operation, "outcome", "exhausted").increment();
+                    log.warn("Optimistic lock conflict in '{}' not resolved after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                meterRegistry.counter("listing.optimistic_lock.conflicts", "operation", operation, "outcome", "retried").increment();
+                log.debug("Optimistic lock conflict in '{}', attempt {}/{}: {}", operation, attempt, maxAttempts, e.getMessage());
+                if (!pause(attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean pause(int attempt) {
+        long base = properties.getBackoff().toMillis() * attempt;
+        if (base <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(base + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки счетчиков объявлений в дереве категорий и кэша дерева.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.categories")
+@Data
+@Validated
+public class CategoryCountersProperties {
+
+    // Показывать в дереве категорий число опубликованных объявлений (с учетом подкатегорий)
+    private boolean countersEnabled = true;
+
+    // Период сверки счетчиков с БД, мс: исправляет расхождения из-за потерянных или задвоенных событий
+    @Min(10_000)
+    private long reconcileIntervalMs = 600_000;
+
+    // Время жизни закэшированного дерева категорий. Изменения на своем инстансе и события категорий
+    // сбрасывают кэш сразу; создание и удаление категорий событий не порождают и видны другим инстансам через TTL
+    @NotNull
+    private Duration treeCacheTtl = Duration.ofMinutes(1);
+}
@@ -0,0 +1,56 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки рекомендаций "добавившие это в избранное также добавили".
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.recommend.co-favorites")
+@Data
+@Validated
+public class CoFavoriteProperties {
+
+    private boolean enabled = true;
+
+    // Сколько соседей с наибольшим счетчиком хранится на объявление. Больше, чем отдается,
+    // чтобы вытеснение редких соседей не задевало верх списка
+    @Min(4)
+    @Max(256)
+    private int capacity = 32;
+
+    // Сколько похожих объявлений отдает эндпоинт по умолчанию и максимум
+    @Min(1)
+    private int defaultLimit = 12;
+
+    @Min(1)
+    private int maxLimit = 24;
+
+    // Учитываются только последние N избранных пользователя: длинные списки дают много шума и O(N) обновлений
+    @Min(2)
+    private int maxUserFavorites = 100;
+
+    // Верхняя граница числа объявлений в памяти (~0.7 КБ на объявление при capacity 32)
+    @Min(1)
+    private int maxTrackedListings = 100_000;
+
+    // Снимок состояния на диск: ускоряет рестарт, без него модель строится из favorite_listings
+    @NotBlank
+    private String snapshotPath = "data/co-favorites.snapshot";
+
+    @Min(10_000)
+    private long snapshotIntervalMs = 300_000;
+
+    // Более старый снимок не загружается - модель строится заново из БД
+    @NotNull
+    private Duration snapshotMaxAge = Duration.ofHours(6);
+}
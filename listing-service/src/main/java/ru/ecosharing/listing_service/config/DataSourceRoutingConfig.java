@@ -0,0 +1,90 @@
+package ru.ecosharing.listing_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.ecosharing.listing_service.datasource.ReplicaLagMonitor;
+import ru.ecosharing.listing_service.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Источники данных: основная БД (spring.datasource) и, если включено, реплики для read-only транзакций.
+ * Пулы реплик публикуют метрики hikaricp.* с тегом pool = имя реплики, основной пул - pool = primary.
+ */
+@Slf4j
+@Configuration
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingProperties routingProperties,
+                                               DataSourceProperties properties,
+                                               MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        if (routingProperties.isEnabled()) {
+            for (ReplicaRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+                replicas.put(replica.getName(), createReplicaDataSource(replica, properties, meterRegistry));
+            }
+        }
+        return new ReplicaLagMonitor(replicas, routingProperties.getMaxLag(),
+                routingProperties.getMaxReceiverSilence(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ReplicaRoutingProperties routingProperties,
+                                 ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        if (!routingProperties.isEnabled() || routingProperties.getReplicas().isEmpty()) {
+            log.info("Read replicas are disabled, all transactions use the primary database");
+            return primaryDataSource;
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+        routingProperties.getReplicas().forEach(replica ->
+                targets.put(replica.getName(), replicaLagMonitor.getDataSource(replica.getName())));
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                routingProperties.getReplicas().stream().map(ReplicaRoutingProperties.Replica::getName).toList(),
+                replicaLagMonitor, meterRegistry);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        log.info("Read-only transactions are routed to replicas {} (max lag {})",
+                routingProperties.getReplicas().stream().map(ReplicaRoutingProperties.Replica::getName).toList(),
+                routingProperties.getMaxLag());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource createReplicaDataSource(ReplicaRoutingProperties.Replica replica,
+                                                     DataSourceProperties properties,
+                                                     MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(replica.getName());
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : properties.determineUsername());
+        dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : properties.determinePassword());
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
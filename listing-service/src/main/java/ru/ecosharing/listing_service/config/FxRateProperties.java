@@ -0,0 +1,36 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки курсов валют для приведения цен объявлений к базовой валюте (поле priceNormalized в индексе).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.fx")
+@Data
+@Validated
+public class FxRateProperties {
+
+    // Валюта, в которой задаются границы фильтра по цене и сравниваются цены при сортировке
+    @Pattern(regexp = "[A-Z]{3}")
+    private String baseCurrency = "RUB";
+
+    // Период перечитывания таблицы currency_rates, мс
+    @Min(10_000)
+    private long refreshIntervalMs = 300_000;
+
+    // Переиндексировать объявления валюты, курс которой изменился. Выполняет один инстанс (захват строки курса)
+    private boolean reindexOnRateChange = true;
+
+    // Аренда переиндексации валюты: если инстанс остановился, не закончив, по истечении ее повторит другой
+    @NotNull
+    private Duration reindexLease = Duration.ofMinutes(30);
+}
@@ -0,0 +1,25 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Разделение объявлений на "горячий" индекс публичного поиска и архивный индекс.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.search.hot-cold")
+@Data
+@Validated
+public class IndexPlacementProperties {
+
+    // В listings_idx остаются только ACTIVE, остальные статусы - в архивном индексе.
+    // Включение на непустом индексе требует полной переиндексации (POST /api/listings/admin/index/reindex)
+    private boolean enabled = false;
+
+    // Архивный индекс: маппинг и настройки те же, что у listings_idx
+    @NotBlank
+    private String archiveIndex = "listings_archive_idx";
+}
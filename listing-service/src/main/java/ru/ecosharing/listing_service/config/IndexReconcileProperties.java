@@ -0,0 +1,44 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки фоновой сверки индекса объявлений в Elasticsearch с таблицей listings.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.reconcile")
+@Data
+@Validated
+public class IndexReconcileProperties {
+
+    private boolean enabled = true;
+
+    // Период запуска сверки, мс
+    @Min(60_000)
+    private long intervalMs = 3_600_000;
+
+    // Длина hex-префикса id для первого уровня диапазонов (2 -> 256 диапазонов)
+    @Min(1)
+    @Max(4)
+    private int initialPrefixLength = 2;
+
+    // Диапазон с таким числом строк и меньше сверяется построчно вместо дальнейшего дробления
+    @Min(1)
+    private int leafSize = 500;
+
+    // Строки, измененные позже (now - grace), не чинятся: их событие может еще быть в очереди Kafka
+    @NotNull
+    private Duration grace = Duration.ofMinutes(5);
+
+    // Верхняя граница исправлений за один запуск (защита от массовой переиндексации из-за ошибки сверки)
+    @Min(1)
+    private int maxRepairsPerRun = 10_000;
+}
@@ -0,0 +1,29 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Настройки маршрутизации документов listings_idx по корневой категории.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.search.routing")
+@Data
+@Validated
+public class IndexRoutingProperties {
+
+    // Писать документы с routing = id корневой категории и искать в каталоге категории по одному шарду.
+    // Включение на непустом индексе требует полной переиндексации (POST /api/listings/admin/index/reindex)
+    private boolean enabled = false;
+
+    // Период перечитывания дерева категорий из БД
+    @Min(1000)
+    private long hierarchyRefreshIntervalMs = 300_000;
+
+    // Сколько соответствий объявление -> routing держать в памяти для частичных обновлений
+    @Min(1)
+    private long listingCacheMaxSize = 100_000;
+}
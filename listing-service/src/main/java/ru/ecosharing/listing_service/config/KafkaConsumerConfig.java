@@ -8,16 +8,20 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.ContainerPostProcessor;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
 import org.springframework.kafka.listener.CommonErrorHandler;
 import org.springframework.kafka.listener.DefaultErrorHandler; // Уже должен быть импортирован
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.ExponentialBackOff;
 import org.springframework.util.backoff.FixedBackOff; // Уже должен быть импортирован
 import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
 import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -118,4 +122,23 @@ public class KafkaConsumerConfig {
         errorHandler.setAckAfterHandle(false);
         return errorHandler;
     }
-}
\ No newline at end of file
+
+    /**
+     * Обработчик с повторами для слушателей, которым нельзя терять события (журнал изменений):
+     * временная ошибка БД повторяется с нарастающей паузой, партиция при этом не продвигается.
+     * Подключается к слушателю через containerPostProcessor = "retryingErrorHandlerPostProcessor".
+     */
+    @Bean
+    public ContainerPostProcessor<String, Object, AbstractMessageListenerContainer<String, Object>> retryingErrorHandlerPostProcessor() {
+        ExponentialBackOff backOff = new ExponentialBackOff(1000L, 2.0);
+        backOff.setMaxInterval(Duration.ofMinutes(1).toMillis());
+        backOff.setMaxElapsedTime(Duration.ofHours(1).toMillis());
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+                (record, exception) -> log.error("Retries exhausted for Kafka record topic={}, partition={}, offset={}, key={}: {}",
+                        record.topic(), record.partition(), record.offset(), record.key(), exception.getMessage(), exception),
+                backOff
+        );
+        errorHandler.setAckAfterHandle(false);
+        return container -> container.setCommonErrorHandler(errorHandler);
+    }
+}
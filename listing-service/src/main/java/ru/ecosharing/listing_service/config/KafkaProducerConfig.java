@@ -11,6 +11,8 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
+import ru.ecosharing.listing_service.dto.kafka.NotificationRequestKafkaDto;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -53,13 +55,40 @@ public class KafkaProducerConfig {
         return new KafkaTemplate<>(listingEventProducerFactory());
     }
 
-    // Если будут события для категорий, можно сделать отдельную фабрику и KafkaTemplate
-    // или использовать Object в KafkaTemplate и настраивать сериализатор более гибко.
-    // Например, для CategoryLifecycleEvent:
-    /*
+    // Запросы на уведомления в Notification Service. Консьюмер Notification Service десериализует
+    // сообщения в свой NotificationRequestKafkaDto, поэтому заголовки типа не отправляем
+    @Bean
+    public ProducerFactory<String, NotificationRequestKafkaDto> notificationProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+
+        log.info("Настройка Kafka ProducerFactory для NotificationRequestKafkaDto: servers={}, acks={}", bootstrapServers, acks);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, NotificationRequestKafkaDto> notificationKafkaTemplate() {
+        return new KafkaTemplate<>(notificationProducerFactory());
+    }
+
+    // События категорий читают консьюмеры с VALUE_DEFAULT_TYPE = CategoryLifecycleEvent, заголовки типа не нужны
     @Bean
     public ProducerFactory<String, CategoryLifecycleEvent> categoryEventProducerFactory() {
-        // ... похожая конфигурация ...
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+
+        log.info("Настройка Kafka ProducerFactory для CategoryLifecycleEvent: servers={}, acks={}", bootstrapServers, acks);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -67,5 +96,4 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, CategoryLifecycleEvent> categoryEventKafkaTemplate() {
         return new KafkaTemplate<>(categoryEventProducerFactory());
     }
-    */
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки локального кэша карточек объявлений (GET /api/listings/{id}).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.cache.listing-detail")
+@Data
+@Validated
+public class ListingDetailCacheProperties {
+
+    private boolean enabled = true;
+
+    @Min(1)
+    private long maximumSize = 10_000;
+
+    // Страховка на случай потерянного события инвалидации
+    @NotNull
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
@@ -0,0 +1,63 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * Настройки фонового снятия с публикации устаревших объявлений.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.expiry")
+@Data
+@Validated
+public class ListingExpiryProperties {
+
+    private boolean enabled = false;
+
+    // Период запуска задачи, мс. Незавершенный проход продолжается со следующего запуска с контрольной точки
+    @Min(10_000)
+    private long intervalMs = 600_000;
+
+    // Активное объявление старше этого возраста снимается независимо от правок
+    @NotNull
+    private Duration maxAge = Duration.ofDays(180);
+
+    // Активное объявление, которое столько не обновлялось, снимается
+    @NotNull
+    private Duration inactivityThreshold = Duration.ofDays(60);
+
+    // Объявлений в одной порции (одна транзакция, одно событие, одна пачка уведомлений)
+    @Min(1)
+    @Max(5000)
+    private int chunkSize = 500;
+
+    // Пауза между порциями, чтобы не конкурировать с пользовательской нагрузкой за БД и индексатор
+    @NotNull
+    private Duration chunkPause = Duration.ofMillis(500);
+
+    // Не больше порций за один запуск
+    @Min(1)
+    private int maxChunksPerRun = 200;
+
+    // Окно работы по часам [start, end) вне пиковой нагрузки. Совпадающие границы - без ограничений,
+    // окно может переходить через полночь (например, 22 -> 6)
+    @Min(0) @Max(23)
+    private int windowStartHour = 1;
+
+    @Min(0) @Max(23)
+    private int windowEndHour = 7;
+
+    @NotNull
+    private ZoneId zone = ZoneId.of("Europe/Moscow");
+
+    // Отправлять владельцам уведомление LISTING_EXPIRED
+    private boolean notifyOwners = true;
+}
@@ -0,0 +1,57 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки массового импорта объявлений (NDJSON/CSV).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.import")
+@Data
+@Validated
+public class ListingImportProperties {
+
+    // Строк в одной пачке JDBC batch insert и в одном событии LISTING_BATCH_CREATED
+    @Min(1)
+    private int chunkSize = 500;
+
+    // Максимум строк в одном файле
+    @Min(1)
+    private int maxRows = 50_000;
+
+    @NotNull
+    private DataSize maxUploadSize = DataSize.ofMegabytes(50);
+
+    // Сколько ошибок по строкам хранить в задаче (остальные только считаются)
+    @Min(0)
+    private int maxReportedErrors = 1000;
+
+    // Сколько хранить результат задачи после завершения
+    @NotNull
+    private Duration jobRetention = Duration.ofHours(24);
+
+    // Прогресс сохраняется после каждой пачки; незавершенная задача без сохранений дольше этого
+    // значения прервана (инстанс остановлен) и помечается как FAILED
+    @NotNull
+    private Duration staleJobTimeout = Duration.ofMinutes(15);
+
+    // Период очистки устаревших и прерванных задач, мс
+    @Min(60_000)
+    private long cleanupIntervalMs = 300_000;
+
+    // Одновременно выполняемые импорты
+    @Min(1)
+    private int concurrency = 2;
+
+    // Задачи, ожидающие выполнения. При переполнении новый импорт отклоняется
+    @Min(0)
+    private int queueCapacity = 20;
+}
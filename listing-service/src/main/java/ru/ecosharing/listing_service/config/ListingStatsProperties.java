@@ -0,0 +1,59 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * Настройки статистики просмотров и избранного по дням.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.stats")
+@Data
+@Validated
+public class ListingStatsProperties {
+
+    private boolean enabled = true;
+
+    // Период выгрузки накопленных в памяти счетчиков в БД, мс
+    @Min(1000)
+    private long flushIntervalMs = 10_000;
+
+    // Строк в одном batch-запросе выгрузки
+    @Min(1)
+    @Max(10_000)
+    private int flushBatchSize = 1000;
+
+    // Часовой пояс, в котором считаются сутки
+    @NotNull
+    private ZoneId zone = ZoneId.of("Europe/Moscow");
+
+    // Сколько хранить дневную статистику; более старые дни сворачиваются в помесячную
+    @NotNull
+    private Duration dailyRetention = Duration.ofDays(180);
+
+    // Период свертки, мс
+    @Min(60_000)
+    private long rollupIntervalMs = 3_600_000;
+
+    // Дней, сворачиваемых за один запуск (по одному дню в транзакции)
+    @Min(1)
+    private int rollupMaxDaysPerRun = 31;
+
+    // Глубина дневного графика по умолчанию и максимум для запроса
+    @Min(1)
+    private int defaultRangeDays = 90;
+
+    @Min(1)
+    private int maxRangeDays = 180;
+
+    @Min(1)
+    private int maxRangeMonths = 36;
+}
@@ -0,0 +1,23 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Настройки ленты изменений объявлений (GET /api/listings/changes).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.sync")
+@Data
+@Validated
+public class ListingSyncProperties {
+
+    @Min(1)
+    private int defaultLimit = 100;
+
+    @Min(1)
+    private int maxLimit = 500;
+}
@@ -0,0 +1,42 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Настройки поиска почти-дубликатов объявлений (MinHash + LSH).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.duplicates")
+@Data
+@Validated
+public class NearDuplicateProperties {
+
+    private boolean enabled = true;
+
+    // Длина символьного шингла нормализованного текста
+    @Min(2) @Max(10)
+    private int shingleSize = 5;
+
+    // Подпись - bands * rows значений MinHash. Пара попадает в кандидаты, если совпала хотя бы одна полоса:
+    // при 8 x 4 пара с похожестью 0.8 находится с вероятностью ~0.97, с похожестью 0.4 - ~0.19
+    @Min(1) @Max(32)
+    private int bands = 8;
+
+    @Min(1) @Max(16)
+    private int rows = 4;
+
+    // Минимальная оценка похожести (доля совпавших значений подписи), с которой объявление помечается дубликатом
+    @DecimalMin("0.1") @DecimalMax("1.0")
+    private double similarityThreshold = 0.8;
+
+    // Сколько последних объявлений держать в памяти (~0.5 КБ на объявление при 8 x 4)
+    @Min(1)
+    private int maxEntries = 200_000;
+}
@@ -0,0 +1,31 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки повторов системных изменений объявлений при конфликте версий (оптимистическая блокировка).
+ * Пользовательские правки не повторяются - клиент получает 409.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.optimistic-lock")
+@Data
+@Validated
+public class OptimisticLockRetryProperties {
+
+    // Всего попыток, включая первую
+    @Min(1)
+    @Max(10)
+    private int maxAttempts = 3;
+
+    // Пауза перед повтором, растет линейно с номером попытки и получает случайную добавку до того же значения
+    @NotNull
+    private Duration backoff = Duration.ofMillis(50);
+}
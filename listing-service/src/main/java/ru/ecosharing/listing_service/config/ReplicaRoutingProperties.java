@@ -0,0 +1,59 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Реплики PostgreSQL для read-only транзакций. Без реплик все запросы идут в основную БД (spring.datasource).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.datasource.read-replicas")
+@Data
+@Validated
+public class ReplicaRoutingProperties {
+
+    private boolean enabled = false;
+
+    // Реплика с отставанием больше порога исключается из маршрутизации до следующей проверки
+    @NotNull
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    // Реплика, не получавшая сообщений от primary дольше порога, считается оторванной от потока WAL
+    // (primary шлет keepalive не реже половины wal_sender_timeout, по умолчанию - раз в 30 секунд)
+    @NotNull
+    private Duration maxReceiverSilence = Duration.ofMinutes(1);
+
+    // Период проверки отставания реплик, мс
+    @Min(500)
+    private long lagCheckIntervalMs = 5_000;
+
+    @Valid
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+
+        @NotBlank
+        private String name;
+
+        @NotBlank
+        private String url;
+
+        // Если не заданы - берутся из spring.datasource
+        private String username;
+        private String password;
+
+        @Min(1)
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки бронирования объявлений и календаря занятости.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.reservations")
+@Data
+@Validated
+public class ReservationProperties {
+
+    // Максимальная длительность одной брони
+    @NotNull
+    private Duration maxDuration = Duration.ofDays(90);
+
+    // Насколько вперед можно бронировать и запрашивать календарь
+    @NotNull
+    private Duration horizon = Duration.ofDays(365);
+
+    // На сколько начало брони может быть в прошлом из-за расхождения часов клиента и сервера
+    @NotNull
+    private Duration clockSkewTolerance = Duration.ofMinutes(5);
+
+    // Календари объявлений в памяти инстанса (остаются наиболее запрашиваемые)
+    @Min(1)
+    private long calendarCacheMaximumSize = 5_000;
+
+    // Страховка на случай потерянного события инвалидации
+    @NotNull
+    private Duration calendarCacheExpireAfterWrite = Duration.ofMinutes(10);
+}
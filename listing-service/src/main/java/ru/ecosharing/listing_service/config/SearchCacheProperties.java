@@ -0,0 +1,36 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки кэширования запросов просмотра каталога в shard request cache Elasticsearch.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.search.request-cache")
+@Data
+@Validated
+public class SearchCacheProperties {
+
+    // Передавать ли request_cache=true для запросов только с фильтрами
+    private boolean enabled = true;
+
+    // Окно, в котором тот же запрос считается повтором (listing.search.repeat_shape); попаданием в кэш это не является,
+    // ES сбрасывает кэш шарда при refresh
+    @NotNull
+    private Duration repeatWindow = Duration.ofSeconds(30);
+
+    // Сколько последних отпечатков запросов хранить для оценки повторов
+    @Min(1)
+    private int maxTrackedQueries = 10_000;
+
+    // Период опроса статистики request cache индекса, мс
+    @Min(1000)
+    private long statsIntervalMs = 60_000;
+}
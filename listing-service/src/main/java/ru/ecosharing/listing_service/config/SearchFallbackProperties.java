@@ -0,0 +1,52 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки переключения публичного поиска с Elasticsearch на PostgreSQL.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.search.fallback")
+@Data
+@Validated
+public class SearchFallbackProperties {
+
+    // Разрешено ли вообще уходить в PostgreSQL (false - ошибки ES отдаются клиенту как раньше)
+    private boolean enabled = true;
+
+    // Процент ошибок ES в окне, при котором цепь размыкается
+    @Min(1) @Max(100)
+    private float failureRateThreshold = 50;
+
+    // Процент медленных запросов в окне, при котором цепь размыкается
+    @Min(1) @Max(100)
+    private float slowCallRateThreshold = 80;
+
+    // Запрос к ES дольше этого значения считается медленным
+    @NotNull
+    private Duration slowCallDuration = Duration.ofMillis(800);
+
+    // Размер скользящего окна (в запросах)
+    @Min(1)
+    private int slidingWindowSize = 50;
+
+    // Минимум запросов в окне до первой оценки
+    @Min(1)
+    private int minimumNumberOfCalls = 20;
+
+    // Сколько поиск обслуживается PostgreSQL, прежде чем снова попробовать ES
+    @NotNull
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+    // Количество пробных запросов к ES в полуоткрытом состоянии
+    @Min(1)
+    private int permittedCallsInHalfOpenState = 5;
+}
@@ -0,0 +1,39 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки метрик задержки поиска по формам запросов и журнала медленных запросов.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.search.latency")
+@Data
+@Validated
+public class SearchLatencyProperties {
+
+    private boolean enabled = true;
+
+    // Публиковать гистограммы (бакеты) для расчета перцентилей на стороне мониторинга - отдельным таймером
+    // listing.search.latency.histogram без тегов сортировки и глубины страницы
+    private boolean publishHistogram = true;
+
+    // Запрос дольше порога (общее время) считается медленным
+    @NotNull
+    private Duration slowThreshold = Duration.ofMillis(500);
+
+    // Доля медленных запросов, попадающих в журнал с текстом запроса ES (счетчик медленных учитывает все)
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double slowLogSampleRate = 0.1;
+
+    // Ограничение длины текста запроса в журнале
+    private int slowLogMaxQueryLength = 4000;
+}
@@ -1,5 +1,6 @@
 package ru.ecosharing.listing_service.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -41,9 +42,16 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Не создаем HTTP сессии
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Async-диспетчеризация потоковых ответов (экспорт): запрос уже авторизован при первичной обработке
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Публичные эндпоинты (просмотр объявлений и категорий)
                         .requestMatchers(HttpMethod.GET, "/api/listings").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/listings/changes").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/listings/{listingId}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/listings/{listingId}/similar").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/listings/{listingId}/calendar").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/listings/batch").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
 
                         // Эндпоинты, требующие аутентификации для всех пользователей
@@ -57,6 +65,7 @@ public class SecurityConfig {
 
                         // Эндпоинты для модераторов/администраторов
                         .requestMatchers("/api/moderation/**").hasAnyRole("MODERATOR", "ADMIN")
+                        .requestMatchers("/api/listings/admin/**").hasRole("ADMIN")
                         // Если есть админские эндпоинты для категорий
                         .requestMatchers(HttpMethod.POST, "/api/categories").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/categories/{categoryId}").hasRole("ADMIN")
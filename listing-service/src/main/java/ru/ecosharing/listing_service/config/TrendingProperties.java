@@ -0,0 +1,47 @@
+package ru.ecosharing.listing_service.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Настройки расчета "трендовости" объявлений по просмотрам и добавлениям в избранное.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.trending")
+@Data
+@Validated
+public class TrendingProperties {
+
+    // Период полураспада сигнала. Смена значения делает уже записанные в ES оценки несравнимыми с новыми
+    @NotNull
+    private Duration halfLife = Duration.ofHours(12);
+
+    @Positive
+    private double viewWeight = 1.0;
+
+    @Positive
+    private double favoriteWeight = 5.0;
+
+    // Период выгрузки изменившихся оценок в Elasticsearch, мс
+    @Min(1000)
+    private long pushIntervalMs = 30_000;
+
+    // Размер одного bulk-запроса к ES
+    @Min(1)
+    private int pushBatchSize = 500;
+
+    // Сколько периодов полураспада хранить оценку без новых сигналов (10 -> вклад старых сигналов < 0.1%)
+    @Min(1)
+    private int retentionHalfLives = 10;
+
+    // Верхняя граница числа объявлений в памяти
+    @Min(1)
+    private int maxTrackedListings = 200_000;
+}
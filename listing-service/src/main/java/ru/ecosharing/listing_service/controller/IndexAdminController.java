@@ -0,0 +1,34 @@
+package ru.ecosharing.listing_service.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
+
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/listings/admin/index")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class IndexAdminController {
+
+    private final ElasticsearchIndexService elasticsearchIndexService;
+
+    /**
+     * Полная переиндексация объявлений из БД пачками. Нужна после включения или выключения маршрутизации
+     * по категориям и разделения индексов: документы переписываются с актуальным routing в нужный индекс,
+     * старые копии удаляются.
+     */
+    @PostMapping("/reindex")
+    public ResponseEntity<Map<String, Integer>> reindexAll() {
+        log.info("POST /api/listings/admin/index/reindex");
+        int indexed = elasticsearchIndexService.reindexAll();
+        return ResponseEntity.ok(Map.of("indexed", indexed));
+    }
+}
@@ -1,5 +1,6 @@
 package ru.ecosharing.listing_service.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,25 +9,40 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification; // Для передачи спецификации из параметров запроса
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import ru.ecosharing.listing_service.dto.request.BatchGetListingsRequest;
 import ru.ecosharing.listing_service.dto.request.CreateListingRequest;
 import ru.ecosharing.listing_service.dto.request.UpdateListingRequest;
+import ru.ecosharing.listing_service.dto.response.ListingCalendarResponse;
+import ru.ecosharing.listing_service.dto.response.ListingChangesResponse;
+import ru.ecosharing.listing_service.dto.response.ListingImportJobResponse;
 import ru.ecosharing.listing_service.dto.response.ListingResponse;
+import ru.ecosharing.listing_service.dto.response.ListingStatsResponse;
 import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
 import ru.ecosharing.listing_service.dto.response.MessageResponse;
 import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument; // Если спецификация для ES
 import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+import ru.ecosharing.listing_service.exception.ListingOperationException;
 import ru.ecosharing.listing_service.security.JwtTokenProvider; // Для получения ID пользователя
+import ru.ecosharing.listing_service.service.ListingImportService;
 import ru.ecosharing.listing_service.service.ListingService;
+import ru.ecosharing.listing_service.service.ListingStatsService;
+import ru.ecosharing.listing_service.service.ListingSyncService;
+import ru.ecosharing.listing_service.service.ReservationService;
 // Для Specification Resolver, если используется:
 // import net.kaczmarzyk.spring.data.jpa.web.annotation.And;
 // import net.kaczmarzyk.spring.data.jpa.web.annotation.Spec;
 // import ru.ecosharing.listing_service.model.Listing; // Если спецификация для JPA
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -36,6 +52,10 @@ import java.util.UUID;
 public class ListingController {
 
     private final ListingService listingService;
+    private final ListingImportService listingImportService;
+    private final ListingStatsService listingStatsService;
+    private final ReservationService reservationService;
+    private final ListingSyncService listingSyncService;
 
     // --- Эндпоинты для объявлений текущего пользователя ("мои объявления") ---
     @PostMapping("/my")
@@ -76,6 +96,26 @@ public class ListingController {
         return ResponseEntity.ok(new MessageResponse("Объявление ID " + listingId + " успешно удалено."));
     }
 
+    // Массовый импорт: тело запроса - NDJSON или CSV, обработка асинхронная, ответ - ID задачи
+    @PostMapping(value = "/my/import", consumes = {ListingImportFormat.NDJSON_MEDIA_TYPE, ListingImportFormat.CSV_MEDIA_TYPE})
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ListingImportJobResponse> importMyListings(HttpServletRequest request) throws IOException {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        ListingImportFormat format = ListingImportFormat.fromContentType(request.getContentType())
+                .orElseThrow(() -> new ListingOperationException("Неподдерживаемый формат импорта: " + request.getContentType()));
+        log.info("POST /api/listings/my/import - User {} importing listings ({})", currentUserId, format);
+        ListingImportJobResponse job = listingImportService.startImport(currentUserId, format, request.getInputStream());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/my/import/{jobId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ListingImportJobResponse> getMyImportJob(@PathVariable UUID jobId) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.debug("GET /api/listings/my/import/{} - User {}", jobId, currentUserId);
+        return ResponseEntity.ok(listingImportService.getImportJob(currentUserId, jobId));
+    }
+
     @PatchMapping("/my/{listingId}/activate")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ListingResponse> activateMyListing(@PathVariable UUID listingId) {
@@ -94,6 +134,25 @@ public class ListingController {
         return ResponseEntity.ok(deactivatedListing);
     }
 
+    // Дневной график просмотров и избранного (по умолчанию за 90 дней)
+    @GetMapping("/my/{listingId}/stats")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ListingStatsResponse> getMyListingStats(@PathVariable UUID listingId,
+                                                                  @RequestParam(required = false) Integer days) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.debug("GET /api/listings/my/{}/stats - User {}, days: {}", listingId, currentUserId, days);
+        return ResponseEntity.ok(listingStatsService.getDailyStats(currentUserId, listingId, days));
+    }
+
+    @GetMapping("/my/{listingId}/stats/monthly")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ListingStatsResponse> getMyListingMonthlyStats(@PathVariable UUID listingId,
+                                                                         @RequestParam(required = false) Integer months) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.debug("GET /api/listings/my/{}/stats/monthly - User {}, months: {}", listingId, currentUserId, months);
+        return ResponseEntity.ok(listingStatsService.getMonthlyStats(currentUserId, listingId, months));
+    }
+
 
     // --- Публичные эндпоинты для просмотра и поиска ---
     @GetMapping("/{listingId}")
@@ -105,6 +164,42 @@ public class ListingController {
         return ResponseEntity.ok(listing);
     }
 
+    // Рейл "похожие": чаще всего добавлялись в избранное вместе с этим объявлением
+    @GetMapping("/{listingId}/similar")
+    public ResponseEntity<List<ListingSummaryResponse>> getSimilarListings(@PathVariable UUID listingId,
+                                                                           @RequestParam(required = false) Integer limit) {
+        log.debug("GET /api/listings/{}/similar - limit: {}", listingId, limit);
+        return ResponseEntity.ok(listingService.getSimilarListings(listingId, limit));
+    }
+
+    // Занятость активного объявления бронями; периоды берутся из календаря в памяти инстанса
+    @GetMapping("/{listingId}/calendar")
+    public ResponseEntity<ListingCalendarResponse> getListingCalendar(
+            @PathVariable UUID listingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
+        log.debug("GET /api/listings/{}/calendar - from: {}, to: {}", listingId, from, to);
+        return ResponseEntity.ok(reservationService.getListingCalendar(listingId, from, to));
+    }
+
+    // Лента изменений с позиции токена: клиент обновляет сохраненные карточки, не перекачивая страницы целиком
+    @GetMapping("/changes")
+    public ResponseEntity<ListingChangesResponse> getListingChanges(@RequestParam(required = false) String since,
+                                                                    @RequestParam(required = false) Integer limit) {
+        UUID currentUserId = JwtTokenProvider.getCurrentUserId().orElse(null);
+        log.debug("GET /api/listings/changes - limit: {}, current user: {}", limit, currentUserId);
+        return ResponseEntity.ok(listingSyncService.getChangesSince(since, limit, currentUserId));
+    }
+
+    // Краткие карточки по списку ID в порядке запроса (ленты, "недавно просмотренные"); просмотром не считается
+    @PostMapping("/batch")
+    public ResponseEntity<List<ListingSummaryResponse>> getListingsByIds(@Valid @RequestBody BatchGetListingsRequest request) {
+        UUID currentUserId = JwtTokenProvider.getCurrentUserId().orElse(null);
+        log.debug("POST /api/listings/batch - {} ids. Current user: {}", request.getListingIds().size(), currentUserId);
+        return ResponseEntity.ok(listingService.getListingsByIds(request.getListingIds(), currentUserId));
+    }
+
+    // Помимо полей объявления поддерживается sort=trending - по популярности с учетом затухания
     @GetMapping
     public ResponseEntity<Page<ListingSummaryResponse>> searchListings(
             @RequestParam(required = false) UUID categoryId,
@@ -113,10 +208,14 @@ public class ListingController {
             @RequestParam(required = false) BigDecimal priceFrom,
             @RequestParam(required = false) BigDecimal priceTo,
             @RequestParam(required = false) AvailabilityStatus availabilityStatus,
+            // Свободно от броней на период [availableFrom, availableTo), ISO-8601 с зоной
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime availableFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime availableTo,
             @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable
     ) {
         log.info("GET /api/listings - Searching listings. Pageable: {}", pageable);
-        Page<ListingSummaryResponse> listings = listingService.searchListings(categoryId, searchTerm, locationText, priceFrom, priceTo, availabilityStatus, pageable);
+        Page<ListingSummaryResponse> listings = listingService.searchListings(categoryId, searchTerm, locationText, priceFrom, priceTo, availabilityStatus,
+                availableFrom, availableTo, pageable);
         return ResponseEntity.ok(listings);
     }
 
@@ -0,0 +1,57 @@
+package ru.ecosharing.listing_service.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.ecosharing.listing_service.dto.request.ListingExportFilter;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.service.ListingExportService;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/listings/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class ListingExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ListingExportService listingExportService;
+
+    /**
+     * Потоковая выгрузка объявлений в NDJSON для аналитики.
+     * Для инкрементальной выгрузки передается updatedSince = max(updatedAt) предыдущей выгрузки;
+     * граница включительная, поэтому строки на границе могут повториться и дедуплицируются по id.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportListings(
+            @RequestParam(required = false) ModerationStatus moderationStatus,
+            @RequestParam(required = false) AvailabilityStatus availabilityStatus,
+            @RequestParam(required = false) UUID categoryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime updatedSince) {
+        ListingExportFilter filter = ListingExportFilter.builder()
+                .moderationStatus(moderationStatus)
+                .availabilityStatus(availabilityStatus)
+                .categoryId(categoryId)
+                .updatedSince(updatedSince)
+                .build();
+        log.info("GET /api/listings/admin/export - filter: {}", filter);
+
+        StreamingResponseBody body = out -> listingExportService.exportListings(filter, out);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(body);
+    }
+}
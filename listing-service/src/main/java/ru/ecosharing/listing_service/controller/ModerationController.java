@@ -9,7 +9,9 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import ru.ecosharing.listing_service.dto.request.BulkModerateListingsRequest;
 import ru.ecosharing.listing_service.dto.request.ModerateListingRequest;
+import ru.ecosharing.listing_service.dto.response.BulkModerationResponse;
 import ru.ecosharing.listing_service.dto.response.ListingResponse;
 import ru.ecosharing.listing_service.dto.response.ModerationListingResponse;
 import ru.ecosharing.listing_service.security.JwtTokenProvider;
@@ -44,10 +46,12 @@ public class ModerationController {
     }
 
     @PostMapping("/{listingId}/approve")
-    public ResponseEntity<ListingResponse> approveListing(@PathVariable UUID listingId) {
+    public ResponseEntity<ListingResponse> approveListing(
+            @PathVariable UUID listingId,
+            @RequestParam(required = false) Long version) { // Версия, которую видел модератор; при расхождении - 409
         UUID moderatorId = getCurrentUserIdOrThrow();
         log.info("POST /api/moderation/listings/{}/approve - Moderator {} approving listing.", listingId, moderatorId);
-        ListingResponse approvedListing = moderationService.approveListing(listingId, moderatorId);
+        ListingResponse approvedListing = moderationService.approveListing(listingId, moderatorId, version);
         return ResponseEntity.ok(approvedListing);
     }
 
@@ -71,6 +75,16 @@ public class ModerationController {
         return ResponseEntity.ok(rejectedListing);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkModerationResponse> moderateListings(
+            @Valid @RequestBody BulkModerateListingsRequest request) {
+        UUID moderatorId = getCurrentUserIdOrThrow();
+        log.info("POST /api/moderation/listings/bulk - Moderator {} moderating {} listings -> {}.",
+                moderatorId, request.getListingIds().size(), request.getNewStatus());
+        BulkModerationResponse response = moderationService.moderateListings(moderatorId, request);
+        return ResponseEntity.ok(response);
+    }
+
     private UUID getCurrentUserIdOrThrow() {
         return JwtTokenProvider.getCurrentUserId()
                 .orElseThrow(() -> new IllegalStateException("Moderator/Admin ID not found in security context. This should not happen."));
@@ -0,0 +1,58 @@
+package ru.ecosharing.listing_service.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import ru.ecosharing.listing_service.dto.request.CreateReservationRequest;
+import ru.ecosharing.listing_service.dto.response.ReservationResponse;
+import ru.ecosharing.listing_service.security.JwtTokenProvider;
+import ru.ecosharing.listing_service.service.ReservationService;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/reservations")
+@RequiredArgsConstructor
+@PreAuthorize("isAuthenticated()")
+public class ReservationController {
+
+    private final ReservationService reservationService;
+
+    // Занятый период - 409, календарь объявления: GET /api/listings/{listingId}/calendar
+    @PostMapping
+    public ResponseEntity<ReservationResponse> createReservation(@Valid @RequestBody CreateReservationRequest request) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.info("POST /api/reservations - User {} reserving listing {}", currentUserId, request.getListingId());
+        ReservationResponse response = reservationService.createReservation(currentUserId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/my")
+    public ResponseEntity<Page<ReservationResponse>> getMyReservations(
+            @PageableDefault(size = 20, sort = "startsAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.info("GET /api/reservations/my - User {} fetching reservations. Pageable: {}", currentUserId, pageable);
+        return ResponseEntity.ok(reservationService.getMyReservations(currentUserId, pageable));
+    }
+
+    @PostMapping("/{reservationId}/cancel")
+    public ResponseEntity<ReservationResponse> cancelReservation(@PathVariable UUID reservationId) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.info("POST /api/reservations/{}/cancel - User {}", reservationId, currentUserId);
+        return ResponseEntity.ok(reservationService.cancelReservation(currentUserId, reservationId));
+    }
+
+    private UUID getCurrentUserIdOrThrow() {
+        return JwtTokenProvider.getCurrentUserId()
+                .orElseThrow(() -> new IllegalStateException("User ID not found in security context."));
+    }
+}
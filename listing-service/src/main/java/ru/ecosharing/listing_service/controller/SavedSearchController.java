@@ -0,0 +1,59 @@
+package ru.ecosharing.listing_service.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import ru.ecosharing.listing_service.dto.request.SavedSearchRequest;
+import ru.ecosharing.listing_service.dto.response.MessageResponse;
+import ru.ecosharing.listing_service.dto.response.SavedSearchResponse;
+import ru.ecosharing.listing_service.security.JwtTokenProvider;
+import ru.ecosharing.listing_service.service.SavedSearchService;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/saved-searches")
+@RequiredArgsConstructor
+@PreAuthorize("isAuthenticated()")
+public class SavedSearchController {
+
+    private final SavedSearchService savedSearchService;
+
+    @PostMapping
+    public ResponseEntity<SavedSearchResponse> createSavedSearch(@Valid @RequestBody SavedSearchRequest request) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.info("POST /api/saved-searches - User {} saving search '{}'", currentUserId, request.getName());
+        SavedSearchResponse response = savedSearchService.createSavedSearch(currentUserId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping
+    public ResponseEntity<Page<SavedSearchResponse>> getMySavedSearches(
+            @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.info("GET /api/saved-searches - User {} fetching saved searches. Pageable: {}", currentUserId, pageable);
+        return ResponseEntity.ok(savedSearchService.getMySavedSearches(currentUserId, pageable));
+    }
+
+    @DeleteMapping("/{savedSearchId}")
+    public ResponseEntity<MessageResponse> deleteSavedSearch(@PathVariable UUID savedSearchId) {
+        UUID currentUserId = getCurrentUserIdOrThrow();
+        log.info("DELETE /api/saved-searches/{} - User {}", savedSearchId, currentUserId);
+        savedSearchService.deleteSavedSearch(currentUserId, savedSearchId);
+        return ResponseEntity.ok(new MessageResponse("Сохраненный поиск удален."));
+    }
+
+    private UUID getCurrentUserIdOrThrow() {
+        return JwtTokenProvider.getCurrentUserId()
+                .orElseThrow(() -> new IllegalStateException("User ID not found in security context."));
+    }
+}
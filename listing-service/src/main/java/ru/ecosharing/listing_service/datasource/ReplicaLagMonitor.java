@@ -0,0 +1,139 @@
+package ru.ecosharing.listing_service.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Периодически измеряет отставание реплик и отмечает реплики, доступные для чтения.
+ * До первой успешной проверки реплика считается недоступной.
+ * <p>
+ * Совпадение полученной и примененной позиций WAL не значит, что реплика актуальна: при оборванном потоке
+ * новые записи просто не приходят. Поэтому реплика доступна только с работающим WAL receiver
+ * (строка в pg_stat_wal_receiver в статусе streaming), получавшим сообщения от primary не дольше maxReceiverSilence
+ * назад - primary шлет keepalive и без записи. Статус и время последнего сообщения видны роли с pg_read_all_stats;
+ * без нее проверяется только наличие receiver.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements DisposableBean {
+
+    // Отставание 0, если поток WAL идет и реплика применила все полученное (нет записи на primary - нет и replay);
+    // без receiver - время с последней примененной транзакции
+    private static final String LAG_SQL = """
+            SELECT CASE
+                       WHEN r.pid IS NOT NULL AND pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END AS lag_seconds,
+                   pg_is_in_recovery() AS in_recovery,
+                   r.pid IS NOT NULL AS receiver_running,
+                   r.status AS receiver_status,
+                   EXTRACT(EPOCH FROM now() - r.last_msg_receipt_time) AS receiver_silence_seconds
+            FROM (SELECT 1) AS probe
+            LEFT JOIN pg_stat_wal_receiver r ON true
+            """;
+    private static final String STREAMING = "streaming";
+
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final Duration maxReceiverSilence;
+    private final Map<String, Double> lagSeconds = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> available = new ConcurrentHashMap<>();
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, Duration maxLag, Duration maxReceiverSilence,
+                             MeterRegistry meterRegistry) {
+        this.replicas = Map.copyOf(replicas);
+        this.maxLag = maxLag;
+        this.maxReceiverSilence = maxReceiverSilence;
+        replicas.keySet().forEach(name -> {
+            lagSeconds.put(name, Double.NaN);
+            available.put(name, false);
+            Gauge.builder("db.replica.lag.seconds", lagSeconds, m -> m.getOrDefault(name, Double.NaN))
+                    .description("Отставание реплики от основной БД")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.available", available, m -> Boolean.TRUE.equals(m.get(name)) ? 1 : 0)
+                    .description("Используется ли реплика для чтения")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    public DataSource getDataSource(String replica) {
+        return replicas.get(replica);
+    }
+
+    public boolean isAvailable(String replica) {
+        return Boolean.TRUE.equals(available.get(replica));
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.read-replicas.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        replicas.forEach((name, dataSource) -> {
+            boolean wasAvailable = isAvailable(name);
+            boolean nowAvailable;
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                double lag = rs.getDouble("lag_seconds");
+                lagSeconds.put(name, lag);
+                // Узел, вышедший из recovery (например, после failover стал primary), репликой больше не является
+                nowAvailable = rs.getBoolean("in_recovery") && isStreaming(name, rs) && lag <= maxLag.toMillis() / 1000.0;
+            } catch (Exception e) {
+                lagSeconds.put(name, Double.NaN);
+                nowAvailable = false;
+                if (wasAvailable) {
+                    log.warn("Replica '{}' lag check failed: {}", name, e.getMessage());
+                }
+            }
+            available.put(name, nowAvailable);
+            if (wasAvailable != nowAvailable) {
+                log.info("Replica '{}' is now {} (lag {}s, max {}s)", name, nowAvailable ? "available" : "excluded from reads",
+                        lagSeconds.get(name), maxLag.toSeconds());
+            }
+        });
+    }
+
+    private boolean isStreaming(String name, ResultSet rs) throws SQLException {
+        if (!rs.getBoolean("receiver_running")) {
+            log.debug("Replica '{}' has no WAL receiver", name);
+            return false;
+        }
+        String status = rs.getString("receiver_status");
+        if (status != null && !STREAMING.equals(status)) {
+            log.debug("Replica '{}' WAL receiver is {}", name, status);
+            return false;
+        }
+        double silence = rs.getDouble("receiver_silence_seconds");
+        if (!rs.wasNull() && silence > maxReceiverSilence.toMillis() / 1000.0) {
+            log.debug("Replica '{}' received nothing from primary for {}s", name, silence);
+            return false;
+        }
+        return true;
+    }
+
+    // Пулы реплик создаются вне контекста Spring, поэтому закрываются здесь
+    @Override
+    public void destroy() {
+        replicas.values().forEach(dataSource -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close replica pool: {}", e.getMessage());
+                }
+            }
+        });
+    }
+}
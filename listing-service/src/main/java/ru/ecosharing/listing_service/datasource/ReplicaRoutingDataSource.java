@@ -0,0 +1,62 @@
+package ru.ecosharing.listing_service.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Маршрутизация соединений: read-only транзакции идут на реплики (по кругу среди реплик с допустимым отставанием),
+ * остальное - в основную БД. Работает только за LazyConnectionDataSourceProxy: флаг readOnly транзакции
+ * выставляется после ее начала, и физическое соединение должно запрашиваться не раньше первого запроса.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<String> replicaNames;
+    private final ReplicaLagMonitor lagMonitor;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+    private final Counter fallbackCounter;
+
+    public ReplicaRoutingDataSource(List<String> replicaNames, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.replicaNames = List.copyOf(replicaNames);
+        this.lagMonitor = lagMonitor;
+        this.primaryCounter = routingCounter(meterRegistry, "primary");
+        this.replicaCounter = routingCounter(meterRegistry, "replica");
+        this.fallbackCounter = routingCounter(meterRegistry, "fallback");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryCounter.increment();
+            return PRIMARY;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicaNames.size());
+        for (int i = 0; i < replicaNames.size(); i++) {
+            String candidate = replicaNames.get((start + i) % replicaNames.size());
+            if (lagMonitor.isAvailable(candidate)) {
+                replicaCounter.increment();
+                return candidate;
+            }
+        }
+        // Все реплики отстают или недоступны - читаем из основной БД
+        fallbackCounter.increment();
+        return PRIMARY;
+    }
+
+    private static Counter routingCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("db.routing")
+                .description("Выбор источника данных для соединений")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
@@ -17,6 +17,7 @@ public abstract class AbstractListingEvent {
     private Instant eventTime;   // Время возникновения события
     private UUID listingId;      // ID объявления, к которому относится событие
     private String eventType;    // Тип события (например, "LISTING_CREATED", "LISTING_UPDATED")
+    private Long version;        // Версия строки listings после изменения; null - событие строку не меняет или старого формата
 
     public AbstractListingEvent(UUID listingId, String eventType) {
         this.eventId = UUID.randomUUID();
@@ -0,0 +1,26 @@
+package ru.ecosharing.listing_service.dto.kafka;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.util.List;
+
+/**
+ * В таблице currency_rates появились новые курсы. Все инстансы перечитывают курсы сразу, не дожидаясь
+ * планового обновления, чтобы документы, индексируемые до переиндексации валюты, получали новый курс.
+ * listingId у события не заполняется.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@SuperBuilder
+@NoArgsConstructor
+public class FxRatesChangedEvent extends AbstractListingEvent {
+    private List<String> currencies;
+
+    public FxRatesChangedEvent(List<String> currencies) {
+        super(null, "FX_RATES_CHANGED");
+        this.currencies = currencies;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.ecosharing.listing_service.dto.kafka;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Пачка объявлений, созданных массовым импортом. Содержит только ID:
+ * индексатор читает объявления из БД одним запросом и индексирует их одним bulk-запросом.
+ * listingId у события не заполняется.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@SuperBuilder
+@NoArgsConstructor
+public class ListingBatchCreatedEvent extends AbstractListingEvent {
+    private UUID userId;
+    private UUID importJobId;
+    private List<UUID> listingIds;
+
+    public ListingBatchCreatedEvent(UUID userId, UUID importJobId, List<UUID> listingIds) {
+        super(null, "LISTING_BATCH_CREATED");
+        this.userId = userId;
+        this.importJobId = importJobId;
+        this.listingIds = listingIds;
+    }
+}
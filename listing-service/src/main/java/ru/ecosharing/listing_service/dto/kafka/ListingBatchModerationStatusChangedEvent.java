@@ -0,0 +1,40 @@
+package ru.ecosharing.listing_service.dto.kafka;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Смена статуса модерации у пачки объявлений одним set-based обновлением (снятие устаревших, массовая модерация).
+ * Индексатор перечитывает объявления из БД и переиндексирует их одним bulk-запросом.
+ * listingId у события не заполняется.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@SuperBuilder
+@NoArgsConstructor
+public class ListingBatchModerationStatusChangedEvent extends AbstractListingEvent {
+    private List<UUID> listingIds;
+    private ModerationStatus newModerationStatus;
+    // Статус всех объявлений пачки до изменения; null - статусы были разными или неизвестны
+    private ModerationStatus oldModerationStatus;
+    private String reason; // Источник изменения: "EXPIRED", "MODERATION"
+
+    public ListingBatchModerationStatusChangedEvent(List<UUID> listingIds, ModerationStatus newModerationStatus, String reason) {
+        super(null, "LISTING_BATCH_MODERATION_STATUS_CHANGED");
+        this.listingIds = listingIds;
+        this.newModerationStatus = newModerationStatus;
+        this.reason = reason;
+    }
+
+    public ListingBatchModerationStatusChangedEvent(List<UUID> listingIds, ModerationStatus newModerationStatus,
+                                                    ModerationStatus oldModerationStatus, String reason) {
+        this(listingIds, newModerationStatus, reason);
+        this.oldModerationStatus = oldModerationStatus;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
 
 import java.util.UUID;
 
@@ -12,8 +13,17 @@ import java.util.UUID;
 @SuperBuilder
 @NoArgsConstructor
 public class ListingDeletedEvent extends AbstractListingEvent {
+    // Состояние объявления на момент удаления (для счетчиков категорий)
+    private UUID categoryId;
+    private ModerationStatus moderationStatus;
 
     public ListingDeletedEvent(UUID listingId) {
         super(listingId, "LISTING_DELETED");
     }
+
+    public ListingDeletedEvent(UUID listingId, UUID categoryId, ModerationStatus moderationStatus) {
+        this(listingId);
+        this.categoryId = categoryId;
+        this.moderationStatus = moderationStatus;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package ru.ecosharing.listing_service.dto.kafka;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.util.UUID;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@SuperBuilder
+@NoArgsConstructor
+public class ListingFavoriteRemovedEvent extends AbstractListingEvent {
+    private UUID userId;
+
+    public ListingFavoriteRemovedEvent(UUID listingId, UUID userId) {
+        super(listingId, "LISTING_FAVORITE_REMOVED");
+        this.userId = userId;
+    }
+}
@@ -15,10 +15,17 @@ import java.util.UUID;
 public class ListingModerationStatusChangedEvent extends AbstractListingEvent {
     private ModerationStatus newModerationStatus;
     private ModerationStatus oldModerationStatus; // Опционально, для логики у консьюмера
+    private UUID categoryId; // Категория объявления (для счетчиков категорий)
 
     public ListingModerationStatusChangedEvent(UUID listingId, ModerationStatus newModerationStatus, ModerationStatus oldModerationStatus, UUID moderatorId) {
         super(listingId, "LISTING_MODERATION_STATUS_CHANGED");
         this.newModerationStatus = newModerationStatus;
         this.oldModerationStatus = oldModerationStatus;
     }
+
+    public ListingModerationStatusChangedEvent(UUID listingId, UUID categoryId, ModerationStatus newModerationStatus,
+                                               ModerationStatus oldModerationStatus, UUID moderatorId) {
+        this(listingId, newModerationStatus, oldModerationStatus, moderatorId);
+        this.categoryId = categoryId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package ru.ecosharing.listing_service.dto.kafka;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.util.UUID;
+
+/**
+ * Бронь объявления создана или отменена. Сами периоды в событии не передаются:
+ * получатель перечитывает актуальные брони из БД, поэтому порядок событий не важен.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@SuperBuilder
+@NoArgsConstructor
+public class ListingReservationsChangedEvent extends AbstractListingEvent {
+    private UUID reservationId;
+
+    public ListingReservationsChangedEvent(UUID listingId, UUID reservationId) {
+        super(listingId, "LISTING_RESERVATIONS_CHANGED");
+        this.reservationId = reservationId;
+    }
+}
@@ -4,18 +4,26 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
 import ru.ecosharing.listing_service.enums.PriceType;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.Map;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
 @SuperBuilder
 @NoArgsConstructor
 public class ListingUpdatedEvent extends AbstractListingEvent {
+
+    // Имена полей ListingDocument, которые изменились в этом обновлении.
+    // Заполнены только эти поля события, значение null у перечисленного поля означает его очистку.
+    // null вместо набора - событие старого формата, где все непустые поля считаются измененными
+    private Set<String> changedFields;
+
     private String title;
     private String description;
     private UUID categoryId;
@@ -25,7 +33,20 @@ public class ListingUpdatedEvent extends AbstractListingEvent {
     private BigDecimal price;
     private String currency;
     private PriceType priceType;
+    // Заполняется, если правка владельца вернула объявление на модерацию
+    private ModerationStatus moderationStatus;
+    // Категория и статус до правки - заполняются, если изменилась категория или статус (для счетчиков категорий).
+    // Не поля документа, в changedFields не попадают
+    private UUID previousCategoryId;
+    private ModerationStatus previousModerationStatus;
 
+    /**
+     * Пустой набор изменений, поля добавляются по мере сравнения.
+     */
+    public ListingUpdatedEvent(UUID listingId) {
+        super(listingId, "LISTING_UPDATED");
+        this.changedFields = new LinkedHashSet<>();
+    }
 
     public ListingUpdatedEvent(UUID listingId, String title, String description,
                                UUID categoryId, String mainImageUrl, List<String> additionalImageUrls,
@@ -41,4 +62,8 @@ public class ListingUpdatedEvent extends AbstractListingEvent {
         this.currency = currency;
         this.priceType = priceType;
     }
-}
\ No newline at end of file
+
+    public boolean hasChanges() {
+        return changedFields == null || !changedFields.isEmpty();
+    }
+}
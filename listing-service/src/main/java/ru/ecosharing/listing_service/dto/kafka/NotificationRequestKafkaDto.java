@@ -0,0 +1,26 @@
+package ru.ecosharing.listing_service.dto.kafka;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.ecosharing.listing_service.enums.NotificationType;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Запрос на отправку уведомления в Notification Service (формат совпадает с DTO Notification Service).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationRequestKafkaDto {
+    private UUID userId;
+    private String recipientTelegramId;
+    private NotificationType notificationType;
+    private Map<String, String> params;
+    private String targetUrl;
+    private boolean attachWebAppButton;
+}
@@ -0,0 +1,20 @@
+package ru.ecosharing.listing_service.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchGetListingsRequest {
+
+    public static final int MAX_LISTINGS = 100;
+
+    // Порядок сохраняется в ответе; повторы и неактивные/удаленные объявления пропускаются
+    @NotEmpty(message = "Список объявлений не может быть пустым")
+    @Size(max = MAX_LISTINGS, message = "За один запрос можно получить не более " + MAX_LISTINGS + " объявлений")
+    private List<@NotNull UUID> listingIds;
+}
@@ -0,0 +1,29 @@
+package ru.ecosharing.listing_service.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BulkModerateListingsRequest {
+
+    public static final int MAX_LISTINGS = 500;
+
+    @NotEmpty(message = "Список объявлений не может быть пустым")
+    @Size(max = MAX_LISTINGS, message = "За один запрос можно промодерировать не более " + MAX_LISTINGS + " объявлений")
+    private List<@NotNull UUID> listingIds;
+
+    @NotNull(message = "Новый статус модерации не может быть null")
+    private ModerationStatus newStatus; // ACTIVE, NEEDS_REVISION, REJECTED - одно решение на всю пачку
+
+    @Size(max = 2000, message = "Комментарий модератора слишком длинный")
+    private String moderationComment; // Обязателен для NEEDS_REVISION и REJECTED
+
+    @Size(max = 500, message = "Причина отклонения слишком длинная")
+    private String rejectionReason;
+}
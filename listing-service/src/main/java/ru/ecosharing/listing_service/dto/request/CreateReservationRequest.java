@@ -0,0 +1,22 @@
+package ru.ecosharing.listing_service.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+public class CreateReservationRequest {
+
+    @NotNull(message = "ID объявления обязателен")
+    private UUID listingId;
+
+    // Не в прошлом проверяет сервис - с допуском на расхождение часов клиента (app.reservations.clock-skew-tolerance)
+    @NotNull(message = "Начало периода обязательно")
+    private OffsetDateTime startsAt;
+
+    // Не включительно: следующая бронь может начаться ровно в этот момент
+    @NotNull(message = "Конец периода обязателен")
+    private OffsetDateTime endsAt;
+}
@@ -0,0 +1,18 @@
+package ru.ecosharing.listing_service.dto.request;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ListingExportFilter {
+    private ModerationStatus moderationStatus;
+    private AvailabilityStatus availabilityStatus;
+    private UUID categoryId;
+    private OffsetDateTime updatedSince; // Включительно: для инкрементальной выгрузки передается max(updatedAt) прошлой выгрузки
+}
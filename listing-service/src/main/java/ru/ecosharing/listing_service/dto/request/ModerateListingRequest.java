@@ -16,4 +16,6 @@ public class ModerateListingRequest {
 
     @Size(max = 500, message = "Причина отклонения слишком длинная")
     private String rejectionReason; // Опционально, для детализации
+
+    private Long version; // Версия объявления, которую видел модератор; при расхождении - 409
 }
\ No newline at end of file
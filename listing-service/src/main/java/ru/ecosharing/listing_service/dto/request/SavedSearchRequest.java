@@ -0,0 +1,35 @@
+package ru.ecosharing.listing_service.dto.request;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+public class SavedSearchRequest {
+
+    @NotBlank(message = "Название поиска не может быть пустым")
+    @Size(max = 100, message = "Название поиска слишком длинное")
+    private String name;
+
+    // Фильтры совпадают с параметрами GET /api/listings
+    private UUID categoryId;
+
+    @Size(max = 255, message = "Поисковая строка слишком длинная")
+    private String searchTerm;
+
+    @Size(max = 255, message = "Местоположение слишком длинное")
+    private String locationText;
+
+    @DecimalMin(value = "0.0", message = "Цена не может быть отрицательной")
+    private BigDecimal priceFrom;
+
+    @DecimalMin(value = "0.0", message = "Цена не может быть отрицательной")
+    private BigDecimal priceTo;
+
+    private AvailabilityStatus availabilityStatus;
+}
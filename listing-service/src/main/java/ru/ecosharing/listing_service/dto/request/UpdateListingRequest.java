@@ -37,4 +37,6 @@ public class UpdateListingRequest {
 
     private PriceType priceType;
 
+    private Long version; // Версия из ответа, на основе которого сделана правка; при расхождении - 409
+
 }
\ No newline at end of file
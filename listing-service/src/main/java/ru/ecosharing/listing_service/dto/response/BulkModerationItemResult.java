@@ -0,0 +1,17 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkModerationItemResult {
+    private UUID listingId;
+    private ModerationStatus currentStatus; // null - объявление не найдено
+    private String message;
+}
@@ -0,0 +1,17 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class BulkModerationResponse {
+    private ModerationStatus newStatus;
+    private int requested;
+    private List<UUID> updated; // Объявления, переведенные в newStatus
+    private List<BulkModerationItemResult> skipped; // Не найдены или статус не допускает перехода
+}
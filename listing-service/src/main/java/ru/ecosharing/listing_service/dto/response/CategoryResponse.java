@@ -14,4 +14,5 @@ public class CategoryResponse {
     private UUID parentId;
     private List<CategoryResponse> children; // Для отображения иерархии (может быть null или пустым)
     private boolean isActive; // Добавлено, чтобы клиент знал об активности
+    private Long listingCount; // Опубликованные объявления с учетом подкатегорий (только в дереве категорий)
 }
\ No newline at end of file
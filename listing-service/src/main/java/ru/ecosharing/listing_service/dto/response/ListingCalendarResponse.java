@@ -0,0 +1,20 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Занятость объявления в запрошенном интервале. Кто забронировал, в публичном календаре не показывается.
+ */
+@Data
+@Builder
+public class ListingCalendarResponse {
+    private UUID listingId;
+    private Instant from;
+    private Instant to;
+    private List<ReservedPeriodResponse> reservedPeriods;
+}
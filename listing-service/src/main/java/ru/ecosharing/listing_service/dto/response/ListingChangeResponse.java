@@ -0,0 +1,15 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.ListingChangeType;
+
+import java.util.UUID;
+
+@Data
+@Builder
+public class ListingChangeResponse {
+    private UUID listingId;
+    private ListingChangeType type;
+    private ListingSummaryResponse listing; // Только для UPSERTED
+}
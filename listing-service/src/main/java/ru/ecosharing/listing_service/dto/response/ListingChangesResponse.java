@@ -0,0 +1,19 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Страница ленты изменений. Клиент сохраняет nextToken и передает его при следующем запросе;
+ * при hasMore=true следующую страницу можно запросить сразу.
+ */
+@Data
+@Builder
+public class ListingChangesResponse {
+    private List<ListingChangeResponse> changes; // Каждое объявление - не больше одного раза, по возрастанию позиции
+    private String nextToken;
+    private boolean hasMore;
+    private boolean resetRequired; // Токен недействителен: клиенту нужно сбросить данные и начать без токена
+}
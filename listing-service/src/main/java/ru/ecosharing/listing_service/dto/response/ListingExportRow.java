@@ -0,0 +1,37 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.PriceType;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Строка NDJSON-выгрузки объявлений.
+ */
+@Data
+@Builder
+public class ListingExportRow {
+    private UUID id;
+    private UUID userId;
+    private String title;
+    private String description;
+    private UUID categoryId;
+    private String mainImageUrl;
+    private List<String> additionalImageUrls;
+    private String locationText;
+    private BigDecimal price;
+    private String currency;
+    private PriceType priceType;
+    private ModerationStatus moderationStatus;
+    private AvailabilityStatus availabilityStatus;
+    private int viewCount;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime updatedAt;
+    private OffsetDateTime lastModeratedAt;
+}
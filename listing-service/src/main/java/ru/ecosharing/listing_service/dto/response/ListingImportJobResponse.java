@@ -0,0 +1,26 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+import ru.ecosharing.listing_service.enums.ListingImportStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ListingImportJobResponse {
+    private UUID jobId;
+    private ListingImportFormat format;
+    private ListingImportStatus status;
+    private long processedRows;
+    private long importedRows;
+    private long failedRows;
+    private List<ListingImportRowError> errors; // Не более app.import.max-reported-errors
+    private boolean errorsTruncated;
+    private String failureReason;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,13 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingImportRowError {
+    private long row;       // Номер строки данных (с 1, без заголовка CSV)
+    private String message;
+}
@@ -12,7 +12,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class ListingResponse {
     private UUID id;
     private UserSummaryDto owner;
@@ -33,5 +33,6 @@ public class ListingResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime lastModeratedAt;
+    private Long version; // Передается обратно при правке для обнаружения конфликтов
     private boolean isFavorite; // Для текущего пользователя, добавившего в избранное (вычисляется в сервисе)
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingStatsPoint {
+    private LocalDate date; // День или первый день месяца
+    private long views;
+    private long favoritesAdded;
+    private long favoritesRemoved;
+}
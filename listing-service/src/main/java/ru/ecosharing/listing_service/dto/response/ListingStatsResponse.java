@@ -0,0 +1,22 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.StatsGranularity;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ListingStatsResponse {
+    private UUID listingId;
+    private StatsGranularity granularity;
+    private LocalDate from;
+    private LocalDate to;
+    private long totalViews;
+    private long totalFavoritesAdded;
+    private long totalFavoritesRemoved;
+    private List<ListingStatsPoint> points; // По порядку, без пропусков
+}
@@ -33,4 +33,7 @@ public class ModerationListingResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime lastModeratedAt;
+    private Long version; // Передается обратно при правке для обнаружения конфликтов
+    private UUID duplicateOfListingId; // Похожее объявление, если найден почти-дубликат
+    private Double duplicateSimilarity; // Оценка похожести 0..1 (сортировка очереди: sort=duplicateSimilarity,desc)
 }
\ No newline at end of file
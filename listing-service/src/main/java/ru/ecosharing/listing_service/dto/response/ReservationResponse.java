@@ -0,0 +1,22 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class ReservationResponse {
+    private UUID id;
+    private UUID listingId;
+    private UUID userId;
+    private Instant startsAt;
+    private Instant endsAt; // Не включительно
+    private ReservationStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime cancelledAt;
+}
@@ -0,0 +1,13 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class ReservedPeriodResponse {
+    private Instant startsAt;
+    private Instant endsAt; // Не включительно
+}
@@ -0,0 +1,23 @@
+package ru.ecosharing.listing_service.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+public class SavedSearchResponse {
+    private UUID id;
+    private String name;
+    private UUID categoryId;
+    private String searchTerm;
+    private String locationText;
+    private BigDecimal priceFrom;
+    private BigDecimal priceTo;
+    private AvailabilityStatus availabilityStatus;
+    private LocalDateTime createdAt;
+}
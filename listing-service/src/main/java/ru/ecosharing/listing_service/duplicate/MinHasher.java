@@ -0,0 +1,81 @@
+package ru.ecosharing.listing_service.duplicate;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * MinHash-подпись текста по символьным шинглам.
+ * Доля совпавших позиций двух подписей - несмещенная оценка коэффициента Жаккара множеств их шинглов.
+ */
+final class MinHasher {
+
+    private final int shingleSize;
+    private final long[] seeds;
+
+    MinHasher(int shingleSize, int signatureLength) {
+        this.shingleSize = shingleSize;
+        this.seeds = new long[signatureLength];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < signatureLength; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L); // Фиксированные сиды: подписи сравнимы между перезапусками
+            seeds[i] = seed;
+        }
+    }
+
+    int[] signature(String title, String description) {
+        String text = normalize(title + " " + (description != null ? description : ""));
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        if (text.length() < shingleSize) {
+            updateSignature(signature, hash(text, 0, text.length()));
+            return signature;
+        }
+        for (int start = 0; start + shingleSize <= text.length(); start++) {
+            updateSignature(signature, hash(text, start, start + shingleSize));
+        }
+        return signature;
+    }
+
+    private void updateSignature(int[] signature, long shingleHash) {
+        for (int i = 0; i < seeds.length; i++) {
+            int value = (int) (mix(shingleHash ^ seeds[i]) >>> 33);
+            if (value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    // Нижний регистр, только буквы и цифры, пробелы схлопнуты: правки пунктуации и регистра не мешают сравнению
+    private static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        return normalized.toString().trim().toLowerCase(Locale.ROOT);
+    }
+
+    // 64-битный FNV-1a по символам шингла
+    private static long hash(String text, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Финализатор splitmix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,283 @@
+package ru.ecosharing.listing_service.duplicate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.NearDuplicateProperties;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс почти-дубликатов в памяти: MinHash-подписи по шинглам заголовка и описания, разбитые на LSH-полосы.
+ * Кандидаты - объявления, у которых совпала хотя бы одна полоса; для них похожесть оценивается по всей подписи.
+ * Поиск не зависит от числа объявлений и укладывается в доли миллисекунды.
+ * <p>
+ * Индекс строится из БД при старте (в фоне, не дольше max-entries последних объявлений) и дальше поддерживается
+ * событиями объявлений (см. NearDuplicateIndexUpdater). При переполнении вытесняются самые старые записи.
+ */
+@Slf4j
+@Component
+public class NearDuplicateIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    // Дата создания самого старого из max-entries последних объявлений - с нее начинается построение
+    private static final String REBUILD_CUTOFF_SQL = """
+            SELECT created_at FROM listings ORDER BY created_at DESC OFFSET :skip LIMIT 1
+            """;
+
+    // Страницы в порядке создания: порядок добавления в индекс определяет порядок вытеснения
+    private static final String REBUILD_PAGE_SQL = """
+            SELECT id, title, description, created_at FROM listings
+            WHERE (created_at, id) > (:afterCreatedAt, :afterId)
+            ORDER BY created_at, id
+            LIMIT :limit
+            """;
+
+    private static final String LOAD_SQL = "SELECT id, title, description FROM listings WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NearDuplicateProperties properties;
+    private final MinHasher minHasher;
+    private final Timer lookupTimer;
+
+    // Подписи в порядке добавления - для вытеснения самых старых
+    private final LinkedHashMap<UUID, int[]> signatures = new LinkedHashMap<>();
+    // Для каждой полосы: хэш значений полосы -> объявления с такой полосой
+    private final Map<Long, UUID[]>[] buckets;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    @SuppressWarnings("unchecked")
+    public NearDuplicateIndex(NamedParameterJdbcTemplate jdbcTemplate, NearDuplicateProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.minHasher = new MinHasher(properties.getShingleSize(), properties.getBands() * properties.getRows());
+        this.buckets = new Map[properties.getBands()];
+        for (int band = 0; band < buckets.length; band++) {
+            buckets[band] = new HashMap<>();
+        }
+        this.lookupTimer = Timer.builder("listing.duplicates.lookup")
+                .description("Время поиска почти-дубликатов")
+                .register(meterRegistry);
+        Gauge.builder("listing.duplicates.indexed", this, NearDuplicateIndex::size)
+                .description("Объявления в индексе почти-дубликатов")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // Построение занимает секунды - не задерживаем старт, до готовности проверки пропускаются
+        CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+            log.error("Failed to build near-duplicate index: {}", e.getMessage(), e);
+            return null;
+        });
+    }
+
+    void rebuild() {
+        long started = System.currentTimeMillis();
+        List<Timestamp> cutoff = jdbcTemplate.queryForList(REBUILD_CUTOFF_SQL,
+                new MapSqlParameterSource("skip", properties.getMaxEntries() - 1), Timestamp.class);
+        // Объявлений меньше max-entries - берем все
+        Timestamp afterCreatedAt = cutoff.isEmpty() ? new Timestamp(0L) : new Timestamp(cutoff.get(0).getTime() - 1);
+        UUID afterId = new UUID(0L, 0L);
+        int loaded;
+        do {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("afterCreatedAt", afterCreatedAt)
+                    .addValue("afterId", afterId)
+                    .addValue("limit", REBUILD_PAGE_SIZE);
+            loaded = 0;
+            // Страницами, чтобы не держать в памяти тексты всех объявлений разом
+            for (Map<String, Object> row : jdbcTemplate.queryForList(REBUILD_PAGE_SQL, params)) {
+                put((UUID) row.get("id"), (String) row.get("title"), (String) row.get("description"));
+                afterCreatedAt = (Timestamp) row.get("created_at");
+                afterId = (UUID) row.get("id");
+                loaded++;
+            }
+        } while (loaded == REBUILD_PAGE_SIZE);
+        ready = true;
+        log.info("Near-duplicate index built: {} listings in {} ms", size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Перечитывает тексты объявлений из БД (для событий, в которых текста нет).
+     * Удаленные объявления из индекса убираются.
+     */
+    public void refresh(Collection<UUID> listingIds) {
+        if (!properties.isEnabled() || listingIds.isEmpty()) {
+            return;
+        }
+        Set<UUID> missing = new HashSet<>(listingIds);
+        jdbcTemplate.query(LOAD_SQL, new MapSqlParameterSource("ids", listingIds), rs -> {
+            UUID listingId = rs.getObject("id", UUID.class);
+            missing.remove(listingId);
+            put(listingId, rs.getString("title"), rs.getString("description"));
+        });
+        missing.forEach(this::remove);
+    }
+
+    public boolean isReady() {
+        return properties.isEnabled() && ready;
+    }
+
+    /**
+     * Самый похожий на текст объявления документ индекса с похожестью не ниже порога.
+     * excludeId - само объявление (при редактировании оно уже есть в индексе).
+     */
+    public Optional<NearDuplicateMatch> findBestMatch(String title, String description, UUID excludeId) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+        return lookupTimer.record(() -> {
+            int[] signature = minHasher.signature(title, description);
+            Set<UUID> candidates = new HashSet<>();
+            NearDuplicateMatch best = null;
+            lock.readLock().lock();
+            try {
+                for (int band = 0; band < buckets.length; band++) {
+                    UUID[] bucket = buckets[band].get(bandKey(signature, band));
+                    if (bucket != null) {
+                        candidates.addAll(Arrays.asList(bucket));
+                    }
+                }
+                candidates.remove(excludeId);
+                for (UUID candidate : candidates) {
+                    double similarity = similarity(signature, signatures.get(candidate));
+                    if (similarity >= properties.getSimilarityThreshold()
+                            && (best == null || similarity > best.getSimilarity())) {
+                        best = new NearDuplicateMatch(candidate, similarity);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return Optional.ofNullable(best);
+        });
+    }
+
+    public void put(UUID listingId, String title, String description) {
+        if (!properties.isEnabled() || title == null) {
+            return;
+        }
+        int[] signature = minHasher.signature(title, description);
+        lock.writeLock().lock();
+        try {
+            removeInternal(listingId);
+            signatures.put(listingId, signature);
+            for (int band = 0; band < buckets.length; band++) {
+                buckets[band].merge(bandKey(signature, band), new UUID[]{listingId}, NearDuplicateIndex::append);
+            }
+            evictOverflow();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID listingId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(listingId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return signatures.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<UUID> oldest = signatures.keySet().iterator();
+        while (signatures.size() > properties.getMaxEntries() && oldest.hasNext()) {
+            UUID listingId = oldest.next();
+            int[] signature = signatures.get(listingId);
+            oldest.remove();
+            removeFromBuckets(listingId, signature);
+        }
+    }
+
+    private void removeInternal(UUID listingId) {
+        int[] signature = signatures.remove(listingId);
+        if (signature != null) {
+            removeFromBuckets(listingId, signature);
+        }
+    }
+
+    private void removeFromBuckets(UUID listingId, int[] signature) {
+        for (int band = 0; band < buckets.length; band++) {
+            buckets[band].computeIfPresent(bandKey(signature, band), (key, bucket) -> without(bucket, listingId));
+        }
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = 1125899906842597L;
+        int from = band * properties.getRows();
+        for (int i = from; i < from + properties.getRows(); i++) {
+            key = 31 * key + signature[i];
+        }
+        return key;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        if (b == null) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    private static UUID[] append(UUID[] bucket, UUID[] added) {
+        UUID[] result = Arrays.copyOf(bucket, bucket.length + 1);
+        result[bucket.length] = added[0];
+        return result;
+    }
+
+    // null удаляет пустую корзину из карты
+    private static UUID[] without(UUID[] bucket, UUID listingId) {
+        int index = Arrays.asList(bucket).indexOf(listingId);
+        if (index < 0) {
+            return bucket;
+        }
+        if (bucket.length == 1) {
+            return null;
+        }
+        UUID[] result = new UUID[bucket.length - 1];
+        System.arraycopy(bucket, 0, result, 0, index);
+        System.arraycopy(bucket, index + 1, result, index, bucket.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.ecosharing.listing_service.duplicate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/**
+ * Найденный почти-дубликат и оценка похожести (0..1).
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NearDuplicateMatch {
+    private final UUID listingId;
+    private final double similarity;
+}
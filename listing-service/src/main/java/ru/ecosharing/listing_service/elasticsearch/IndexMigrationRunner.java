@@ -0,0 +1,53 @@
+package ru.ecosharing.listing_service.elasticsearch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.concurrency.JobLease;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Однократные правки индексов (дозаполнение полей, пересборка percolator-запросов) при выкатке новой версии.
+ * Выполняет один инстанс - взявший аренду строки задачи в listing_job_checkpoints (см. JobLease); правка идет
+ * вне транзакции. Отметка о выполнении (processed >= 0) ставится отдельным запросом после окончания, поэтому
+ * задачу, прерванную остановкой инстанса, повторит следующий старт после истечения аренды.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexMigrationRunner {
+
+    private static final String PROCESSED_SQL = "SELECT processed FROM listing_job_checkpoints WHERE job_name = :job";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final JobLease jobLease;
+
+    /**
+     * @param name Имя задачи; новая версия правки - новое имя.
+     * @param task Правка, возвращает число обработанных документов.
+     */
+    public void runOnce(String name, IntSupplier task) {
+        String job = "index-migration:" + name;
+        MapSqlParameterSource jobParam = new MapSqlParameterSource("job", job);
+        jdbcTemplate.update("INSERT INTO listing_job_checkpoints (job_name, processed, updated_at) VALUES (:job, -1, now()) "
+                + "ON CONFLICT (job_name) DO NOTHING", jobParam);
+
+        boolean leased = jobLease.runExclusively(job, () -> {
+            // Проверка под арендой: прежний владелец ставит отметку до освобождения аренды
+            if (jdbcTemplate.queryForObject(PROCESSED_SQL, jobParam, Long.class) >= 0) {
+                log.debug("Index migration {} already applied", name);
+                return;
+            }
+            int processed = task.getAsInt();
+            jdbcTemplate.update("UPDATE listing_job_checkpoints SET processed = :processed, updated_at = now() WHERE job_name = :job",
+                    new MapSqlParameterSource("job", job).addValue("processed", processed));
+            log.info("Index migration {} applied: {} documents", name, processed);
+        });
+        if (!leased) {
+            log.info("Index migration {} is running on another instance", name);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.ecosharing.listing_service.elasticsearch;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.document.SavedSearchDocument;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
+import ru.ecosharing.listing_service.search.SavedSearchMatcher;
+
+/**
+ * Досылает маппинг ListingDocument в уже существующий индекс.
+ * Spring Data создает маппинг только вместе с индексом, а новые поля без явного маппинга ES проиндексировал бы
+ * динамически (например, строку как text), и по ним нельзя было бы фильтровать и сортировать.
+ * Архивный индекс (см. ListingIndexPlacement) Spring Data не создает вовсе - он создается здесь.
+ * Индексы и маппинг готовятся до запуска Kafka-слушателей (контейнеры стартуют после инициализации бинов):
+ * иначе первые события после старта писались бы в еще не созданный архивный индекс с динамическим маппингом.
+ * Маппинг индекса сохраненных поисков досылается из файла: percolator-запросы не сохраняются,
+ * если в индексе нет полей, на которые они ссылаются.
+ * Документам, проиндексированным до появления пути предков категории, путь дописывается здесь же, однократно.
+ * Percolator-запросы сохраненных поисков тоже пересобираются однократно после смены полей, по которым они фильтруют.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListingIndexInitializer implements SmartInitializingSingleton {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ListingIndexPlacement listingIndexPlacement;
+    private final ElasticsearchIndexService elasticsearchIndexService;
+    private final SavedSearchMatcher savedSearchMatcher;
+    private final IndexMigrationRunner indexMigrationRunner;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            IndexOperations indexOps = elasticsearchOperations.indexOps(ListingDocument.class);
+            if (indexOps.exists()) {
+                indexOps.putMapping();
+                log.info("Mapping for index {} is up to date", indexOps.getIndexCoordinates().getIndexName());
+            } else {
+                // Обычно индекс создает репозиторий при инициализации, но на слушателей это не полагается
+                indexOps.createWithMapping();
+                log.info("Index {} created", indexOps.getIndexCoordinates().getIndexName());
+            }
+            // Percolator-запросы сохраненных поисков ссылаются на поля объявления - их маппинг тоже досылается
+            IndexOperations savedSearchOps = elasticsearchOperations.indexOps(SavedSearchDocument.class);
+            if (savedSearchOps.exists()) {
+                savedSearchOps.putMapping();
+            }
+            if (listingIndexPlacement.isEnabled()) {
+                IndexOperations archiveOps = elasticsearchOperations.indexOps(listingIndexPlacement.archiveIndex());
+                if (archiveOps.exists()) {
+                    archiveOps.putMapping(archiveOps.createMapping(ListingDocument.class));
+                } else {
+                    archiveOps.create(archiveOps.createSettings(ListingDocument.class), archiveOps.createMapping(ListingDocument.class));
+                    log.info("Archive index {} created", listingIndexPlacement.archiveIndex().getIndexName());
+                }
+            }
+        } catch (Exception e) {
+            // Несовместимое изменение типа поля требует переиндексации - старт сервиса из-за этого не прерываем
+            log.error("Failed to update Elasticsearch mapping for ListingDocument: {}", e.getMessage(), e);
+        }
+    }
+
+    // Однократные миграции документов - после старта, они не мешают обработке событий
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateDocuments() {
+        try {
+            // Один update-by-query на категорию - выполняется однократно одним инстансом
+            indexMigrationRunner.runOnce("category-paths",
+                    () -> Math.toIntExact(elasticsearchIndexService.backfillCategoryPaths()));
+        } catch (Exception e) {
+            log.error("Failed to backfill category paths in Elasticsearch: {}", e.getMessage(), e);
+        }
+        try {
+            // Фильтр по цене перешел с price на priceNormalized
+            indexMigrationRunner.runOnce("saved-search-queries:price-normalized", savedSearchMatcher::reindexAll);
+        } catch (Exception e) {
+            log.error("Failed to rebuild saved search percolator queries: {}", e.getMessage(), e);
+        }
+    }
+}
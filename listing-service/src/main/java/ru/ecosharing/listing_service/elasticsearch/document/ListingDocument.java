@@ -20,11 +20,19 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(indexName = "listings_idx") // Имя индекса в Elasticsearch
+@Routing("routingKey") // null - документ пишется без routing (маршрутизация выключена)
 public class ListingDocument {
 
     @Id // ID документа в Elasticsearch, будем использовать ID объявления
     private String id; // В ES ID обычно строковый, можно использовать UUID.toString()
 
+    @Field(type = FieldType.Keyword) // Дублирует id: по _id в ES нельзя сортировать, а поле нужно для стабильной пагинации
+    private String listingId;
+
+    // id корневой категории, если включена маршрутизация по категориям (см. ListingRoutingResolver)
+    @Field(type = FieldType.Keyword, index = false, docValues = false)
+    private String routingKey;
+
     // --- Основные поля для поиска и фильтрации ---
     @Field(type = FieldType.Text, analyzer = "standard") // Полнотекстовый поиск
     private String title;
@@ -35,6 +43,10 @@ public class ListingDocument {
     @Field(type = FieldType.Keyword) // Точное совпадение, фильтрация
     private UUID categoryId;
 
+    // id категории и всех ее предков (от корня): просмотр родительской категории - один term-фильтр
+    @Field(type = FieldType.Keyword)
+    private List<String> categoryPath;
+
     @Field(type = FieldType.Text) // Может быть и Keyword, если поиск по точному совпадению города
     private String locationText;
 
@@ -44,6 +56,10 @@ public class ListingDocument {
     @Field(type = FieldType.Keyword)
     private String currency;
 
+    // Цена в базовой валюте (app.fx.base-currency) по курсу на момент индексации - по ней фильтр и сортировка
+    @Field(type = FieldType.Double)
+    private BigDecimal priceNormalized;
+
     @Field(type = FieldType.Keyword)
     private PriceType priceType;
 
@@ -53,6 +69,14 @@ public class ListingDocument {
     @Field(type = FieldType.Keyword)
     private AvailabilityStatus availabilityStatus;
 
+    // Версия строки listings, с которой записан документ: по ней сверка с БД видит отставание любых полей
+    @Field(type = FieldType.Long)
+    private Long version;
+
+    // Еще не закончившиеся брони: фильтр "свободно на даты" исключает документы, где период пересекается с запрошенным
+    @Field(type = FieldType.Date_Range, format = DateFormat.epoch_millis)
+    private List<ReservedPeriod> reservedPeriods;
+
     // --- Поля для сортировки и дополнительной информации ---
     @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second_millis, pattern = "uuuu-MM-dd'T'HH:mm:ss.SSS")
     private LocalDateTime createdAt;
@@ -60,6 +84,14 @@ public class ListingDocument {
     @Field(type = FieldType.Integer)
     private Integer viewCount;
 
+    // Затухающая оценка популярности (log2), обновляется частично из TrendingScorePublisher
+    @Field(type = FieldType.Double)
+    private Double trendingScore;
+
+    // Время последнего сигнала, учтенного в trendingScore (epoch millis): по нему восстанавливается состояние после рестарта
+    @Field(type = FieldType.Long, index = false)
+    private Long trendingUpdatedAt;
+
     // --- Информация о владельце (для отображения в результатах поиска) ---
     @Field(type = FieldType.Keyword)
     private UUID ownerUserId;
@@ -0,0 +1,16 @@
+package ru.ecosharing.listing_service.elasticsearch.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Занятый бронью период объявления в формате значения поля date_range: [gte, lt), epoch millis.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservedPeriod {
+    private Long gte;
+    private Long lt;
+}
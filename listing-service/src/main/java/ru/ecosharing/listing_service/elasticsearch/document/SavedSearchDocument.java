@@ -0,0 +1,36 @@
+package ru.ecosharing.listing_service.elasticsearch.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+
+import java.util.Map;
+
+/**
+ * Сохраненный поиск в виде percolator-запроса.
+ * Маппинг задан файлом: кроме поля query типа percolator, индекс должен содержать поля объявления,
+ * по которым строятся запросы, с теми же типами, что и в listings_idx.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(indexName = "saved_searches_idx")
+@Mapping(mappingPath = "/elasticsearch/saved-search-mapping.json")
+public class SavedSearchDocument {
+
+    @Id
+    private String id; // ID сохраненного поиска
+
+    private String savedSearchId;
+
+    private String userId;
+
+    private String name;
+
+    private Map<String, Object> query; // ES-запрос, построенный ListingQueryBuilder
+}
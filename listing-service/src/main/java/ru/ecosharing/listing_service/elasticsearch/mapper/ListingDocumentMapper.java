@@ -0,0 +1,97 @@
+package ru.ecosharing.listing_service.elasticsearch.mapper;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.document.ReservedPeriod;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+import ru.ecosharing.listing_service.fx.FxRateCache;
+import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.model.ListingReservation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Преобразования между документом Elasticsearch и DTO ответов.
+ */
+@Component
+@RequiredArgsConstructor
+public class ListingDocumentMapper {
+
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final FxRateCache fxRateCache;
+    private final CategoryHierarchyCache categoryHierarchyCache;
+
+    public ListingSummaryResponse toSummary(ListingDocument doc) {
+        return ListingSummaryResponse.builder()
+                .id(UUID.fromString(doc.getId()))
+                .title(doc.getTitle())
+                .mainImageUrl(doc.getMainImageUrl())
+                .locationText(doc.getLocationText())
+                .price(doc.getPrice())
+                .currency(doc.getCurrency())
+                .priceType(doc.getPriceType())
+                .availabilityStatus(doc.getAvailabilityStatus())
+                .categoryId(doc.getCategoryId())
+                .categoryName(doc.getCategoryName())
+                .createdAt(doc.getCreatedAt())
+                .viewCount(doc.getViewCount())
+                .ownerUserId(doc.getOwnerUserId())
+                .ownerUsername(doc.getOwnerUsername())
+                .isFavorite(false)
+                .build();
+    }
+
+    /**
+     * Полные документы индекса по сущностям. Категории должны быть загружены.
+     * ownerUsername и ownerAvatarUrl не заполняются: их нет в БД сервиса, брони добавляются отдельно (reservedPeriods).
+     * Пути предков категорий всей пачки читаются из БД одним запросом.
+     */
+    public List<ListingDocument> toDocuments(Collection<Listing> listings) {
+        Map<UUID, List<String>> paths = categoryHierarchyCache.loadPaths(listings.stream()
+                .map(listing -> listing.getCategory().getId())
+                .collect(Collectors.toSet()));
+        return listings.stream()
+                .map(listing -> toDocument(listing, paths.get(listing.getCategory().getId())))
+                .toList();
+    }
+
+    private ListingDocument toDocument(Listing listing, List<String> categoryPath) {
+        return ListingDocument.builder()
+                .id(listing.getId().toString())
+                .listingId(listing.getId().toString())
+                .routingKey(listingRoutingResolver.forCategory(listing.getCategory().getId()))
+                .title(listing.getTitle())
+                .description(listing.getDescription())
+                .categoryId(listing.getCategory().getId())
+                .categoryPath(categoryPath)
+                .categoryName(listing.getCategory().getName())
+                .locationText(listing.getLocationText())
+                .price(listing.getPrice())
+                .currency(listing.getCurrency())
+                .priceNormalized(fxRateCache.normalize(listing.getPrice(), listing.getCurrency()))
+                .priceType(listing.getPriceType())
+                .moderationStatus(listing.getModerationStatus())
+                .availabilityStatus(listing.getAvailabilityStatus())
+                .version(listing.getVersion())
+                .createdAt(listing.getCreatedAt())
+                .viewCount(listing.getViewCount())
+                .ownerUserId(listing.getUserId())
+                .mainImageUrl(listing.getMainImageUrl())
+                .additionalImageUrls(listing.getAdditionalImageUrls() != null ? listing.getAdditionalImageUrls() : Collections.emptyList())
+                .build();
+    }
+
+    public List<ReservedPeriod> toReservedPeriods(List<ListingReservation> reservations) {
+        return reservations.stream()
+                .map(r -> new ReservedPeriod(r.getStartsAt().toEpochMilli(), r.getEndsAt().toEpochMilli()))
+                .toList();
+    }
+}
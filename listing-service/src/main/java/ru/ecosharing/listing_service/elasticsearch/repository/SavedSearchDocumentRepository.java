@@ -0,0 +1,10 @@
+package ru.ecosharing.listing_service.elasticsearch.repository;
+
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+import ru.ecosharing.listing_service.elasticsearch.document.SavedSearchDocument;
+
+@Repository
+public interface SavedSearchDocumentRepository extends ElasticsearchRepository<SavedSearchDocument, String> {
+
+}
@@ -0,0 +1,135 @@
+package ru.ecosharing.listing_service.elasticsearch.routing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Соответствие категория -> родитель и категория -> корневая категория. Категорий немного, поэтому дерево целиком
+ * держится в памяти и перечитывается по расписанию, при изменении категорий и при обращении к неизвестной категории.
+ * Путь предков для записи в индекс читается из БД (loadPaths): снимок в памяти мог быть загружен до коммита
+ * переноса категории, и записанный по нему путь остался бы устаревшим до следующей переиндексации.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryHierarchyCache {
+
+    // Цепочки предков запрошенных категорий, от корня к категории; глубина ограничена на случай цикла в данных
+    private static final String PATHS_SQL = """
+            WITH RECURSIVE chain AS (
+                SELECT id AS category_id, id, parent_id, 0 AS depth FROM categories WHERE id IN (:ids)
+                UNION ALL
+                SELECT chain.category_id, c.id, c.parent_id, chain.depth + 1
+                FROM chain JOIN categories c ON c.id = chain.parent_id
+                WHERE chain.depth < :maxDepth
+            )
+            SELECT category_id, id FROM chain ORDER BY category_id, depth DESC
+            """;
+    private static final int MAX_DEPTH = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private volatile Map<UUID, UUID> rootByCategory = Collections.emptyMap();
+    private volatile Map<UUID, UUID> parentByCategory = Collections.emptyMap();
+
+    public UUID rootOf(UUID categoryId) {
+        UUID root = rootByCategory.get(categoryId);
+        if (root == null) {
+            // Категория создана после последней загрузки
+            reload();
+            root = rootByCategory.get(categoryId);
+        }
+        return root != null ? root : categoryId;
+    }
+
+    /**
+     * Категория и все ее предки, от самой категории к корню.
+     */
+    public List<UUID> chainOf(UUID categoryId) {
+        if (!rootByCategory.containsKey(categoryId)) {
+            reload();
+        }
+        Map<UUID, UUID> parents = parentByCategory;
+        List<UUID> chain = new ArrayList<>();
+        UUID current = categoryId;
+        // Защита от цикла в данных: каждая категория - не больше одного раза
+        while (current != null && !chain.contains(current)) {
+            chain.add(current);
+            current = parents.get(current);
+        }
+        return chain;
+    }
+
+    /**
+     * id категорий и всех их предков строками, от корня к самой категории - поле categoryPath документа объявления.
+     * Читается по текущему состоянию БД; категории, которой нет в БД, соответствует путь из нее одной.
+     */
+    public Map<UUID, List<String>> loadPaths(Collection<UUID> categoryIds) {
+        Map<UUID, List<String>> paths = new HashMap<>();
+        if (categoryIds.isEmpty()) {
+            return paths;
+        }
+        namedParameterJdbcTemplate.query(PATHS_SQL,
+                new MapSqlParameterSource("ids", Set.copyOf(categoryIds)).addValue("maxDepth", MAX_DEPTH),
+                rs -> {
+                    paths.computeIfAbsent(rs.getObject("category_id", UUID.class), id -> new ArrayList<>())
+                            .add(rs.getObject("id", UUID.class).toString());
+                });
+        for (UUID categoryId : categoryIds) {
+            paths.putIfAbsent(categoryId, List.of(categoryId.toString()));
+        }
+        return paths;
+    }
+
+    public List<String> loadPath(UUID categoryId) {
+        return loadPaths(List.of(categoryId)).get(categoryId);
+    }
+
+    /**
+     * Снимок связей категория -> родитель (значение null у корневых категорий).
+     */
+    public Map<UUID, UUID> parents() {
+        return parentByCategory;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.routing.hierarchy-refresh-interval-ms:300000}")
+    public void reload() {
+        Map<UUID, UUID> parents = new HashMap<>();
+        jdbcTemplate.query("SELECT id, parent_id FROM categories",
+                rs -> { parents.put(rs.getObject("id", UUID.class), rs.getObject("parent_id", UUID.class)); });
+
+        Map<UUID, UUID> roots = new HashMap<>(parents.size());
+        for (UUID categoryId : parents.keySet()) {
+            roots.put(categoryId, findRoot(categoryId, parents));
+        }
+        parentByCategory = Collections.unmodifiableMap(parents);
+        rootByCategory = roots;
+        log.debug("Category hierarchy reloaded: {} categories", roots.size());
+    }
+
+    private UUID findRoot(UUID categoryId, Map<UUID, UUID> parents) {
+        Set<UUID> visited = new HashSet<>();
+        UUID current = categoryId;
+        UUID parent;
+        while ((parent = parents.get(current)) != null && visited.add(current)) {
+            current = parent;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.ecosharing.listing_service.elasticsearch.routing;
+
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.IndexPlacementProperties;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.List;
+
+/**
+ * Выбор индекса для документа объявления. Публичный поиск читает только "горячий" listings_idx,
+ * поэтому в нем держатся только ACTIVE-объявления, а остальные лежат в архивном индексе и не утяжеляют
+ * сегменты и кэши фильтров. Переход между статусами переносит документ между индексами.
+ * <p>
+ * При выключенном разделении оба индекса - это listings_idx, и все работает как раньше.
+ */
+@Component
+public class ListingIndexPlacement {
+
+    private final boolean enabled;
+    private final IndexCoordinates hotIndex;
+    private final IndexCoordinates archiveIndex;
+
+    public ListingIndexPlacement(ElasticsearchOperations elasticsearchOperations, IndexPlacementProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.hotIndex = elasticsearchOperations.getIndexCoordinatesFor(ListingDocument.class);
+        this.archiveIndex = enabled ? IndexCoordinates.of(properties.getArchiveIndex()) : hotIndex;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public IndexCoordinates hotIndex() {
+        return hotIndex;
+    }
+
+    public IndexCoordinates archiveIndex() {
+        return archiveIndex;
+    }
+
+    public IndexCoordinates indexFor(ModerationStatus moderationStatus) {
+        return moderationStatus == ModerationStatus.ACTIVE ? hotIndex : archiveIndex;
+    }
+
+    // Оба индекса одним запросом - для сверки, удалений и массовых правок
+    public IndexCoordinates allIndices() {
+        return enabled ? IndexCoordinates.of(hotIndex.getIndexName(), archiveIndex.getIndexName()) : hotIndex;
+    }
+
+    /**
+     * Порядок поиска документа для частичного обновления без чтения: сначала горячий индекс,
+     * куда приходится основная часть обновлений (просмотры, доступность активных объявлений).
+     */
+    public List<IndexCoordinates> lookupOrder() {
+        return enabled ? List.of(hotIndex, archiveIndex) : List.of(hotIndex);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.ecosharing.listing_service.elasticsearch.routing;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.IndexRoutingProperties;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Значение routing документов listings_idx: id корневой категории объявления.
+ * При выключенной маршрутизации все методы возвращают null, и запросы идут без routing, как раньше.
+ * <p>
+ * Частичные обновления и удаления по id без правильного routing попали бы не на тот шард, поэтому для них
+ * категория объявления берется из БД и кэшируется. События одного объявления обрабатывает один инстанс
+ * (ключ Kafka - listingId), он же и сбрасывает запись при смене категории.
+ */
+@Slf4j
+@Component
+public class ListingRoutingResolver {
+
+    private final CategoryHierarchyCache categoryHierarchyCache;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final LoadingCache<UUID, UUID> categoryByListing;
+
+    public ListingRoutingResolver(CategoryHierarchyCache categoryHierarchyCache,
+                                  NamedParameterJdbcTemplate jdbcTemplate,
+                                  IndexRoutingProperties properties) {
+        this.categoryHierarchyCache = categoryHierarchyCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = properties.isEnabled();
+        this.categoryByListing = Caffeine.newBuilder()
+                .maximumSize(properties.getListingCacheMaxSize())
+                .build(new CacheLoader<>() {
+                    @Override
+                    public UUID load(UUID listingId) {
+                        return loadCategoryIds(Set.of(listingId)).get(listingId);
+                    }
+
+                    @Override
+                    public Map<UUID, UUID> loadAll(Set<? extends UUID> listingIds) {
+                        return loadCategoryIds(listingIds);
+                    }
+                });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String forCategory(UUID categoryId) {
+        if (!enabled || categoryId == null) {
+            return null;
+        }
+        return categoryHierarchyCache.rootOf(categoryId).toString();
+    }
+
+    /**
+     * routing существующего объявления; null - маршрутизация выключена или объявления нет в БД.
+     */
+    public String forListing(UUID listingId) {
+        if (!enabled) {
+            return null;
+        }
+        return forCategory(categoryByListing.get(listingId));
+    }
+
+    public Map<UUID, String> forListings(Collection<UUID> listingIds) {
+        if (!enabled || listingIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<UUID, String> routing = new HashMap<>();
+        categoryByListing.getAll(listingIds).forEach((listingId, categoryId) -> routing.put(listingId, forCategory(categoryId)));
+        return routing;
+    }
+
+    // Вызывается при смене категории и удалении объявления
+    public void evict(UUID listingId) {
+        categoryByListing.invalidate(listingId);
+    }
+
+    private Map<UUID, UUID> loadCategoryIds(Collection<? extends UUID> listingIds) {
+        Map<UUID, UUID> categories = new HashMap<>();
+        jdbcTemplate.query("SELECT id, category_id FROM listings WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", listingIds),
+                rs -> { categories.put(rs.getObject("id", UUID.class), rs.getObject("category_id", UUID.class)); });
+        return categories;
+    }
+}
@@ -2,6 +2,9 @@ package ru.ecosharing.listing_service.elasticsearch.service;
 
 import ru.ecosharing.listing_service.dto.kafka.*; // Импорт всех наших событий
 
+import java.util.Collection;
+import java.util.UUID;
+
 public interface ElasticsearchIndexService {
 
     void processListingCreatedEvent(ListingCreatedEvent event);
@@ -14,7 +17,35 @@ public interface ElasticsearchIndexService {
 
     void processListingViewCountIncrementedEvent(ListingViewCountIncrementedEvent event);
 
+    void processListingBatchCreatedEvent(ListingBatchCreatedEvent event); // Пачка объявлений из массового импорта
+
+    void processListingBatchModerationStatusChangedEvent(ListingBatchModerationStatusChangedEvent event); // Пачка смен статуса (снятие устаревших, массовая модерация)
+
+    void processListingReservationsChangedEvent(ListingReservationsChangedEvent event); // Пересчет reservedPeriods по БД
+
     void processListingDeletedEvent(ListingDeletedEvent event);
 
     void processCategoryLifecycleEvent(CategoryLifecycleEvent event); // Для обновления categoryName в объявлениях
+
+    // Полная переиндексация объявлений из БД одним bulk-запросом. Прежнее положение документов считается неизвестным:
+    // при маршрутизации или разделении индексов их копии сначала удаляются по всем шардам. Возвращает число проиндексированных
+    int reindexListings(Collection<UUID> listingIds);
+
+    // Переиндексация всех объявлений пачками (например, после включения маршрутизации по категориям)
+    int reindexAll();
+
+    // Переиндексация объявлений категории и ее подкатегорий (перенос в другую ветку меняет routing)
+    int reindexCategoryTree(UUID categoryId);
+
+    // Обновление путей предков (categoryPath) в документах поддерева перенесенной категории одним update-by-query
+    long updateCategoryPaths(UUID movedCategoryId);
+
+    // Заполнение categoryPath у документов, проиндексированных до появления поля
+    long backfillCategoryPaths();
+
+    // Переиндексация объявлений в валюте (после смены курса пересчитывается priceNormalized)
+    int reindexByCurrency(String currency);
+
+    // Удаление документов, которых нет в БД
+    void deleteFromIndex(Collection<UUID> listingIds);
 }
\ No newline at end of file
@@ -2,32 +2,53 @@ package ru.ecosharing.listing_service.elasticsearch.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.ByQueryResponse;
 import org.springframework.data.elasticsearch.core.query.Criteria;
 import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.DeleteQuery;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.query.ScriptType;
 import org.springframework.data.elasticsearch.core.query.UpdateQuery;
 import org.springframework.stereotype.Service;
+import ru.ecosharing.listing_service.config.FxRateProperties;
 import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.mapper.ListingDocumentMapper;
 import ru.ecosharing.listing_service.elasticsearch.repository.ListingSearchRepository;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
 import ru.ecosharing.listing_service.dto.kafka.*;
 import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
 import ru.ecosharing.listing_service.enums.AvailabilityStatus;
 import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+import ru.ecosharing.listing_service.fx.FxRateCache;
 import ru.ecosharing.listing_service.model.Category; // Нужна для получения categoryName
-import ru.ecosharing.listing_service.model.Listing;   // Нужна для получения данных пользователя
+import ru.ecosharing.listing_service.model.ListingReservation;
 import ru.ecosharing.listing_service.repository.CategoryRepository;
 import ru.ecosharing.listing_service.repository.ListingRepository; // Для получения полных данных
+import ru.ecosharing.listing_service.repository.ListingReservationRepository;
+import ru.ecosharing.listing_service.trending.TrendingScoreEngine;
 
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -39,6 +60,28 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
     private final ListingRepository listingPostgresRepository; // Для получения полных данных при создании/обновлении
     private final CategoryRepository categoryRepository;     // Для получения categoryName
     private final ElasticsearchOperations elasticsearchOperations; // Для сложных обновлений
+    private final ListingDocumentMapper listingDocumentMapper;
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final ListingIndexPlacement listingIndexPlacement;
+    private final TrendingScoreEngine trendingScoreEngine;
+    private final FxRateCache fxRateCache;
+    private final FxRateProperties fxRateProperties;
+    private final CategoryHierarchyCache categoryHierarchyCache;
+    private final ListingReservationRepository listingReservationRepository;
+
+    // Размер пачки при массовой переиндексации
+    private static final int REINDEX_PAGE_SIZE = 1000;
+
+    // Заменяет в пути предков часть до перенесенной категории новым путем ее родителя
+    private static final String REPLACE_PATH_PREFIX_SCRIPT = """
+            def path = ctx._source.categoryPath;
+            int i = path == null ? -1 : path.indexOf(params.category);
+            if (i < 0) { ctx.op = 'noop'; return; }
+            List updated = new ArrayList(params.prefix);
+            updated.addAll(path.subList(i, path.size()));
+            ctx._source.categoryPath = updated;
+            """;
+    private static final String SET_PATH_SCRIPT = "ctx._source.categoryPath = params.path";
 
     @Override
     public void processListingCreatedEvent(ListingCreatedEvent event) {
@@ -57,23 +100,28 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
 
             ListingDocument document = ListingDocument.builder()
                     .id(event.getListingId().toString())
+                    .listingId(event.getListingId().toString())
+                    .routingKey(listingRoutingResolver.forCategory(event.getCategoryId()))
                     .title(event.getTitle())
                     .description(event.getDescription())
                     .categoryId(event.getCategoryId())
+                    .categoryPath(categoryHierarchyCache.loadPath(event.getCategoryId()))
                     .categoryName(categoryName) // Денормализованное имя
                     .locationText(event.getLocationText())
                     .price(event.getPrice())
                     .currency(event.getCurrency())
+                    .priceNormalized(fxRateCache.normalize(event.getPrice(), event.getCurrency()))
                     .priceType(event.getPriceType())
                     .moderationStatus(ModerationStatus.PENDING_MODERATION) // Из события или дефолт
                     .availabilityStatus(AvailabilityStatus.AVAILABLE) // Из события или дефолт
+                    .version(event.getVersion())
                     .createdAt(event.getCreatedAt())
                     .viewCount(0)
                     .ownerUserId(event.getUserId())
                     .mainImageUrl(event.getMainImageUrl())
                     .additionalImageUrls(event.getAdditionalImageUrls() != null ? event.getAdditionalImageUrls() : Collections.emptyList())
                     .build();
-            listingSearchRepository.save(document);
+            elasticsearchOperations.save(document, listingIndexPlacement.indexFor(document.getModerationStatus()));
             log.info("Listing {} indexed in Elasticsearch.", event.getListingId());
         } catch (Exception e) {
             log.error("Error indexing new listing {}: {}", event.getListingId(), e.getMessage(), e);
@@ -83,74 +131,131 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
 
     @Override
     public void processListingUpdatedEvent(ListingUpdatedEvent event) {
-        log.info("Processing ListingUpdatedEvent for listingId: {}", event.getListingId());
-        Optional<ListingDocument> existingDocOpt = listingSearchRepository.findById(event.getListingId().toString());
-
-        if (existingDocOpt.isEmpty()) {
-            log.warn("ListingDocument with id {} not found in Elasticsearch for update. Attempting to re-index.", event.getListingId());
-            // Попытка полной переиндексации, если документ почему-то отсутствует
-            listingPostgresRepository.findById(event.getListingId()).ifPresent(this::reindexListing);
+        log.info("Processing ListingUpdatedEvent for listingId: {}, changedFields: {}", event.getListingId(), event.getChangedFields());
+        Map<String, Object> fields = toPartialDocument(event);
+        if (fields.isEmpty()) {
+            log.info("No relevant fields changed for listing {} in Elasticsearch update event.", event.getListingId());
             return;
         }
-
-        ListingDocument docToUpdate = existingDocOpt.get();
-        boolean changed = false;
-
-        // Обновляем поля, если они пришли в событии
-        if (event.getTitle() != null) { docToUpdate.setTitle(event.getTitle()); changed = true; }
-        if (event.getDescription() != null) { docToUpdate.setDescription(event.getDescription()); changed = true; }
-        if (event.getLocationText() != null) { docToUpdate.setLocationText(event.getLocationText()); changed = true; }
-        if (event.getPrice() != null) { docToUpdate.setPrice(event.getPrice()); changed = true; }
-        if (event.getCurrency() != null) { docToUpdate.setCurrency(event.getCurrency()); changed = true; }
-        if (event.getPriceType() != null) { docToUpdate.setPriceType(event.getPriceType()); changed = true; }
-        if (event.getMainImageUrl() != null) { docToUpdate.setMainImageUrl(event.getMainImageUrl()); changed = true; }
-        if (event.getAdditionalImageUrls() != null) { docToUpdate.setAdditionalImageUrls(event.getAdditionalImageUrls()); changed = true; }
-
-        if (event.getCategoryId() != null && !event.getCategoryId().equals(docToUpdate.getCategoryId())) {
-            docToUpdate.setCategoryId(event.getCategoryId());
-            String categoryName = categoryRepository.findById(event.getCategoryId()).map(Category::getName).orElse("N/A");
-            docToUpdate.setCategoryName(categoryName);
-            changed = true;
-        }
-
-        if (changed) {
-            try {
-                listingSearchRepository.save(docToUpdate);
-                log.info("Listing {} updated in Elasticsearch.", event.getListingId());
-            } catch (Exception e) {
-                log.error("Error updating listing {} in Elasticsearch: {}", event.getListingId(), e.getMessage(), e);
+        // Другая корневая категория - другой шард, возврат на модерацию - архивный индекс
+        boolean categoryChanged = fields.containsKey("categoryId") && listingRoutingResolver.isEnabled();
+        boolean statusChanged = fields.containsKey("moderationStatus") && listingIndexPlacement.isEnabled();
+        if (categoryChanged || statusChanged) {
+            if (event.getPreviousCategoryId() == null || event.getPreviousModerationStatus() == null) {
+                // Событие старого формата - прежнее положение документа неизвестно
+                relocate(event.getListingId());
+                return;
             }
-        } else {
-            log.info("No relevant fields changed for listing {} in Elasticsearch update event.", event.getListingId());
+            UUID newCategoryId = fields.containsKey("categoryId") ? event.getCategoryId() : event.getPreviousCategoryId();
+            ModerationStatus newStatus = fields.containsKey("moderationStatus")
+                    ? event.getModerationStatus()
+                    : event.getPreviousModerationStatus();
+            relocate(event.getListingId(),
+                    listingIndexPlacement.indexFor(event.getPreviousModerationStatus()),
+                    listingRoutingResolver.forCategory(event.getPreviousCategoryId()),
+                    listingIndexPlacement.indexFor(newStatus),
+                    listingRoutingResolver.forCategory(newCategoryId));
+            return;
         }
+        // Приведенная цена считается по паре цена + валюта; если пришла только одна из них, документ строится из БД
+        if (fields.containsKey("price") != fields.containsKey("currency")) {
+            writeFromDatabase(List.of(event.getListingId()));
+            return;
+        }
+        applyPartialUpdate(event.getListingId(), withVersion(fields, event));
     }
 
     @Override
     public void processListingModerationStatusChangedEvent(ListingModerationStatusChangedEvent event) {
         log.info("Processing ListingModerationStatusChangedEvent for listingId: {}, newStatus: {}", event.getListingId(), event.getNewModerationStatus());
-        updateFieldInElasticsearch(event.getListingId().toString(), "moderationStatus", event.getNewModerationStatus().name());
-        updateFieldInElasticsearch(event.getListingId().toString(), "updatedAt", LocalDateTime.now());
+        IndexCoordinates target = listingIndexPlacement.indexFor(event.getNewModerationStatus());
+        IndexCoordinates previous = listingIndexPlacement.indexFor(event.getOldModerationStatus());
+        if (!target.equals(previous)) {
+            // Смена статуса не меняет категорию, а с ней и routing
+            String routing = listingRoutingResolver.forListing(event.getListingId());
+            relocate(event.getListingId(), previous, routing, target, routing);
+            return;
+        }
+        applyPartialUpdate(event.getListingId(), withVersion(Map.of("moderationStatus", event.getNewModerationStatus().name()), event));
     }
 
     @Override
     public void processListingAvailabilityStatusChangedEvent(ListingAvailabilityStatusChangedEvent event) {
         log.info("Processing ListingAvailabilityStatusChangedEvent for listingId: {}, newStatus: {}", event.getListingId(), event.getNewAvailabilityStatus());
-        updateFieldInElasticsearch(event.getListingId().toString(), "availabilityStatus", event.getNewAvailabilityStatus().name());
-        updateFieldInElasticsearch(event.getListingId().toString(), "updatedAt", LocalDateTime.now());
+        applyPartialUpdate(event.getListingId(), withVersion(Map.of("availabilityStatus", event.getNewAvailabilityStatus().name()), event));
     }
 
     @Override
     public void processListingViewCountIncrementedEvent(ListingViewCountIncrementedEvent event) {
         log.debug("Processing ListingViewCountIncrementedEvent for listingId: {}, newCount: {}", event.getListingId(), event.getNewViewCount());
         // Это может быть слишком частым обновлением. Рассмотреть батчинг или обновление по скрипту.
-        updateFieldInElasticsearch(event.getListingId().toString(), "viewCount", event.getNewViewCount());
+        applyPartialUpdate(event.getListingId(), Map.of("viewCount", event.getNewViewCount()));
+    }
+
+    @Override
+    public void processListingReservationsChangedEvent(ListingReservationsChangedEvent event) {
+        log.info("Processing ListingReservationsChangedEvent for listingId: {}, reservationId: {}", event.getListingId(), event.getReservationId());
+        // Список броней читается из БД целиком: повторная или запоздавшая обработка события ничего не портит
+        List<ListingReservation> reservations = listingReservationRepository.findByListingIdEndingAfter(
+                event.getListingId(), ReservationStatus.ACTIVE, Instant.now());
+        List<Map<String, Object>> periods = listingDocumentMapper.toReservedPeriods(reservations).stream()
+                .map(p -> Map.<String, Object>of("gte", p.getGte(), "lt", p.getLt()))
+                .toList();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("reservedPeriods", periods);
+        applyPartialUpdate(event.getListingId(), fields);
+    }
+
+    @Override
+    public void processListingBatchCreatedEvent(ListingBatchCreatedEvent event) {
+        List<UUID> listingIds = event.getListingIds();
+        if (listingIds == null || listingIds.isEmpty()) {
+            return;
+        }
+        log.info("Processing ListingBatchCreatedEvent: {} listings from import job {}", listingIds.size(), event.getImportJobId());
+        try {
+            // Новые объявления - прежних копий в индексе нет
+            int indexed = writeFromDatabase(listingIds);
+            log.info("{} imported listings indexed in Elasticsearch.", indexed);
+        } catch (Exception e) {
+            log.error("Error bulk indexing import batch of job {}: {}", event.getImportJobId(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void processListingBatchModerationStatusChangedEvent(ListingBatchModerationStatusChangedEvent event) {
+        List<UUID> listingIds = event.getListingIds();
+        if (listingIds == null || listingIds.isEmpty()) {
+            return;
+        }
+        log.info("Processing ListingBatchModerationStatusChangedEvent: {} listings -> {} ({})",
+                listingIds.size(), event.getNewModerationStatus(), event.getReason());
+        try {
+            // Документы строятся из БД: событие пачки может обогнать или отстать от событий отдельных объявлений.
+            // Routing от статуса не зависит; при переходе между горячим и архивным индексом копии удаляются
+            // из прежнего индекса, а если прежний статус неизвестен - из обоих
+            int indexed;
+            if (event.getOldModerationStatus() == null) {
+                indexed = reindexListings(listingIds);
+            } else {
+                IndexCoordinates previous = listingIndexPlacement.indexFor(event.getOldModerationStatus());
+                Map<String, ListingDocument> trending = loadTrendingFields(listingIds);
+                if (!previous.equals(listingIndexPlacement.indexFor(event.getNewModerationStatus()))) {
+                    deleteCopies(listingIds, previous, null);
+                }
+                indexed = writeFromDatabase(listingIds, trending);
+            }
+            log.info("{} listings re-indexed after batch status change.", indexed);
+        } catch (Exception e) {
+            log.error("Error re-indexing batch status change ({}): {}", event.getReason(), e.getMessage(), e);
+        }
     }
 
     @Override
     public void processListingDeletedEvent(ListingDeletedEvent event) {
         log.info("Processing ListingDeletedEvent for listingId: {}", event.getListingId());
         try {
-            listingSearchRepository.deleteById(event.getListingId().toString());
+            deleteDocuments(List.of(event.getListingId()));
             log.info("Listing {} deleted from Elasticsearch.", event.getListingId());
         } catch (Exception e) {
             log.error("Error deleting listing {} from Elasticsearch: {}", event.getListingId(), e.getMessage(), e);
@@ -175,77 +280,313 @@ public class ElasticsearchIndexServiceImpl implements ElasticsearchIndexService
 
             // Поиск всех документов по categoryId
             Query query = new CriteriaQuery(new Criteria("categoryId").is(event.getCategoryId()));
-            SearchHits<ListingDocument> hits = elasticsearchOperations.search(query, ListingDocument.class);
+            SearchHits<ListingDocument> hits = elasticsearchOperations.search(query, ListingDocument.class, listingIndexPlacement.allIndices());
 
             if (hits.getTotalHits() > 0) {
-                List<UpdateQuery> updateQueries = hits.getSearchHits().stream()
-                        .map(SearchHit::getContent)
-                        .map(doc -> {
+                Map<String, List<UpdateQuery>> updatesByIndex = hits.getSearchHits().stream()
+                        .collect(Collectors.groupingBy(SearchHit::getIndex, Collectors.mapping(hit -> {
+                            ListingDocument doc = hit.getContent();
                             Map<String, Object> params = new HashMap<>();
                             params.put("categoryName", newCategoryName);
                             if ("CATEGORY_DEACTIVATED".equals(event.getEventType()) && doc.getModerationStatus() == ModerationStatus.ACTIVE) {
                                 params.put("moderationStatus", ModerationStatus.NEEDS_REVISION.name());
                             }
-                            params.put("updatedAt", LocalDateTime.now());
                             return UpdateQuery.builder(doc.getId())
-                                    .withParams(params) // Используем params для обновления через скрипт или document
+                                    .withDocument(Document.from(params)) // Частичное обновление документа, без скрипта
+                                    .withRouting(hit.getRouting())
                                     .build();
-                        })
-                        .collect(Collectors.toList());
+                        }, Collectors.toList())));
 
-                if (!updateQueries.isEmpty()) {
-                    elasticsearchOperations.bulkUpdate(updateQueries, elasticsearchOperations.getIndexCoordinatesFor(ListingDocument.class));
-                    log.info("Обновлено {} объявлений в Elasticsearch из-за изменения категории {}", updateQueries.size(), event.getCategoryId());
-                }
+                updatesByIndex.forEach((indexName, updateQueries) -> {
+                    elasticsearchOperations.bulkUpdate(updateQueries, IndexCoordinates.of(indexName));
+                    log.info("Обновлено {} объявлений в индексе {} из-за изменения категории {}", updateQueries.size(), indexName, event.getCategoryId());
+                });
             }
         }
         // Для CATEGORY_ACTIVATED обычно не требуется массовых действий с объявлениями в ES,
         // т.к. они уже должны быть в NEEDS_REVISION, если были затронуты деактивацией.
     }
 
-    // Вспомогательный метод для частичного обновления поля
-    private void updateFieldInElasticsearch(String docId, String fieldName, Object value) {
-        try {
-            UpdateQuery updateQuery = UpdateQuery.builder(docId)
-                    .withParams(Map.of(fieldName, value))
+    @Override
+    public int reindexListings(Collection<UUID> listingIds) {
+        if (listingIds.isEmpty()) {
+            return 0;
+        }
+        Map<String, ListingDocument> trending = loadTrendingFields(listingIds);
+        if (listingRoutingResolver.isEnabled() || listingIndexPlacement.isEnabled()) {
+            // Прежнее положение документов неизвестно: копия с другим routing или в другом индексе
+            // (сменился статус, запись до включения) осталась бы дублем
+            deleteDocuments(listingIds);
+        }
+        return writeFromDatabase(listingIds, trending);
+    }
+
+    /**
+     * Запись полных документов из БД без удаления прежних копий - для документов, положение которых
+     * (routing и индекс) не изменилось или прежние копии которых уже удалены.
+     */
+    private int writeFromDatabase(Collection<UUID> listingIds) {
+        return listingIds.isEmpty() ? 0 : writeFromDatabase(listingIds, loadTrendingFields(listingIds));
+    }
+
+    /**
+     * Полный документ из БД не содержит оценки популярности: save заменяет документ целиком, поэтому
+     * оценки, прочитанные из индекса до удаления прежних копий, переносятся в новые документы.
+     */
+    private int writeFromDatabase(Collection<UUID> listingIds, Map<String, ListingDocument> trending) {
+        if (listingIds.isEmpty()) {
+            return 0;
+        }
+        List<ListingDocument> documents = listingDocumentMapper.toDocuments(
+                listingPostgresRepository.findAllWithDetailsByIdIn(List.copyOf(listingIds)));
+        // Брони всей пачки - одним запросом
+        Map<UUID, List<ListingReservation>> reservationsByListing = listingReservationRepository
+                .findByListingIdInEndingAfter(listingIds, ReservationStatus.ACTIVE, Instant.now()).stream()
+                .collect(Collectors.groupingBy(ListingReservation::getListingId));
+        documents.forEach(doc -> doc.setReservedPeriods(listingDocumentMapper.toReservedPeriods(
+                reservationsByListing.getOrDefault(UUID.fromString(doc.getListingId()), List.of()))));
+        documents.forEach(doc -> {
+            ListingDocument indexed = trending.get(doc.getListingId());
+            if (indexed != null) {
+                doc.setTrendingScore(indexed.getTrendingScore());
+                doc.setTrendingUpdatedAt(indexed.getTrendingUpdatedAt());
+            }
+        });
+        // Один bulk-запрос на каждый индекс
+        documents.stream()
+                .collect(Collectors.groupingBy(doc -> listingIndexPlacement.indexFor(doc.getModerationStatus())))
+                .forEach((index, docs) -> elasticsearchOperations.save(docs, index));
+        // Оценка в памяти инстанса может быть новее прочитанной из индекса - возвращаем ее в очередь выгрузки
+        trendingScoreEngine.markPending(listingIds);
+        return documents.size();
+    }
+
+    // Поля оценки популярности уже проиндексированных документов (из любого индекса, самые свежие)
+    private Map<String, ListingDocument> loadTrendingFields(Collection<UUID> listingIds) {
+        CriteriaQuery query = new CriteriaQuery(new Criteria("listingId").in(listingIds.stream().map(UUID::toString).toList())
+                .and(new Criteria("trendingScore").exists()));
+        query.addSourceFilter(new FetchSourceFilter(new String[]{"listingId", "trendingScore", "trendingUpdatedAt"}, null));
+        // Копии одного объявления могут быть и в горячем, и в архивном индексе
+        query.setPageable(PageRequest.of(0, listingIds.size() * 2));
+        Map<String, ListingDocument> trending = new HashMap<>();
+        for (SearchHit<ListingDocument> hit : elasticsearchOperations.search(query, ListingDocument.class, listingIndexPlacement.allIndices()).getSearchHits()) {
+            ListingDocument doc = hit.getContent();
+            trending.merge(doc.getListingId(), doc, (a, b) ->
+                    Objects.requireNonNullElse(a.getTrendingUpdatedAt(), 0L) >= Objects.requireNonNullElse(b.getTrendingUpdatedAt(), 0L) ? a : b);
+        }
+        return trending;
+    }
+
+    @Override
+    public int reindexAll() {
+        int total = 0;
+        UUID afterId = new UUID(0L, 0L); // PostgreSQL сравнивает uuid побайтно, нулевой - минимальный
+        List<UUID> page;
+        while (!(page = listingPostgresRepository.findIdsAfter(afterId, PageRequest.of(0, REINDEX_PAGE_SIZE))).isEmpty()) {
+            total += reindexListings(page);
+            afterId = page.get(page.size() - 1);
+        }
+        log.info("Full re-index finished: {} listings indexed.", total);
+        return total;
+    }
+
+    @Override
+    public int reindexCategoryTree(UUID categoryId) {
+        List<UUID> listingIds = listingPostgresRepository.findIdsInCategoryTree(categoryId);
+        int total = 0;
+        for (int from = 0; from < listingIds.size(); from += REINDEX_PAGE_SIZE) {
+            List<UUID> page = listingIds.subList(from, Math.min(from + REINDEX_PAGE_SIZE, listingIds.size()));
+            page.forEach(listingRoutingResolver::evict);
+            total += reindexListings(page);
+        }
+        log.info("Category tree {} re-indexed: {} listings.", categoryId, total);
+        return total;
+    }
+
+    @Override
+    public long updateCategoryPaths(UUID movedCategoryId) {
+        List<String> newPath = categoryHierarchyCache.loadPath(movedCategoryId);
+        Map<String, Object> params = new HashMap<>();
+        params.put("category", movedCategoryId.toString());
+        params.put("prefix", new ArrayList<>(newPath.subList(0, newPath.size() - 1))); // Путь нового родителя, пустой у корневой
+        UpdateQuery updateQuery = UpdateQuery.builder(new CriteriaQuery(new Criteria("categoryPath").is(movedCategoryId.toString())))
+                .withScriptType(ScriptType.INLINE)
+                .withLang("painless")
+                .withScript(REPLACE_PATH_PREFIX_SCRIPT)
+                .withParams(params)
+                .withAbortOnVersionConflict(false) // Документ, измененный параллельно, уже записан с актуальным путем
+                .build();
+        ByQueryResponse response = elasticsearchOperations.updateByQuery(updateQuery, listingIndexPlacement.allIndices());
+        log.info("Category paths updated after move of category {}: {} documents", movedCategoryId, response.getUpdated());
+        return response.getUpdated();
+    }
+
+    @Override
+    public long backfillCategoryPaths() {
+        Criteria missingPath = new Criteria("categoryPath").exists().not();
+        if (elasticsearchOperations.count(new CriteriaQuery(missingPath), ListingDocument.class, listingIndexPlacement.allIndices()) == 0) {
+            return 0;
+        }
+        categoryHierarchyCache.reload();
+        Map<UUID, List<String>> paths = categoryHierarchyCache.loadPaths(categoryHierarchyCache.parents().keySet());
+        long updated = 0;
+        for (Map.Entry<UUID, List<String>> entry : paths.entrySet()) {
+            Query query = new CriteriaQuery(new Criteria("categoryId").is(entry.getKey().toString())
+                    .and(new Criteria("categoryPath").exists().not()));
+            UpdateQuery updateQuery = UpdateQuery.builder(query)
+                    .withScriptType(ScriptType.INLINE)
+                    .withLang("painless")
+                    .withScript(SET_PATH_SCRIPT)
+                    .withParams(Map.of("path", entry.getValue()))
+                    .withAbortOnVersionConflict(false)
                     .build();
-            elasticsearchOperations.update(updateQuery, elasticsearchOperations.getIndexCoordinatesFor(ListingDocument.class));
-            log.debug("Field '{}' updated to '{}' for ES document ID: {}", fieldName, value, docId);
-        } catch (Exception e) {
-            log.error("Error updating field '{}' for ES document ID {}: {}", fieldName, docId, e.getMessage(), e);
-        }
-    }
-
-    // Метод для полной переиндексации одного объявления (если нужно)
-    private void reindexListing(Listing listing) {
-        if (listing == null) return;
-        log.info("Re-indexing listing {}", listing.getId());
-
-        String categoryName = listing.getCategory() != null ? listing.getCategory().getName() : "N/A";
-        // Допустим, данные о пользователе мы не можем легко получить здесь синхронно
-        // или они уже были в ListingCreatedEvent при первоначальной индексации
-        // и не меняются (userId, username). Аватар может меняться.
-
-        ListingDocument document = ListingDocument.builder()
-                .id(listing.getId().toString())
-                .title(listing.getTitle())
-                .description(listing.getDescription())
-                .categoryId(listing.getCategory().getId())
-                .categoryName(categoryName)
-                .locationText(listing.getLocationText())
-                .price(listing.getPrice())
-                .currency(listing.getCurrency())
-                .priceType(listing.getPriceType())
-                .moderationStatus(listing.getModerationStatus())
-                .availabilityStatus(listing.getAvailabilityStatus())
-                .createdAt(listing.getCreatedAt())
-                .viewCount(listing.getViewCount())
-                .ownerUserId(listing.getUserId())
-                // ownerUsername и ownerAvatarUrl нужно будет либо брать из старого документа ES,
-                // либо из события, либо смириться, что при полной переиндексации они могут не обновиться без вызова User Service
-                .mainImageUrl(listing.getMainImageUrl())
-                .additionalImageUrls(listing.getAdditionalImageUrls() != null ? listing.getAdditionalImageUrls() : Collections.emptyList())
+            updated += elasticsearchOperations.updateByQuery(updateQuery, listingIndexPlacement.allIndices()).getUpdated();
+        }
+        log.info("Category paths backfilled for {} documents", updated);
+        return updated;
+    }
+
+    @Override
+    public int reindexByCurrency(String currency) {
+        List<UUID> listingIds = listingPostgresRepository.findIdsByCurrency(currency, fxRateProperties.getBaseCurrency());
+        int total = 0;
+        for (int from = 0; from < listingIds.size(); from += REINDEX_PAGE_SIZE) {
+            // Смена курса не меняет ни routing, ни индекс документа
+            total += writeFromDatabase(listingIds.subList(from, Math.min(from + REINDEX_PAGE_SIZE, listingIds.size())));
+        }
+        return total;
+    }
+
+    @Override
+    public void deleteFromIndex(Collection<UUID> listingIds) {
+        if (!listingIds.isEmpty()) {
+            deleteDocuments(listingIds);
+        }
+    }
+
+    /**
+     * При маршрутизации routing удаляемого документа может быть неизвестен (объявление уже удалено из БД
+     * или сменило категорию), а при разделении индексов - индекс, поэтому удаление идет запросом по listingId
+     * на все шарды обоих индексов.
+     */
+    private void deleteDocuments(Collection<UUID> listingIds) {
+        if (!listingRoutingResolver.isEnabled() && !listingIndexPlacement.isEnabled()) {
+            listingSearchRepository.deleteAllById(listingIds.stream().map(UUID::toString).toList());
+            return;
+        }
+        listingIds.forEach(listingRoutingResolver::evict);
+        Query query = new CriteriaQuery(new Criteria("listingId").in(listingIds.stream().map(UUID::toString).toList()));
+        elasticsearchOperations.delete(DeleteQuery.builder(query).build(), ListingDocument.class, listingIndexPlacement.allIndices());
+    }
+
+    /**
+     * Набор полей для частичного обновления документа по событию.
+     * Значения приводятся к тому виду, в котором их хранит индекс (enum и UUID - строками).
+     */
+    private Map<String, Object> toPartialDocument(ListingUpdatedEvent event) {
+        Set<String> changed = event.getChangedFields();
+        Map<String, Object> fields = new HashMap<>(); // HashMap допускает null - очистку поля
+        putIfChanged(fields, changed, "title", event.getTitle());
+        putIfChanged(fields, changed, "description", event.getDescription());
+        putIfChanged(fields, changed, "mainImageUrl", event.getMainImageUrl());
+        putIfChanged(fields, changed, "additionalImageUrls", event.getAdditionalImageUrls());
+        putIfChanged(fields, changed, "locationText", event.getLocationText());
+        putIfChanged(fields, changed, "price", event.getPrice());
+        putIfChanged(fields, changed, "currency", event.getCurrency());
+        putIfChanged(fields, changed, "priceType", event.getPriceType() != null ? event.getPriceType().name() : null);
+        if (fields.containsKey("price") && fields.containsKey("currency")) {
+            fields.put("priceNormalized", fxRateCache.normalize(event.getPrice(), event.getCurrency()));
+        }
+        putIfChanged(fields, changed, "moderationStatus", event.getModerationStatus() != null ? event.getModerationStatus().name() : null);
+        putIfChanged(fields, changed, "categoryId", event.getCategoryId() != null ? event.getCategoryId().toString() : null);
+        if (fields.containsKey("categoryId")) {
+            // Денормализованное имя берем из БД, а не из индекса - чтения документа перед записью нет
+            String categoryName = event.getCategoryId() != null
+                    ? categoryRepository.findById(event.getCategoryId()).map(Category::getName).orElse("N/A")
+                    : null;
+            fields.put("categoryName", categoryName);
+            fields.put("categoryPath", event.getCategoryId() != null ? categoryHierarchyCache.loadPath(event.getCategoryId()) : null);
+        }
+        return fields;
+    }
+
+    /**
+     * Добавляет к частичному документу версию строки из события. Событие старого формата версии не несет -
+     * документ остается с прежней версией, и расхождение исправит сверка индекса с БД.
+     */
+    private Map<String, Object> withVersion(Map<String, Object> fields, AbstractListingEvent event) {
+        if (event.getVersion() == null) {
+            return fields;
+        }
+        Map<String, Object> versioned = new HashMap<>(fields);
+        versioned.put("version", event.getVersion());
+        return versioned;
+    }
+
+    private void putIfChanged(Map<String, Object> fields, Set<String> changedFields, String name, Object value) {
+        // Событие старого формата без набора изменений: обновляем все пришедшие поля
+        boolean changed = changedFields != null ? changedFields.contains(name) : value != null;
+        if (changed) {
+            fields.put(name, value);
+        }
+    }
+
+    /**
+     * Один запрос _update с частичным документом, без чтения документа перед записью.
+     * При разделении индексов документ ищется сначала в горячем, затем в архивном индексе.
+     * Если документа нет нигде, он полностью строится заново из PostgreSQL.
+     */
+    private void applyPartialUpdate(UUID listingId, Map<String, Object> fields) {
+        String docId = listingId.toString();
+        UpdateQuery updateQuery = UpdateQuery.builder(docId)
+                .withDocument(Document.from(fields))
+                .withRouting(listingRoutingResolver.forListing(listingId))
                 .build();
-        listingSearchRepository.save(document);
+        for (IndexCoordinates index : listingIndexPlacement.lookupOrder()) {
+            try {
+                elasticsearchOperations.update(updateQuery, index);
+                log.debug("Fields {} updated for ES document ID: {} in {}", fields.keySet(), docId, index.getIndexName());
+                return;
+            } catch (UncategorizedElasticsearchException e) {
+                if (!Integer.valueOf(404).equals(e.getStatusCode())) {
+                    log.error("Error updating fields {} for ES document ID {}: {}", fields.keySet(), docId, e.getMessage(), e);
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Error updating fields {} for ES document ID {}: {}", fields.keySet(), docId, e.getMessage(), e);
+                return;
+            }
+        }
+        log.warn("ListingDocument with id {} not found in Elasticsearch for update. Attempting to re-index.", docId);
+        reindexListings(List.of(listingId));
+    }
+
+    /**
+     * Перенос документа на другой шард или в другой индекс при известном прежнем положении: прежняя копия
+     * удаляется только из прежнего индекса и только на шарде прежнего routing. Если положение не изменилось
+     * (например, категория сменилась в пределах той же корневой), документ просто перезаписывается.
+     */
+    private void relocate(UUID listingId, IndexCoordinates previousIndex, String previousRouting,
+                          IndexCoordinates newIndex, String newRouting) {
+        listingRoutingResolver.evict(listingId);
+        Map<String, ListingDocument> trending = loadTrendingFields(List.of(listingId));
+        if (!previousIndex.equals(newIndex) || !Objects.equals(previousRouting, newRouting)) {
+            deleteCopies(List.of(listingId), previousIndex, previousRouting);
+        }
+        int reindexed = writeFromDatabase(List.of(listingId), trending);
+        log.info("Listing {} relocated in Elasticsearch ({} docs written).", listingId, reindexed);
+    }
+
+    // Удаление копий из одного индекса; routing == null - по всем шардам индекса
+    private void deleteCopies(Collection<UUID> listingIds, IndexCoordinates index, String routing) {
+        Query query = new CriteriaQuery(new Criteria("listingId").in(listingIds.stream().map(UUID::toString).toList()));
+        elasticsearchOperations.delete(DeleteQuery.builder(query).withRouting(routing).build(), ListingDocument.class, index);
+    }
+
+    // Перенос документа с неизвестным прежним положением: удаление всех копий и запись полного документа из БД
+    private void relocate(UUID listingId) {
+        listingRoutingResolver.evict(listingId);
+        int reindexed = reindexListings(List.of(listingId));
+        log.info("Listing {} relocated in Elasticsearch ({} docs written).", listingId, reindexed);
     }
-}
\ No newline at end of file
+}
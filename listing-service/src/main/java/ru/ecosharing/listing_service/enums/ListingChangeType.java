@@ -0,0 +1,14 @@
+package ru.ecosharing.listing_service.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ListingChangeType {
+    UPSERTED("Создано или изменено", "Объявление опубликовано: клиент добавляет или заменяет карточку."),
+    REMOVED("Удалено или скрыто", "Объявление удалено или снято с публикации: клиент убирает карточку.");
+
+    private final String displayName;
+    private final String description;
+}
@@ -0,0 +1,27 @@
+package ru.ecosharing.listing_service.enums;
+
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+public enum ListingImportFormat {
+    NDJSON, // Один JSON-объект CreateListingRequest на строку
+    CSV;    // Первая строка - заголовок с именами полей CreateListingRequest
+
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+
+    public static Optional<ListingImportFormat> fromContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))) {
+            return Optional.of(NDJSON);
+        }
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV_MEDIA_TYPE))) {
+            return Optional.of(CSV);
+        }
+        return Optional.empty();
+    }
+}
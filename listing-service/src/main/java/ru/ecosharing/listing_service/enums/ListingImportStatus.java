@@ -0,0 +1,8 @@
+package ru.ecosharing.listing_service.enums;
+
+public enum ListingImportStatus {
+    QUEUED,     // Файл принят, ожидает обработки
+    RUNNING,    // Идет обработка строк
+    COMPLETED,  // Все строки обработаны (часть могла быть отклонена)
+    FAILED      // Импорт прерван (ошибка чтения файла или БД)
+}
@@ -0,0 +1,11 @@
+package ru.ecosharing.listing_service.enums;
+
+/**
+ * Типы уведомлений, которые Listing Service запрашивает у Notification Service.
+ */
+public enum NotificationType {
+    LISTING_APPROVED,    // Объявление одобрено
+    LISTING_REJECTED,    // Объявление отклонено
+    LISTING_EXPIRED,     // Срок объявления истек
+    SAVED_SEARCH_MATCH   // Новое объявление по сохраненному поиску
+}
@@ -0,0 +1,14 @@
+package ru.ecosharing.listing_service.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ReservationStatus {
+    ACTIVE("Действует", "Период занят: другие брони объявления не могут с ним пересекаться."),
+    CANCELLED("Отменена", "Бронь отменена арендатором или владельцем, период снова свободен.");
+
+    private final String displayName;
+    private final String description;
+}
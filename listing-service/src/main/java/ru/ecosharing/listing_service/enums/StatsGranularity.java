@@ -0,0 +1,6 @@
+package ru.ecosharing.listing_service.enums;
+
+public enum StatsGranularity {
+    DAY,    // Точка - сутки
+    MONTH   // Точка - календарный месяц
+}
@@ -1,6 +1,7 @@
 package ru.ecosharing.listing_service.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -53,6 +54,26 @@ public class GlobalExceptionHandler {
         return createErrorResponse(ex, HttpStatus.FORBIDDEN, request);
     }
 
+    @ExceptionHandler(ListingConflictException.class)
+    public ResponseEntity<ErrorResponse> handleListingConflictException(
+            ListingConflictException ex, WebRequest request) {
+        return createErrorResponse(ex, HttpStatus.CONFLICT, request);
+    }
+
+    // Версия строки изменилась между чтением и сохранением (@Version) - параллельная правка
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex, WebRequest request) {
+        log.warn("Конфликт параллельного изменения для запроса [{}]: {}", getRequestPath(request), ex.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .message("Объект был изменен другим запросом. Обновите данные и повторите действие.")
+                .path(getRequestPath(request))
+                .timestamp(LocalDateTime.now())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler({ListingOperationException.class, CategoryOperationException.class})
     public ResponseEntity<ErrorResponse> handleBusinessLogicExceptions(
             RuntimeException ex, WebRequest request) {
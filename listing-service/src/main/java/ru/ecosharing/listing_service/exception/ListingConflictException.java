@@ -0,0 +1,39 @@
+package ru.ecosharing.listing_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+@ResponseStatus(HttpStatus.CONFLICT) // Объявление изменено параллельно, клиенту нужно перечитать его и повторить правку
+public class ListingConflictException extends RuntimeException {
+
+    public ListingConflictException(String message) {
+        super(message);
+    }
+
+    public ListingConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public static ListingConflictException staleVersion(UUID listingId, Long expectedVersion, Long actualVersion) {
+        return new ListingConflictException(String.format(
+                "Объявление ID %s было изменено: ожидалась версия %d, текущая %d. Обновите данные и повторите действие.",
+                listingId, expectedVersion, actualVersion));
+    }
+
+    public static ListingConflictException periodReserved(UUID listingId) {
+        return new ListingConflictException(String.format(
+                "Объявление ID %s уже забронировано на часть выбранного периода. Выберите другие даты.", listingId));
+    }
+
+    /**
+     * Проверяет версию, переданную клиентом. Без версии клиент не участвует в проверке,
+     * и от перезаписи защищает только @Version при сохранении.
+     */
+    public static void checkVersion(UUID listingId, Long expectedVersion, Long actualVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(actualVersion)) {
+            throw staleVersion(listingId, expectedVersion, actualVersion);
+        }
+    }
+}
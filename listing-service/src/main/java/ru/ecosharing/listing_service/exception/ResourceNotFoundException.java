@@ -28,4 +28,12 @@ public class ResourceNotFoundException extends RuntimeException {
     public static ResourceNotFoundException favorite(UUID userId, UUID listingId) {
         return new ResourceNotFoundException("Запись в избранном", "userId/listingId", userId.toString() + "/" + listingId.toString());
     }
-}
\ No newline at end of file
+
+    public static ResourceNotFoundException savedSearchById(UUID savedSearchId) {
+        return new ResourceNotFoundException("Сохраненный поиск", "ID", savedSearchId.toString());
+    }
+
+    public static ResourceNotFoundException reservationById(UUID reservationId) {
+        return new ResourceNotFoundException("Бронь", "ID", reservationId.toString());
+    }
+}
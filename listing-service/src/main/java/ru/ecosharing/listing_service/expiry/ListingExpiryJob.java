@@ -0,0 +1,219 @@
+package ru.ecosharing.listing_service.expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.ecosharing.listing_service.config.ListingExpiryProperties;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.NotificationRequestKafkaDto;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.NotificationType;
+import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
+import ru.ecosharing.listing_service.kafka.producer.NotificationEventProducer;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Снятие с публикации устаревших объявлений: ACTIVE-объявления старше max-age или без обновлений дольше
+ * inactivity-threshold переводятся в INACTIVE (владелец может активировать их снова).
+ * <p>
+ * Объявления обходятся по возрастанию id порциями (keyset): каждая порция - одна транзакция с set-based
+ * UPDATE ... RETURNING и сохранением контрольной точки, поэтому после рестарта обход продолжается с места
+ * остановки. Строка контрольной точки блокируется FOR UPDATE SKIP LOCKED - одновременно задачу выполняет
+ * только один инстанс. После коммита порции индексатору уходит одно событие на пачку, а владельцам - пачка
+ * уведомлений.
+ * <p>
+ * Нагрузка ограничивается окном работы, паузой между порциями и числом порций за запуск.
+ */
+@Slf4j
+@Component
+public class ListingExpiryJob {
+
+    static final String JOB_NAME = "listing-expiry";
+    private static final String EVENT_REASON = "EXPIRED";
+    private static final UUID MIN_UUID = new UUID(0L, 0L); // PostgreSQL сравнивает uuid побайтно
+    // Порядок PostgreSQL (беззнаковый побайтный) совпадает с порядком канонических строк, а UUID.compareTo - нет
+    private static final Comparator<UUID> UUID_ORDER = Comparator.comparing(UUID::toString);
+
+    private static final String LOCK_CHECKPOINT_SQL = """
+            SELECT last_id FROM listing_job_checkpoints WHERE job_name = :job FOR UPDATE SKIP LOCKED
+            """;
+
+    // Кандидаты выбираются по первичному ключу после контрольной точки, обновление - одним запросом
+    private static final String EXPIRE_CHUNK_SQL = """
+            WITH candidates AS (
+                SELECT id FROM listings
+                WHERE id > :lastId
+                  AND moderation_status = 'ACTIVE'
+                  AND (created_at < :createdBefore OR updated_at < :updatedBefore)
+                ORDER BY id
+                LIMIT :limit
+            )
+            UPDATE listings l
+            SET moderation_status = 'INACTIVE', updated_at = now(), version = version + 1
+            FROM candidates c
+            WHERE l.id = c.id
+            RETURNING l.id, l.user_id, l.title
+            """;
+
+    private static final String SAVE_CHECKPOINT_SQL = """
+            UPDATE listing_job_checkpoints
+            SET last_id = :lastId, processed = processed + :processed, updated_at = now()
+            WHERE job_name = :job
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ListingEventProducer listingEventProducer;
+    private final NotificationEventProducer notificationEventProducer;
+    private final ListingExpiryProperties properties;
+    private final Counter expiredCounter;
+
+    public ListingExpiryJob(NamedParameterJdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ListingEventProducer listingEventProducer,
+                            NotificationEventProducer notificationEventProducer,
+                            ListingExpiryProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.listingEventProducer = listingEventProducer;
+        this.notificationEventProducer = notificationEventProducer;
+        this.properties = properties;
+        this.expiredCounter = Counter.builder("listing.expiry.expired")
+                .description("Объявления, снятые с публикации по сроку")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.interval-ms:600000}", initialDelayString = "${app.expiry.interval-ms:600000}")
+    public void run() {
+        if (!properties.isEnabled() || !isInsideWindow()) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO listing_job_checkpoints (job_name, processed, updated_at) VALUES (:job, 0, now()) "
+                + "ON CONFLICT (job_name) DO NOTHING", new MapSqlParameterSource("job", JOB_NAME));
+
+        int chunks = 0;
+        int expired = 0;
+        while (chunks < properties.getMaxChunksPerRun() && isInsideWindow()) {
+            ChunkResult chunk = transactionTemplate.execute(status -> expireChunk());
+            if (chunk == null) {
+                log.debug("Listing expiry checkpoint is locked by another instance, skipping run");
+                break;
+            }
+            chunks++;
+            expired += chunk.getRows().size();
+            publish(chunk.getRows());
+            if (chunk.isPassFinished()) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        if (expired > 0) {
+            log.info("Listing expiry run finished: {} listings expired in {} chunks", expired, chunks);
+        }
+    }
+
+    // Одна порция в одной транзакции; null - контрольную точку держит другой инстанс
+    private ChunkResult expireChunk() {
+        MapSqlParameterSource jobParam = new MapSqlParameterSource("job", JOB_NAME);
+        List<UUID> checkpoint = jdbcTemplate.query(LOCK_CHECKPOINT_SQL, jobParam, (rs, rowNum) -> rs.getObject("last_id", UUID.class));
+        if (checkpoint.isEmpty()) {
+            return null;
+        }
+        UUID lastId = checkpoint.get(0) != null ? checkpoint.get(0) : MIN_UUID;
+
+        Instant now = Instant.now();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("lastId", lastId)
+                .addValue("createdBefore", Timestamp.from(now.minus(properties.getMaxAge())))
+                .addValue("updatedBefore", Timestamp.from(now.minus(properties.getInactivityThreshold())))
+                .addValue("limit", properties.getChunkSize());
+        List<ExpiredListing> rows = jdbcTemplate.query(EXPIRE_CHUNK_SQL, params, (rs, rowNum) -> new ExpiredListing(
+                rs.getObject("id", UUID.class), rs.getObject("user_id", UUID.class), rs.getString("title")));
+
+        // Неполная порция - проход закончен, следующий начнется сначала
+        boolean passFinished = rows.size() < properties.getChunkSize();
+        UUID nextLastId = passFinished ? null : rows.stream().map(ExpiredListing::getId).max(UUID_ORDER).orElse(lastId);
+        jdbcTemplate.update(SAVE_CHECKPOINT_SQL, new MapSqlParameterSource("job", JOB_NAME)
+                .addValue("lastId", nextLastId)
+                .addValue("processed", rows.size()));
+        return new ChunkResult(rows, passFinished);
+    }
+
+    private void publish(List<ExpiredListing> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        expiredCounter.increment(rows.size());
+        List<UUID> listingIds = rows.stream().map(ExpiredListing::getId).toList();
+        listingEventProducer.sendListingBatchModerationStatusChangedEvent(
+                new ListingBatchModerationStatusChangedEvent(listingIds, ModerationStatus.INACTIVE, ModerationStatus.ACTIVE, EVENT_REASON));
+        if (properties.isNotifyOwners()) {
+            notificationEventProducer.sendNotifications(rows.stream().map(this::toNotification).toList());
+        }
+    }
+
+    private NotificationRequestKafkaDto toNotification(ExpiredListing row) {
+        return NotificationRequestKafkaDto.builder()
+                .userId(row.getOwnerId())
+                .notificationType(NotificationType.LISTING_EXPIRED)
+                .params(Map.of("listingTitle", row.getTitle() != null ? row.getTitle() : ""))
+                .targetUrl("/listings/" + row.getId()) // Путь карточки объявления в WebApp
+                .attachWebAppButton(true)
+                .build();
+    }
+
+    private boolean isInsideWindow() {
+        int start = properties.getWindowStartHour();
+        int end = properties.getWindowEndHour();
+        if (start == end) {
+            return true;
+        }
+        int hour = LocalTime.now(properties.getZone()).getHour();
+        return start < end
+                ? hour >= start && hour < end
+                : hour >= start || hour < end; // Окно через полночь
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getChunkPause().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class ExpiredListing {
+        private final UUID id;
+        private final UUID ownerId;
+        private final String title;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class ChunkResult {
+        private final List<ExpiredListing> rows;
+        private final boolean passFinished;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.ecosharing.listing_service.fx;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.FxRateProperties;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Курсы валют к базовой валюте в памяти, источник - таблица currency_rates.
+ * Используется при индексации: цена приводится к базовой валюте заранее, и фильтр и сортировка по цене
+ * в ES идут по обычному числовому полю без скриптов в запросе.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FxRateCache {
+
+    private static final int NORMALIZED_SCALE = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FxRateProperties properties;
+
+    private volatile Map<String, BigDecimal> rates;
+
+    /**
+     * Цена в базовой валюте.
+     * @return null, если цены нет или курс валюты неизвестен - такое объявление не попадает в фильтр по цене
+     * и при сортировке по цене оказывается в конце.
+     */
+    public BigDecimal normalize(BigDecimal price, String currency) {
+        if (price == null) {
+            return null;
+        }
+        BigDecimal rate = rateOf(currency);
+        if (rate == null) {
+            log.debug("No FX rate for currency '{}', normalized price is not set", currency);
+            return null;
+        }
+        return price.multiply(rate).setScale(NORMALIZED_SCALE, RoundingMode.HALF_UP);
+    }
+
+    // Валюта объявления без кода считается базовой
+    public String currencyKey(String currency) {
+        return currency == null || currency.isBlank() ? properties.getBaseCurrency() : currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public BigDecimal rateOf(String currency) {
+        String key = currencyKey(currency);
+        if (key.equals(properties.getBaseCurrency())) {
+            return BigDecimal.ONE;
+        }
+        return currentRates().get(key);
+    }
+
+    /**
+     * Перечитывает все курсы. При ошибке чтения остаются прежние.
+     */
+    public void refresh() {
+        try {
+            Map<String, BigDecimal> loaded = new HashMap<>();
+            jdbcTemplate.query("SELECT currency, rate FROM currency_rates", rs -> {
+                loaded.put(rs.getString("currency").toUpperCase(Locale.ROOT), rs.getBigDecimal("rate"));
+            });
+            rates = Map.copyOf(loaded);
+            log.debug("FX rates loaded: {} currencies", loaded.size());
+        } catch (Exception e) {
+            log.warn("Failed to load FX rates, keeping previous ones: {}", e.getMessage());
+            if (rates == null) {
+                rates = Map.of();
+            }
+        }
+    }
+
+    /**
+     * Подменяет курс одной валюты - тем, с которым будет выполнена переиндексация.
+     */
+    public synchronized void put(String currency, BigDecimal rate) {
+        Map<String, BigDecimal> updated = new HashMap<>(currentRates());
+        updated.put(currencyKey(currency), rate);
+        rates = Map.copyOf(updated);
+    }
+
+    private Map<String, BigDecimal> currentRates() {
+        Map<String, BigDecimal> current = rates;
+        if (current == null) {
+            synchronized (this) {
+                if (rates == null) {
+                    refresh();
+                }
+                current = rates;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.ecosharing.listing_service.fx;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.FxRateProperties;
+import ru.ecosharing.listing_service.dto.kafka.FxRatesChangedEvent;
+import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
+import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Периодически перечитывает курсы валют и переиндексирует объявления валют, чей курс изменился.
+ * <p>
+ * Новый курс сначала отмечается в pending_rate, и всем инстансам рассылается FX_RATES_CHANGED, чтобы они
+ * перечитали курсы сразу. Переиндексация начинается, когда курс не менялся два периода обновления:
+ * к этому времени его перечитал каждый инстанс, даже если событие потерялось, и ни один документ
+ * больше не проиндексируется по старому курсу.
+ * <p>
+ * Переиндексацию выполняет один инстанс - тот, кто взял аренду reindex_claimed_at. indexed_rate обновляется
+ * только после успешного окончания; прерванную переиндексацию повторит любой инстанс по истечении аренды.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FxRateRefresher {
+
+    private static final String MARK_PENDING_SQL = """
+            UPDATE currency_rates SET pending_rate = rate, pending_since = now()
+            WHERE pending_rate IS DISTINCT FROM rate
+            RETURNING currency
+            """;
+
+    private static final String CLAIM_SETTLED_RATES_SQL = """
+            UPDATE currency_rates SET reindex_claimed_at = now()
+            WHERE indexed_rate IS DISTINCT FROM rate
+              AND pending_rate = rate
+              AND pending_since < now() - ? * INTERVAL '1 millisecond'
+              AND (reindex_claimed_at IS NULL OR reindex_claimed_at < now() - ? * INTERVAL '1 millisecond')
+            RETURNING currency, rate
+            """;
+
+    // Курс мог снова измениться во время переиндексации - тогда отметка не совпадет с rate, и валюта переиндексируется еще раз
+    private static final String COMPLETE_SQL =
+            "UPDATE currency_rates SET indexed_rate = ?, reindex_claimed_at = NULL WHERE currency = ?";
+
+    private final FxRateCache fxRateCache;
+    private final FxRateProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ElasticsearchIndexService elasticsearchIndexService;
+    private final ListingEventProducer listingEventProducer;
+
+    @Scheduled(fixedDelayString = "${app.fx.refresh-interval-ms:300000}")
+    public void refresh() {
+        fxRateCache.refresh();
+        if (!properties.isReindexOnRateChange()) {
+            return;
+        }
+        Map<String, BigDecimal> claimed = new LinkedHashMap<>();
+        try {
+            List<String> changed = jdbcTemplate.queryForList(MARK_PENDING_SQL, String.class);
+            if (!changed.isEmpty()) {
+                log.info("FX rates changed for {}, notifying all instances", changed);
+                listingEventProducer.sendFxRatesChangedEvent(new FxRatesChangedEvent(new ArrayList<>(changed)));
+            }
+            jdbcTemplate.query(CLAIM_SETTLED_RATES_SQL, rs -> {
+                claimed.put(rs.getString("currency"), rs.getBigDecimal("rate"));
+            }, 2 * properties.getRefreshIntervalMs(), properties.getReindexLease().toMillis());
+        } catch (Exception e) {
+            log.warn("Failed to check FX rate changes: {}", e.getMessage());
+            return;
+        }
+        claimed.forEach(this::reindexCurrency);
+    }
+
+    private void reindexCurrency(String currency, BigDecimal rate) {
+        fxRateCache.put(currency, rate);
+        try {
+            int reindexed = elasticsearchIndexService.reindexByCurrency(currency);
+            jdbcTemplate.update(COMPLETE_SQL, rate, currency);
+            log.info("FX rate of {} changed to {}: {} listings re-indexed", currency, rate, reindexed);
+        } catch (Exception e) {
+            // Снимаем аренду - следующий проход любого инстанса повторит переиндексацию
+            jdbcTemplate.update("UPDATE currency_rates SET reindex_claimed_at = NULL WHERE currency = ?", currency);
+            log.error("Failed to re-index listings in {} after FX rate change: {}", currency, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.ecosharing.listing_service.importing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.model.Listing;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вставка пачки объявлений через JDBC batch insert, минуя persistence context Hibernate.
+ * ID и временные метки заполняются заранее, поэтому перечитывать строки после вставки не нужно.
+ */
+@Component
+@RequiredArgsConstructor
+public class ListingBatchWriter {
+
+    private static final String INSERT_LISTING_SQL = """
+            INSERT INTO listings (id, user_id, title, description, category_id, main_image_url, location_text,
+                                  price, currency, price_type, moderation_status, availability_status,
+                                  view_count, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)
+            """;
+
+    private static final String INSERT_IMAGE_SQL =
+            "INSERT INTO listing_additional_images (listing_id, image_url) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insert(List<Listing> listings) {
+        jdbcTemplate.batchUpdate(INSERT_LISTING_SQL, listings, listings.size(), (ps, listing) -> {
+            ps.setObject(1, listing.getId());
+            ps.setObject(2, listing.getUserId());
+            ps.setString(3, listing.getTitle());
+            ps.setString(4, listing.getDescription());
+            ps.setObject(5, listing.getCategory().getId());
+            ps.setString(6, listing.getMainImageUrl());
+            ps.setString(7, listing.getLocationText());
+            if (listing.getPrice() != null) {
+                ps.setBigDecimal(8, listing.getPrice());
+            } else {
+                ps.setNull(8, Types.DECIMAL);
+            }
+            ps.setString(9, listing.getCurrency());
+            ps.setString(10, listing.getPriceType().name());
+            ps.setString(11, listing.getModerationStatus().name());
+            ps.setString(12, listing.getAvailabilityStatus().name());
+            ps.setTimestamp(13, Timestamp.valueOf(listing.getCreatedAt()));
+            ps.setTimestamp(14, Timestamp.valueOf(listing.getUpdatedAt()));
+        });
+
+        List<Object[]> images = new ArrayList<>();
+        for (Listing listing : listings) {
+            if (listing.getAdditionalImageUrls() != null) {
+                listing.getAdditionalImageUrls().forEach(url -> images.add(new Object[]{listing.getId(), url}));
+            }
+        }
+        if (!images.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_IMAGE_SQL, images);
+        }
+    }
+}
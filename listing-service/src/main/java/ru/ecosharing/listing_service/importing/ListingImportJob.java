@@ -0,0 +1,98 @@
+package ru.ecosharing.listing_service.importing;
+
+import lombok.Getter;
+import ru.ecosharing.listing_service.dto.response.ListingImportJobResponse;
+import ru.ecosharing.listing_service.dto.response.ListingImportRowError;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+import ru.ecosharing.listing_service.enums.ListingImportStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Состояние задачи импорта в потоке, который ее выполняет. Запросы прогресса читают его копию,
+ * сохраненную ListingImportJobRegistry.
+ */
+@Getter
+public class ListingImportJob {
+
+    private final UUID id = UUID.randomUUID();
+    private final UUID userId;
+    private final ListingImportFormat format;
+    private final int maxReportedErrors;
+    private final Instant createdAt = Instant.now();
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final List<ListingImportRowError> errors = new ArrayList<>();
+
+    private volatile ListingImportStatus status = ListingImportStatus.QUEUED;
+    private volatile String failureReason;
+    private volatile Instant finishedAt;
+
+    public ListingImportJob(UUID userId, ListingImportFormat format, int maxReportedErrors) {
+        this.userId = userId;
+        this.format = format;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public void markRunning() {
+        status = ListingImportStatus.RUNNING;
+    }
+
+    public void markCompleted() {
+        finishedAt = Instant.now();
+        status = ListingImportStatus.COMPLETED;
+    }
+
+    public void markFailed(String reason) {
+        failureReason = reason;
+        finishedAt = Instant.now();
+        status = ListingImportStatus.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == ListingImportStatus.COMPLETED || status == ListingImportStatus.FAILED;
+    }
+
+    public void rowProcessed() {
+        processedRows.incrementAndGet();
+    }
+
+    public void rowsImported(int count) {
+        importedRows.addAndGet(count);
+    }
+
+    public void rowFailed(long row, String message) {
+        failedRows.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ListingImportRowError(row, message));
+            }
+        }
+    }
+
+    public ListingImportJobResponse toResponse() {
+        List<ListingImportRowError> reportedErrors;
+        synchronized (errors) {
+            reportedErrors = List.copyOf(errors);
+        }
+        return ListingImportJobResponse.builder()
+                .jobId(id)
+                .format(format)
+                .status(status)
+                .processedRows(processedRows.get())
+                .importedRows(importedRows.get())
+                .failedRows(failedRows.get())
+                .errors(reportedErrors)
+                .errorsTruncated(failedRows.get() > reportedErrors.size())
+                .failureReason(failureReason)
+                .createdAt(createdAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+}
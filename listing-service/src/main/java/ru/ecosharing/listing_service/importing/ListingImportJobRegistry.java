@@ -0,0 +1,166 @@
+package ru.ecosharing.listing_service.importing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.ListingImportProperties;
+import ru.ecosharing.listing_service.dto.response.ListingImportJobResponse;
+import ru.ecosharing.listing_service.dto.response.ListingImportRowError;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+import ru.ecosharing.listing_service.enums.ListingImportStatus;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Задачи импорта в таблице listing_import_jobs. Импорт выполняет инстанс, принявший файл, и сохраняет
+ * прогресс после каждой пачки; запрос статуса может обслужить любой инстанс.
+ * Незавершенные задачи этого инстанса (в том числе ожидающие в очереди) периодически сохраняются заново,
+ * поэтому задача, давно не обновлявшаяся в БД, осталась от остановленного инстанса.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListingImportJobRegistry {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO listing_import_jobs (id, user_id, format, status, created_at, updated_at)
+            VALUES (:id, :userId, :format, :status, :createdAt, now())
+            """;
+
+    // Завершенная задача не перезаписывается: снимок из периодического сохранения мог быть снят раньше финального
+    private static final String SAVE_SQL = """
+            UPDATE listing_import_jobs
+            SET status = :status, processed_rows = :processedRows, imported_rows = :importedRows,
+                failed_rows = :failedRows, errors = CAST(:errors AS jsonb), failure_reason = :failureReason,
+                finished_at = :finishedAt, updated_at = now()
+            WHERE id = :id AND finished_at IS NULL
+            """;
+
+    private static final String FIND_SQL = """
+            SELECT id, format, status, processed_rows, imported_rows, failed_rows, errors, failure_reason,
+                   created_at, finished_at
+            FROM listing_import_jobs
+            WHERE id = :id AND user_id = :userId
+            """;
+
+    private static final String FAIL_STALE_SQL = """
+            UPDATE listing_import_jobs
+            SET status = :failed, failure_reason = :reason, finished_at = now(), updated_at = now()
+            WHERE status IN (:unfinished) AND updated_at < now() - :timeoutMillis * INTERVAL '1 millisecond'
+            """;
+
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM listing_import_jobs
+            WHERE finished_at < now() - :retentionMillis * INTERVAL '1 millisecond'
+            """;
+
+    private static final TypeReference<List<ListingImportRowError>> ERRORS_TYPE = new TypeReference<>() {
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ListingImportProperties properties;
+    private final Map<UUID, ListingImportJob> localJobs = new ConcurrentHashMap<>();
+
+    public void register(ListingImportJob job) {
+        localJobs.put(job.getId(), job);
+        jdbcTemplate.update(INSERT_SQL, new MapSqlParameterSource()
+                .addValue("id", job.getId())
+                .addValue("userId", job.getUserId())
+                .addValue("format", job.getFormat().name())
+                .addValue("status", job.getStatus().name())
+                .addValue("createdAt", Timestamp.from(job.getCreatedAt())));
+    }
+
+    // Сохраняет текущий прогресс задачи
+    public void save(ListingImportJob job) {
+        ListingImportJobResponse snapshot = job.toResponse();
+        jdbcTemplate.update(SAVE_SQL, new MapSqlParameterSource()
+                .addValue("id", job.getId())
+                .addValue("status", snapshot.getStatus().name())
+                .addValue("processedRows", snapshot.getProcessedRows())
+                .addValue("importedRows", snapshot.getImportedRows())
+                .addValue("failedRows", snapshot.getFailedRows())
+                .addValue("errors", toJson(snapshot.getErrors()))
+                .addValue("failureReason", snapshot.getFailureReason())
+                .addValue("finishedAt", snapshot.getFinishedAt() != null ? Timestamp.from(snapshot.getFinishedAt()) : null));
+        if (job.isFinished()) {
+            localJobs.remove(job.getId());
+        }
+    }
+
+    public Optional<ListingImportJobResponse> find(UUID jobId, UUID userId) {
+        List<ListingImportJobResponse> jobs = jdbcTemplate.query(FIND_SQL,
+                new MapSqlParameterSource("id", jobId).addValue("userId", userId), (rs, rowNum) -> toResponse(rs));
+        return jobs.stream().findFirst();
+    }
+
+    public void remove(UUID jobId) {
+        localJobs.remove(jobId);
+        jdbcTemplate.update("DELETE FROM listing_import_jobs WHERE id = :id", new MapSqlParameterSource("id", jobId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.import.cleanup-interval-ms:300000}")
+    public void cleanup() {
+        localJobs.values().forEach(this::save);
+        int interrupted = jdbcTemplate.update(FAIL_STALE_SQL, new MapSqlParameterSource()
+                .addValue("failed", ListingImportStatus.FAILED.name())
+                .addValue("reason", "Импорт прерван: сервис был остановлен во время обработки.")
+                .addValue("unfinished", List.of(ListingImportStatus.QUEUED.name(), ListingImportStatus.RUNNING.name()))
+                .addValue("timeoutMillis", properties.getStaleJobTimeout().toMillis()));
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL,
+                new MapSqlParameterSource("retentionMillis", properties.getJobRetention().toMillis()));
+        if (interrupted > 0 || deleted > 0) {
+            log.info("Import jobs cleanup: {} interrupted jobs failed, {} expired jobs deleted", interrupted, deleted);
+        }
+    }
+
+    private ListingImportJobResponse toResponse(ResultSet rs) throws SQLException {
+        List<ListingImportRowError> errors = fromJson(rs.getString("errors"));
+        long failedRows = rs.getLong("failed_rows");
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        return ListingImportJobResponse.builder()
+                .jobId(rs.getObject("id", UUID.class))
+                .format(ListingImportFormat.valueOf(rs.getString("format")))
+                .status(ListingImportStatus.valueOf(rs.getString("status")))
+                .processedRows(rs.getLong("processed_rows"))
+                .importedRows(rs.getLong("imported_rows"))
+                .failedRows(failedRows)
+                .errors(errors)
+                .errorsTruncated(failedRows > errors.size())
+                .failureReason(rs.getString("failure_reason"))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .finishedAt(finishedAt != null ? finishedAt.toInstant() : null)
+                .build();
+    }
+
+    private String toJson(List<ListingImportRowError> errors) {
+        try {
+            return objectMapper.writeValueAsString(errors);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize import errors", e);
+        }
+    }
+
+    private List<ListingImportRowError> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, ERRORS_TYPE);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to read stored import errors: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.ecosharing.listing_service.importing;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.ecosharing.listing_service.dto.request.CreateListingRequest;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Последовательное чтение строк файла импорта. Ошибка разбора одной строки не прерывает чтение остальных.
+ */
+public class ListingImportRowReader implements Closeable {
+
+    // Разделитель нескольких URL в колонке additionalImageUrls CSV
+    private static final String CSV_LIST_SEPARATOR = "\\|";
+
+    private final ListingImportFormat format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private final MappingIterator<Map<String, String>> csvRows;
+    private long rowNumber;
+
+    public ListingImportRowReader(ListingImportFormat format, BufferedReader reader, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+        if (format == ListingImportFormat.CSV) {
+            CsvMapper csvMapper = new CsvMapper();
+            this.csvRows = csvMapper.readerForMapOf(String.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(reader);
+        } else {
+            this.csvRows = null;
+        }
+    }
+
+    /**
+     * Читает следующую строку. Возвращает null, когда данные закончились.
+     */
+    public Row next() throws IOException {
+        return format == ListingImportFormat.CSV ? nextCsv() : nextNdjson();
+    }
+
+    private Row nextNdjson() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            rowNumber++;
+        } while (line.isBlank());
+
+        try {
+            return new Row(rowNumber, objectMapper.readValue(line, CreateListingRequest.class), null);
+        } catch (IOException e) {
+            return new Row(rowNumber, null, "Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Row nextCsv() throws IOException {
+        if (!csvRows.hasNextValue()) {
+            return null;
+        }
+        rowNumber++;
+        Map<String, String> values;
+        try {
+            values = csvRows.nextValue();
+        } catch (RuntimeException e) {
+            return new Row(rowNumber, null, "Некорректная строка CSV: " + e.getMessage());
+        }
+        try {
+            values.values().removeIf(value -> value == null || value.isBlank());
+            Map<String, Object> fields = new HashMap<>(values);
+            String images = values.get("additionalImageUrls");
+            if (images != null) {
+                fields.put("additionalImageUrls", Arrays.stream(images.split(CSV_LIST_SEPARATOR))
+                        .map(String::trim)
+                        .filter(url -> !url.isEmpty())
+                        .toList());
+            }
+            return new Row(rowNumber, objectMapper.convertValue(fields, CreateListingRequest.class), null);
+        } catch (IllegalArgumentException e) {
+            return new Row(rowNumber, null, "Некорректное значение поля: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csvRows != null) {
+            csvRows.close();
+        }
+        reader.close();
+    }
+
+    /**
+     * Строка файла: либо разобранный запрос, либо ошибка разбора.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static class Row {
+        private final long number;
+        private final CreateListingRequest request;
+        private final String error;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.ecosharing.listing_service.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.category.CategoryListingCounters;
+import ru.ecosharing.listing_service.category.CategoryTreeCache;
+import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingDeletedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingUpdatedEvent;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Поддерживает счетчики объявлений по категориям и кэш дерева категорий на всех инстансах сервиса
+ * (своя consumer group на инстанс, только новые события: начальное состояние читается из БД).
+ * Новые объявления создаются на модерации и в счетчики не попадают до одобрения.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryCounterUpdater {
+
+    private final CategoryListingCounters categoryListingCounters;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryHierarchyCache categoryHierarchyCache;
+
+    @KafkaListener(
+            id = "categoryCountersListings",
+            topics = "${kafka.topic.listing-events:listing-events}",
+            groupId = "${spring.kafka.consumer.group-id.category-counters:listing-service-category-counters}-${random.uuid}",
+            containerFactory = "listingEventKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onListingEvent(@Payload(required = false) AbstractListingEvent event) {
+        try {
+            if (event instanceof ListingModerationStatusChangedEvent statusEvent) {
+                categoryListingCounters.onTransition(statusEvent.getCategoryId(), statusEvent.getOldModerationStatus(),
+                        statusEvent.getCategoryId(), statusEvent.getNewModerationStatus());
+            } else if (event instanceof ListingUpdatedEvent updated) {
+                applyUpdate(updated);
+            } else if (event instanceof ListingDeletedEvent deleted) {
+                categoryListingCounters.onTransition(deleted.getCategoryId(), deleted.getModerationStatus(), null, null);
+            } else if (event instanceof ListingBatchModerationStatusChangedEvent batch
+                    && batch.getListingIds() != null && batch.getOldModerationStatus() != null) {
+                categoryListingCounters.onBatchTransition(batch.getListingIds(),
+                        batch.getOldModerationStatus(), batch.getNewModerationStatus());
+            }
+        } catch (Exception e) {
+            // Расхождение исправит ближайшая сверка с БД
+            log.warn("Failed to apply event {} to category counters: {}", event.getEventType(), e.getMessage());
+        }
+    }
+
+    @KafkaListener(
+            id = "categoryCountersCategories",
+            topics = "${kafka.topic.category-events:category-events}",
+            groupId = "${spring.kafka.consumer.group-id.category-counters:listing-service-category-counters}-${random.uuid}",
+            containerFactory = "categoryEventKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onCategoryEvent(@Payload(required = false) CategoryLifecycleEvent event) {
+        if (event == null) {
+            return;
+        }
+        // Категорию могли перенести в другую ветку - перечитываем дерево и пересчитываем суммы по предкам
+        categoryHierarchyCache.reload();
+        categoryListingCounters.rebuildTree();
+        categoryTreeCache.invalidate();
+    }
+
+    // Категория и статус до правки есть в событии, только если изменилось что-то из них
+    private void applyUpdate(ListingUpdatedEvent event) {
+        Set<String> changedFields = event.getChangedFields();
+        if (changedFields == null || event.getPreviousCategoryId() == null) {
+            return;
+        }
+        UUID newCategoryId = changedFields.contains("categoryId") ? event.getCategoryId() : event.getPreviousCategoryId();
+        ModerationStatus newStatus = changedFields.contains("moderationStatus")
+                ? event.getModerationStatus()
+                : event.getPreviousModerationStatus();
+        categoryListingCounters.onTransition(event.getPreviousCategoryId(), event.getPreviousModerationStatus(),
+                newCategoryId, newStatus);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.ecosharing.listing_service.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingDeletedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingFavoriteAddedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingFavoriteRemovedEvent;
+import ru.ecosharing.listing_service.recommend.CoFavoriteRecommender;
+
+/**
+ * Обновляет рекомендации по совместному избранному на всех инстансах сервиса
+ * (своя consumer group на инстанс, только новые события: начальное состояние - снимок или БД).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CoFavoriteUpdater {
+
+    private final CoFavoriteRecommender coFavoriteRecommender;
+
+    @KafkaListener(
+            id = "coFavoriteRecommendations",
+            topics = "${kafka.topic.listing-events:listing-events}",
+            groupId = "${spring.kafka.consumer.group-id.listing-recommend:listing-service-recommend}-${random.uuid}",
+            containerFactory = "listingEventKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onListingEvent(@Payload(required = false) AbstractListingEvent event) {
+        try {
+            if (event instanceof ListingFavoriteAddedEvent added) {
+                coFavoriteRecommender.onFavoriteAdded(added.getUserId(), added.getListingId());
+            } else if (event instanceof ListingFavoriteRemovedEvent removed) {
+                coFavoriteRecommender.onFavoriteRemoved(removed.getUserId(), removed.getListingId());
+            } else if (event instanceof ListingDeletedEvent deleted) {
+                coFavoriteRecommender.forget(deleted.getListingId());
+            }
+        } catch (Exception e) {
+            // Рекомендации приближенные - событие не повторяем
+            log.warn("Failed to update co-favorite recommendations for event {}: {}", event.getEventType(), e.getMessage());
+        }
+    }
+}
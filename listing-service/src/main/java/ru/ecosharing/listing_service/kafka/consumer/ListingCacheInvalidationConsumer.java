@@ -0,0 +1,72 @@
+package ru.ecosharing.listing_service.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.cache.ListingDetailCache;
+import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
+import ru.ecosharing.listing_service.dto.kafka.FxRatesChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingDeletedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingReservationsChangedEvent;
+import ru.ecosharing.listing_service.fx.FxRateCache;
+import ru.ecosharing.listing_service.reservation.ReservationCalendarCache;
+
+/**
+ * Инвалидация локальных кэшей карточек, календарей броней и курсов валют на всех инстансах сервиса.
+ * У каждого инстанса своя consumer group (случайный суффикс), поэтому каждое событие получают все инстансы.
+ * Читаем только новые события: кэш при старте пуст, история не нужна.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListingCacheInvalidationConsumer {
+
+    private final ListingDetailCache listingDetailCache;
+    private final ReservationCalendarCache reservationCalendarCache;
+    private final FxRateCache fxRateCache;
+
+    @KafkaListener(
+            id = "listingCacheInvalidation",
+            topics = "${kafka.topic.listing-events:listing-events}",
+            groupId = "${spring.kafka.consumer.group-id.listing-cache:listing-service-cache}-${random.uuid}",
+            containerFactory = "listingEventKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onListingEvent(@Payload(required = false) AbstractListingEvent event) {
+        if (event instanceof FxRatesChangedEvent fxEvent) {
+            log.info("FX rates changed for {}, reloading", fxEvent.getCurrencies());
+            fxRateCache.refresh();
+            return;
+        }
+        if (event instanceof ListingBatchModerationStatusChangedEvent batchEvent && batchEvent.getListingIds() != null) {
+            batchEvent.getListingIds().forEach(listingDetailCache::evict);
+            return;
+        }
+        if (event instanceof ListingReservationsChangedEvent || event instanceof ListingDeletedEvent) {
+            reservationCalendarCache.evict(event.getListingId());
+        }
+        if (event == null || event.getListingId() == null || !ListingDetailCache.isInvalidatedBy(event)) {
+            return;
+        }
+        listingDetailCache.evict(event.getListingId());
+    }
+
+    @KafkaListener(
+            id = "categoryCacheInvalidation",
+            topics = "${kafka.topic.category-events:category-events}",
+            groupId = "${spring.kafka.consumer.group-id.listing-cache:listing-service-cache}-${random.uuid}",
+            containerFactory = "categoryEventKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onCategoryEvent(@Payload(required = false) CategoryLifecycleEvent event) {
+        if (event == null) {
+            return;
+        }
+        log.debug("Category {} changed ({}), clearing listing detail cache", event.getCategoryId(), event.getEventType());
+        listingDetailCache.evictAll();
+    }
+}
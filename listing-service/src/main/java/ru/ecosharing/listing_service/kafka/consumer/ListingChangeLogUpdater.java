@@ -0,0 +1,72 @@
+package ru.ecosharing.listing_service.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingAvailabilityStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchCreatedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingCreatedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingDeletedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingModerationStatusChangedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingUpdatedEvent;
+import ru.ecosharing.listing_service.sync.ListingChangeLog;
+
+import java.util.List;
+
+/**
+ * Ведет журнал изменений объявлений для ленты синхронизации клиентов.
+ * Общая consumer group: журнал один на сервис, каждое событие записывается одним инстансом.
+ * Просмотры, избранное и брони в журнал не попадают - они не меняют карточку (счетчик просмотров
+ * в списках не обязан быть точным), а по частоте забили бы ленту.
+ * Ошибки записи не глотаются: пропущенное изменение клиент уже никогда не получит, поэтому запись
+ * повторяется обработчиком ошибок контейнера, пока не пройдет.
+ */
+@Component
+@RequiredArgsConstructor
+public class ListingChangeLogUpdater {
+
+    private final ListingChangeLog listingChangeLog;
+
+    @KafkaListener(
+            id = "listingChangeLog",
+            topics = "${kafka.topic.listing-events:listing-events}",
+            groupId = "${spring.kafka.consumer.group-id.listing-changes:listing-service-change-log}",
+            containerFactory = "listingEventKafkaListenerContainerFactory",
+            containerPostProcessor = "retryingErrorHandlerPostProcessor"
+    )
+    public void onListingEvent(@Payload(required = false) AbstractListingEvent event) {
+        if (event == null) {
+            return;
+        }
+        if (event instanceof ListingCreatedEvent
+                || event instanceof ListingUpdatedEvent
+                || event instanceof ListingModerationStatusChangedEvent
+                || event instanceof ListingAvailabilityStatusChangedEvent
+                || event instanceof ListingDeletedEvent) {
+            listingChangeLog.record(List.of(event.getListingId()));
+        } else if (event instanceof ListingBatchCreatedEvent batch && batch.getListingIds() != null) {
+            listingChangeLog.record(batch.getListingIds());
+        } else if (event instanceof ListingBatchModerationStatusChangedEvent batch && batch.getListingIds() != null) {
+            listingChangeLog.record(batch.getListingIds());
+        }
+    }
+
+    @KafkaListener(
+            id = "listingChangeLogCategories",
+            topics = "${kafka.topic.category-events:category-events}",
+            groupId = "${spring.kafka.consumer.group-id.listing-changes:listing-service-change-log}",
+            containerFactory = "categoryEventKafkaListenerContainerFactory",
+            containerPostProcessor = "retryingErrorHandlerPostProcessor"
+    )
+    public void onCategoryEvent(@Payload(required = false) CategoryLifecycleEvent event) {
+        // Деактивация снимает объявления с публикации их собственными событиями; здесь - только смена названия или места в дереве
+        if (event == null || !"CATEGORY_UPDATED".equals(event.getEventType())) {
+            return;
+        }
+        listingChangeLog.recordCategoryTree(event.getCategoryId());
+    }
+}
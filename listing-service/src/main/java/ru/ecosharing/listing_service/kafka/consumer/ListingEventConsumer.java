@@ -3,13 +3,21 @@ package ru.ecosharing.listing_service.kafka.consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.annotation.TopicPartition;
 import org.springframework.kafka.listener.AbstractConsumerSeekAware;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
 import ru.ecosharing.listing_service.dto.kafka.*; // Импорт всех DTO событий
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.search.SavedSearchMatcher;
+import ru.ecosharing.listing_service.stats.ListingStatsAggregator;
+import ru.ecosharing.listing_service.trending.TrendingScoreEngine;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @Component
@@ -17,6 +25,9 @@ import ru.ecosharing.listing_service.dto.kafka.*; // Импорт всех DTO 
 public class ListingEventConsumer extends AbstractConsumerSeekAware {
 
     private final ElasticsearchIndexService elasticsearchIndexService;
+    private final TrendingScoreEngine trendingScoreEngine;
+    private final SavedSearchMatcher savedSearchMatcher;
+    private final ListingStatsAggregator listingStatsAggregator;
 
     // Слушатель для всех событий объявлений
     @KafkaListener(
@@ -40,16 +51,47 @@ public class ListingEventConsumer extends AbstractConsumerSeekAware {
             // Это можно сделать через instanceof или по полю event.getEventType()
             if (event instanceof ListingCreatedEvent) {
                 elasticsearchIndexService.processListingCreatedEvent((ListingCreatedEvent) event);
+                savedSearchMatcher.matchAndNotify(event.getListingId()); // Сработает, только если объявление уже активно
             } else if (event instanceof ListingUpdatedEvent) {
                 elasticsearchIndexService.processListingUpdatedEvent((ListingUpdatedEvent) event);
             } else if (event instanceof ListingModerationStatusChangedEvent) {
-                elasticsearchIndexService.processListingModerationStatusChangedEvent((ListingModerationStatusChangedEvent) event);
+                ListingModerationStatusChangedEvent statusEvent = (ListingModerationStatusChangedEvent) event;
+                elasticsearchIndexService.processListingModerationStatusChangedEvent(statusEvent);
+                if (statusEvent.getNewModerationStatus() == ModerationStatus.ACTIVE
+                        && statusEvent.getOldModerationStatus() != ModerationStatus.ACTIVE) {
+                    savedSearchMatcher.matchAndNotify(event.getListingId());
+                }
             } else if (event instanceof ListingAvailabilityStatusChangedEvent) {
                 elasticsearchIndexService.processListingAvailabilityStatusChangedEvent((ListingAvailabilityStatusChangedEvent) event);
             } else if (event instanceof ListingViewCountIncrementedEvent) {
                 elasticsearchIndexService.processListingViewCountIncrementedEvent((ListingViewCountIncrementedEvent) event);
+                trendingScoreEngine.recordView(event.getListingId(), event.getEventTime());
+                listingStatsAggregator.recordView(event.getListingId(), event.getEventTime(), record);
+            } else if (event instanceof ListingFavoriteAddedEvent) {
+                trendingScoreEngine.recordFavoriteAdded(event.getListingId(), event.getEventTime());
+                listingStatsAggregator.recordFavoriteAdded(event.getListingId(), event.getEventTime(), record);
+            } else if (event instanceof ListingFavoriteRemovedEvent) {
+                trendingScoreEngine.recordFavoriteRemoved(event.getListingId(), event.getEventTime());
+                listingStatsAggregator.recordFavoriteRemoved(event.getListingId(), event.getEventTime(), record);
+            } else if (event instanceof ListingBatchCreatedEvent) {
+                elasticsearchIndexService.processListingBatchCreatedEvent((ListingBatchCreatedEvent) event);
+            } else if (event instanceof ListingBatchModerationStatusChangedEvent) {
+                ListingBatchModerationStatusChangedEvent batchEvent = (ListingBatchModerationStatusChangedEvent) event;
+                elasticsearchIndexService.processListingBatchModerationStatusChangedEvent(batchEvent);
+                if (batchEvent.getNewModerationStatus() == ModerationStatus.ACTIVE
+                        && batchEvent.getOldModerationStatus() != ModerationStatus.ACTIVE
+                        && batchEvent.getListingIds() != null) {
+                    matchAndNotifyAll(batchEvent.getListingIds());
+                }
+            } else if (event instanceof ListingReservationsChangedEvent) {
+                elasticsearchIndexService.processListingReservationsChangedEvent((ListingReservationsChangedEvent) event);
+            } else if (event instanceof FxRatesChangedEvent) {
+                // Курсы перечитывает ListingCacheInvalidationConsumer, переиндексацию валюты - FxRateRefresher
+                log.debug("FX rates changed: {}", ((FxRatesChangedEvent) event).getCurrencies());
             } else if (event instanceof ListingDeletedEvent) {
                 elasticsearchIndexService.processListingDeletedEvent((ListingDeletedEvent) event);
+                trendingScoreEngine.forget(event.getListingId());
+                listingStatsAggregator.forget(event.getListingId());
             } else {
                 log.warn("Получено неизвестное или необрабатываемое событие типа '{}' для ListingID '{}'",
                         event.getEventType(), event.getListingId());
@@ -67,7 +109,26 @@ public class ListingEventConsumer extends AbstractConsumerSeekAware {
         }
     }
 
-    // Отдельный слушатель для событий категорий
+    // Накопленная статистика выгружается до передачи партиций другому инстансу
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        super.onPartitionsRevoked(partitions);
+        listingStatsAggregator.onPartitionsRevoked(partitions);
+    }
+
+    // Массовое одобрение: каждое объявление сопоставляется с сохраненными поисками отдельно,
+    // ошибка по одному не лишает уведомлений остальные
+    private void matchAndNotifyAll(List<UUID> listingIds) {
+        for (UUID listingId : listingIds) {
+            try {
+                savedSearchMatcher.matchAndNotify(listingId);
+            } catch (Exception e) {
+                log.error("Ошибка сопоставления объявления {} с сохраненными поисками: {}", listingId, e.getMessage(), e);
+            }
+        }
+    }
+
+        // Отдельный слушатель для событий категорий
     @KafkaListener(
             topics = "${kafka.topic.category-events:category-events}",
             groupId = "${spring.kafka.consumer.group-id.category-events:listing-service-category-indexer-group}", // Отдельная группа для событий категорий
@@ -0,0 +1,64 @@
+package ru.ecosharing.listing_service.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.dto.kafka.AbstractListingEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchCreatedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingCreatedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingDeletedEvent;
+import ru.ecosharing.listing_service.dto.kafka.ListingUpdatedEvent;
+import ru.ecosharing.listing_service.duplicate.NearDuplicateIndex;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Поддерживает индекс почти-дубликатов на всех инстансах сервиса.
+ * Как и инвалидация кэша, читает события своей consumer group на инстанс и только новые:
+ * начальное состояние индекса строится из БД при старте.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NearDuplicateIndexUpdater {
+
+    private static final Set<String> TEXT_FIELDS = Set.of("title", "description");
+
+    private final NearDuplicateIndex nearDuplicateIndex;
+
+    @KafkaListener(
+            id = "nearDuplicateIndex",
+            topics = "${kafka.topic.listing-events:listing-events}",
+            groupId = "${spring.kafka.consumer.group-id.listing-duplicates:listing-service-duplicates}-${random.uuid}",
+            containerFactory = "listingEventKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onListingEvent(@Payload(required = false) AbstractListingEvent event) {
+        try {
+            if (event instanceof ListingCreatedEvent created) {
+                nearDuplicateIndex.put(created.getListingId(), created.getTitle(), created.getDescription());
+            } else if (event instanceof ListingUpdatedEvent updated && changesText(updated)) {
+                // В частичном событии может не быть второго текстового поля - читаем оба из БД
+                nearDuplicateIndex.refresh(List.of(updated.getListingId()));
+            } else if (event instanceof ListingBatchCreatedEvent batch && batch.getListingIds() != null) {
+                nearDuplicateIndex.refresh(batch.getListingIds());
+            } else if (event instanceof ListingDeletedEvent deleted) {
+                nearDuplicateIndex.remove(deleted.getListingId());
+            }
+        } catch (Exception e) {
+            // Индекс - только подсказка модератору, событие не повторяем
+            log.warn("Failed to update near-duplicate index for event {}: {}", event.getEventType(), e.getMessage());
+        }
+    }
+
+    private boolean changesText(ListingUpdatedEvent event) {
+        Set<String> changedFields = event.getChangedFields();
+        if (changedFields == null) {
+            return event.getTitle() != null || event.getDescription() != null;
+        }
+        return changedFields.stream().anyMatch(TEXT_FIELDS::contains);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.cache.ListingDetailCache;
 import ru.ecosharing.listing_service.dto.kafka.*; // Импорт всех наших DTO событий
 import ru.ecosharing.listing_service.enums.AvailabilityStatus;
 import ru.ecosharing.listing_service.enums.ModerationStatus;
@@ -19,7 +20,8 @@ import java.util.concurrent.CompletableFuture;
 public class ListingEventProducer {
 
     private final KafkaTemplate<String, AbstractListingEvent> listingEventKafkaTemplate;
-    // private final KafkaTemplate<String, CategoryLifecycleEvent> categoryEventKafkaTemplate; // Если отдельный шаблон для категорий
+    private final ListingDetailCache listingDetailCache; // Карточки инвалидируются на каждое событие изменения
+    private final KafkaTemplate<String, CategoryLifecycleEvent> categoryEventKafkaTemplate;
 
     @Value("${kafka.topic.listing-events:listing-events}") // Топик для событий объявлений
     private String listingEventsTopic;
@@ -41,9 +43,10 @@ public class ListingEventProducer {
         sendListingEvent(event.getListingId().toString(), event, "изменения статуса модерации");
     }
 
-    // Перегруженный метод для удобства вызова из CategoryService и ModerationService
-    public void sendListingModerationStatusChangedEvent(UUID listingId, ModerationStatus newStatus, ModerationStatus oldStatus, UUID moderatorId) {
-        ListingModerationStatusChangedEvent event = new ListingModerationStatusChangedEvent(listingId, newStatus, oldStatus, moderatorId);
+    // Перегруженный метод для удобства вызова из CategoryService и ModerationService; version - версия строки после изменения
+    public void sendListingModerationStatusChangedEvent(UUID listingId, UUID categoryId, ModerationStatus newStatus, ModerationStatus oldStatus, UUID moderatorId, Long version) {
+        ListingModerationStatusChangedEvent event = new ListingModerationStatusChangedEvent(listingId, categoryId, newStatus, oldStatus, moderatorId);
+        event.setVersion(version);
         sendListingEvent(listingId.toString(), event, "изменения статуса модерации");
     }
 
@@ -53,8 +56,9 @@ public class ListingEventProducer {
     }
 
     // Перегруженный метод
-    public void sendListingAvailabilityStatusChangedEvent(UUID listingId, AvailabilityStatus newStatus) {
+    public void sendListingAvailabilityStatusChangedEvent(UUID listingId, AvailabilityStatus newStatus, Long version) {
         ListingAvailabilityStatusChangedEvent event = new ListingAvailabilityStatusChangedEvent(listingId, newStatus);
+        event.setVersion(version);
         sendListingEvent(listingId.toString(), event, "изменения статуса доступности");
     }
 
@@ -64,10 +68,37 @@ public class ListingEventProducer {
         sendListingEvent(event.getListingId().toString(), event, "инкремента просмотров", true);
     }
 
+    public void sendListingFavoriteAddedEvent(ListingFavoriteAddedEvent event) {
+        sendListingEvent(event.getListingId().toString(), event, "добавления в избранное", true);
+    }
+
+    public void sendListingFavoriteRemovedEvent(ListingFavoriteRemovedEvent event) {
+        sendListingEvent(event.getListingId().toString(), event, "удаления из избранного", true);
+    }
+
+    // Ключ - ID задачи импорта: пачки одного импорта обрабатываются по порядку
+    public void sendListingBatchCreatedEvent(ListingBatchCreatedEvent event) {
+        sendListingEvent(event.getImportJobId().toString(), event, "массового создания объявлений");
+    }
+
+    // Ключ - источник изменения: пачки одной задачи обрабатываются по порядку
+    public void sendListingBatchModerationStatusChangedEvent(ListingBatchModerationStatusChangedEvent event) {
+        event.getListingIds().forEach(listingDetailCache::evict);
+        sendListingEvent(event.getReason(), event, "массовой смены статуса модерации");
+    }
+
+    public void sendListingReservationsChangedEvent(ListingReservationsChangedEvent event) {
+        sendListingEvent(event.getListingId().toString(), event, "изменения броней объявления");
+    }
+
     public void sendListingDeletedEvent(ListingDeletedEvent event) {
         sendListingEvent(event.getListingId().toString(), event, "удаления объявления");
     }
 
+    public void sendFxRatesChangedEvent(FxRatesChangedEvent event) {
+        sendListingEvent("fx-rates", event, "изменения курсов валют");
+    }
+
 
     // Общий метод для отправки событий Listing
     private void sendListingEvent(String key, AbstractListingEvent event, String eventDescriptionForLog) {
@@ -75,6 +106,9 @@ public class ListingEventProducer {
     }
 
     private void sendListingEvent(String key, AbstractListingEvent event, String eventDescriptionForLog, boolean debugOnlyLog) {
+        if (ListingDetailCache.isInvalidatedBy(event)) {
+            listingDetailCache.evict(event.getListingId());
+        }
         try {
             if (!debugOnlyLog) {
                 log.info("Отправка события {} (ID: {}) в Kafka топик '{}'. Ключ: {}",
@@ -117,53 +151,31 @@ public class ListingEventProducer {
 
     // Метод для событий категорий
     public void sendCategoryLifecycleEvent(CategoryLifecycleEvent event) {
+        // Название категории входит в закэшированные карточки объявлений
+        listingDetailCache.evictAll();
+        String key = event.getCategoryId().toString();
         try {
             log.info("Отправка события {} (ID: {}) для категории {} в Kafka топик '{}'. Ключ: {}",
-                    event.getEventType(), event.getEventId(), event.getCategoryId(), categoryEventsTopic, event.getCategoryId().toString());
-
-            // Если используем отдельный KafkaTemplate для категорий:
-            // CompletableFuture<SendResult<String, CategoryLifecycleEvent>> future =
-            // categoryEventKafkaTemplate.send(categoryEventsTopic, event.getCategoryId().toString(), event);
-
-            // Если используем общий KafkaTemplate<String, Object> и соответствующий ProducerFactory:
-            // KafkaTemplate<String, Object> genericKafkaTemplate = ...;
-            // CompletableFuture<SendResult<String, Object>> future =
-            // genericKafkaTemplate.send(categoryEventsTopic, event.getCategoryId().toString(), event);
-
-            // Если используем тот же KafkaTemplate<String, AbstractListingEvent>, то он не подойдет для CategoryLifecycleEvent
-            // напрямую, если CategoryLifecycleEvent не наследуется от AbstractListingEvent.
-            // Для простоты, если топик один, а типы разные, лучше иметь KafkaTemplate<String, Object>
-            // или настроить JsonSerializer для работы с разными типами в одном ProducerFactory.
-            // Либо, как сделано в KafkaProducerConfig, иметь отдельную фабрику и шаблон для категорий.
-
-            // Предположим, у нас есть KafkaTemplate<String, Object> или мы кастуем (не рекомендуется без проверки)
-            // Для примера, будем считать, что у нас есть отдельный KafkaTemplate для категорий,
-            // либо мы настроили общий ProducerFactory, который может работать с Object и JsonSerializer
-            // правильно определит тип по заголовкам (если JsonSerializer.ADD_TYPE_INFO_HEADERS=true).
-            // Пока что закомментируем реальную отправку, т.к. KafkaTemplate был для AbstractListingEvent.
-            // Это место требует уточнения конфигурации KafkaProducerConfig.
-
-            // ЗАГЛУШКА: Реальная отправка события категории потребует соответствующего KafkaTemplate
-            log.warn("Отправка CategoryLifecycleEvent требует настроенного KafkaTemplate для типа CategoryLifecycleEvent или Object.");
-
-            /*
+                    event.getEventType(), event.getEventId(), event.getCategoryId(), categoryEventsTopic, key);
+
             CompletableFuture<SendResult<String, CategoryLifecycleEvent>> future =
-                    categoryEventKafkaTemplate.send(categoryEventsTopic, event.getCategoryId().toString(), event); // Если есть categoryEventKafkaTemplate
+                    categoryEventKafkaTemplate.send(categoryEventsTopic, key, event);
 
             future.whenComplete((result, ex) -> {
                 if (ex == null) {
-                    log.info("Событие {} (ID: {}) для категории {} успешно отправлено в Kafka.",
-                            event.getEventType(), event.getEventId(), event.getCategoryId());
+                    log.info("Событие {} (ID: {}) для категории {} успешно отправлено в Kafka. Topic: {}, Partition: {}, Offset: {}",
+                            event.getEventType(), event.getEventId(), event.getCategoryId(),
+                            result.getRecordMetadata().topic(),
+                            result.getRecordMetadata().partition(),
+                            result.getRecordMetadata().offset());
                 } else {
                     log.error("Ошибка отправки события {} (ID: {}) для категории {} в Kafka: {}",
                             event.getEventType(), event.getEventId(), event.getCategoryId(), ex.getMessage(), ex);
                 }
             });
-            */
-
         } catch (Exception e) {
             log.error("Критическая ошибка при попытке отправки события {} для категории {} в Kafka: {}",
                     event.getEventType(), event.getCategoryId(), e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
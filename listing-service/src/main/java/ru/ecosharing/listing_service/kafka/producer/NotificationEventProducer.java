@@ -0,0 +1,44 @@
+package ru.ecosharing.listing_service.kafka.producer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.dto.kafka.NotificationRequestKafkaDto;
+
+import java.util.List;
+
+/**
+ * Отправка запросов на уведомления пользователей в Notification Service.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationEventProducer {
+
+    private final KafkaTemplate<String, NotificationRequestKafkaDto> notificationKafkaTemplate;
+
+    @Value("${kafka.topic.notification-requests:notification-requests}")
+    private String notificationRequestsTopic;
+
+    public void sendNotification(NotificationRequestKafkaDto request) {
+        notificationKafkaTemplate.send(notificationRequestsTopic, request.getUserId().toString(), request)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Ошибка отправки уведомления {} пользователю {}: {}",
+                                request.getNotificationType(), request.getUserId(), ex.getMessage(), ex);
+                    }
+                });
+    }
+
+    /**
+     * Отправляет пачку уведомлений. Сообщения уходят без ожидания подтверждений,
+     * а продюсер сам объединяет их в батчи (linger.ms).
+     */
+    public void sendNotifications(List<NotificationRequestKafkaDto> requests) {
+        requests.forEach(this::sendNotification);
+        notificationKafkaTemplate.flush();
+        log.info("Отправлено {} запросов на уведомления в топик {}", requests.size(), notificationRequestsTopic);
+    }
+}
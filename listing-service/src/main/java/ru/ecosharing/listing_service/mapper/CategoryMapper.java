@@ -24,6 +24,7 @@ public interface CategoryMapper {
     Category toCategory(CreateCategoryRequest dto);
 
     @Mapping(target = "parentId", source = "parent.id")
+    @Mapping(target = "listingCount", ignore = true) // Заполняется только в дереве категорий
     CategoryResponse toCategoryResponse(Category category);
 
     List<CategoryResponse> toCategoryResponseList(List<Category> categories);
@@ -27,6 +27,9 @@ public interface ListingMapper {
     @Mapping(target = "lastModeratedAt", ignore = true)
     @Mapping(target = "moderationComment", ignore = true)
     @Mapping(target = "rejectionReason", ignore = true)
+    @Mapping(target = "duplicateOfListingId", ignore = true) // Проставляется проверкой на дубликаты
+    @Mapping(target = "duplicateSimilarity", ignore = true)
+    @Mapping(target = "version", ignore = true) // Управляется Hibernate
     Listing toListing(CreateListingRequest dto);
 
     @Mapping(target = "owner", ignore = true) // Будет установлен в сервисе
@@ -50,6 +53,9 @@ public interface ListingMapper {
     @Mapping(target = "lastModeratedAt", ignore = true)
     @Mapping(target = "moderationComment", ignore = true)
     @Mapping(target = "rejectionReason", ignore = true)
+    @Mapping(target = "duplicateOfListingId", ignore = true) // Проставляется проверкой на дубликаты
+    @Mapping(target = "duplicateSimilarity", ignore = true)
+    @Mapping(target = "version", ignore = true) // Управляется Hibernate
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateListingFromDto(UpdateListingRequest dto, @MappingTarget Listing listing);
 }
\ No newline at end of file
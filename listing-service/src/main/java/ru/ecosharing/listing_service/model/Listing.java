@@ -3,6 +3,7 @@ package ru.ecosharing.listing_service.model;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
 import ru.ecosharing.listing_service.enums.AvailabilityStatus;
@@ -22,6 +23,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@DynamicUpdate // UPDATE только измененных колонок: не затирает счетчик просмотров, который обновляется без версии
 @Table(name = "listings", indexes = {
         @Index(name = "idx_listing_user_id", columnList = "user_id"),
         @Index(name = "idx_listing_category_id", columnList = "category_id"),
@@ -102,6 +104,18 @@ public class Listing {
     @Column(name = "last_moderated_at")
     private LocalDateTime lastModeratedAt;
 
+    // Похожее объявление, найденное проверкой на почти-дубликаты перед модерацией
+    @Column(name = "duplicate_of_listing_id")
+    private UUID duplicateOfListingId;
+
+    @Column(name = "duplicate_similarity")
+    private Double duplicateSimilarity;
+
+    // Версия для оптимистической блокировки: параллельная правка той же строки завершится конфликтом, а не перезаписью
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,76 @@
+package ru.ecosharing.listing_service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.proxy.HibernateProxy;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "saved_searches", indexes = {
+        @Index(name = "idx_saved_search_user_id", columnList = "user_id")
+})
+public class SavedSearch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "name", nullable = false, length = 100)
+    private String name;
+
+    // Фильтры в том же виде, что и параметры публичного поиска
+    @Column(name = "category_id")
+    private UUID categoryId;
+
+    @Column(name = "search_term", length = 255)
+    private String searchTerm;
+
+    @Column(name = "location_text", length = 255)
+    private String locationText;
+
+    @Column(name = "price_from", precision = 19, scale = 4)
+    private BigDecimal priceFrom;
+
+    @Column(name = "price_to", precision = 19, scale = 4)
+    private BigDecimal priceTo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "availability_status", length = 20)
+    private AvailabilityStatus availabilityStatus;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null) return false;
+        Class<?> oEffectiveClass = o instanceof HibernateProxy ? ((HibernateProxy) o).getHibernateLazyInitializer().getPersistentClass() : o.getClass();
+        Class<?> thisEffectiveClass = this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass() : this.getClass();
+        if (thisEffectiveClass != oEffectiveClass) return false;
+        SavedSearch that = (SavedSearch) o;
+        return getId() != null && Objects.equals(getId(), that.getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+    }
+}
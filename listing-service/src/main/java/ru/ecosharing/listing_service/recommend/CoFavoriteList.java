@@ -0,0 +1,138 @@
+package ru.ecosharing.listing_service.recommend;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Соседи одного объявления по совместному добавлению в избранное: не более capacity пар (объявление, счетчик).
+ * При переполнении новый сосед вытесняет соседа с минимальным счетчиком и наследует его счетчик + 1
+ * (алгоритм Space-Saving): часто встречающиеся соседи гарантированно остаются в списке.
+ * UUID хранятся парами long, чтобы не держать в памяти объекты.
+ */
+final class CoFavoriteList {
+
+    private final long[] mostSignificant;
+    private final long[] leastSignificant;
+    private final int[] counts;
+    private int size;
+    private volatile long lastUpdatedMillis;
+
+    CoFavoriteList(int capacity) {
+        this.mostSignificant = new long[capacity];
+        this.leastSignificant = new long[capacity];
+        this.counts = new int[capacity];
+        this.lastUpdatedMillis = System.currentTimeMillis();
+    }
+
+    synchronized void increment(UUID neighbour) {
+        lastUpdatedMillis = System.currentTimeMillis();
+        int index = indexOf(neighbour);
+        if (index >= 0) {
+            counts[index]++;
+            return;
+        }
+        if (size < counts.length) {
+            set(size++, neighbour, 1);
+            return;
+        }
+        int min = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] < counts[min]) {
+                min = i;
+            }
+        }
+        set(min, neighbour, counts[min] + 1);
+    }
+
+    synchronized void decrement(UUID neighbour) {
+        lastUpdatedMillis = System.currentTimeMillis();
+        int index = indexOf(neighbour);
+        if (index < 0) {
+            return;
+        }
+        if (--counts[index] > 0) {
+            return;
+        }
+        // Последний элемент на место удаленного: порядок внутри списка не важен
+        size--;
+        mostSignificant[index] = mostSignificant[size];
+        leastSignificant[index] = leastSignificant[size];
+        counts[index] = counts[size];
+    }
+
+    /**
+     * До limit соседей по убыванию счетчика.
+     */
+    synchronized List<UUID> top(int limit) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> counts[i]).reversed());
+        List<UUID> result = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < order.length && result.size() < limit; i++) {
+            result.add(new UUID(mostSignificant[order[i]], leastSignificant[order[i]]));
+        }
+        return result;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    long getLastUpdatedMillis() {
+        return lastUpdatedMillis;
+    }
+
+    synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(lastUpdatedMillis);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(mostSignificant[i]);
+            out.writeLong(leastSignificant[i]);
+            out.writeInt(counts[i]);
+        }
+    }
+
+    static CoFavoriteList readFrom(DataInputStream in, int capacity) throws IOException {
+        CoFavoriteList list = new CoFavoriteList(capacity);
+        list.lastUpdatedMillis = in.readLong();
+        int stored = in.readInt();
+        for (int i = 0; i < stored; i++) {
+            long most = in.readLong();
+            long least = in.readLong();
+            int count = in.readInt();
+            // capacity могли уменьшить между запусками - лишних соседей отбрасываем
+            if (list.size < capacity) {
+                list.mostSignificant[list.size] = most;
+                list.leastSignificant[list.size] = least;
+                list.counts[list.size] = count;
+                list.size++;
+            }
+        }
+        return list;
+    }
+
+    private int indexOf(UUID neighbour) {
+        long most = neighbour.getMostSignificantBits();
+        long least = neighbour.getLeastSignificantBits();
+        for (int i = 0; i < size; i++) {
+            if (mostSignificant[i] == most && leastSignificant[i] == least) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void set(int index, UUID neighbour, int count) {
+        mostSignificant[index] = neighbour.getMostSignificantBits();
+        leastSignificant[index] = neighbour.getLeastSignificantBits();
+        counts[index] = count;
+    }
+}
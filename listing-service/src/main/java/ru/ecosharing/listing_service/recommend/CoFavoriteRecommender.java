@@ -0,0 +1,277 @@
+package ru.ecosharing.listing_service.recommend;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.CoFavoriteProperties;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Инкрементальные рекомендации "добавившие это в избранное также добавили".
+ * <p>
+ * Для каждого объявления в памяти хранится ограниченный список соседей со счетчиками совместного добавления
+ * в избранное (см. CoFavoriteList). Добавление объявления L в избранное пользователем увеличивает счетчики пар
+ * (L, M) для последних max-user-favorites объявлений M из его избранного, удаление - уменьшает.
+ * Запрос похожих объявлений - чтение одного списка из памяти.
+ * <p>
+ * Модель есть на каждом инстансе (события читает широковещательный консьюмер). При старте она загружается
+ * из снимка на диске, а если снимка нет или он устарел - строится из favorite_listings. Модель приближенная:
+ * события между снимком и рестартом теряются, события во время построения могут учесться дважды.
+ */
+@Slf4j
+@Component
+public class CoFavoriteRecommender {
+
+    private static final int SNAPSHOT_MAGIC = 0x43464156; // "CFAV"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int REBUILD_PAGE_SIZE = 5000;
+
+    private static final String USER_FAVORITES_SQL = """
+            SELECT listing_id FROM favorite_listings
+            WHERE user_id = :userId AND listing_id <> :listingId
+            ORDER BY added_at DESC
+            LIMIT :limit
+            """;
+
+    // Обход по первичному ключу (user_id, listing_id): избранное пользователя идет подряд
+    private static final String REBUILD_PAGE_SQL = """
+            SELECT user_id, listing_id FROM favorite_listings
+            WHERE (user_id, listing_id) > (:afterUserId, :afterListingId)
+            ORDER BY user_id, listing_id
+            LIMIT :limit
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CoFavoriteProperties properties;
+    private final Map<UUID, CoFavoriteList> lists = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public CoFavoriteRecommender(NamedParameterJdbcTemplate jdbcTemplate,
+                                 CoFavoriteProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        Gauge.builder("listing.recommend.co-favorites.tracked", lists, Map::size)
+                .description("Объявления со списком соседей по избранному в памяти")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        CompletableFuture.runAsync(this::initialize).exceptionally(e -> {
+            log.error("Failed to initialize co-favorite recommendations: {}", e.getMessage(), e);
+            return null;
+        });
+    }
+
+    void initialize() {
+        if (!loadSnapshot()) {
+            rebuild();
+        }
+        ready = true;
+    }
+
+    /**
+     * Похожие объявления по убыванию числа пользователей, добавивших в избранное оба объявления.
+     * Пустой список - данных нет или модель еще загружается.
+     */
+    public List<UUID> similar(UUID listingId, int limit) {
+        CoFavoriteList list = lists.get(listingId);
+        return list != null && ready ? list.top(limit) : Collections.emptyList();
+    }
+
+    public void onFavoriteAdded(UUID userId, UUID listingId) {
+        for (UUID other : loadOtherFavorites(userId, listingId)) {
+            listFor(listingId).increment(other);
+            listFor(other).increment(listingId);
+        }
+    }
+
+    public void onFavoriteRemoved(UUID userId, UUID listingId) {
+        for (UUID other : loadOtherFavorites(userId, listingId)) {
+            decrement(listingId, other);
+            decrement(other, listingId);
+        }
+    }
+
+    /**
+     * Удаленное объявление: его список удаляется, ссылки на него в чужих списках отфильтруются при выдаче.
+     */
+    public void forget(UUID listingId) {
+        lists.remove(listingId);
+    }
+
+    private List<UUID> loadOtherFavorites(UUID userId, UUID listingId) {
+        if (!properties.isEnabled() || userId == null || listingId == null) {
+            return Collections.emptyList();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("listingId", listingId)
+                .addValue("limit", properties.getMaxUserFavorites() - 1);
+        return jdbcTemplate.queryForList(USER_FAVORITES_SQL, params, UUID.class);
+    }
+
+    private CoFavoriteList listFor(UUID listingId) {
+        return lists.computeIfAbsent(listingId, id -> new CoFavoriteList(properties.getCapacity()));
+    }
+
+    private void decrement(UUID listingId, UUID neighbour) {
+        lists.computeIfPresent(listingId, (id, list) -> {
+            list.decrement(neighbour);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        UUID afterUserId = new UUID(0L, 0L);
+        UUID afterListingId = new UUID(0L, 0L);
+        UUID currentUser = null;
+        List<UUID> currentFavorites = new ArrayList<>();
+        int loaded;
+        do {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("afterUserId", afterUserId)
+                    .addValue("afterListingId", afterListingId)
+                    .addValue("limit", REBUILD_PAGE_SIZE);
+            loaded = 0;
+            for (Map<String, Object> row : jdbcTemplate.queryForList(REBUILD_PAGE_SQL, params)) {
+                UUID userId = (UUID) row.get("user_id");
+                UUID listingId = (UUID) row.get("listing_id");
+                if (!userId.equals(currentUser)) {
+                    addPairs(currentFavorites);
+                    currentFavorites.clear();
+                    currentUser = userId;
+                }
+                // Как и при инкрементальном обновлении, у пользователя учитывается не больше max-user-favorites
+                if (currentFavorites.size() < properties.getMaxUserFavorites()) {
+                    currentFavorites.add(listingId);
+                }
+                afterUserId = userId;
+                afterListingId = listingId;
+                loaded++;
+            }
+        } while (loaded == REBUILD_PAGE_SIZE);
+        addPairs(currentFavorites);
+        evictOverflow();
+        log.info("Co-favorite recommendations built from database: {} listings in {} ms",
+                lists.size(), System.currentTimeMillis() - started);
+    }
+
+    private void addPairs(List<UUID> favorites) {
+        for (int i = 0; i < favorites.size(); i++) {
+            for (int j = i + 1; j < favorites.size(); j++) {
+                listFor(favorites.get(i)).increment(favorites.get(j));
+                listFor(favorites.get(j)).increment(favorites.get(i));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.recommend.co-favorites.snapshot-interval-ms:300000}",
+            initialDelayString = "${app.recommend.co-favorites.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!properties.isEnabled() || !ready) {
+            return;
+        }
+        evictOverflow();
+        Path target = Path.of(properties.getSnapshotPath());
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "co-favorites", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                List<Map.Entry<UUID, CoFavoriteList>> entries = new ArrayList<>(lists.entrySet());
+                out.writeInt(entries.size());
+                for (Map.Entry<UUID, CoFavoriteList> entry : entries) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    entry.getValue().writeTo(out);
+                }
+            }
+            // Читатель никогда не видит недописанный файл
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Co-favorite snapshot written: {} listings", lists.size());
+        } catch (IOException e) {
+            log.warn("Failed to write co-favorite snapshot to {}: {}", target, e.getMessage());
+        }
+    }
+
+    private boolean loadSnapshot() {
+        Path source = Path.of(properties.getSnapshotPath());
+        if (!Files.isRegularFile(source)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(source))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Co-favorite snapshot {} has unknown format, rebuilding from database", source);
+                return false;
+            }
+            Instant takenAt = Instant.ofEpochMilli(in.readLong());
+            if (takenAt.isBefore(Instant.now().minus(properties.getSnapshotMaxAge()))) {
+                log.info("Co-favorite snapshot from {} is too old, rebuilding from database", takenAt);
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID listingId = new UUID(in.readLong(), in.readLong());
+                lists.put(listingId, CoFavoriteList.readFrom(in, properties.getCapacity()));
+            }
+            log.info("Co-favorite recommendations loaded from snapshot {} taken at {}: {} listings", source, takenAt, count);
+            return true;
+        } catch (IOException e) {
+            lists.clear();
+            log.warn("Failed to read co-favorite snapshot {}, rebuilding from database: {}", source, e.getMessage());
+            return false;
+        }
+    }
+
+    // Вытесняет давно не обновлявшиеся списки сверх max-tracked-listings
+    private void evictOverflow() {
+        int excess = lists.size() - properties.getMaxTrackedListings();
+        if (excess <= 0) {
+            return;
+        }
+        lists.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().getLastUpdatedMillis()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(lists::remove);
+        log.warn("Co-favorite lists exceeded {} listings, {} least recently updated evicted",
+                properties.getMaxTrackedListings(), excess);
+    }
+}
@@ -0,0 +1,382 @@
+package ru.ecosharing.listing_service.reconcile;
+
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.concurrency.JobLease;
+import ru.ecosharing.listing_service.config.IndexReconcileProperties;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая сверка listings_idx с таблицей listings.
+ * <p>
+ * Пространство UUID делится на диапазоны по hex-префиксу id. Для каждого диапазона обе стороны считают
+ * дайджест - число строк и сумму 32-битных хэшей строк (sha256 от "id|moderationStatus|availabilityStatus|categoryId|version|tier",
+ * где tier - горячий или архивный индекс, в котором документ лежит в ES и в котором должен лежать по статусу в БД).
+ * Сумма не зависит от порядка строк, поэтому и PostgreSQL, и ES считают ее агрегацией, не передавая сами строки.
+ * Совпавшие диапазоны пропускаются, несовпавшие дробятся на 16 поддиапазонов, пока не станут меньше leafSize,
+ * после чего сверяются построчно и чинятся. Объем передаваемых данных и исправлений пропорционален расхождению.
+ * <p>
+ * В дайджест входят поля, от которых зависит видимость объявления в поиске, индекс документа (документ
+ * с верными полями, но не в том индексе, не виден публичному поиску или виден в нем лишним) и версия строки
+ * listings (@Version): любая правка строки увеличивает версию, а события несут ее в индекс, поэтому отставание
+ * остальных полей (название, цена, валюта) тоже видно по дайджесту. Документы без версии (записаны событием
+ * старого формата) считаются устаревшими и переиндексируются.
+ * <p>
+ * Проход выполняет один инстанс - взявший аренду строки задачи в listing_job_checkpoints (см. JobLease).
+ */
+@Slf4j
+@Component
+public class ListingIndexReconciler {
+
+    // Документы без listingId (проиндексированы до появления поля) попадают в отдельный диапазон
+    private static final String MISSING_ID_BUCKET = "_";
+
+    private static final String JOB_NAME = "listing-index-reconcile";
+
+    static final String HOT_TIER = "hot";
+    static final String ARCHIVE_TIER = "archive";
+
+    private static final String ES_ROW_KEY = """
+            String id = doc['listingId'].size() == 0 ? '' : doc['listingId'].value;
+            String m = doc['moderationStatus'].size() == 0 ? '' : doc['moderationStatus'].value;
+            String a = doc['availabilityStatus'].size() == 0 ? '' : doc['availabilityStatus'].value;
+            String c = doc['categoryId'].size() == 0 ? '' : doc['categoryId'].value;
+            String v = doc['version'].size() == 0 ? '' : '' + doc['version'].value;
+            String t = params.archive != null && doc['_index'].value == params.archive ? 'archive' : 'hot';
+            """;
+    private static final String ES_BUCKET_SCRIPT =
+            "doc['listingId'].size() == 0 ? '" + MISSING_ID_BUCKET + "' : doc['listingId'].value.substring(0, params.len)";
+    private static final String ES_HASH_SCRIPT = ES_ROW_KEY
+            + "return Long.parseLong((id + '|' + m + '|' + a + '|' + c + '|' + v + '|' + t).sha256().substring(0, 8), 16);";
+
+    private static final String PG_ROW_KEY = "l.id::text || '|' || l.moderation_status || '|' || l.availability_status"
+            + " || '|' || l.category_id::text || '|' || l.version::text"
+            + " || '|' || CASE WHEN :split AND l.moderation_status <> 'ACTIVE' THEN '" + ARCHIVE_TIER + "' ELSE '" + HOT_TIER + "' END";
+    private static final String PG_DIGEST_SQL = """
+            SELECT substr(l.id::text, 1, :len) AS bucket, count(*) AS cnt,
+                   sum(('x' || lpad(substr(encode(sha256(convert_to(%s, 'UTF8')), 'hex'), 1, 8), 16, '0'))::bit(64)::bigint) AS digest
+            FROM listings l
+            WHERE l.id BETWEEN CAST(:lo AS uuid) AND CAST(:hi AS uuid)
+            GROUP BY 1
+            """.formatted(PG_ROW_KEY);
+    private static final String PG_ROWS_SQL = """
+            SELECT l.id::text AS id, %s AS row_key, l.updated_at
+            FROM listings l
+            WHERE l.id BETWEEN CAST(:lo AS uuid) AND CAST(:hi AS uuid)
+            """.formatted(PG_ROW_KEY);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchIndexService elasticsearchIndexService;
+    private final IndexReconcileProperties properties;
+    private final ListingIndexPlacement listingIndexPlacement;
+    private final JobLease jobLease;
+
+    private final Counter rangesCompared;
+    private final Counter rangesMismatched;
+    private final Counter missingRepaired;
+    private final Counter staleRepaired;
+    private final Counter orphansDeleted;
+    private final Timer runTimer;
+    private final AtomicLong lastRunDrift = new AtomicLong();
+
+    public ListingIndexReconciler(NamedParameterJdbcTemplate jdbcTemplate,
+                                  ElasticsearchOperations elasticsearchOperations,
+                                  ElasticsearchIndexService elasticsearchIndexService,
+                                  IndexReconcileProperties properties,
+                                  ListingIndexPlacement listingIndexPlacement,
+                                  JobLease jobLease,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.elasticsearchIndexService = elasticsearchIndexService;
+        this.properties = properties;
+        this.listingIndexPlacement = listingIndexPlacement;
+        this.jobLease = jobLease;
+        this.rangesCompared = Counter.builder("listing.reconcile.ranges")
+                .description("Сверенные диапазоны id").tag("result", "compared").register(meterRegistry);
+        this.rangesMismatched = Counter.builder("listing.reconcile.ranges")
+                .description("Диапазоны id с расхождением").tag("result", "mismatched").register(meterRegistry);
+        this.missingRepaired = Counter.builder("listing.reconcile.drift")
+                .description("Объявления, отсутствовавшие в индексе").tag("type", "missing").register(meterRegistry);
+        this.staleRepaired = Counter.builder("listing.reconcile.drift")
+                .description("Документы индекса с устаревшими данными").tag("type", "stale").register(meterRegistry);
+        this.orphansDeleted = Counter.builder("listing.reconcile.drift")
+                .description("Документы индекса без строки в БД").tag("type", "orphan").register(meterRegistry);
+        this.runTimer = Timer.builder("listing.reconcile.duration")
+                .description("Длительность полного прохода сверки").register(meterRegistry);
+        Gauge.builder("listing.reconcile.last_run.drift", lastRunDrift, AtomicLong::get)
+                .description("Расхождений, найденных последним проходом сверки")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.reconcile.interval-ms:3600000}", fixedDelayString = "${app.reconcile.interval-ms:3600000}")
+    public void reconcile() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO listing_job_checkpoints (job_name, processed, updated_at) VALUES (:job, 0, now()) "
+                    + "ON CONFLICT (job_name) DO NOTHING", new MapSqlParameterSource("job", JOB_NAME));
+            boolean leased = jobLease.runExclusively(JOB_NAME, () -> runTimer.record(() -> {
+                RunState run = new RunState();
+                reconcileRange("", properties.getInitialPrefixLength(), run);
+                lastRunDrift.set(run.repairs.get());
+                log.info("Index reconciliation finished: {} ranges compared, {} repairs", run.ranges.get(), run.repairs.get());
+            }));
+            if (!leased) {
+                log.debug("Index reconciliation is running on another instance, skipped");
+            }
+        } catch (Exception e) {
+            log.error("Index reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reconcileRange(String prefix, int childLength, RunState run) {
+        Map<String, RangeDigest> database = databaseDigests(prefix, childLength);
+        Map<String, RangeDigest> index = indexDigests(prefix, childLength);
+
+        Set<String> buckets = new TreeSet<>(database.keySet());
+        buckets.addAll(index.keySet());
+        for (String bucket : buckets) {
+            if (run.repairs.get() >= properties.getMaxRepairsPerRun()) {
+                log.warn("Reconciliation repair limit {} reached, remaining ranges postponed", properties.getMaxRepairsPerRun());
+                return;
+            }
+            run.ranges.incrementAndGet();
+            rangesCompared.increment();
+            RangeDigest db = database.getOrDefault(bucket, RangeDigest.EMPTY);
+            RangeDigest es = index.getOrDefault(bucket, RangeDigest.EMPTY);
+            if (db.equals(es)) {
+                continue;
+            }
+            rangesMismatched.increment();
+            log.debug("Range '{}' differs: db={}, index={}", bucket, db, es);
+
+            if (MISSING_ID_BUCKET.equals(bucket)) {
+                repairDocumentsWithoutListingId(run);
+            } else if (Math.max(db.getCount(), es.getCount()) <= properties.getLeafSize() || bucket.length() >= 8) {
+                repairLeaf(bucket, run);
+            } else {
+                reconcileRange(bucket, bucket.length() + 1, run);
+            }
+        }
+    }
+
+    private Map<String, RangeDigest> databaseDigests(String prefix, int childLength) {
+        MapSqlParameterSource params = rangeParams(prefix).addValue("len", childLength);
+        Map<String, RangeDigest> digests = new HashMap<>();
+        jdbcTemplate.query(PG_DIGEST_SQL, params, rs -> {
+            digests.put(rs.getString("bucket"), new RangeDigest(rs.getLong("cnt"), rs.getLong("digest")));
+        });
+        return digests;
+    }
+
+    private Map<String, RangeDigest> indexDigests(String prefix, int childLength) {
+        // При выключенном разделении архивного индекса нет: params.archive == null, все документы - в горячем
+        Map<String, JsonData> hashParams = new HashMap<>();
+        if (listingIndexPlacement.isEnabled()) {
+            hashParams.put("archive", JsonData.of(listingIndexPlacement.archiveIndex().getIndexName()));
+        }
+        Aggregation digest = Aggregation.of(a -> a.sum(s -> s.script(Script.of(sc -> sc.source(ES_HASH_SCRIPT).params(hashParams)))));
+        Aggregation buckets = Aggregation.of(a -> a
+                .terms(t -> t
+                        .script(Script.of(sc -> sc.source(ES_BUCKET_SCRIPT).params("len", JsonData.of(childLength))))
+                        .size((int) Math.pow(16, childLength - prefix.length()) + 1))
+                .aggregations("digest", digest));
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(prefixQuery(prefix))
+                .withAggregation("buckets", buckets)
+                .withMaxResults(0)
+                .build();
+
+        SearchHits<ListingDocument> hits = elasticsearchOperations.search(query, ListingDocument.class, listingIndexPlacement.allIndices());
+        Map<String, RangeDigest> digests = new HashMap<>();
+        ElasticsearchAggregations aggregations = (ElasticsearchAggregations) hits.getAggregations();
+        if (aggregations == null) {
+            return digests;
+        }
+        for (StringTermsBucket bucket : aggregations.get("buckets").aggregation().getAggregate().sterms().buckets().array()) {
+            long sum = Math.round(bucket.aggregations().get("digest").sum().value());
+            digests.put(bucket.key().stringValue(), new RangeDigest(bucket.docCount(), sum));
+        }
+        return digests;
+    }
+
+    // Построчная сверка малого диапазона
+    private void repairLeaf(String prefix, RunState run) {
+        Instant graceBorder = Instant.now().minus(properties.getGrace());
+        Map<String, String> databaseRows = new HashMap<>();
+        Set<String> recentlyChanged = new HashSet<>();
+        jdbcTemplate.query(PG_ROWS_SQL, rangeParams(prefix), rs -> {
+            String id = rs.getString("id");
+            databaseRows.put(id, rs.getString("row_key"));
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            if (updatedAt != null && updatedAt.toInstant().isAfter(graceBorder)) {
+                recentlyChanged.add(id);
+            }
+        });
+
+        Map<String, String> indexRows = new HashMap<>();
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(prefixQuery(prefix))
+                .withSourceFilter(new FetchSourceFilter(
+                        new String[]{"listingId", "moderationStatus", "availabilityStatus", "categoryId", "version"}, null))
+                .build();
+        try (SearchHitsIterator<ListingDocument> hits = elasticsearchOperations.searchForStream(query, ListingDocument.class, listingIndexPlacement.allIndices())) {
+            while (hits.hasNext()) {
+                SearchHit<ListingDocument> hit = hits.next();
+                ListingDocument doc = hit.getContent();
+                // Документ не в своем индексе (горячий/архивный) не совпадет со строкой БД и переиндексируется
+                String key = rowKey(doc, tierOf(hit.getIndex()));
+                // Две копии (в обоих индексах) тоже требуют переиндексации
+                indexRows.merge(doc.getListingId(), key, (first, second) -> "|duplicate");
+            }
+        }
+
+        List<UUID> missing = new ArrayList<>();
+        List<UUID> stale = new ArrayList<>();
+        List<UUID> orphans = new ArrayList<>();
+        databaseRows.forEach((id, key) -> {
+            if (recentlyChanged.contains(id)) {
+                return;
+            }
+            String indexed = indexRows.get(id);
+            if (indexed == null) {
+                missing.add(UUID.fromString(id));
+            } else if (!indexed.equals(key)) {
+                stale.add(UUID.fromString(id));
+            }
+        });
+        indexRows.keySet().stream()
+                .filter(id -> !databaseRows.containsKey(id))
+                .map(UUID::fromString)
+                .forEach(orphans::add);
+        // Строки читались до обхода индекса: объявление, созданное между чтениями, выглядит сиротой
+        orphans.removeAll(existingListingIds(orphans));
+
+        List<UUID> toReindex = new ArrayList<>(missing);
+        toReindex.addAll(stale);
+        elasticsearchIndexService.reindexListings(toReindex);
+        elasticsearchIndexService.deleteFromIndex(orphans);
+
+        missingRepaired.increment(missing.size());
+        staleRepaired.increment(stale.size());
+        orphansDeleted.increment(orphans.size());
+        run.repairs.addAndGet(missing.size() + stale.size() + orphans.size());
+        if (!toReindex.isEmpty() || !orphans.isEmpty()) {
+            log.info("Range '{}' repaired: {} missing, {} stale, {} orphan documents", prefix, missing.size(), stale.size(), orphans.size());
+        }
+    }
+
+    // Документы без поля listingId: _id совпадает с id объявления, переиндексация из БД заполнит поле.
+    // За проход чинится не больше остатка лимита исправлений, остальное - в следующих запусках
+    private void repairDocumentsWithoutListingId(RunState run) {
+        int budget = properties.getMaxRepairsPerRun() - run.repairs.get();
+        if (budget <= 0) {
+            return;
+        }
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(Query.of(q -> q.bool(b -> b.mustNot(mn -> mn.exists(e -> e.field("listingId"))))))
+                .withSourceFilter(new FetchSourceFilter(new String[]{"id"}, null))
+                .build();
+        List<UUID> ids = new ArrayList<>();
+        try (SearchHitsIterator<ListingDocument> hits = elasticsearchOperations.searchForStream(query, ListingDocument.class, listingIndexPlacement.allIndices())) {
+            while (hits.hasNext() && ids.size() < budget) {
+                SearchHit<ListingDocument> hit = hits.next();
+                ids.add(UUID.fromString(hit.getId()));
+            }
+        }
+        int reindexed = elasticsearchIndexService.reindexListings(ids);
+        staleRepaired.increment(reindexed);
+        // Оставшиеся документы без строки в БД удаляются
+        if (reindexed < ids.size()) {
+            Set<UUID> existing = existingListingIds(ids);
+            List<UUID> orphans = ids.stream().filter(id -> !existing.contains(id)).toList();
+            elasticsearchIndexService.deleteFromIndex(orphans);
+            orphansDeleted.increment(orphans.size());
+        }
+        run.repairs.addAndGet(ids.size());
+        log.info("{} index documents without listingId repaired", ids.size());
+    }
+
+    private Set<UUID> existingListingIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM listings WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids), UUID.class));
+    }
+
+    private Query prefixQuery(String prefix) {
+        if (prefix.isEmpty()) {
+            return Query.of(q -> q.matchAll(m -> m));
+        }
+        return Query.of(q -> q.prefix(p -> p.field("listingId").value(prefix)));
+    }
+
+    // Границы диапазона UUID с заданным hex-префиксом (включительно)
+    private MapSqlParameterSource rangeParams(String prefix) {
+        return new MapSqlParameterSource()
+                .addValue("lo", toUuidString(prefix, '0'))
+                .addValue("hi", toUuidString(prefix, 'f'))
+                .addValue("split", listingIndexPlacement.isEnabled());
+    }
+
+    static String toUuidString(String prefix, char fill) {
+        StringBuilder hex = new StringBuilder(prefix.replace("-", ""));
+        while (hex.length() < 32) {
+            hex.append(fill);
+        }
+        return hex.substring(0, 8) + "-" + hex.substring(8, 12) + "-" + hex.substring(12, 16) + "-"
+                + hex.substring(16, 20) + "-" + hex.substring(20, 32);
+    }
+
+    private String tierOf(String indexName) {
+        return listingIndexPlacement.isEnabled() && listingIndexPlacement.archiveIndex().getIndexName().equals(indexName)
+                ? ARCHIVE_TIER
+                : HOT_TIER;
+    }
+
+    static String rowKey(ListingDocument doc, String tier) {
+        return String.join("|",
+                Objects.toString(doc.getListingId(), ""),
+                doc.getModerationStatus() != null ? doc.getModerationStatus().name() : "",
+                doc.getAvailabilityStatus() != null ? doc.getAvailabilityStatus().name() : "",
+                Objects.toString(doc.getCategoryId(), ""),
+                Objects.toString(doc.getVersion(), ""),
+                tier);
+    }
+
+    private static final class RunState {
+        private final AtomicInteger ranges = new AtomicInteger();
+        private final AtomicInteger repairs = new AtomicInteger();
+    }
+}
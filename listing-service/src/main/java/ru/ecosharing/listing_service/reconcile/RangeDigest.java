@@ -0,0 +1,21 @@
+package ru.ecosharing.listing_service.reconcile;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Дайджест диапазона id: число строк и сумма 32-битных хэшей строк.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class RangeDigest {
+
+    public static final RangeDigest EMPTY = new RangeDigest(0, 0);
+
+    private final long count;
+    private final long digest;
+}
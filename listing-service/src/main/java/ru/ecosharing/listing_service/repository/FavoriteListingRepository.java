@@ -10,7 +10,9 @@ import ru.ecosharing.listing_service.model.FavoriteListing;
 import ru.ecosharing.listing_service.model.FavoriteListingId;
 import ru.ecosharing.listing_service.model.Listing; // Импорт для результата запроса
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
@@ -27,6 +29,10 @@ public interface FavoriteListingRepository extends JpaRepository<FavoriteListing
     @Query("SELECT l FROM Listing l JOIN FavoriteListing fl ON l.id = fl.id.listingId WHERE fl.id.userId = :userId")
     Page<Listing> findFavoriteListingsByUserId(@Param("userId") UUID userId, Pageable pageable);
 
+    // Какие из объявлений пользователь добавил в избранное - для признака isFavorite в списках одним запросом
+    @Query("SELECT fl.id.listingId FROM FavoriteListing fl WHERE fl.id.userId = :userId AND fl.id.listingId IN :listingIds")
+    Set<UUID> findFavoriteListingIds(@Param("userId") UUID userId, @Param("listingIds") Collection<UUID> listingIds);
+
     // Подсчитать, сколько раз объявление добавлено в избранное (для статистики)
     long countById_ListingId(UUID listingId);
 
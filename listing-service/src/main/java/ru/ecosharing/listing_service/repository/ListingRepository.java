@@ -31,17 +31,55 @@ public interface ListingRepository extends JpaRepository<Listing, UUID>, JpaSpec
     // Поиск активных объявлений (для общего списка)
     Page<Listing> findAllByModerationStatus(ModerationStatus moderationStatus, Pageable pageable);
 
-    // Получить все объявления в указанной категории со статусом ACTIVE
-    List<Listing> findAllByCategoryAndModerationStatus(Category category, ModerationStatus moderationStatus);
+    // id объявлений категории в указанном статусе - сами объявления перечитываются при изменении
+    @Query("SELECT l.id FROM Listing l WHERE l.category.id = :categoryId AND l.moderationStatus = :moderationStatus")
+    List<UUID> findIdsByCategoryIdAndModerationStatus(@Param("categoryId") UUID categoryId,
+                                                      @Param("moderationStatus") ModerationStatus moderationStatus);
 
     // Метод для инкремента счетчика просмотров
     @Modifying // Указывает, что метод изменяет данные
     @Query("UPDATE Listing l SET l.viewCount = l.viewCount + 1 WHERE l.id = :listingId")
     void incrementViewCount(@Param("listingId") UUID listingId);
 
+    // Текущее значение счетчика просмотров без загрузки сущности
+    @Query("SELECT l.viewCount FROM Listing l WHERE l.id = :listingId")
+    Optional<Integer> findViewCountById(@Param("listingId") UUID listingId);
+
+    // Объявления вместе с категорией и доп. изображениями - для индексации пачкой без ленивой загрузки
+    @Query("SELECT DISTINCT l FROM Listing l JOIN FETCH l.category LEFT JOIN FETCH l.additionalImageUrls WHERE l.id IN :ids")
+    List<Listing> findAllWithDetailsByIdIn(@Param("ids") List<UUID> ids);
+
+    // Объявления с категорией - для кратких карточек списком одним запросом
+    @Query("SELECT l FROM Listing l JOIN FETCH l.category WHERE l.id IN :ids")
+    List<Listing> findAllWithCategoryByIdIn(@Param("ids") List<UUID> ids);
+
+    // Постраничный обход id всех объявлений по возрастанию (keyset) - для полной переиндексации
+    @Query("SELECT l.id FROM Listing l WHERE l.id > :afterId ORDER BY l.id")
+    List<UUID> findIdsAfter(@Param("afterId") UUID afterId, Pageable pageable);
+
+    // id объявлений категории и всех ее подкатегорий
+    @Query(value = """
+            WITH RECURSIVE subtree AS (
+                SELECT id FROM categories WHERE id = :categoryId
+                UNION ALL
+                SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id
+            )
+            SELECT l.id FROM listings l WHERE l.category_id IN (SELECT id FROM subtree)
+            """, nativeQuery = true)
+    List<UUID> findIdsInCategoryTree(@Param("categoryId") UUID categoryId);
+
+    // id объявлений в валюте; объявления без кода валюты считаются в базовой
+    @Query(value = """
+            SELECT id FROM listings
+            WHERE UPPER(COALESCE(NULLIF(TRIM(currency), ''), :baseCurrency)) = :currency
+            """, nativeQuery = true)
+    List<UUID> findIdsByCurrency(@Param("currency") String currency, @Param("baseCurrency") String baseCurrency);
+
     boolean existsByCategory(Category category);
 
     // Проверка существования активного объявления (полезно для некоторых валидаций)
     boolean existsByIdAndModerationStatus(UUID id, ModerationStatus moderationStatus);
 
+    boolean existsByIdAndUserId(UUID id, UUID userId);
+
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package ru.ecosharing.listing_service.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+import ru.ecosharing.listing_service.model.ListingReservation;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ListingReservationRepository extends JpaRepository<ListingReservation, UUID> {
+
+    Page<ListingReservation> findAllByUserId(UUID userId, Pageable pageable);
+
+    // Брони объявления, еще не закончившиеся к моменту after, по возрастанию начала
+    @Query("SELECT r FROM ListingReservation r WHERE r.listingId = :listingId AND r.status = :status " +
+            "AND r.endsAt > :after ORDER BY r.startsAt")
+    List<ListingReservation> findByListingIdEndingAfter(@Param("listingId") UUID listingId,
+                                                        @Param("status") ReservationStatus status,
+                                                        @Param("after") Instant after);
+
+    // То же для пачки объявлений - при переиндексации
+    @Query("SELECT r FROM ListingReservation r WHERE r.listingId IN :listingIds AND r.status = :status " +
+            "AND r.endsAt > :after ORDER BY r.listingId, r.startsAt")
+    List<ListingReservation> findByListingIdInEndingAfter(@Param("listingIds") Collection<UUID> listingIds,
+                                                          @Param("status") ReservationStatus status,
+                                                          @Param("after") Instant after);
+}
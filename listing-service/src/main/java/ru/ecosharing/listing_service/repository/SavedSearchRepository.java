@@ -0,0 +1,38 @@
+package ru.ecosharing.listing_service.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.model.SavedSearch;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SavedSearchRepository extends JpaRepository<SavedSearch, UUID> {
+
+    Page<SavedSearch> findAllByUserId(UUID userId, Pageable pageable);
+
+    Optional<SavedSearch> findByIdAndUserId(UUID id, UUID userId);
+
+    long countByUserId(UUID userId);
+
+    // Отмечает объявление как уже сопоставленное с сохраненными поисками.
+    // Возвращает 1, если отметка поставлена сейчас, и 0, если объявление уже обрабатывалось.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO saved_search_notifications (listing_id) VALUES (:listingId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int markListingMatched(@Param("listingId") UUID listingId);
+
+    // Снимает отметку, если сопоставление не удалось, чтобы объявление обработалось при следующей активации
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM saved_search_notifications WHERE listing_id = :listingId", nativeQuery = true)
+    int unmarkListingMatched(@Param("listingId") UUID listingId);
+}
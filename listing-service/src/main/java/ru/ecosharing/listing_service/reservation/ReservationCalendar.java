@@ -0,0 +1,77 @@
+package ru.ecosharing.listing_service.reservation;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.ecosharing.listing_service.model.ListingReservation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Неизменяемый индекс занятых периодов одного объявления.
+ * Периоды не пересекаются (это гарантирует constraint в БД), поэтому после сортировки по началу
+ * отсортированы и их концы, и первый период, пересекающий интервал, находится бинарным поиском.
+ */
+public final class ReservationCalendar {
+
+    private final long[] starts; // epoch millis, по возрастанию
+    private final long[] ends;   // epoch millis, не включительно
+
+    private ReservationCalendar(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * @param reservations Активные брони объявления, отсортированные по началу.
+     */
+    public static ReservationCalendar of(List<ListingReservation> reservations) {
+        long[] starts = new long[reservations.size()];
+        long[] ends = new long[reservations.size()];
+        for (int i = 0; i < reservations.size(); i++) {
+            starts[i] = reservations.get(i).getStartsAt().toEpochMilli();
+            ends[i] = reservations.get(i).getEndsAt().toEpochMilli();
+        }
+        return new ReservationCalendar(starts, ends);
+    }
+
+    /**
+     * Свободен ли весь интервал [from, to).
+     */
+    public boolean isFree(Instant from, Instant to) {
+        int i = firstEndingAfter(from.toEpochMilli());
+        return i == ends.length || starts[i] >= to.toEpochMilli();
+    }
+
+    /**
+     * Занятые периоды, пересекающиеся с интервалом [from, to), по возрастанию.
+     */
+    public List<Period> reservedBetween(Instant from, Instant to) {
+        long toMillis = to.toEpochMilli();
+        List<Period> result = new ArrayList<>();
+        for (int i = firstEndingAfter(from.toEpochMilli()); i < starts.length && starts[i] < toMillis; i++) {
+            result.add(new Period(Instant.ofEpochMilli(starts[i]), Instant.ofEpochMilli(ends[i])));
+        }
+        return result;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    // Индекс первого периода, который заканчивается позже момента millis (ends.length, если таких нет)
+    private int firstEndingAfter(long millis) {
+        int i = Arrays.binarySearch(ends, millis);
+        return i >= 0 ? i + 1 : -i - 1; // Конец не включается: период, заканчивающийся ровно в millis, не пересекается
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Period {
+        private final Instant startsAt;
+        private final Instant endsAt;
+    }
+}
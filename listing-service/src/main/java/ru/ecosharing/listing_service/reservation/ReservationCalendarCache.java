@@ -0,0 +1,64 @@
+package ru.ecosharing.listing_service.reservation;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ecosharing.listing_service.config.ReservationProperties;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+import ru.ecosharing.listing_service.repository.ListingReservationRepository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Календари занятости объявлений в памяти инстанса: проверка свободного периода и выдача календаря
+ * обслуживаются без запросов к БД. Размер ограничен, поэтому в памяти остаются календари наиболее запрашиваемых объявлений.
+ * <p>
+ * Записи удаляются при изменении броней объявления (см. ReservationServiceImpl),
+ * а на остальных инстансах - при получении ListingReservationsChangedEvent из Kafka.
+ * Проверка по календарю - только предварительная: пересечение броней окончательно отсекает constraint в БД.
+ */
+@Slf4j
+@Component
+public class ReservationCalendarCache {
+
+    private final LoadingCache<UUID, ReservationCalendar> cache;
+
+    public ReservationCalendarCache(ListingReservationRepository reservationRepository,
+                                    ReservationProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCalendarCacheMaximumSize())
+                .expireAfterWrite(properties.getCalendarCacheExpireAfterWrite())
+                .recordStats()
+                .build(listingId -> ReservationCalendar.of(reservationRepository.findByListingIdEndingAfter(
+                        listingId, ReservationStatus.ACTIVE, Instant.now())));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reservationCalendar");
+    }
+
+    public ReservationCalendar get(UUID listingId) {
+        return cache.get(listingId);
+    }
+
+    /**
+     * Удаляет календарь сразу и еще раз после коммита текущей транзакции,
+     * чтобы параллельный запрос не вернул в кэш брони, прочитанные до коммита.
+     */
+    public void evict(UUID listingId) {
+        cache.invalidate(listingId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(listingId);
+                }
+            });
+        }
+        log.debug("Reservation calendar of listing {} evicted", listingId);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.ecosharing.listing_service.search;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.*;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Построение ES-запроса по фильтрам публичного поиска.
+ * Один и тот же запрос используется для поиска и как percolator-запрос сохраненного поиска,
+ * поэтому сохраненный поиск находит ровно те объявления, что и обычный.
+ */
+@Component
+public class ListingQueryBuilder {
+
+    public Query build(ListingSearchCriteria criteria) {
+        SearchQueryShape shape = SearchQueryShape.of(criteria);
+        List<Query> filters = buildFilters(criteria);
+
+        if (shape.isFilterOnly()) {
+            // Нет текста - оценка релевантности не нужна, все совпадения равноценны
+            Query filterOnly = BoolQuery.of(b -> b.filter(filters))._toQuery();
+            return ConstantScoreQuery.of(cs -> cs.filter(filterOnly))._toQuery();
+        }
+
+        String searchTerm = criteria.getSearchTerm();
+        // Full text multi-match search на title и description
+        Query mustClause = MultiMatchQuery.of(mmq -> mmq
+                .query(searchTerm)
+                .fields("title^3", "description") // Вес для title больше
+                .type(TextQueryType.PhrasePrefix)
+        )._toQuery();
+        List<Query> shouldClauses = List.of(
+                MatchPhrasePrefixQuery.of(mpq -> mpq.field("title").query(searchTerm.toLowerCase()))._toQuery(),
+                MatchPhrasePrefixQuery.of(mpq -> mpq.field("description").query(searchTerm.toLowerCase()))._toQuery()
+        );
+        return BoolQuery.of(b -> b
+                .filter(filters)
+                .must(mustClause)
+                .should(shouldClauses)
+        )._toQuery();
+    }
+
+    private List<Query> buildFilters(ListingSearchCriteria criteria) {
+        List<Query> filters = new ArrayList<>();
+        // Публичный поиск показывает только прошедшие модерацию объявления
+        filters.add(TermQuery.of(t -> t.field("moderationStatus").value(ModerationStatus.ACTIVE.name()))._toQuery());
+
+        // Фильтр по categoryId
+        if (criteria.getCategoryId() != null) {
+            // По пути предков: в выборку попадают и объявления подкатегорий
+            filters.add(TermQuery.of(t -> t.field("categoryPath").value(criteria.getCategoryId().toString()))._toQuery());
+        }
+
+        // Фильтр по availabilityStatus
+        if (criteria.getAvailabilityStatus() != null) {
+            filters.add(TermQuery.of(t -> t.field("availabilityStatus").value(criteria.getAvailabilityStatus().name()))._toQuery());
+        }
+
+        // Фильтр по цене
+        if (criteria.hasPriceRange()) {
+            filters.add(RangeQuery.of(rq -> rq
+                    .number(n -> {
+                        NumberRangeQuery.Builder nb = new NumberRangeQuery.Builder();
+                        nb.field("priceNormalized"); // Границы - в базовой валюте
+                        if (criteria.getPriceFrom() != null) nb.gte(criteria.getPriceFrom().doubleValue());
+                        if (criteria.getPriceTo() != null) nb.lte(criteria.getPriceTo().doubleValue());
+                        return nb;
+                    })
+            )._toQuery());
+        }
+
+        // Свободно на даты: ни один занятый период не пересекается с запрошенным [freeFrom, freeTo)
+        if (criteria.hasFreePeriod()) {
+            Query reserved = RangeQuery.of(rq -> rq
+                    .date(d -> d
+                            .field("reservedPeriods")
+                            .gte(String.valueOf(criteria.getFreeFrom().toEpochMilli()))
+                            .lt(String.valueOf(criteria.getFreeTo().toEpochMilli()))
+                            .format("epoch_millis")
+                            .relation(RangeRelation.Intersects))
+            )._toQuery();
+            filters.add(BoolQuery.of(b -> b.mustNot(reserved))._toQuery());
+        }
+
+        // Фильтр по locationText (match_phrase_prefix для поиска по началу фразы)
+        if (criteria.hasLocationText()) {
+            filters.add(MatchPhrasePrefixQuery.of(mpq -> mpq
+                    .field("locationText")
+                    .query(criteria.getLocationText().toLowerCase())
+            )._toQuery());
+        }
+        return filters;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.ecosharing.listing_service.search;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Набор фильтров публичного поиска объявлений.
+ * Один и тот же объект обслуживается и Elasticsearch, и резервным поиском в PostgreSQL.
+ */
+@Data
+@Builder
+public class ListingSearchCriteria {
+    private UUID categoryId;
+    private String searchTerm;
+    private String locationText;
+    private BigDecimal priceFrom;
+    private BigDecimal priceTo;
+    private AvailabilityStatus availabilityStatus;
+    // Объявление должно быть свободно (без броней) на весь период [freeFrom, freeTo)
+    private Instant freeFrom;
+    private Instant freeTo;
+
+    public boolean hasSearchTerm() {
+        return searchTerm != null && !searchTerm.isBlank();
+    }
+
+    public boolean hasLocationText() {
+        return locationText != null && !locationText.isBlank();
+    }
+
+    public boolean hasPriceRange() {
+        return priceFrom != null || priceTo != null;
+    }
+
+    public boolean hasFreePeriod() {
+        return freeFrom != null && freeTo != null;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.ecosharing.listing_service.search;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
+
+public interface ListingSearchEngine {
+
+    /**
+     * Короткое имя движка (используется в метриках и логах).
+     */
+    String getName();
+
+    /**
+     * Поиск активных объявлений по фильтрам с пагинацией и сортировкой.
+     * @param criteria Фильтры поиска.
+     * @param pageable Параметры пагинации и сортировки.
+     * @return Страница с DTO краткой информации об объявлениях.
+     */
+    Page<ListingSummaryResponse> search(ListingSearchCriteria criteria, Pageable pageable);
+}
@@ -0,0 +1,106 @@
+package ru.ecosharing.listing_service.search;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.SearchFallbackProperties;
+import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
+import ru.ecosharing.listing_service.search.impl.ElasticsearchListingSearchEngine;
+import ru.ecosharing.listing_service.search.impl.PostgresListingSearchEngine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Выбирает движок для публичного поиска.
+ * Запросы идут в Elasticsearch, пока circuit breaker закрыт. При росте ошибок или задержек ES
+ * цепь размыкается и поиск обслуживается PostgreSQL, пока пробные запросы не покажут, что ES восстановился.
+ */
+@Slf4j
+@Component
+public class ListingSearchRouter {
+
+    private static final String CIRCUIT_BREAKER_NAME = "listingSearch";
+
+    private final ListingSearchEngine primaryEngine;
+    private final ListingSearchEngine fallbackEngine;
+    private final SearchFallbackProperties properties;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter fallbackCounter;
+    // Движок, обслуживший последний запрос (для метрики)
+    private final AtomicReference<String> activeEngine;
+
+    public ListingSearchRouter(ElasticsearchListingSearchEngine primaryEngine,
+                               PostgresListingSearchEngine fallbackEngine,
+                               SearchFallbackProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.primaryEngine = primaryEngine;
+        this.fallbackEngine = fallbackEngine;
+        this.properties = properties;
+        this.activeEngine = new AtomicReference<>(primaryEngine.getName());
+
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDuration())
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .build();
+        this.circuitBreaker = CircuitBreaker.of(CIRCUIT_BREAKER_NAME, config);
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Listing search circuit breaker: {}", event.getStateTransition()));
+
+        for (String engine : new String[]{primaryEngine.getName(), fallbackEngine.getName()}) {
+            Gauge.builder("listing.search.engine.active", activeEngine, ref -> engine.equals(ref.get()) ? 1 : 0)
+                    .description("1 для движка, обслуживающего публичный поиск, 0 для остальных")
+                    .tag("engine", engine)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("listing.search.circuit.state", circuitBreaker, cb -> cb.getState().getOrder())
+                .description("Состояние circuit breaker поиска (0 - CLOSED, 1 - OPEN, 2 - HALF_OPEN)")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("listing.search.fallback")
+                .description("Количество поисковых запросов, обслуженных PostgreSQL")
+                .register(meterRegistry);
+    }
+
+    public Page<ListingSummaryResponse> search(ListingSearchCriteria criteria, Pageable pageable) {
+        if (!properties.isEnabled()) {
+            activeEngine.set(primaryEngine.getName());
+            return primaryEngine.search(criteria, pageable);
+        }
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            log.debug("Elasticsearch circuit is {}, serving search from {}", circuitBreaker.getState(), fallbackEngine.getName());
+            return searchWithFallback(criteria, pageable);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Page<ListingSummaryResponse> result = primaryEngine.search(criteria, pageable);
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            activeEngine.set(primaryEngine.getName());
+            return result;
+        } catch (RuntimeException e) {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+            log.warn("Elasticsearch search failed ({}), falling back to {}", e.getMessage(), fallbackEngine.getName());
+            return searchWithFallback(criteria, pageable);
+        }
+    }
+
+    private Page<ListingSummaryResponse> searchWithFallback(ListingSearchCriteria criteria, Pageable pageable) {
+        fallbackCounter.increment();
+        activeEngine.set(fallbackEngine.getName());
+        return fallbackEngine.search(criteria, pageable);
+    }
+}
@@ -0,0 +1,204 @@
+package ru.ecosharing.listing_service.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.JsonpUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.dto.kafka.NotificationRequestKafkaDto;
+import ru.ecosharing.listing_service.elasticsearch.document.SavedSearchDocument;
+import ru.ecosharing.listing_service.elasticsearch.repository.SavedSearchDocumentRepository;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.NotificationType;
+import ru.ecosharing.listing_service.fx.FxRateCache;
+import ru.ecosharing.listing_service.kafka.producer.NotificationEventProducer;
+import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.model.SavedSearch;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.repository.SavedSearchRepository;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Сопоставление новых объявлений с сохраненными поисками.
+ * <p>
+ * Каждый сохраненный поиск хранится в индексе saved_searches_idx как percolator-запрос, построенный тем же
+ * ListingQueryBuilder, что и обычный поиск. Для нового активного объявления выполняется один percolate-запрос,
+ * который возвращает все подходящие поиски, сколько бы их ни было.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SavedSearchMatcher {
+
+    private static final int NOTIFICATION_BATCH_SIZE = 500; // Уведомлений в одной пачке отправки
+    private static final int REINDEX_PAGE_SIZE = 500; // Запросов в одном bulk-запросе пересборки
+
+    private final ListingQueryBuilder listingQueryBuilder;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+    private final SavedSearchDocumentRepository savedSearchDocumentRepository;
+    private final SavedSearchRepository savedSearchRepository;
+    private final ListingRepository listingRepository;
+    private final NotificationEventProducer notificationEventProducer;
+    private final ObjectMapper objectMapper;
+    private final FxRateCache fxRateCache;
+    private final CategoryHierarchyCache categoryHierarchyCache;
+
+    public void index(SavedSearch savedSearch) {
+        savedSearchDocumentRepository.save(toDocument(savedSearch));
+        log.debug("Saved search {} indexed as percolator query", savedSearch.getId());
+    }
+
+    /**
+     * Пересобирает percolator-запросы всех сохраненных поисков. Нужна после изменения ListingQueryBuilder:
+     * сохраненные запросы не меняются сами и продолжают ссылаться на прежние поля.
+     *
+     * @return Число пересобранных запросов.
+     */
+    public int reindexAll() {
+        int reindexed = 0;
+        Pageable pageable = PageRequest.of(0, REINDEX_PAGE_SIZE, Sort.by("id"));
+        Page<SavedSearch> page;
+        do {
+            page = savedSearchRepository.findAll(pageable);
+            if (page.hasContent()) {
+                savedSearchDocumentRepository.saveAll(page.getContent().stream().map(this::toDocument).toList());
+            }
+            reindexed += page.getNumberOfElements();
+            pageable = page.nextPageable();
+        } while (page.hasNext());
+        return reindexed;
+    }
+
+    private SavedSearchDocument toDocument(SavedSearch savedSearch) {
+        return SavedSearchDocument.builder()
+                .id(savedSearch.getId().toString())
+                .savedSearchId(savedSearch.getId().toString())
+                .userId(savedSearch.getUserId().toString())
+                .name(savedSearch.getName())
+                .query(toMap(listingQueryBuilder.build(toCriteria(savedSearch))))
+                .build();
+    }
+
+    public void delete(UUID savedSearchId) {
+        savedSearchDocumentRepository.deleteById(savedSearchId.toString());
+    }
+
+    /**
+     * Находит сохраненные поиски, которым соответствует объявление, и отправляет уведомления их владельцам.
+     * Каждое объявление сопоставляется не более одного раза, даже если его повторно одобрили.
+     */
+    public void matchAndNotify(UUID listingId) {
+        Optional<Listing> listingOpt = listingRepository.findById(listingId);
+        if (listingOpt.isEmpty() || listingOpt.get().getModerationStatus() != ModerationStatus.ACTIVE) {
+            return;
+        }
+        Listing listing = listingOpt.get();
+        if (savedSearchRepository.markListingMatched(listingId) == 0) {
+            log.debug("Listing {} was already matched against saved searches", listingId);
+            return;
+        }
+
+        try {
+            // Документ передается в запрос напрямую: индекс объявлений обновляется асинхронно и может еще не содержать статус ACTIVE
+            NativeQuery query = NativeQuery.builder()
+                    .withQuery(Query.of(q -> q.percolate(p -> p.field("query").document(JsonData.of(toPercolateDocument(listing))))))
+                    .withSourceFilter(new FetchSourceFilter(new String[]{"userId", "name"}, null))
+                    .build();
+
+            // Один пользователь получает одно уведомление, даже если объявление подходит под несколько его поисков
+            Map<UUID, String> searchNameByUser = new LinkedHashMap<>();
+            try (SearchHitsIterator<SavedSearchDocument> hits = elasticsearchOperations.searchForStream(query, SavedSearchDocument.class)) {
+                while (hits.hasNext()) {
+                    SearchHit<SavedSearchDocument> hit = hits.next();
+                    UUID userId = UUID.fromString(hit.getContent().getUserId());
+                    if (!userId.equals(listing.getUserId())) {
+                        searchNameByUser.putIfAbsent(userId, hit.getContent().getName());
+                    }
+                }
+            }
+
+            List<NotificationRequestKafkaDto> batch = new ArrayList<>(Math.min(searchNameByUser.size(), NOTIFICATION_BATCH_SIZE));
+            for (Map.Entry<UUID, String> entry : searchNameByUser.entrySet()) {
+                batch.add(buildNotification(entry.getKey(), entry.getValue(), listing));
+                if (batch.size() == NOTIFICATION_BATCH_SIZE) {
+                    notificationEventProducer.sendNotifications(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                notificationEventProducer.sendNotifications(batch);
+            }
+            log.info("Listing {} matched saved searches of {} users", listingId, searchNameByUser.size());
+        } catch (Exception e) {
+            savedSearchRepository.unmarkListingMatched(listingId);
+            throw e;
+        }
+    }
+
+    private NotificationRequestKafkaDto buildNotification(UUID userId, String searchName, Listing listing) {
+        Map<String, String> params = new HashMap<>();
+        params.put("listingId", listing.getId().toString());
+        params.put("listingTitle", listing.getTitle());
+        params.put("searchName", searchName);
+        return NotificationRequestKafkaDto.builder()
+                .userId(userId)
+                .notificationType(NotificationType.SAVED_SEARCH_MATCH)
+                .params(params)
+                .targetUrl("/listings/" + listing.getId()) // Путь карточки объявления в WebApp
+                .attachWebAppButton(true)
+                .build();
+    }
+
+    // Поля объявления под маппинг saved_searches_idx
+    private Map<String, Object> toPercolateDocument(Listing listing) {
+        Map<String, Object> document = new HashMap<>();
+        document.put("title", listing.getTitle());
+        document.put("description", listing.getDescription());
+        document.put("categoryId", listing.getCategory().getId().toString());
+        document.put("categoryPath", categoryHierarchyCache.loadPath(listing.getCategory().getId()));
+        document.put("locationText", listing.getLocationText());
+        document.put("price", listing.getPrice() != null ? listing.getPrice().doubleValue() : null);
+        BigDecimal priceNormalized = fxRateCache.normalize(listing.getPrice(), listing.getCurrency());
+        document.put("priceNormalized", priceNormalized != null ? priceNormalized.doubleValue() : null);
+        document.put("moderationStatus", listing.getModerationStatus().name());
+        document.put("availabilityStatus", listing.getAvailabilityStatus() != null ? listing.getAvailabilityStatus().name() : null);
+        return document;
+    }
+
+    private ListingSearchCriteria toCriteria(SavedSearch savedSearch) {
+        return ListingSearchCriteria.builder()
+                .categoryId(savedSearch.getCategoryId())
+                .searchTerm(savedSearch.getSearchTerm())
+                .locationText(savedSearch.getLocationText())
+                .priceFrom(savedSearch.getPriceFrom())
+                .priceTo(savedSearch.getPriceTo())
+                .availabilityStatus(savedSearch.getAvailabilityStatus())
+                .build();
+    }
+
+    private Map<String, Object> toMap(Query query) {
+        try {
+            String json = JsonpUtils.toJsonString(query, elasticsearchClient._jsonpMapper());
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось сериализовать запрос сохраненного поиска", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.ecosharing.listing_service.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.RequestCacheStats;
+import co.elastic.clients.elasticsearch.indices.IndicesStatsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.SearchCacheProperties;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики shard request cache Elasticsearch для поисковых запросов.
+ * <p>
+ * ES не сообщает в ответе, был ли запрос обслужен из кэша, поэтому:
+ * <ul>
+ *     <li>фактические счетчики hit/miss индекса периодически читаются из _stats (listing.search.request_cache.index);</li>
+ *     <li>по форме запроса считается только доля повторов (listing.search.repeat_shape) - тот же кэшируемый запрос
+ *     в пределах окна. Это верхняя оценка того, что кэш мог бы отдать: ES сбрасывает кэш шарда при каждом refresh,
+ *     и повтор после refresh - промах. За попадания ее выдавать нельзя.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class SearchCacheMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final SearchCacheProperties properties;
+
+    // Отпечаток запроса -> время последнего выполнения (LRU с ограниченным размером)
+    private final Map<String, Long> recentQueries;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong indexCacheHits = new AtomicLong();
+    private final AtomicLong indexCacheMisses = new AtomicLong();
+
+    public SearchCacheMetrics(MeterRegistry meterRegistry,
+                              ElasticsearchClient elasticsearchClient,
+                              ElasticsearchOperations elasticsearchOperations,
+                              SearchCacheProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.properties = properties;
+        int maxEntries = properties.getMaxTrackedQueries();
+        this.recentQueries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        FunctionCounter.builder("listing.search.request_cache.index", indexCacheHits, AtomicLong::get)
+                .description("Попадания в request cache индекса объявлений по данным ES _stats")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("listing.search.request_cache.index", indexCacheMisses, AtomicLong::get)
+                .description("Промахи request cache индекса объявлений по данным ES _stats")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Учитывает выполненный запрос в оценке повторов по форме запроса.
+     * @param shape Форма запроса (тег метрики).
+     * @param fingerprint Отпечаток запроса со всеми значениями фильтров, страницей и сортировкой.
+     * @param cacheable Был ли запрос отправлен с request_cache=true.
+     */
+    public void record(SearchQueryShape shape, String fingerprint, boolean cacheable) {
+        String result;
+        if (!cacheable) {
+            result = "not_cacheable";
+        } else {
+            long now = System.nanoTime();
+            Long lastSeen;
+            synchronized (recentQueries) {
+                lastSeen = recentQueries.put(fingerprint, now);
+            }
+            result = lastSeen != null && now - lastSeen <= properties.getRepeatWindow().toNanos() ? "repeat" : "first";
+        }
+        counters.computeIfAbsent(shape.tag() + "|" + result, key -> Counter.builder("listing.search.repeat_shape")
+                        .description("Повторы кэшируемых запросов в пределах окна по форме запроса (оценка, не попадания в кэш)")
+                        .tag("shape", shape.tag())
+                        .tag("result", result)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.request-cache.stats-interval-ms:60000}")
+    public void refreshIndexCacheStats() {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(ListingDocument.class).getIndexName();
+        try {
+            IndicesStatsResponse stats = elasticsearchClient.indices().stats(s -> s.index(indexName).metric("request_cache"));
+            RequestCacheStats requestCache = stats.all() != null && stats.all().total() != null
+                    ? stats.all().total().requestCache() : null;
+            if (requestCache != null) {
+                indexCacheHits.set(requestCache.hitCount());
+                indexCacheMisses.set(requestCache.missCount());
+            }
+        } catch (Exception e) {
+            log.debug("Не удалось получить статистику request cache индекса {}: {}", indexName, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.ecosharing.listing_service.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.SearchLatencyProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Задержки поиска по формам запроса: время ES, время маппинга результатов и общее время.
+ * <p>
+ * Форма дополняется сортировкой и глубиной страницы (бакетами), чтобы число значений тегов оставалось ограниченным.
+ * Гистограмма (listing.search.latency.histogram) публикуется без сортировки и глубины: каждый бакет - отдельный ряд,
+ * и с ними число рядов умножилось бы на число сочетаний сортировки и глубины.
+ * Медленные запросы считаются все, а в журнал с текстом запроса ES попадает только выборка - рендер запроса
+ * выполняется лениво и только для записей журнала.
+ */
+@Slf4j
+@Component
+public class SearchLatencyMetrics {
+
+    private static final String PHASE_ES = "es";
+    private static final String PHASE_MAPPING = "mapping";
+    private static final String PHASE_TOTAL = "total";
+
+    private final MeterRegistry meterRegistry;
+    private final SearchLatencyProperties properties;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Counter> slowCounters = new ConcurrentHashMap<>();
+
+    public SearchLatencyMetrics(MeterRegistry meterRegistry, SearchLatencyProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    /**
+     * Учитывает выполненный запрос.
+     * @param operation Операция сервиса (search, owner).
+     * @param shape Форма запроса.
+     * @param pageable Запрошенные страница и сортировка (до дополнения сортировки движком).
+     * @param esNanos Время запроса к ES.
+     * @param mappingNanos Время преобразования документов в DTO.
+     * @param totalNanos Общее время, включая построение запроса.
+     * @param renderedQuery Текст запроса ES; вызывается только для записи в журнал медленных запросов.
+     */
+    public void record(String operation, SearchQueryShape shape, Pageable pageable,
+                       long esNanos, long mappingNanos, long totalNanos, Supplier<String> renderedQuery) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String sort = sortTag(pageable.getSort());
+        String depth = depthTag(pageable);
+        recordPhase(operation, PHASE_ES, shape, sort, depth, esNanos);
+        recordPhase(operation, PHASE_MAPPING, shape, sort, depth, mappingNanos);
+        recordPhase(operation, PHASE_TOTAL, shape, sort, depth, totalNanos);
+
+        if (totalNanos < properties.getSlowThreshold().toNanos()) {
+            return;
+        }
+        slowCounters.computeIfAbsent(operation + "|" + shape.tag(), key -> Counter.builder("listing.search.slow")
+                        .description("Поисковые запросы дольше порога медленного запроса")
+                        .tag("operation", operation)
+                        .tag("shape", shape.tag())
+                        .register(meterRegistry))
+                .increment();
+        if (ThreadLocalRandom.current().nextDouble() < properties.getSlowLogSampleRate()) {
+            log.warn("Slow listing search [{}] shape={} sort={} depth={} total={}ms es={}ms mapping={}ms page={} query={}",
+                    operation, shape.tag(), sort, depth,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), TimeUnit.NANOSECONDS.toMillis(esNanos),
+                    TimeUnit.NANOSECONDS.toMillis(mappingNanos), pageable, truncate(renderedQuery.get()));
+        }
+    }
+
+    private void recordPhase(String operation, String phase, SearchQueryShape shape, String sort, String depth, long nanos) {
+        timer(operation, phase, shape, sort, depth).record(nanos, TimeUnit.NANOSECONDS);
+        if (properties.isPublishHistogram()) {
+            histogram(operation, phase, shape).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Число, сумма и максимум - в разрезе сортировки и глубины страницы
+    private Timer timer(String operation, String phase, SearchQueryShape shape, String sort, String depth) {
+        String key = operation + "|" + phase + "|" + shape.tag() + "|" + sort + "|" + depth;
+        return timers.computeIfAbsent(key, k -> Timer.builder("listing.search.latency")
+                .description("Время поиска объявлений по формам запроса и фазам")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .tag("shape", shape.tag())
+                .tag("sort", sort)
+                .tag("depth", depth)
+                .register(meterRegistry));
+    }
+
+    // Бакеты для перцентилей - только по операции, фазе и форме
+    private Timer histogram(String operation, String phase, SearchQueryShape shape) {
+        String key = operation + "|" + phase + "|" + shape.tag();
+        return histograms.computeIfAbsent(key, k -> Timer.builder("listing.search.latency.histogram")
+                .description("Распределение времени поиска объявлений по формам запроса и фазам")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .tag("shape", shape.tag())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry));
+    }
+
+    /**
+     * Поле первой сортировки; произвольные поля сводятся к "other", чтобы не раздувать число тегов.
+     */
+    private static String sortTag(Sort sort) {
+        Sort.Order first = sort.stream().findFirst().orElse(null);
+        if (first == null) {
+            return "default";
+        }
+        String field = switch (first.getProperty()) {
+            case "_score" -> "relevance";
+            case "createdAt", "updatedAt", "price", "viewCount", "trending", "title" -> first.getProperty();
+            default -> "other";
+        };
+        return field + (first.isAscending() ? ":asc" : ":desc");
+    }
+
+    /**
+     * Глубина страницы бакетами: глубокие страницы дороже из-за from + size на каждом шарде.
+     */
+    private static String depthTag(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return "unpaged";
+        }
+        int page = pageable.getPageNumber();
+        if (page == 0) return "1";
+        if (page < 5) return "2-5";
+        if (page < 20) return "6-20";
+        return "21+";
+    }
+
+    private String truncate(String query) {
+        int max = properties.getSlowLogMaxQueryLength();
+        return query != null && query.length() > max ? query.substring(0, max) + "..." : query;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.ecosharing.listing_service.search;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * "Форма" поискового запроса: режим (просмотр каталога или полнотекстовый поиск) и набор использованных фильтров
+ * без конкретных значений. Используется как тег метрик, поэтому число возможных значений ограничено.
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class SearchQueryShape {
+
+    public enum Mode {
+        BROWSE,    // Только фильтры, без текста - запрос может быть закэширован в ES
+        FULL_TEXT, // Есть поисковая строка, результаты ранжируются по релевантности
+        OWNER      // Публичный список объявлений владельца
+    }
+
+    private final Mode mode;
+    private final List<String> filters;
+
+    public static SearchQueryShape of(ListingSearchCriteria criteria) {
+        List<String> filters = new ArrayList<>();
+        if (criteria.getCategoryId() != null) filters.add("category");
+        if (criteria.getAvailabilityStatus() != null) filters.add("availability");
+        if (criteria.hasPriceRange()) filters.add("price");
+        if (criteria.hasLocationText()) filters.add("location");
+        if (criteria.hasFreePeriod()) filters.add("dates");
+        return new SearchQueryShape(criteria.hasSearchTerm() ? Mode.FULL_TEXT : Mode.BROWSE, List.copyOf(filters));
+    }
+
+    public static SearchQueryShape owner() {
+        return new SearchQueryShape(Mode.OWNER, List.of());
+    }
+
+    public boolean isFilterOnly() {
+        return mode == Mode.BROWSE;
+    }
+
+    /**
+     * Значение тега для метрик, например "browse:category+price" или "full_text:none".
+     */
+    public String tag() {
+        return mode.name().toLowerCase() + ":" + (filters.isEmpty() ? "none" : String.join("+", filters));
+    }
+}
@@ -0,0 +1,130 @@
+package ru.ecosharing.listing_service.search.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.SearchCacheProperties;
+import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.mapper.ListingDocumentMapper;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+import ru.ecosharing.listing_service.search.ListingSearchCriteria;
+import ru.ecosharing.listing_service.search.ListingQueryBuilder;
+import ru.ecosharing.listing_service.search.ListingSearchEngine;
+import ru.ecosharing.listing_service.search.SearchCacheMetrics;
+import ru.ecosharing.listing_service.search.SearchLatencyMetrics;
+import ru.ecosharing.listing_service.search.SearchQueryShape;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Основной движок поиска объявлений поверх индекса listings_idx.
+ * <p>
+ * Запросы без поисковой строки (просмотр каталога) строятся как constant_score с фильтрами: ES не считает
+ * релевантность и может отдать повторную страницу из shard request cache. Для этого тело запроса должно быть
+ * побайтно одинаковым, поэтому сортировка всегда дополняется уникальным полем listingId.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ElasticsearchListingSearchEngine implements ListingSearchEngine {
+
+    public static final String NAME = "elasticsearch";
+
+    // Уникальное поле для стабильного порядка при равных значениях сортировки
+    private static final String TIEBREAK_FIELD = "listingId";
+
+    // Псевдоним сортировки по популярности и поле документа, в котором она хранится
+    public static final String SORT_TRENDING = "trending";
+    private static final String TRENDING_FIELD = "trendingScore";
+
+    // Сортировка по цене идет по цене, приведенной к базовой валюте при индексации
+    private static final String SORT_PRICE = "price";
+    private static final String PRICE_NORMALIZED_FIELD = "priceNormalized";
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ListingDocumentMapper listingDocumentMapper;
+    private final ListingQueryBuilder listingQueryBuilder;
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final SearchCacheProperties searchCacheProperties;
+    private final SearchCacheMetrics searchCacheMetrics;
+    private final SearchLatencyMetrics searchLatencyMetrics;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Page<ListingSummaryResponse> search(ListingSearchCriteria criteria, Pageable pageable) {
+        long start = System.nanoTime();
+        SearchQueryShape shape = SearchQueryShape.of(criteria);
+        boolean cacheable = shape.isFilterOnly() && searchCacheProperties.isEnabled();
+        Pageable sortedPageable = withDeterministicSort(pageable, shape);
+
+        NativeQuery searchQuery = NativeQuery.builder()
+                .withQuery(listingQueryBuilder.build(criteria))
+                .withPageable(sortedPageable)
+                .withRequestCache(cacheable ? Boolean.TRUE : null)
+                // Каталог категории при включенной маршрутизации читается с одного шарда
+                .withRoute(listingRoutingResolver.forCategory(criteria.getCategoryId()))
+                .build();
+
+        log.debug("Executing Elasticsearch NativeQuery (shape {}): {}", shape.tag(), searchQuery.getQuery());
+
+        long esStart = System.nanoTime();
+        SearchHits<ListingDocument> searchHits = elasticsearchOperations.search(searchQuery, ListingDocument.class);
+        long esEnd = System.nanoTime();
+        searchCacheMetrics.record(shape, criteria + "|" + sortedPageable, cacheable);
+
+        List<ListingSummaryResponse> results = searchHits.getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .map(listingDocumentMapper::toSummary)
+                .collect(Collectors.toList());
+
+        long end = System.nanoTime();
+        searchLatencyMetrics.record("search", shape, pageable, esEnd - esStart, end - esEnd, end - start,
+                () -> searchQuery.getQuery() + " sort=" + sortedPageable.getSort());
+        return new PageImpl<>(results, pageable, searchHits.getTotalHits());
+    }
+
+    /**
+     * Дополняет сортировку уникальным полем, чтобы порядок (и тело запроса) был одинаковым для одинаковых запросов.
+     * Запрос каталога без сортировки упорядочивается по дате создания, полнотекстовый - по релевантности.
+     */
+    private Pageable withDeterministicSort(Pageable pageable, SearchQueryShape shape) {
+        Sort sort = resolveSortAliases(pageable.getSort());
+        if (sort.isUnsorted()) {
+            sort = shape.isFilterOnly() ? Sort.by(Sort.Direction.DESC, "createdAt") : Sort.by(Sort.Direction.DESC, "_score");
+        }
+        if (sort.getOrderFor(TIEBREAK_FIELD) == null) {
+            sort = sort.and(Sort.by(Sort.Direction.ASC, TIEBREAK_FIELD));
+        }
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort) : pageable;
+    }
+
+    /**
+     * sort=trending - по убыванию заранее посчитанного trendingScore, sort=price - по priceNormalized
+     * (без скриптов в запросе).
+     */
+    private Sort resolveSortAliases(Sort sort) {
+        return Sort.by(sort.stream()
+                .map(order -> {
+                    if (SORT_TRENDING.equals(order.getProperty())) {
+                        return Sort.Order.desc(TRENDING_FIELD);
+                    }
+                    return SORT_PRICE.equals(order.getProperty()) ? order.withProperty(PRICE_NORMALIZED_FIELD) : order;
+                })
+                .toList());
+    }
+}
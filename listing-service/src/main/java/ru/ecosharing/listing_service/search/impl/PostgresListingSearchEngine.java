@@ -0,0 +1,203 @@
+package ru.ecosharing.listing_service.search.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.FxRateProperties;
+import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.PriceType;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+import ru.ecosharing.listing_service.search.ListingSearchCriteria;
+import ru.ecosharing.listing_service.search.ListingSearchEngine;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Резервный движок поиска: полнотекстовый поиск PostgreSQL по колонке listings.search_vector.
+ * Обслуживает тот же набор фильтров, что и Elasticsearch, но без нечеткого поиска.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostgresListingSearchEngine implements ListingSearchEngine {
+
+    public static final String NAME = "postgres";
+
+    // Разрешенные поля сортировки (имя свойства API -> колонка SQL)
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "createdAt", "l.created_at",
+            "updatedAt", "l.updated_at",
+            "price", "l.price * r.rate", // В базовой валюте, как priceNormalized в ES
+            "viewCount", "l.view_count",
+            "title", "l.title"
+    );
+
+    private static final String SELECT_COLUMNS = """
+            SELECT l.id, l.title, l.main_image_url, l.location_text, l.price, l.currency, l.price_type,
+                   l.availability_status, l.category_id, c.name AS category_name, l.created_at,
+                   l.view_count, l.user_id
+            """;
+
+    // Курс валюты объявления к базовой; объявления без кода валюты считаются в базовой.
+    // Курс базовой валюты - 1, даже если строки для нее в currency_rates нет (как в FxRateCache.rateOf)
+    private static final String FROM_CLAUSE = """
+            FROM listings l
+            CROSS JOIN LATERAL (SELECT UPPER(COALESCE(NULLIF(TRIM(l.currency), ''), :baseCurrency)) AS code) cur
+            CROSS JOIN LATERAL (
+                SELECT CASE WHEN cur.code = :baseCurrency THEN 1 ELSE (SELECT cr.rate FROM currency_rates cr WHERE cr.currency = cur.code) END AS rate
+            ) r
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final FxRateProperties fxRateProperties;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Page<ListingSummaryResponse> search(ListingSearchCriteria criteria, Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource("baseCurrency", fxRateProperties.getBaseCurrency());
+        String tsQuery = criteria.hasSearchTerm() ? toPrefixTsQuery(criteria.getSearchTerm()) : null;
+        String where = buildWhereClause(criteria, tsQuery, params);
+
+        String countSql = "SELECT count(*) " + FROM_CLAUSE + where;
+        Long total = jdbcTemplate.queryForObject(countSql, params, Long.class);
+        if (total == null || total == 0) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS)
+                .append(FROM_CLAUSE)
+                .append("JOIN categories c ON c.id = l.category_id")
+                .append(where)
+                .append(buildOrderByClause(pageable.getSort(), tsQuery != null));
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT :limit OFFSET :offset");
+            params.addValue("limit", pageable.getPageSize());
+            params.addValue("offset", pageable.getOffset());
+        }
+
+        log.debug("Executing Postgres fallback search: {}", sql);
+        List<ListingSummaryResponse> results = jdbcTemplate.query(sql.toString(), params, SUMMARY_ROW_MAPPER);
+        return new PageImpl<>(results, pageable, total);
+    }
+
+    private String buildWhereClause(ListingSearchCriteria criteria, String tsQuery, MapSqlParameterSource params) {
+        StringBuilder where = new StringBuilder(" WHERE l.moderation_status = :moderationStatus");
+        params.addValue("moderationStatus", ModerationStatus.ACTIVE.name());
+
+        if (criteria.getCategoryId() != null) {
+            // Категория вместе с подкатегориями, как фильтр по categoryPath в ES
+            where.append(" AND l.category_id IN (WITH RECURSIVE subtree AS (")
+                    .append("SELECT id FROM categories WHERE id = :categoryId")
+                    .append(" UNION ALL SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id")
+                    .append(") SELECT id FROM subtree)");
+            params.addValue("categoryId", criteria.getCategoryId());
+        }
+        if (criteria.getAvailabilityStatus() != null) {
+            where.append(" AND l.availability_status = :availabilityStatus");
+            params.addValue("availabilityStatus", criteria.getAvailabilityStatus().name());
+        }
+        if (criteria.getPriceFrom() != null) {
+            where.append(" AND l.price * r.rate >= :priceFrom");
+            params.addValue("priceFrom", criteria.getPriceFrom());
+        }
+        if (criteria.getPriceTo() != null) {
+            where.append(" AND l.price * r.rate <= :priceTo");
+            params.addValue("priceTo", criteria.getPriceTo());
+        }
+        if (criteria.hasFreePeriod()) {
+            // Тот же оператор пересечения, что и в exclusion constraint, - проверка идет по его GiST-индексу
+            where.append(" AND NOT EXISTS (SELECT 1 FROM listing_reservations lr WHERE lr.listing_id = l.id")
+                    .append(" AND lr.status = :reservationStatus")
+                    .append(" AND tstzrange(lr.starts_at, lr.ends_at, '[)') && tstzrange(:freeFrom, :freeTo, '[)'))");
+            params.addValue("reservationStatus", ReservationStatus.ACTIVE.name());
+            params.addValue("freeFrom", criteria.getFreeFrom().atOffset(ZoneOffset.UTC));
+            params.addValue("freeTo", criteria.getFreeTo().atOffset(ZoneOffset.UTC));
+        }
+        if (tsQuery != null) {
+            where.append(" AND l.search_vector @@ to_tsquery('simple', :tsQuery)");
+            params.addValue("tsQuery", tsQuery);
+        }
+        if (criteria.hasLocationText()) {
+            where.append(" AND l.location_text ILIKE :locationPattern");
+            params.addValue("locationPattern", "%" + escapeLike(criteria.getLocationText().trim()) + "%");
+        }
+        return where.toString();
+    }
+
+    private String buildOrderByClause(Sort sort, boolean hasTextQuery) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (ElasticsearchListingSearchEngine.SORT_TRENDING.equals(order.getProperty())) {
+                // Оценка популярности есть только в ES - приближаем ее числом просмотров
+                orders.add("l.view_count DESC");
+                continue;
+            }
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                log.debug("Unsupported sort property '{}' ignored in Postgres fallback search", order.getProperty());
+                continue;
+            }
+            orders.add(column + (order.isAscending() ? " ASC" : " DESC") + " NULLS LAST");
+        }
+        if (orders.isEmpty() && hasTextQuery) {
+            orders.add("ts_rank(l.search_vector, to_tsquery('simple', :tsQuery)) DESC");
+        }
+        // Стабильный порядок страниц при равных значениях сортировки
+        orders.add("l.id ASC");
+        return " ORDER BY " + String.join(", ", orders);
+    }
+
+    /**
+     * Превращает пользовательский ввод в префиксный tsquery вида "слово1:* & слово2:*".
+     * Все служебные символы tsquery отбрасываются, поэтому ввод не может сломать синтаксис запроса.
+     */
+    private String toPrefixTsQuery(String searchTerm) {
+        String query = Arrays.stream(searchTerm.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static final RowMapper<ListingSummaryResponse> SUMMARY_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        String priceType = rs.getString("price_type");
+        String availabilityStatus = rs.getString("availability_status");
+        return ListingSummaryResponse.builder()
+                .id(rs.getObject("id", UUID.class))
+                .title(rs.getString("title"))
+                .mainImageUrl(rs.getString("main_image_url"))
+                .locationText(rs.getString("location_text"))
+                .price(rs.getBigDecimal("price"))
+                .currency(rs.getString("currency"))
+                .priceType(priceType != null ? PriceType.valueOf(priceType) : null)
+                .availabilityStatus(availabilityStatus != null ? AvailabilityStatus.valueOf(availabilityStatus) : null)
+                .categoryId(rs.getObject("category_id", UUID.class))
+                .categoryName(rs.getString("category_name"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .viewCount(rs.getInt("view_count"))
+                .ownerUserId(rs.getObject("user_id", UUID.class))
+                .isFavorite(false)
+                .build();
+    };
+}
@@ -0,0 +1,19 @@
+package ru.ecosharing.listing_service.service;
+
+import ru.ecosharing.listing_service.dto.request.ListingExportFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ListingExportService {
+
+    /**
+     * Пишет объявления, подходящие под фильтр, в поток в формате NDJSON (один объект на строку).
+     * Строки читаются курсором БД и сразу пишутся в поток, поэтому память не зависит от объема выгрузки.
+     * Порядок - по updatedAt, затем по id.
+     * @param filter Фильтры выгрузки.
+     * @param out Поток ответа.
+     * @return Количество выгруженных объявлений.
+     */
+    long exportListings(ListingExportFilter filter, OutputStream out) throws IOException;
+}
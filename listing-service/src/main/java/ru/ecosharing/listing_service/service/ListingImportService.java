@@ -0,0 +1,28 @@
+package ru.ecosharing.listing_service.service;
+
+import ru.ecosharing.listing_service.dto.response.ListingImportJobResponse;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface ListingImportService {
+
+    /**
+     * Принимает файл импорта и ставит его в очередь на обработку.
+     * Тело запроса сохраняется во временный файл потоково, без загрузки в память.
+     * @param userId ID владельца создаваемых объявлений.
+     * @param format Формат файла (NDJSON или CSV).
+     * @param body Поток тела запроса.
+     * @return Состояние созданной задачи импорта.
+     */
+    ListingImportJobResponse startImport(UUID userId, ListingImportFormat format, InputStream body);
+
+    /**
+     * Получает прогресс и ошибки задачи импорта текущего пользователя.
+     * @param userId ID текущего пользователя.
+     * @param jobId ID задачи импорта.
+     * @return Состояние задачи.
+     */
+    ListingImportJobResponse getImportJob(UUID userId, UUID jobId);
+}
@@ -12,6 +12,8 @@ import ru.ecosharing.listing_service.enums.AvailabilityStatus;
 import ru.ecosharing.listing_service.model.Listing; // Если спецификация на уровне JPA-сущности
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 public interface ListingService {
@@ -81,6 +83,8 @@ public interface ListingService {
     /**
      * Поиск активных объявлений с фильтрацией, пагинацией и сортировкой.
      * Этот метод будет взаимодействовать с Elasticsearch.
+     * @param availableFrom Начало периода, на который объявление должно быть свободно от броней (вместе с availableTo).
+     * @param availableTo Конец периода (не включительно).
      * @param pageable Параметры пагинации и сортировки.
      * @return Страница с DTO краткой информации об объявлениях.
      */
@@ -89,7 +93,9 @@ public interface ListingService {
                                                 String locationText,
                                                 BigDecimal priceFrom,
                                                 BigDecimal priceTo,
-                                                AvailabilityStatus availabilityStatus, Pageable pageable);
+                                                AvailabilityStatus availabilityStatus,
+                                                OffsetDateTime availableFrom,
+                                                OffsetDateTime availableTo, Pageable pageable);
     /**
      * Получает список объявлений определенного пользователя.
      * @param ownerUserId ID владельца объявлений.
@@ -123,4 +129,22 @@ public interface ListingService {
      */
     Page<ListingSummaryResponse> getFavoriteListings(UUID userId, Pageable pageable);
 
+    /**
+     * Похожие объявления: те, что чаще всего добавляли в избранное вместе с данным.
+     * Возвращаются только активные объявления, в порядке убывания похожести.
+     * @param listingId ID объявления.
+     * @param limit Максимальное количество; null - значение по умолчанию.
+     * @return Список DTO краткой информации (может быть пустым).
+     */
+    List<ListingSummaryResponse> getSimilarListings(UUID listingId, Integer limit);
+
+    /**
+     * Краткие карточки объявлений по списку ID (ленты, "недавно просмотренные") в порядке запроса.
+     * Не увеличивает счетчик просмотров и не обращается к User Service.
+     * @param listingIds ID объявлений; неактивные и несуществующие пропускаются.
+     * @param currentUserId ID текущего пользователя (для isFavorite), может быть null.
+     * @return Список DTO краткой информации (может быть пустым).
+     */
+    List<ListingSummaryResponse> getListingsByIds(List<UUID> listingIds, UUID currentUserId);
+
 }
\ No newline at end of file
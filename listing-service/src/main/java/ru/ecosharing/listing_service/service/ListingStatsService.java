@@ -0,0 +1,23 @@
+package ru.ecosharing.listing_service.service;
+
+import ru.ecosharing.listing_service.dto.response.ListingStatsResponse;
+
+import java.util.UUID;
+
+public interface ListingStatsService {
+
+    /**
+     * Дневная статистика просмотров и избранного объявления владельца за последние days дней (включая сегодня).
+     * Дни без событий возвращаются с нулями. Сегодняшние значения отстают на период выгрузки счетчиков.
+     * @param userId ID владельца.
+     * @param listingId ID объявления.
+     * @param days Глубина; null - значение по умолчанию, больше максимума - обрезается.
+     */
+    ListingStatsResponse getDailyStats(UUID userId, UUID listingId, Integer days);
+
+    /**
+     * Помесячная статистика объявления владельца за последние months месяцев (включая текущий).
+     * Месяцы собираются из свернутых данных и еще не свернутых дней.
+     */
+    ListingStatsResponse getMonthlyStats(UUID userId, UUID listingId, Integer months);
+}
@@ -0,0 +1,18 @@
+package ru.ecosharing.listing_service.service;
+
+import ru.ecosharing.listing_service.dto.response.ListingChangesResponse;
+
+import java.util.UUID;
+
+public interface ListingSyncService {
+
+    /**
+     * Опубликованные, измененные и снятые с публикации объявления после позиции токена.
+     * Несколько изменений одного объявления возвращаются одной записью с актуальной карточкой.
+     * @param syncToken Токен из предыдущего ответа; null - с начала журнала (полная синхронизация).
+     * @param limit Максимум изменений на странице; null - значение по умолчанию.
+     * @param currentUserId ID текущего пользователя (для isFavorite), может быть null.
+     * @return Страница изменений и токен для следующего запроса.
+     */
+    ListingChangesResponse getChangesSince(String syncToken, Integer limit, UUID currentUserId);
+}
@@ -2,7 +2,9 @@ package ru.ecosharing.listing_service.service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import ru.ecosharing.listing_service.dto.request.BulkModerateListingsRequest;
 import ru.ecosharing.listing_service.dto.request.ModerateListingRequest;
+import ru.ecosharing.listing_service.dto.response.BulkModerationResponse;
 import ru.ecosharing.listing_service.dto.response.ListingResponse; // Модератор видит полное объявление
 import ru.ecosharing.listing_service.dto.response.ModerationListingResponse; // Или специальный DTO
 import java.util.UUID;
@@ -20,9 +22,10 @@ public interface ModerationService {
      * Одобряет объявление.
      * @param listingId ID объявления.
      * @param moderatorId ID модератора, выполняющего действие.
+     * @param expectedVersion Версия объявления, которую видел модератор (null - без проверки).
      * @return DTO одобренного объявления.
      */
-    ListingResponse approveListing(UUID listingId, UUID moderatorId);
+    ListingResponse approveListing(UUID listingId, UUID moderatorId, Long expectedVersion);
 
     /**
      * Отправляет объявление на доработку пользователю.
@@ -42,6 +45,15 @@ public interface ModerationService {
      */
     ListingResponse rejectListing(UUID listingId, UUID moderatorId, ModerateListingRequest request);
 
+    /**
+     * Применяет одно решение модератора к пачке объявлений одним set-based обновлением.
+     * Объявления, которые не найдены или чей статус не допускает перехода, возвращаются в skipped.
+     * @param moderatorId ID модератора.
+     * @param request DTO со списком объявлений, новым статусом и комментарием.
+     * @return Итог по пачке: обновленные и пропущенные объявления.
+     */
+    BulkModerationResponse moderateListings(UUID moderatorId, BulkModerateListingsRequest request);
+
 
     /**
      * Получает любое объявление по ID для просмотра модератором.
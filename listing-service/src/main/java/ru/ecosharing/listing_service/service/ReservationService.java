@@ -0,0 +1,47 @@
+package ru.ecosharing.listing_service.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import ru.ecosharing.listing_service.dto.request.CreateReservationRequest;
+import ru.ecosharing.listing_service.dto.response.ListingCalendarResponse;
+import ru.ecosharing.listing_service.dto.response.ReservationResponse;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public interface ReservationService {
+
+    /**
+     * Бронирует объявление на период. Пересечение с другой активной бронью отсекает constraint в БД.
+     * @param userId ID текущего пользователя (арендатора).
+     * @param request Объявление и период [startsAt, endsAt).
+     * @return DTO созданной брони.
+     * @throws ru.ecosharing.listing_service.exception.ListingConflictException если период уже занят (409).
+     */
+    ReservationResponse createReservation(UUID userId, CreateReservationRequest request);
+
+    /**
+     * Отменяет бронь. Отменить может арендатор или владелец объявления.
+     * @param userId ID текущего пользователя.
+     * @param reservationId ID брони.
+     * @return DTO отмененной брони.
+     */
+    ReservationResponse cancelReservation(UUID userId, UUID reservationId);
+
+    /**
+     * Получает брони текущего пользователя.
+     * @param userId ID текущего пользователя.
+     * @param pageable Параметры пагинации.
+     * @return Страница броней.
+     */
+    Page<ReservationResponse> getMyReservations(UUID userId, Pageable pageable);
+
+    /**
+     * Календарь занятости объявления из кэша в памяти инстанса.
+     * @param listingId ID активного объявления (иначе ResourceNotFoundException).
+     * @param from Начало интервала (по умолчанию - текущий момент).
+     * @param to Конец интервала (по умолчанию - через 30 дней после начала).
+     * @return Занятые периоды, пересекающиеся с интервалом.
+     */
+    ListingCalendarResponse getListingCalendar(UUID listingId, OffsetDateTime from, OffsetDateTime to);
+}
@@ -0,0 +1,34 @@
+package ru.ecosharing.listing_service.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import ru.ecosharing.listing_service.dto.request.SavedSearchRequest;
+import ru.ecosharing.listing_service.dto.response.SavedSearchResponse;
+
+import java.util.UUID;
+
+public interface SavedSearchService {
+
+    /**
+     * Сохраняет поиск пользователя. О новых объявлениях, подходящих под поиск, пользователь получит уведомление.
+     * @param userId ID текущего пользователя.
+     * @param request Название и фильтры поиска.
+     * @return DTO сохраненного поиска.
+     */
+    SavedSearchResponse createSavedSearch(UUID userId, SavedSearchRequest request);
+
+    /**
+     * Получает сохраненные поиски текущего пользователя.
+     * @param userId ID текущего пользователя.
+     * @param pageable Параметры пагинации.
+     * @return Страница сохраненных поисков.
+     */
+    Page<SavedSearchResponse> getMySavedSearches(UUID userId, Pageable pageable);
+
+    /**
+     * Удаляет сохраненный поиск текущего пользователя.
+     * @param userId ID текущего пользователя.
+     * @param savedSearchId ID сохраненного поиска.
+     */
+    void deleteSavedSearch(UUID userId, UUID savedSearchId);
+}
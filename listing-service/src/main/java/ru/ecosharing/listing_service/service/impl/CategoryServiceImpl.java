@@ -2,13 +2,22 @@ package ru.ecosharing.listing_service.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.ecosharing.listing_service.dto.request.CreateCategoryRequest;
 import ru.ecosharing.listing_service.dto.request.UpdateCategoryRequest;
 import ru.ecosharing.listing_service.dto.response.CategoryResponse;
+import ru.ecosharing.listing_service.category.CategoryListingCounters;
+import ru.ecosharing.listing_service.category.CategoryTreeCache;
+import ru.ecosharing.listing_service.concurrency.OptimisticLockRetrier;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
 import ru.ecosharing.listing_service.exception.CategoryOperationException;
 import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
 import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
@@ -22,6 +31,7 @@ import ru.ecosharing.listing_service.repository.ListingRepository; // Нужен
 import ru.ecosharing.listing_service.service.CategoryService;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 @Slf4j
@@ -33,6 +43,12 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryMapper categoryMapper;
     private final ListingRepository listingRepository;
     private final ListingEventProducer eventProducer; // Для отправки событий Kafka
+    private final CategoryHierarchyCache categoryHierarchyCache;
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final ElasticsearchIndexService elasticsearchIndexService;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryListingCounters categoryListingCounters;
+    private final OptimisticLockRetrier optimisticLockRetrier;
 
     // private final NotificationServiceInternalClient notificationClient; // Альтернатива Kafka
 
@@ -51,6 +67,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category savedCategory = categoryRepository.save(category);
+        categoryTreeCache.invalidate();
         log.info("Category created with ID: {}", savedCategory.getId());
         // Отправка события о создании категории (если нужно)
         // eventProducer.sendCategoryLifecycleEvent(new CategoryLifecycleEvent(savedCategory.getId(), "CATEGORY_CREATED", savedCategory.isActive()));
@@ -72,6 +89,8 @@ public class CategoryServiceImpl implements CategoryService {
             });
         }
 
+        UUID oldParentId = category.getParent() != null ? category.getParent().getId() : null;
+
         // Логика перед изменением isActive
         Boolean requestedIsActive = request.getIsActive();
         boolean wasActive = category.isActive();
@@ -95,66 +114,176 @@ public class CategoryServiceImpl implements CategoryService {
 
 
         Category updatedCategory = categoryRepository.save(category);
+        categoryTreeCache.invalidate();
+        UUID newParentId = updatedCategory.getParent() != null ? updatedCategory.getParent().getId() : null;
+        if (!Objects.equals(oldParentId, newParentId)) {
+            scheduleCounterTreeUpdate();
+            scheduleIndexUpdateAfterMove(updatedCategory.getId());
+        }
 
         // Логика после изменения isActive
         if (requestedIsActive != null && wasActive && !requestedIsActive) { // Категория была активна и стала неактивна
             handleCategoryDeactivation(updatedCategory);
-            eventProducer.sendCategoryLifecycleEvent(new CategoryLifecycleEvent(updatedCategory.getId(), "CATEGORY_DEACTIVATED", false));
+            sendCategoryEventAfterCommit(new CategoryLifecycleEvent(updatedCategory.getId(), "CATEGORY_DEACTIVATED", false));
         } else if (requestedIsActive != null && !wasActive && requestedIsActive) { // Категория была неактивна и стала активна
             log.info("Category {} activated.", updatedCategory.getId());
-            eventProducer.sendCategoryLifecycleEvent(new CategoryLifecycleEvent(updatedCategory.getId(), "CATEGORY_ACTIVATED", true));
+            sendCategoryEventAfterCommit(new CategoryLifecycleEvent(updatedCategory.getId(), "CATEGORY_ACTIVATED", true));
         } else {
             // Если статус активности не менялся или менялся с сохранением текущего значения,
             // или если менялись другие поля, кроме isActive
-            eventProducer.sendCategoryLifecycleEvent(new CategoryLifecycleEvent(updatedCategory.getId(), "CATEGORY_UPDATED", updatedCategory.isActive()));
+            sendCategoryEventAfterCommit(new CategoryLifecycleEvent(updatedCategory.getId(), "CATEGORY_UPDATED", updatedCategory.isActive()));
         }
 
         log.info("Category updated with ID: {}", updatedCategory.getId());
         return categoryMapper.toCategoryResponse(updatedCategory);
     }
 
+    /**
+     * Получатели события перечитывают дерево категорий из БД, поэтому оно отправляется только после коммита:
+     * отправленное раньше, оно могло быть обработано другим инстансом до того, как изменение стало видно.
+     */
+    private void sendCategoryEventAfterCommit(CategoryLifecycleEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventProducer.sendCategoryLifecycleEvent(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventProducer.sendCategoryLifecycleEvent(event);
+            }
+        });
+    }
+
+    /**
+     * Перенос категории в другую ветку меняет суммы счетчиков объявлений по предкам.
+     * Пересчитываются из собственных счетчиков категорий после коммита, когда новый родитель виден в БД.
+     */
+    private void scheduleCounterTreeUpdate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                categoryHierarchyCache.reload();
+                categoryListingCounters.rebuildTree();
+            }
+        });
+    }
+
+    /**
+     * Перенос категории в другую ветку меняет пути предков (categoryPath) ее объявлений, а при маршрутизации -
+     * и корневую категорию, с ней и шард в ES. Дерево перечитывается после коммита, когда новый родитель виден в БД.
+     * Без маршрутизации пути обновляются одним update-by-query, с ней - полной переиндексацией поддерева.
+     */
+    private void scheduleIndexUpdateAfterMove(UUID categoryId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    categoryHierarchyCache.reload();
+                    if (listingRoutingResolver.isEnabled()) {
+                        elasticsearchIndexService.reindexCategoryTree(categoryId);
+                    } else {
+                        elasticsearchIndexService.updateCategoryPaths(categoryId);
+                    }
+                } catch (Exception e) {
+                    // Сервис ответит успехом, индекс догонит полная переиндексация
+                    log.error("Failed to re-index listings of moved category {}: {}", categoryId, e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Переводит активные объявления деактивированной категории на доработку.
+     * Выполняется после коммита деактивации, каждое объявление - в своей транзакции с повтором при конфликте
+     * версий: владелец или модератор могли изменить объявление параллельно, и их правка не должна затираться.
+     */
     private void handleCategoryDeactivation(Category deactivatedCategory) {
         log.warn("Category {} is being deactivated. Processing associated listings.", deactivatedCategory.getId());
-        List<Listing> listingsToUpdate = listingRepository.findAllByCategoryAndModerationStatus(
-                deactivatedCategory, ModerationStatus.ACTIVE
-        );
+        UUID categoryId = deactivatedCategory.getId();
+        List<UUID> listingIds = listingRepository.findIdsByCategoryIdAndModerationStatus(categoryId, ModerationStatus.ACTIVE);
+        if (listingIds.isEmpty()) {
+            return;
+        }
+        String moderationComment = "Категория '" + deactivatedCategory.getName() +
+                "', в которой размещено ваше объявление, была деактивирована. " +
+                "Пожалуйста, выберите новую категорию и отправьте объявление на повторную модерацию.";
 
-        if (!listingsToUpdate.isEmpty()) {
-            String moderationComment = "Категория '" + deactivatedCategory.getName() +
-                    "', в которой размещено ваше объявление, была деактивирована. " +
-                    "Пожалуйста, выберите новую категорию и отправьте объявление на повторную модерацию.";
-
-            for (Listing listing : listingsToUpdate) {
-                listing.setModerationStatus(ModerationStatus.NEEDS_REVISION);
-                listing.setModerationComment(moderationComment);
-                listing.setLastModeratedAt(LocalDateTime.now()); // Обновляем время "модерации"
-                listingRepository.save(listing); // Сохраняем изменения
-
-                // Отправляем событие в Kafka для обновления ES и уведомления пользователю
-                eventProducer.sendListingModerationStatusChangedEvent(
-                        listing.getId(),
-                        ModerationStatus.NEEDS_REVISION,
-                        ModerationStatus.ACTIVE, // old status
-                        null // moderatorId - системное изменение
-                );
-
-                // Здесь также нужно отправить уведомление пользователю через Notification Service
-                // (например, через Kafka, если NotificationService слушает события ListingModerationStatusChangedEvent
-                // или через прямое событие для NotificationService)
-                // Пример:
-                // NotificationRequestDto notification = NotificationRequestDto.builder()
-                // .userId(listing.getUserId())
-                // .notificationType(NotificationType.LISTING_CATEGORY_DEACTIVATED) // или LISTING_NEEDS_REVISION
-                // .params(Map.of("listingTitle", listing.getTitle(), "categoryName", deactivatedCategory.getName(), "reason", moderationComment))
-                // .targetUrl("/my-listings/" + listing.getId() + "/edit") // ссылка на редактирование
-                // .build();
-                // eventProducer.sendNotificationRequest(notification);
-                log.info("Listing {} (User ID: {}) status set to NEEDS_REVISION due to category deactivation.", listing.getId(), listing.getUserId());
+        Runnable cascade = () -> {
+            int updated = 0;
+            for (UUID listingId : listingIds) {
+                try {
+                    if (optimisticLockRetrier.execute("category-deactivation",
+                            () -> sendListingForRevision(listingId, categoryId, moderationComment))) {
+                        updated++;
+                    }
+                } catch (OptimisticLockingFailureException e) {
+                    // Объявление остается активным в неактивной категории, владельца переведет следующая деактивация или модератор
+                    log.error("Listing {} was not sent for revision after deactivation of category {}: {}",
+                            listingId, categoryId, e.getMessage());
+                }
             }
-            log.info("{} listings updated to NEEDS_REVISION due to deactivation of category '{}'", listingsToUpdate.size(), deactivatedCategory.getName());
+            log.info("{} of {} listings updated to NEEDS_REVISION due to deactivation of category '{}'",
+                    updated, listingIds.size(), deactivatedCategory.getName());
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cascade.run();
+                }
+            });
+        } else {
+            cascade.run();
         }
     }
 
+    /**
+     * Одна попытка перевода объявления на доработку. Объявление перечитывается, и условия проверяются заново:
+     * к повтору оно могло уйти из статуса ACTIVE или в другую категорию.
+     */
+    private boolean sendListingForRevision(UUID listingId, UUID categoryId, String moderationComment) {
+        Listing listing = listingRepository.findById(listingId).orElse(null);
+        if (listing == null || listing.getModerationStatus() != ModerationStatus.ACTIVE
+                || !categoryId.equals(listing.getCategory().getId())) {
+            return false;
+        }
+        listing.setModerationStatus(ModerationStatus.NEEDS_REVISION);
+        listing.setModerationComment(moderationComment);
+        listing.setLastModeratedAt(LocalDateTime.now()); // Обновляем время "модерации"
+        Listing updatedListing = listingRepository.saveAndFlush(listing); // Конфликт версий - здесь, до отправки события
+
+        // Отправляем событие в Kafka для обновления ES и уведомления пользователю
+        eventProducer.sendListingModerationStatusChangedEvent(
+                listingId,
+                categoryId,
+                ModerationStatus.NEEDS_REVISION,
+                ModerationStatus.ACTIVE, // old status
+                null, // moderatorId - системное изменение
+                updatedListing.getVersion()
+        );
+
+        // Здесь также нужно отправить уведомление пользователю через Notification Service
+        // (например, через Kafka, если NotificationService слушает события ListingModerationStatusChangedEvent
+        // или через прямое событие для NotificationService)
+        // Пример:
+        // NotificationRequestDto notification = NotificationRequestDto.builder()
+        // .userId(listing.getUserId())
+        // .notificationType(NotificationType.LISTING_CATEGORY_DEACTIVATED) // или LISTING_NEEDS_REVISION
+        // .params(Map.of("listingTitle", listing.getTitle(), "categoryName", deactivatedCategory.getName(), "reason", moderationComment))
+        // .targetUrl("/my-listings/" + listing.getId() + "/edit") // ссылка на редактирование
+        // .build();
+        // eventProducer.sendNotificationRequest(notification);
+        log.info("Listing {} (User ID: {}) status set to NEEDS_REVISION due to category deactivation.", listingId, listing.getUserId());
+        return true;
+    }
+
 
     @Override
     @Transactional
@@ -174,6 +303,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryRepository.delete(category);
+        categoryTreeCache.invalidate();
         // Отправка события об удалении категории (если нужно)
         // eventProducer.sendCategoryLifecycleEvent(new CategoryLifecycleEvent(categoryId, "CATEGORY_DELETED", false));
         log.info("Category with ID: {} deleted successfully.", categoryId);
@@ -191,8 +321,9 @@ public class CategoryServiceImpl implements CategoryService {
         // Здесь можно реализовать логику для построения дерева или плоского списка,
         // в зависимости от того, как CategoryMapper настроен для поля children.
         // Для примера, вернем корневые активные категории, а маппер раскроет их детей.
-        List<Category> rootCategories = categoryRepository.findAllByParentIsNullAndIsActiveTrue();
-        return categoryMapper.toCategoryResponseList(rootCategories);
+        // Дерево кэшируется, счетчики объявлений подставляются из памяти
+        return categoryTreeCache.get(() ->
+                categoryMapper.toCategoryResponseList(categoryRepository.findAllByParentIsNullAndIsActiveTrue()));
     }
 
     @Override
@@ -0,0 +1,149 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.ecosharing.listing_service.dto.request.ListingExportFilter;
+import ru.ecosharing.listing_service.dto.response.ListingExportRow;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.PriceType;
+import ru.ecosharing.listing_service.service.ListingExportService;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class ListingExportServiceImpl implements ListingExportService {
+
+    private static final String EXPORT_SQL = """
+            SELECT l.id, l.user_id, l.title, l.description, l.category_id, l.main_image_url, l.location_text,
+                   l.price, l.currency, l.price_type, l.moderation_status, l.availability_status, l.view_count,
+                   l.created_at, l.updated_at, l.last_moderated_at,
+                   ARRAY(SELECT i.image_url FROM listing_additional_images i WHERE i.listing_id = l.id) AS additional_image_urls
+            FROM listings l
+            """;
+
+    private final NamedParameterJdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public ListingExportServiceImpl(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        // PostgreSQL читает курсором порциями по fetchSize только внутри транзакции (autocommit=false),
+        // без этого драйвер загрузил бы в память весь результат
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.cursorJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public long exportListings(ListingExportFilter filter, OutputStream out) throws IOException {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = EXPORT_SQL + buildWhereClause(filter, params) + " ORDER BY l.updated_at, l.id";
+        AtomicLong exported = new AtomicLong();
+        long startedAt = System.currentTimeMillis();
+
+        // Поток ответа закрывает контейнер, а не writer
+        try (SequenceWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(out)) {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    cursorJdbcTemplate.query(sql, params, rs -> {
+                        try {
+                            writer.write(mapRow(rs));
+                        } catch (IOException e) {
+                            // Клиент закрыл соединение - прерываем чтение курсора
+                            throw new UncheckedIOException(e);
+                        }
+                        exported.incrementAndGet();
+                    }));
+        } catch (UncheckedIOException e) {
+            log.warn("Listing export aborted after {} rows: {}", exported.get(), e.getCause().getMessage());
+            throw e.getCause();
+        }
+        out.write('\n');
+        log.info("Listing export finished: {} rows in {} ms, filter {}", exported.get(), System.currentTimeMillis() - startedAt, filter);
+        return exported.get();
+    }
+
+    private String buildWhereClause(ListingExportFilter filter, MapSqlParameterSource params) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (filter.getModerationStatus() != null) {
+            where.append(" AND l.moderation_status = :moderationStatus");
+            params.addValue("moderationStatus", filter.getModerationStatus().name());
+        }
+        if (filter.getAvailabilityStatus() != null) {
+            where.append(" AND l.availability_status = :availabilityStatus");
+            params.addValue("availabilityStatus", filter.getAvailabilityStatus().name());
+        }
+        if (filter.getCategoryId() != null) {
+            where.append(" AND l.category_id = :categoryId");
+            params.addValue("categoryId", filter.getCategoryId());
+        }
+        if (filter.getUpdatedSince() != null) {
+            where.append(" AND l.updated_at >= :updatedSince");
+            params.addValue("updatedSince", filter.getUpdatedSince());
+        }
+        return where.toString();
+    }
+
+    private ListingExportRow mapRow(ResultSet rs) throws SQLException {
+        return ListingExportRow.builder()
+                .id(rs.getObject("id", UUID.class))
+                .userId(rs.getObject("user_id", UUID.class))
+                .title(rs.getString("title"))
+                .description(rs.getString("description"))
+                .categoryId(rs.getObject("category_id", UUID.class))
+                .mainImageUrl(rs.getString("main_image_url"))
+                .additionalImageUrls(toStringList(rs.getArray("additional_image_urls")))
+                .locationText(rs.getString("location_text"))
+                .price(rs.getBigDecimal("price"))
+                .currency(rs.getString("currency"))
+                .priceType(PriceType.valueOf(rs.getString("price_type")))
+                .moderationStatus(ModerationStatus.valueOf(rs.getString("moderation_status")))
+                .availabilityStatus(AvailabilityStatus.valueOf(rs.getString("availability_status")))
+                .viewCount(rs.getInt("view_count"))
+                .createdAt(rs.getObject("created_at", OffsetDateTime.class))
+                .updatedAt(rs.getObject("updated_at", OffsetDateTime.class))
+                .lastModeratedAt(rs.getObject("last_moderated_at", OffsetDateTime.class))
+                .build();
+    }
+
+    private List<String> toStringList(Array array) throws SQLException {
+        if (array == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return Arrays.asList((String[]) array.getArray());
+        } finally {
+            array.free();
+        }
+    }
+}
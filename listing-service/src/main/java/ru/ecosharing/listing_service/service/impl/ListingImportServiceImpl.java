@@ -0,0 +1,211 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import ru.ecosharing.listing_service.config.ListingImportProperties;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchCreatedEvent;
+import ru.ecosharing.listing_service.dto.request.CreateListingRequest;
+import ru.ecosharing.listing_service.dto.response.ListingImportJobResponse;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ListingImportFormat;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.exception.ListingOperationException;
+import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
+import ru.ecosharing.listing_service.importing.ListingBatchWriter;
+import ru.ecosharing.listing_service.importing.ListingImportJob;
+import ru.ecosharing.listing_service.importing.ListingImportJobRegistry;
+import ru.ecosharing.listing_service.importing.ListingImportRowReader;
+import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
+import ru.ecosharing.listing_service.mapper.ListingMapper;
+import ru.ecosharing.listing_service.model.Category;
+import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.repository.CategoryRepository;
+import ru.ecosharing.listing_service.service.ListingImportService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ListingImportServiceImpl implements ListingImportService {
+
+    private final ListingImportProperties properties;
+    private final ListingImportJobRegistry jobRegistry;
+    private final ListingBatchWriter batchWriter;
+    private final ListingMapper listingMapper;
+    private final CategoryRepository categoryRepository;
+    private final ListingEventProducer eventProducer;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor listingImportExecutor;
+
+    @Override
+    public ListingImportJobResponse startImport(UUID userId, ListingImportFormat format, InputStream body) {
+        Path upload = spoolUpload(body);
+        ListingImportJob job = new ListingImportJob(userId, format, properties.getMaxReportedErrors());
+        jobRegistry.register(job);
+        try {
+            listingImportExecutor.execute(() -> runImport(job, upload));
+        } catch (TaskRejectedException e) {
+            jobRegistry.remove(job.getId());
+            deleteQuietly(upload);
+            throw new ListingOperationException("Слишком много импортов в очереди, повторите позже.");
+        }
+        log.info("Import job {} queued for user {} (format {})", job.getId(), userId, format);
+        return job.toResponse();
+    }
+
+    @Override
+    public ListingImportJobResponse getImportJob(UUID userId, UUID jobId) {
+        return jobRegistry.find(jobId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Задача импорта", "ID", jobId));
+    }
+
+    // Тело запроса копируется на диск, чтобы не держать HTTP-соединение на все время импорта
+    private Path spoolUpload(InputStream body) {
+        Path upload = null;
+        try {
+            upload = Files.createTempFile("listing-import-", ".tmp");
+            long limit = properties.getMaxUploadSize().toBytes();
+            long written = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try (OutputStream out = Files.newOutputStream(upload)) {
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    written += read;
+                    if (written > limit) {
+                        throw new ListingOperationException("Файл импорта больше допустимого размера " + properties.getMaxUploadSize());
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            return upload;
+        } catch (IOException e) {
+            deleteQuietly(upload);
+            throw new ListingOperationException("Не удалось принять файл импорта: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(upload);
+            throw e;
+        }
+    }
+
+    private void runImport(ListingImportJob job, Path upload) {
+        job.markRunning();
+        saveProgress(job);
+        log.info("Import job {} started", job.getId());
+        Map<UUID, Optional<Category>> categories = new HashMap<>(); // Категории, уже проверенные в этом импорте
+        List<Listing> chunk = new ArrayList<>(properties.getChunkSize());
+        try (ListingImportRowReader reader = new ListingImportRowReader(job.getFormat(),
+                Files.newBufferedReader(upload, StandardCharsets.UTF_8), objectMapper)) {
+            ListingImportRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                if (row.getNumber() > properties.getMaxRows()) {
+                    job.markFailed("Превышено максимальное число строк: " + properties.getMaxRows());
+                    break;
+                }
+                job.rowProcessed();
+                Listing listing = toListing(job, row, categories);
+                if (listing != null) {
+                    chunk.add(listing);
+                }
+                if (chunk.size() >= properties.getChunkSize()) {
+                    flushChunk(job, chunk);
+                }
+                // Прогресс сохраняется и тогда, когда строки отклоняются и пачки не набираются
+                if (row.getNumber() % properties.getChunkSize() == 0) {
+                    saveProgress(job);
+                }
+            }
+            // Задача, прерванная по лимиту строк, хвост не вставляет
+            if (!job.isFinished()) {
+                flushChunk(job, chunk);
+                job.markCompleted();
+            }
+            log.info("Import job {} finished: status={}, imported={}, failed={}",
+                    job.getId(), job.getStatus(), job.getImportedRows().get(), job.getFailedRows().get());
+        } catch (Exception e) {
+            log.error("Import job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.markFailed(e.getMessage());
+        } finally {
+            saveProgress(job);
+            deleteQuietly(upload);
+        }
+    }
+
+    // Ошибка сохранения не прерывает импорт: следующее сохранение запишет актуальный прогресс
+    private void saveProgress(ListingImportJob job) {
+        try {
+            jobRegistry.save(job);
+        } catch (Exception e) {
+            log.warn("Failed to save progress of import job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    // Разбор и проверка строки. Возвращает null, если строка отклонена
+    private Listing toListing(ListingImportJob job, ListingImportRowReader.Row row, Map<UUID, Optional<Category>> categories) {
+        if (row.getError() != null) {
+            job.rowFailed(row.getNumber(), row.getError());
+            return null;
+        }
+        CreateListingRequest request = row.getRequest();
+        Set<ConstraintViolation<CreateListingRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            job.rowFailed(row.getNumber(), violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+        Optional<Category> category = categories.computeIfAbsent(request.getCategoryId(), categoryRepository::findById);
+        if (category.isEmpty() || !category.get().isActive()) {
+            job.rowFailed(row.getNumber(), "Категория не найдена или неактивна: " + request.getCategoryId());
+            return null;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Listing listing = listingMapper.toListing(request);
+        listing.setId(UUID.randomUUID());
+        listing.setUserId(job.getUserId());
+        listing.setCategory(category.get());
+        listing.setModerationStatus(ModerationStatus.PENDING_MODERATION);
+        listing.setAvailabilityStatus(AvailabilityStatus.AVAILABLE);
+        listing.setCreatedAt(now);
+        listing.setUpdatedAt(now);
+        return listing;
+    }
+
+    private void flushChunk(ListingImportJob job, List<Listing> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        batchWriter.insert(chunk);
+        List<UUID> ids = chunk.stream().map(Listing::getId).toList();
+        eventProducer.sendListingBatchCreatedEvent(new ListingBatchCreatedEvent(job.getUserId(), job.getId(), ids));
+        job.rowsImported(chunk.size());
+        log.debug("Import job {}: {} listings inserted", job.getId(), chunk.size());
+        chunk.clear();
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete import file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package ru.ecosharing.listing_service.service.impl;
 
-import co.elastic.clients.elasticsearch._types.query_dsl.*;
-import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.json.JsonData;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +8,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.query.*;
@@ -17,6 +16,8 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.cache.ListingDetailCache;
+import ru.ecosharing.listing_service.config.CoFavoriteProperties;
 import ru.ecosharing.listing_service.client.UserServiceClient; // Feign клиент к User Service
 import ru.ecosharing.listing_service.dto.request.CreateListingRequest;
 import ru.ecosharing.listing_service.dto.request.UpdateListingRequest;
@@ -24,10 +25,16 @@ import ru.ecosharing.listing_service.dto.response.ListingResponse;
 import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
 import ru.ecosharing.listing_service.dto.client.PublicUserProfileResponse; // Ожидаем от UserServiceClient
 import ru.ecosharing.listing_service.dto.response.UserSummaryDto; // Наш DTO для owner в ListingResponse
+import ru.ecosharing.listing_service.duplicate.NearDuplicateIndex;
+import ru.ecosharing.listing_service.duplicate.NearDuplicateMatch;
 import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.mapper.ListingDocumentMapper;
 import ru.ecosharing.listing_service.elasticsearch.repository.ListingSearchRepository;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
 import ru.ecosharing.listing_service.enums.AvailabilityStatus;
 import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.exception.ListingConflictException;
 import ru.ecosharing.listing_service.exception.ListingOperationException;
 import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
 import ru.ecosharing.listing_service.dto.kafka.*;
@@ -37,16 +44,28 @@ import ru.ecosharing.listing_service.model.Category;
 import ru.ecosharing.listing_service.model.FavoriteListing;
 import ru.ecosharing.listing_service.model.FavoriteListingId;
 import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.recommend.CoFavoriteRecommender;
 import ru.ecosharing.listing_service.repository.FavoriteListingRepository;
 import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.search.ListingSearchCriteria;
+import ru.ecosharing.listing_service.search.ListingSearchRouter;
+import ru.ecosharing.listing_service.search.SearchLatencyMetrics;
+import ru.ecosharing.listing_service.search.SearchQueryShape;
 import ru.ecosharing.listing_service.service.CategoryService;
 import ru.ecosharing.listing_service.service.ListingService;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -62,6 +81,15 @@ public class ListingServiceImpl implements ListingService {
     private final ElasticsearchOperations elasticsearchOperations; // Для сложных запросов к ES
     private final ListingSearchRepository listingSearchRepository; // Для простых запросов или если нужен репозиторий
     private final UserServiceClient userServiceClient; // Feign-клиент
+    private final ListingSearchRouter listingSearchRouter; // ES с резервным поиском в PostgreSQL
+    private final ListingDocumentMapper listingDocumentMapper;
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final ListingIndexPlacement listingIndexPlacement;
+    private final ListingDetailCache listingDetailCache;
+    private final NearDuplicateIndex nearDuplicateIndex;
+    private final CoFavoriteRecommender coFavoriteRecommender;
+    private final CoFavoriteProperties coFavoriteProperties;
+    private final SearchLatencyMetrics searchLatencyMetrics;
 
     // --- Пользовательские операции ---
 
@@ -79,6 +107,7 @@ public class ListingServiceImpl implements ListingService {
         listing.setCategory(category); // Устанавливаем полную сущность категории
         listing.setModerationStatus(ModerationStatus.PENDING_MODERATION);
         listing.setAvailabilityStatus(AvailabilityStatus.AVAILABLE);
+        markNearDuplicate(listing);
 
         Listing persistedListing = listingRepository.saveAndFlush(listing);
         Listing savedListing = listingRepository.findById(persistedListing.getId()).orElse(null);
@@ -87,7 +116,7 @@ public class ListingServiceImpl implements ListingService {
 
         UserSummaryDto ownerInfoForEvent = fetchAndBuildOwnerSummary(userId);
 
-        eventProducer.sendListingCreatedEvent(
+        ListingCreatedEvent createdEvent =
                 new ListingCreatedEvent(
                         savedListing.getId(),
                         savedListing.getUserId(),
@@ -101,8 +130,9 @@ public class ListingServiceImpl implements ListingService {
                         savedListing.getCurrency(),
                         savedListing.getPriceType(),
                         savedListing.getCreatedAt()
-                )
-        );
+                );
+        createdEvent.setVersion(savedListing.getVersion());
+        eventProducer.sendListingCreatedEvent(createdEvent);
 
         return buildListingResponse(savedListing, userId);
     }
@@ -112,6 +142,7 @@ public class ListingServiceImpl implements ListingService {
     public ListingResponse updateMyListing(UUID userId, UUID listingId, UpdateListingRequest request) {
         log.info("User {} updating listing ID: {}", userId, listingId);
         Listing listing = findMyListingByIdInternal(userId, listingId);
+        ListingConflictException.checkVersion(listingId, request.getVersion(), listing.getVersion());
 
         // Проверяем, можно ли редактировать объявление в текущем статусе модерации
         if (listing.getModerationStatus() == ModerationStatus.REJECTED) {
@@ -121,6 +152,8 @@ public class ListingServiceImpl implements ListingService {
         // Сохраняем старый статус для определения, нужна ли повторная модерация
         ModerationStatus oldModerationStatus = listing.getModerationStatus();
         boolean criticalFieldsChanged = detectCriticalFieldChanges(request, listing);
+        // Снимок индексируемых полей до правки - по нему в событие попадут только изменения
+        ListingUpdatedEvent before = enrichListingUpdatedEvent(listing);
 
         listingMapper.updateListingFromDto(request, listing);
 
@@ -145,37 +178,44 @@ public class ListingServiceImpl implements ListingService {
         }
         // Если статус был PENDING_MODERATION или INACTIVE, он таким и останется (или станет PENDING_MODERATION, если INACTIVE и были правки)
 
-        Listing updatedListing = listingRepository.save(listing);
+        if (!Objects.equals(before.getTitle(), listing.getTitle())
+                || !Objects.equals(before.getDescription(), listing.getDescription())) {
+            markNearDuplicate(listing);
+        }
+
+        // Flush сразу: конфликт версий (параллельная правка модератором или системой) всплывет до отправки события
+        Listing updatedListing = listingRepository.saveAndFlush(listing);
         log.info("Listing ID: {} updated by user {}", listingId, userId);
 
-        // Отправка события в Kafka
-        eventProducer.sendListingUpdatedEvent(
-                new ListingUpdatedEvent(
-                        updatedListing.getId(),
-                        updatedListing.getTitle(), // Отправляем все поля, которые могли измениться и важны для ES
-                        updatedListing.getDescription(),
-                        updatedListing.getCategory().getId(),
-                        updatedListing.getMainImageUrl(),
-                        updatedListing.getAdditionalImageUrls(),
-                        updatedListing.getLocationText(),
-                        updatedListing.getPrice(),
-                        updatedListing.getCurrency(),
-                        updatedListing.getPriceType()
-                )
-        );
-        // Если изменился статус модерации, также отправить ListingModerationStatusChangedEvent
-        if (oldModerationStatus != updatedListing.getModerationStatus()) {
-            eventProducer.sendListingModerationStatusChangedEvent(
-                    updatedListing.getId(),
-                    updatedListing.getModerationStatus(),
-                    oldModerationStatus,
-                    null // moderatorId - нет, т.к. это действие пользователя
-            );
+        // Отправка в Kafka только изменившихся полей. Смена статуса модерации владельцем (возврат на модерацию)
+        // едет в том же событии, чтобы индекс обновлялся одним частичным запросом
+        ListingUpdatedEvent changes = buildChangeSet(before, updatedListing, oldModerationStatus);
+        if (changes.hasChanges()) {
+            changes.setVersion(updatedListing.getVersion());
+            eventProducer.sendListingUpdatedEvent(changes);
+        } else {
+            log.debug("Listing ID: {} saved without changes to indexed fields, event skipped", listingId);
         }
 
         return buildListingResponse(updatedListing, userId);
     }
 
+    /**
+     * Помечает объявление как возможный дубликат самого похожего объявления из индекса почти-дубликатов.
+     * Пометка только подсказывает модератору и не влияет на статус объявления.
+     */
+    private void markNearDuplicate(Listing listing) {
+        if (!nearDuplicateIndex.isReady()) {
+            return; // Индекс еще строится - оставляем прежнюю пометку
+        }
+        Optional<NearDuplicateMatch> match = nearDuplicateIndex.findBestMatch(
+                listing.getTitle(), listing.getDescription(), listing.getId());
+        listing.setDuplicateOfListingId(match.map(NearDuplicateMatch::getListingId).orElse(null));
+        listing.setDuplicateSimilarity(match.map(NearDuplicateMatch::getSimilarity).orElse(null));
+        match.ifPresent(m -> log.info("Listing '{}' looks like a near-duplicate of {} (similarity {})",
+                listing.getTitle(), m.getListingId(), m.getSimilarity()));
+    }
+
     private boolean detectCriticalFieldChanges(UpdateListingRequest request, Listing listing) {
         // Определяем, изменились ли поля, требующие повторной модерации
         if (request.getTitle() != null && !request.getTitle().equals(listing.getTitle())) return true;
@@ -206,21 +246,24 @@ public class ListingServiceImpl implements ListingService {
         listingRepository.delete(listing); // Физическое удаление
         log.info("Listing ID: {} physically deleted by user {}", listingId, userId);
 
-        eventProducer.sendListingDeletedEvent(new ListingDeletedEvent(listingId));
+        eventProducer.sendListingDeletedEvent(
+                new ListingDeletedEvent(listingId, listing.getCategory().getId(), listing.getModerationStatus()));
     }
 
     @Override
     @Transactional
     public ListingResponse getListingById(UUID listingId, UUID currentUserId) {
         log.debug("Fetching listing ID: {}, current user ID: {}", listingId, currentUserId);
-        Listing listing = listingRepository.findById(listingId)
-                .orElseThrow(() -> new ResourceNotFoundException("Объявление с ID " + listingId + " не найдено."));
+        // Неизменная часть карточки берется из кэша, при промахе - из БД
+        ListingDetailCache.Entry detail = listingDetailCache.get(listingId, this::loadListingDetail);
+        ListingResponse cached = detail.getResponse();
+        boolean isOwner = currentUserId != null && detail.getOwnerUserId().equals(currentUserId);
 
         // Проверка доступа
         boolean canView = false;
-        if (listing.getModerationStatus() == ModerationStatus.ACTIVE) {
+        if (cached.getModerationStatus() == ModerationStatus.ACTIVE) {
             canView = true;
-        } else if (currentUserId != null && listing.getUserId().equals(currentUserId)) {
+        } else if (isOwner) {
             // Владелец может видеть свое объявление в любом статусе (кроме REJECTED, если решим)
             canView = true;
         }
@@ -232,13 +275,31 @@ public class ListingServiceImpl implements ListingService {
         }
 
         // Инкремент счетчика просмотров (только если это не владелец смотрит свое же объявление)
-        if (currentUserId == null || !listing.getUserId().equals(currentUserId)) {
+        if (!isOwner) {
             listingRepository.incrementViewCount(listingId);
-            listing.setViewCount(listing.getViewCount() + 1); // Обновляем для DTO, т.к. incrementViewCount не возвращает
-            eventProducer.sendListingViewCountIncrementedEvent(new ListingViewCountIncrementedEvent(listingId, listing.getViewCount()));
+        }
+        Integer viewCount = listingRepository.findViewCountById(listingId).orElse(cached.getViewCount());
+        if (!isOwner) {
+            eventProducer.sendListingViewCountIncrementedEvent(new ListingViewCountIncrementedEvent(listingId, viewCount));
         }
 
-        return buildListingResponse(listing, currentUserId);
+        // Персональные и "живые" поля добавляются к копии закэшированного ответа
+        return cached.toBuilder()
+                .viewCount(viewCount)
+                .isFavorite(currentUserId != null
+                        && favoriteListingRepository.existsById_UserIdAndId_ListingId(currentUserId, listingId))
+                .build();
+    }
+
+    private ListingDetailCache.Entry loadListingDetail(UUID listingId) {
+        Listing listing = listingRepository.findById(listingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Объявление с ID " + listingId + " не найдено."));
+        ListingResponse response = buildListingDetail(listing);
+        if (response.getAdditionalImageUrls() != null) {
+            // Не держим в кэше коллекцию Hibernate
+            response.setAdditionalImageUrls(List.copyOf(response.getAdditionalImageUrls()));
+        }
+        return new ListingDetailCache.Entry(listing.getUserId(), response);
     }
 
     @Override
@@ -299,13 +360,14 @@ public class ListingServiceImpl implements ListingService {
         }
 
         listing.setAvailabilityStatus(AvailabilityStatus.AVAILABLE); // При активации делаем доступным
-        Listing updatedListing = listingRepository.save(listing);
+        Listing updatedListing = listingRepository.saveAndFlush(listing); // Flush: в событие уходит уже увеличенная версия
 
         if (oldModStatus != updatedListing.getModerationStatus()) {
-            eventProducer.sendListingModerationStatusChangedEvent(
-                    updatedListing.getId(), updatedListing.getModerationStatus(), oldModStatus, null);
+            eventProducer.sendListingModerationStatusChangedEvent(updatedListing.getId(), updatedListing.getCategory().getId(),
+                    updatedListing.getModerationStatus(), oldModStatus, null, updatedListing.getVersion());
         }
-        eventProducer.sendListingAvailabilityStatusChangedEvent(updatedListing.getId(), updatedListing.getAvailabilityStatus());
+        eventProducer.sendListingAvailabilityStatusChangedEvent(updatedListing.getId(), updatedListing.getAvailabilityStatus(),
+                updatedListing.getVersion());
 
         log.info("Listing ID: {} activated by user {}. New status: {}", listingId, userId, updatedListing.getModerationStatus());
         return buildListingResponse(updatedListing, userId);
@@ -324,11 +386,11 @@ public class ListingServiceImpl implements ListingService {
 
         listing.setModerationStatus(ModerationStatus.INACTIVE);
         // AvailabilityStatus можно не менять, т.к. INACTIVE имеет приоритет по видимости
-        Listing updatedListing = listingRepository.save(listing);
+        Listing updatedListing = listingRepository.saveAndFlush(listing); // Flush: в событие уходит уже увеличенная версия
 
         if (oldModStatus != updatedListing.getModerationStatus()) {
-            eventProducer.sendListingModerationStatusChangedEvent(
-                    updatedListing.getId(), updatedListing.getModerationStatus(), oldModStatus, null);
+            eventProducer.sendListingModerationStatusChangedEvent(updatedListing.getId(), updatedListing.getCategory().getId(),
+                    updatedListing.getModerationStatus(), oldModStatus, null, updatedListing.getVersion());
         }
 
         log.info("Listing ID: {} deactivated by user {}", listingId, userId);
@@ -338,14 +400,18 @@ public class ListingServiceImpl implements ListingService {
     // --- Публичные операции (поиск) ---
 
     /**
-     * Search listings with multiple filters and pagination using the new Spring Data Elasticsearch NativeQuery API.
+     * Публичный поиск объявлений с фильтрами и пагинацией.
+     * Запрос обслуживает Elasticsearch, а при его недоступности или деградации - полнотекстовый поиск PostgreSQL
+     * (см. {@link ListingSearchRouter}).
      *
      * @param categoryId         Filter by category ID (optional)
      * @param searchTerm         Full-text search term for title and description (optional)
      * @param locationText       Filter by location text (optional)
-     * @param priceFrom          Minimum price (optional)
-     * @param priceTo            Maximum price (optional)
+     * @param priceFrom          Minimum price in the base currency (app.fx.base-currency, optional)
+     * @param priceTo            Maximum price in the base currency (optional)
      * @param availabilityStatus Filter by availability status (optional)
+     * @param availableFrom      Start of the period the listing must be free of reservations (optional, with availableTo)
+     * @param availableTo        End of that period, exclusive (optional, with availableFrom)
      * @param pageable           Paging and sorting info
      * @return paged list of filtered listing summaries
      */
@@ -358,129 +424,31 @@ public class ListingServiceImpl implements ListingService {
             BigDecimal priceFrom,
             BigDecimal priceTo,
             AvailabilityStatus availabilityStatus,
+            OffsetDateTime availableFrom,
+            OffsetDateTime availableTo,
             Pageable pageable) {
 
-        log.debug("Public search for listings using NativeQuery. Term: '{}', Category: {}, Location: '{}', PriceFrom: {}, PriceTo: {}, Availability: {}, Pageable: {}",
-                searchTerm, categoryId, locationText, priceFrom, priceTo, availabilityStatus, pageable);
-
-        NativeQuery searchQuery = NativeQuery.builder()
-                .withQuery(q -> q.bool(b -> {
-                    b.filter(filterQuery -> filterQuery
-                            .term(t -> t.field("moderationStatus").value(ModerationStatus.PENDING_MODERATION.name())));
-
-                    // Фильтр по categoryId
-                    if (categoryId != null) {
-                        b.filter(filterQuery -> filterQuery
-                                .term(t -> t.field("categoryId").value(categoryId.toString())));
-                    }
-
-                    // Фильтр по availabilityStatus
-                    if (availabilityStatus != null) {
-                        b.filter(filterQuery -> filterQuery
-                                .term(t -> t.field("availabilityStatus").value(availabilityStatus.name())));
-                    }
-
-                    // Фильтр по цене
-                    if (priceFrom != null || priceTo != null) {
-                        b.filter(RangeQuery.of(rq -> rq
-                                .number(n -> {
-                                    NumberRangeQuery.Builder nb = new NumberRangeQuery.Builder();
-                                    nb.field("price");
-                                    if (priceFrom != null) nb.gte(priceFrom.doubleValue());
-                                    if (priceTo != null) nb.lte(priceTo.doubleValue());
-                                    return nb;
-                                })
-                        )._toQuery());
-                    }
-
-                    // --- Условия, которые должны выполняться (влияют на score) ---
-                    List<Query> mustClauses = new ArrayList<>();
-                    List<Query> shouldClausesForPrefix = new ArrayList<>();
-
-                    // Full text multi-match search с fuzziness на title и description
-                    if (searchTerm != null && !searchTerm.isBlank()) {
-                        mustClauses.add(MultiMatchQuery.of(mmq -> mmq
-                                .query(searchTerm)
-                                .fields("title^3", "description") // Вес для title больше
-//                                .fuzziness("AUTO") // Строковое значение "AUTO" должно работать
-//                                .operator(Operator.Or) // Искать все слова из searchTerm
-                                .type(TextQueryType.PhrasePrefix)
-                        )._toQuery()); // Преобразуем MultiMatchQuery в Query
-                        shouldClausesForPrefix.add(MatchPhrasePrefixQuery.of(mpq -> mpq
-                                        .field("title")
-                                        .query(searchTerm.toLowerCase())) // searchTerm для префикса лучше в нижнем регистре, если анализатор это делает
-                                ._toQuery());
-                        shouldClausesForPrefix.add(MatchPhrasePrefixQuery.of(mpq -> mpq
-                                        .field("description")
-                                        .query(searchTerm.toLowerCase()))
-                                ._toQuery());
-                    }
-
-
-                    // Фильтр по locationText (используем match_phrase_prefix для поиска по началу фразы)
-                    if (locationText != null && !locationText.isBlank()) {
-                        shouldClausesForPrefix.add(MatchPhrasePrefixQuery.of(mpq -> mpq
-                                        .field("locationText")
-                                        .query(locationText.toLowerCase()))
-                                ._toQuery()); // Преобразуем MatchPhrasePrefixQuery в Query
-                    }
-                    if (!shouldClausesForPrefix.isEmpty()) {
-                        b.should(shouldClausesForPrefix);
-                    }
-                    if (!mustClauses.isEmpty()) {
-                        b.must(mustClauses);
-                    } else {
-                        b.must(ma -> ma.matchAll(mAll -> mAll)); // MatchAllQuery
-                    }
-
-                    return b; // Возвращаем построенный BoolQuery.Builder
-                }))
-                .withPageable(pageable) // Применяем пагинацию и сортировку
-                .build();
-
-        log.debug("Executing Elasticsearch NativeQuery (JSON): {}", searchQuery.getQuery().toString());
-        // Для отладки самого запроса, можно его получить так:
-        // if (searchQuery.getQuery() != null && searchQuery.getQuery().isBool()) {
-        //    log.debug("NativeQuery JSON: " + searchQuery.getQuery().bool().toString());
-        // }
-
-        SearchHits<ListingDocument> searchHits = elasticsearchOperations.search(searchQuery, ListingDocument.class);
-
-        List<ListingSummaryResponse> results = searchHits.getSearchHits().stream()
-                .map(SearchHit::getContent)
-                .map(doc -> {
-                    ListingSummaryResponse summary = listingMapper.toListingSummaryResponse(mapDocumentToJpaLikeForSummary(doc));
-                    summary.setOwnerUsername(doc.getOwnerUsername());
-                    summary.setFavorite(false);
-                    return summary;
-                })
-                .collect(Collectors.toList());
+        log.debug("Public search for listings. Term: '{}', Category: {}, Location: '{}', PriceFrom: {}, PriceTo: {}, Availability: {}, Free: {} - {}, Pageable: {}",
+                searchTerm, categoryId, locationText, priceFrom, priceTo, availabilityStatus, availableFrom, availableTo, pageable);
 
-        return new PageImpl<>(results, pageable, searchHits.getTotalHits());
-    }
+        if ((availableFrom == null) != (availableTo == null)) {
+            throw new ListingOperationException("Для поиска свободных на даты объявлений нужно указать и начало, и конец периода.");
+        }
+        if (availableFrom != null && !availableFrom.isBefore(availableTo)) {
+            throw new ListingOperationException("Начало периода должно быть раньше его конца.");
+        }
 
-    /**
-     * Temporary mapper method: maps ListingDocument to domain Listing entity style for compatibility with existing mapper.
-     */
-    private Listing mapDocumentToJpaLikeForSummary(ListingDocument doc) {
-        Category cat = new Category();
-        cat.setId(doc.getCategoryId());
-        cat.setName(doc.getCategoryName());
-
-        return Listing.builder()
-                .id(UUID.fromString(doc.getId()))
-                .title(doc.getTitle())
-                .mainImageUrl(doc.getMainImageUrl())
-                .locationText(doc.getLocationText())
-                .price(doc.getPrice())
-                .currency(doc.getCurrency())
-                .priceType(doc.getPriceType())
-                .availabilityStatus(doc.getAvailabilityStatus())
-                .createdAt(doc.getCreatedAt())
-                .viewCount(doc.getViewCount())
-                .userId(doc.getOwnerUserId())
-                .category(cat)
+        ListingSearchCriteria criteria = ListingSearchCriteria.builder()
+                .categoryId(categoryId)
+                .searchTerm(searchTerm)
+                .locationText(locationText)
+                .priceFrom(priceFrom)
+                .priceTo(priceTo)
+                .availabilityStatus(availabilityStatus)
+                .freeFrom(availableFrom != null ? availableFrom.toInstant() : null)
+                .freeTo(availableTo != null ? availableTo.toInstant() : null)
                 .build();
+        return listingSearchRouter.search(criteria, pageable);
     }
 
 
@@ -494,11 +462,16 @@ public class ListingServiceImpl implements ListingService {
                 .and(new Criteria("moderationStatus").is(ModerationStatus.ACTIVE.name()));
         CriteriaQuery query = new CriteriaQuery(criteria, pageable);
 
+        long start = System.nanoTime();
         SearchHits<ListingDocument> searchHits = elasticsearchOperations.search(query, ListingDocument.class);
+        long esEnd = System.nanoTime();
         List<ListingSummaryResponse> summaries = searchHits.getSearchHits().stream()
                 .map(SearchHit::getContent)
-                .map(doc -> listingMapper.toListingSummaryResponse(mapDocumentToJpaLikeForSummary(doc)))
+                .map(listingDocumentMapper::toSummary)
                 .collect(Collectors.toList());
+        long end = System.nanoTime();
+        searchLatencyMetrics.record("owner", SearchQueryShape.owner(), pageable, esEnd - start, end - esEnd, end - start,
+                () -> criteria + " sort=" + pageable.getSort());
         return new PageImpl<>(summaries, pageable, searchHits.getTotalHits());
     }
 
@@ -522,6 +495,7 @@ public class ListingServiceImpl implements ListingService {
         FavoriteListing favorite = FavoriteListing.builder().id(favoriteId).build();
         favoriteListingRepository.save(favorite);
         log.info("Listing {} added to favorites for user {}", listingId, userId);
+        eventProducer.sendListingFavoriteAddedEvent(new ListingFavoriteAddedEvent(listingId, userId));
     }
 
     @Override
@@ -529,8 +503,13 @@ public class ListingServiceImpl implements ListingService {
     public void removeListingFromFavorites(UUID userId, UUID listingId) {
         log.info("User {} removing listing {} from favorites", userId, listingId);
         FavoriteListingId favoriteId = new FavoriteListingId(userId, listingId);
-        favoriteListingRepository.deleteById(favoriteId); // Удалит, если существует
-        log.info("Listing {} removed from favorites for user {} (if existed)", listingId, userId);
+        if (!favoriteListingRepository.existsById(favoriteId)) {
+            log.debug("Listing {} is not in favorites for user {}", listingId, userId);
+            return;
+        }
+        favoriteListingRepository.deleteById(favoriteId);
+        log.info("Listing {} removed from favorites for user {}", listingId, userId);
+        eventProducer.sendListingFavoriteRemovedEvent(new ListingFavoriteRemovedEvent(listingId, userId));
     }
 
     @Override
@@ -553,8 +532,77 @@ public class ListingServiceImpl implements ListingService {
         });
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ListingSummaryResponse> getSimilarListings(UUID listingId, Integer limit) {
+        int size = limit == null || limit < 1
+                ? coFavoriteProperties.getDefaultLimit()
+                : Math.min(limit, coFavoriteProperties.getMaxLimit());
+        // Берем с запасом: часть соседей может быть снята с публикации
+        List<UUID> similarIds = coFavoriteRecommender.similar(listingId, size * 2);
+        if (similarIds.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, Listing> listings = listingRepository.findAllWithCategoryByIdIn(similarIds).stream()
+                .filter(listing -> listing.getModerationStatus() == ModerationStatus.ACTIVE)
+                .collect(Collectors.toMap(Listing::getId, Function.identity()));
+        return similarIds.stream()
+                .map(listings::get)
+                .filter(Objects::nonNull)
+                .limit(size)
+                .map(listingMapper::toListingSummaryResponse)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ListingSummaryResponse> getListingsByIds(List<UUID> listingIds, UUID currentUserId) {
+        List<UUID> ids = List.copyOf(new LinkedHashSet<>(listingIds));
+        Map<UUID, ListingSummaryResponse> summaries = new HashMap<>(multiGetActiveSummaries(ids));
+
+        List<UUID> missing = ids.stream().filter(id -> !summaries.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            // Документ еще не проиндексирован, лежит на другом шарде или ES недоступен - добираем из PostgreSQL
+            listingRepository.findAllWithCategoryByIdIn(missing).stream()
+                    .filter(listing -> listing.getModerationStatus() == ModerationStatus.ACTIVE)
+                    .forEach(listing -> summaries.put(listing.getId(), listingMapper.toListingSummaryResponse(listing)));
+            log.debug("Batch get: {} of {} listings resolved from PostgreSQL", missing.size(), ids.size());
+        }
+        if (currentUserId != null && !summaries.isEmpty()) {
+            Set<UUID> favorites = favoriteListingRepository.findFavoriteListingIds(currentUserId, summaries.keySet());
+            summaries.forEach((id, summary) -> summary.setFavorite(favorites.contains(id)));
+        }
+        return ids.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     // --- Вспомогательные методы ---
 
+    /**
+     * Один _mget в горячий индекс (там только ACTIVE-объявления) с routing каждого документа.
+     * Ненайденные документы и ошибка ES не прерывают запрос - их добирает вызывающий код из БД.
+     */
+    private Map<UUID, ListingSummaryResponse> multiGetActiveSummaries(List<UUID> listingIds) {
+        Map<UUID, String> routing = listingRoutingResolver.forListings(listingIds);
+        NativeQuery query = NativeQuery.builder()
+                .withIdsWithRouting(listingIds.stream()
+                        .map(id -> new Query.IdWithRouting(id.toString(), routing.get(id)))
+                        .toList())
+                .build();
+        try {
+            return elasticsearchOperations.multiGet(query, ListingDocument.class, listingIndexPlacement.hotIndex()).stream()
+                    .filter(MultiGetItem::hasItem)
+                    .map(MultiGetItem::getItem)
+                    .filter(doc -> doc.getModerationStatus() == ModerationStatus.ACTIVE)
+                    .collect(Collectors.toMap(doc -> UUID.fromString(doc.getId()), listingDocumentMapper::toSummary));
+        } catch (Exception e) {
+            log.warn("Elasticsearch multi-get of {} listings failed, falling back to PostgreSQL: {}", listingIds.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
     private Listing findMyListingByIdInternal(UUID userId, UUID listingId) {
         return listingRepository.findByIdAndUserId(listingId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException(
@@ -562,11 +610,7 @@ public class ListingServiceImpl implements ListingService {
     }
 
     private ListingResponse buildListingResponse(Listing listing, UUID currentUserId) {
-        ListingResponse response = listingMapper.toListingResponse(listing);
-
-        // Обогащаем информацией о владельце
-        UserSummaryDto ownerInfo = fetchAndBuildOwnerSummary(listing.getUserId());
-        response.setOwner(ownerInfo);
+        ListingResponse response = buildListingDetail(listing);
 
         // Проверяем, в избранном ли оно у текущего пользователя (если он есть)
         if (currentUserId != null) {
@@ -577,6 +621,16 @@ public class ListingServiceImpl implements ListingService {
         return response;
     }
 
+    // Часть ответа, не зависящая от текущего пользователя
+    private ListingResponse buildListingDetail(Listing listing) {
+        ListingResponse response = listingMapper.toListingResponse(listing);
+
+        // Обогащаем информацией о владельце
+        UserSummaryDto ownerInfo = fetchAndBuildOwnerSummary(listing.getUserId());
+        response.setOwner(ownerInfo);
+        return response;
+    }
+
     private UserSummaryDto fetchAndBuildOwnerSummary(UUID ownerId) {
         try {
             // Предполагаем, что userServiceClient.getPublicUserProfile возвращает DTO,
@@ -634,7 +688,8 @@ public class ListingServiceImpl implements ListingService {
                 listing.getDescription(),
                 listing.getCategory() != null ? listing.getCategory().getId() : null,
                 listing.getMainImageUrl(),
-                listing.getAdditionalImageUrls(),
+                // Копия: маппер меняет коллекцию сущности на месте
+                listing.getAdditionalImageUrls() != null ? new ArrayList<>(listing.getAdditionalImageUrls()) : null,
                 listing.getLocationText(),
                 listing.getPrice(),
                 listing.getCurrency(),
@@ -642,4 +697,58 @@ public class ListingServiceImpl implements ListingService {
         );
     }
 
+    // Сравнивает снимок до правки с сохраненным объявлением и оставляет в событии только отличия
+    private ListingUpdatedEvent buildChangeSet(ListingUpdatedEvent before, Listing after, ModerationStatus oldModerationStatus) {
+        ListingUpdatedEvent changes = new ListingUpdatedEvent(after.getId());
+        Set<String> changed = changes.getChangedFields();
+        if (!Objects.equals(before.getTitle(), after.getTitle())) {
+            changes.setTitle(after.getTitle());
+            changed.add("title");
+        }
+        if (!Objects.equals(before.getDescription(), after.getDescription())) {
+            changes.setDescription(after.getDescription());
+            changed.add("description");
+        }
+        UUID categoryId = after.getCategory() != null ? after.getCategory().getId() : null;
+        if (!Objects.equals(before.getCategoryId(), categoryId)) {
+            changes.setCategoryId(categoryId);
+            changed.add("categoryId");
+        }
+        if (!Objects.equals(before.getMainImageUrl(), after.getMainImageUrl())) {
+            changes.setMainImageUrl(after.getMainImageUrl());
+            changed.add("mainImageUrl");
+        }
+        if (!Objects.equals(before.getAdditionalImageUrls(), after.getAdditionalImageUrls())) { // Порядок важен для отображения
+            changes.setAdditionalImageUrls(after.getAdditionalImageUrls() != null ? new ArrayList<>(after.getAdditionalImageUrls()) : null);
+            changed.add("additionalImageUrls");
+        }
+        if (!Objects.equals(before.getLocationText(), after.getLocationText())) {
+            changes.setLocationText(after.getLocationText());
+            changed.add("locationText");
+        }
+        boolean priceChanged = before.getPrice() == null || after.getPrice() == null
+                ? before.getPrice() != after.getPrice()
+                : before.getPrice().compareTo(after.getPrice()) != 0;
+        // Цена и валюта едут парой: по ним индексатор пересчитывает цену в базовой валюте
+        if (priceChanged || !Objects.equals(before.getCurrency(), after.getCurrency())) {
+            changes.setPrice(after.getPrice());
+            changes.setCurrency(after.getCurrency());
+            changed.add("price");
+            changed.add("currency");
+        }
+        if (before.getPriceType() != after.getPriceType()) {
+            changes.setPriceType(after.getPriceType());
+            changed.add("priceType");
+        }
+        if (oldModerationStatus != after.getModerationStatus()) {
+            changes.setModerationStatus(after.getModerationStatus());
+            changed.add("moderationStatus");
+        }
+        if (changed.contains("categoryId") || changed.contains("moderationStatus")) {
+            changes.setPreviousCategoryId(before.getCategoryId());
+            changes.setPreviousModerationStatus(oldModerationStatus);
+        }
+        return changes;
+    }
+
 }
\ No newline at end of file
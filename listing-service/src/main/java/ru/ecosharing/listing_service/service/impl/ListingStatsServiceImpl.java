@@ -0,0 +1,140 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.config.ListingStatsProperties;
+import ru.ecosharing.listing_service.dto.response.ListingStatsPoint;
+import ru.ecosharing.listing_service.dto.response.ListingStatsResponse;
+import ru.ecosharing.listing_service.enums.StatsGranularity;
+import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.service.ListingStatsService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ListingStatsServiceImpl implements ListingStatsService {
+
+    // Один проход по первичному ключу (listing_id, stat_date)
+    private static final String DAILY_SQL = """
+            SELECT stat_date AS point_date, views, favorites_added, favorites_removed
+            FROM listing_daily_stats
+            WHERE listing_id = :listingId AND stat_date BETWEEN :from AND :to
+            ORDER BY stat_date
+            """;
+
+    // Свернутые месяцы плюс еще не свернутые дни (месяц на границе свертки есть в обеих таблицах)
+    private static final String MONTHLY_SQL = """
+            SELECT point_date, sum(views) AS views, sum(favorites_added) AS favorites_added,
+                   sum(favorites_removed) AS favorites_removed
+            FROM (
+                SELECT stat_month AS point_date, views, favorites_added, favorites_removed
+                FROM listing_monthly_stats
+                WHERE listing_id = :listingId AND stat_month BETWEEN :from AND :to
+                UNION ALL
+                SELECT date_trunc('month', stat_date)::date, views, favorites_added, favorites_removed
+                FROM listing_daily_stats
+                WHERE listing_id = :listingId AND stat_date >= :from
+            ) points
+            GROUP BY point_date
+            ORDER BY point_date
+            """;
+
+    private static final RowMapper<ListingStatsPoint> POINT_ROW_MAPPER = (rs, rowNum) -> ListingStatsPoint.builder()
+            .date(rs.getObject("point_date", LocalDate.class))
+            .views(rs.getLong("views"))
+            .favoritesAdded(rs.getLong("favorites_added"))
+            .favoritesRemoved(rs.getLong("favorites_removed"))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ListingRepository listingRepository;
+    private final ListingStatsProperties properties;
+
+    @Override
+    @Transactional(readOnly = true)
+    public ListingStatsResponse getDailyStats(UUID userId, UUID listingId, Integer days) {
+        checkOwner(userId, listingId);
+        int range = clamp(days, properties.getDefaultRangeDays(), properties.getMaxRangeDays());
+        LocalDate to = LocalDate.now(properties.getZone());
+        LocalDate from = to.minusDays(range - 1L);
+        log.debug("Fetching daily stats of listing {} for {} days", listingId, range);
+        List<ListingStatsPoint> points = jdbcTemplate.query(DAILY_SQL, params(listingId, from, to), POINT_ROW_MAPPER);
+        return buildResponse(listingId, StatsGranularity.DAY, from, to, points, day -> day.plusDays(1));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ListingStatsResponse getMonthlyStats(UUID userId, UUID listingId, Integer months) {
+        checkOwner(userId, listingId);
+        int range = clamp(months, 12, properties.getMaxRangeMonths());
+        LocalDate to = LocalDate.now(properties.getZone()).withDayOfMonth(1);
+        LocalDate from = to.minusMonths(range - 1L);
+        log.debug("Fetching monthly stats of listing {} for {} months", listingId, range);
+        List<ListingStatsPoint> points = jdbcTemplate.query(MONTHLY_SQL, params(listingId, from, to), POINT_ROW_MAPPER);
+        return buildResponse(listingId, StatsGranularity.MONTH, from, to, points, month -> month.plusMonths(1));
+    }
+
+    private void checkOwner(UUID userId, UUID listingId) {
+        if (!listingRepository.existsByIdAndUserId(listingId, userId)) {
+            throw new ResourceNotFoundException(
+                    "Объявление с ID " + listingId + " не найдено или не принадлежит пользователю " + userId);
+        }
+    }
+
+    // Дополняет ряд нулевыми точками, чтобы клиенту не приходилось восстанавливать пропуски
+    private ListingStatsResponse buildResponse(UUID listingId, StatsGranularity granularity, LocalDate from, LocalDate to,
+                                               List<ListingStatsPoint> stored, UnaryOperator<LocalDate> next) {
+        Map<LocalDate, ListingStatsPoint> byDate = stored.stream()
+                .collect(Collectors.toMap(ListingStatsPoint::getDate, Function.identity()));
+        List<ListingStatsPoint> points = new ArrayList<>();
+        long views = 0;
+        long favoritesAdded = 0;
+        long favoritesRemoved = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = next.apply(date)) {
+            ListingStatsPoint point = byDate.getOrDefault(date, new ListingStatsPoint(date, 0, 0, 0));
+            views += point.getViews();
+            favoritesAdded += point.getFavoritesAdded();
+            favoritesRemoved += point.getFavoritesRemoved();
+            points.add(point);
+        }
+        return ListingStatsResponse.builder()
+                .listingId(listingId)
+                .granularity(granularity)
+                .from(from)
+                .to(to)
+                .totalViews(views)
+                .totalFavoritesAdded(favoritesAdded)
+                .totalFavoritesRemoved(favoritesRemoved)
+                .points(points)
+                .build();
+    }
+
+    private static MapSqlParameterSource params(UUID listingId, LocalDate from, LocalDate to) {
+        return new MapSqlParameterSource()
+                .addValue("listingId", listingId)
+                .addValue("from", from)
+                .addValue("to", to);
+    }
+
+    private static int clamp(Integer requested, int defaultValue, int max) {
+        if (requested == null || requested < 1) {
+            return Math.min(defaultValue, max);
+        }
+        return Math.min(requested, max);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.config.ListingSyncProperties;
+import ru.ecosharing.listing_service.dto.response.ListingChangeResponse;
+import ru.ecosharing.listing_service.dto.response.ListingChangesResponse;
+import ru.ecosharing.listing_service.dto.response.ListingSummaryResponse;
+import ru.ecosharing.listing_service.enums.ListingChangeType;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.mapper.ListingMapper;
+import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.repository.FavoriteListingRepository;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.service.ListingSyncService;
+import ru.ecosharing.listing_service.sync.ChangeLogPosition;
+import ru.ecosharing.listing_service.sync.ListingChangeLog;
+import ru.ecosharing.listing_service.sync.SyncToken;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ListingSyncServiceImpl implements ListingSyncService {
+
+    private final ListingChangeLog listingChangeLog;
+    private final ListingRepository listingRepository;
+    private final ListingMapper listingMapper;
+    private final FavoriteListingRepository favoriteListingRepository;
+    private final ListingSyncProperties listingSyncProperties;
+
+    @Override
+    @Transactional(readOnly = true) // Журнал и объявления читаются из одного снимка
+    public ListingChangesResponse getChangesSince(String syncToken, Integer limit, UUID currentUserId) {
+        ChangeLogPosition since = SyncToken.decode(syncToken);
+        int size = limit == null || limit < 1
+                ? listingSyncProperties.getDefaultLimit()
+                : Math.min(limit, listingSyncProperties.getMaxLimit());
+
+        ListingChangeLog.Batch batch = listingChangeLog.read(since, size);
+        List<ListingChangeLog.Entry> entries = batch.getEntries();
+        if (entries.isEmpty()) {
+            if (listingChangeLog.isAhead(since)) {
+                log.info("Sync token position {} is ahead of the change log, client must resync", since);
+                return ListingChangesResponse.builder().changes(List.of()).resetRequired(true).build();
+            }
+            return ListingChangesResponse.builder().changes(List.of()).nextToken(SyncToken.encode(since)).build();
+        }
+
+        // Карточки - из БД, а не из ES: индекс может еще не догнать изменение, и клиент получил бы старую версию
+        List<UUID> listingIds = entries.stream().map(ListingChangeLog.Entry::getListingId).toList();
+        Map<UUID, ListingSummaryResponse> published = listingRepository.findAllWithCategoryByIdIn(listingIds).stream()
+                .filter(listing -> listing.getModerationStatus() == ModerationStatus.ACTIVE)
+                .collect(Collectors.toMap(Listing::getId, listingMapper::toListingSummaryResponse));
+        if (currentUserId != null && !published.isEmpty()) {
+            Set<UUID> favorites = favoriteListingRepository.findFavoriteListingIds(currentUserId, published.keySet());
+            published.forEach((id, summary) -> summary.setFavorite(favorites.contains(id)));
+        }
+
+        List<ListingChangeResponse> changes = listingIds.stream()
+                .map(id -> {
+                    ListingSummaryResponse summary = published.get(id);
+                    return ListingChangeResponse.builder()
+                            .listingId(id)
+                            .type(summary != null ? ListingChangeType.UPSERTED : ListingChangeType.REMOVED)
+                            .listing(summary)
+                            .build();
+                })
+                .toList();
+        ChangeLogPosition next = entries.get(entries.size() - 1).getPosition();
+        log.debug("Sync from {}: {} changes, next position {}, hasMore {}", since, changes.size(), next, batch.isHasMore());
+        return ListingChangesResponse.builder()
+                .changes(changes)
+                .nextToken(SyncToken.encode(next))
+                .hasMore(batch.isHasMore())
+                .build();
+    }
+}
@@ -4,17 +4,26 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.ecosharing.listing_service.client.UserServiceClient; // Если нужна информация о модераторе
+import ru.ecosharing.listing_service.dto.request.BulkModerateListingsRequest;
 import ru.ecosharing.listing_service.dto.request.ModerateListingRequest;
+import ru.ecosharing.listing_service.dto.response.BulkModerationItemResult;
+import ru.ecosharing.listing_service.dto.response.BulkModerationResponse;
 import ru.ecosharing.listing_service.dto.response.ListingResponse;
 import ru.ecosharing.listing_service.dto.response.ModerationListingResponse;
 import ru.ecosharing.listing_service.dto.client.PublicUserProfileResponse;
 import ru.ecosharing.listing_service.dto.response.UserSummaryDto;
 import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.exception.ListingConflictException;
 import ru.ecosharing.listing_service.exception.ListingOperationException;
 import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
+import ru.ecosharing.listing_service.dto.kafka.ListingBatchModerationStatusChangedEvent;
 import ru.ecosharing.listing_service.dto.kafka.ListingModerationStatusChangedEvent;
 import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
 import ru.ecosharing.listing_service.mapper.ListingMapper; // Используем тот же маппер
@@ -25,6 +34,14 @@ import ru.ecosharing.listing_service.service.ModerationService;
 
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -32,11 +49,41 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ModerationServiceImpl implements ModerationService {
 
+    private static final String BULK_MODERATION_REASON = "MODERATION";
+
+    // Допустимые исходные статусы для массовой модерации - те же, что и у одиночных действий
+    private static final Map<ModerationStatus, Set<ModerationStatus>> BULK_ALLOWED_TRANSITIONS = Map.of(
+            ModerationStatus.ACTIVE, EnumSet.of(ModerationStatus.PENDING_MODERATION, ModerationStatus.NEEDS_REVISION),
+            ModerationStatus.NEEDS_REVISION, EnumSet.of(ModerationStatus.PENDING_MODERATION, ModerationStatus.NEEDS_REVISION, ModerationStatus.INACTIVE),
+            ModerationStatus.REJECTED, EnumSet.of(ModerationStatus.PENDING_MODERATION, ModerationStatus.NEEDS_REVISION, ModerationStatus.INACTIVE)
+    );
+
+    // Строки блокируются в порядке id (без взаимоблокировок с параллельной пачкой), переход проверяется в том же запросе
+    private static final String BULK_MODERATE_SQL = """
+            WITH target AS (
+                SELECT id, moderation_status AS old_status FROM listings
+                WHERE id IN (:ids) AND moderation_status IN (:allowed)
+                ORDER BY id
+                FOR UPDATE
+            )
+            UPDATE listings l
+            SET moderation_status = :newStatus,
+                moderation_comment = :comment,
+                rejection_reason = :reason,
+                last_moderated_at = now(),
+                updated_at = now(),
+                version = version + 1
+            FROM target t
+            WHERE l.id = t.id
+            RETURNING l.id, t.old_status
+            """;
+
     private final ListingRepository listingRepository;
     private final ListingMapper listingMapper;
     private final ListingEventProducer eventProducer;
     private final UserServiceClient userServiceClient; // Для получения информации о владельце
     private final FavoriteListingRepository favoriteListingRepository; // Для флага isFavorite
+    private final NamedParameterJdbcTemplate jdbcTemplate; // Массовая модерация одним запросом
 
     // private final NotificationServiceInternalClient notificationClient; // Если отправляем уведомления напрямую
 
@@ -53,9 +100,10 @@ public class ModerationServiceImpl implements ModerationService {
 
     @Override
     @Transactional
-    public ListingResponse approveListing(UUID listingId, UUID moderatorId) {
+    public ListingResponse approveListing(UUID listingId, UUID moderatorId, Long expectedVersion) {
         log.info("Moderator {} approving listing ID: {}", moderatorId, listingId);
         Listing listing = findListingForModerationInternal(listingId);
+        ListingConflictException.checkVersion(listingId, expectedVersion, listing.getVersion());
 
         if (listing.getModerationStatus() != ModerationStatus.PENDING_MODERATION &&
                 listing.getModerationStatus() != ModerationStatus.NEEDS_REVISION) { // Можно одобрить и то, что было на доработке
@@ -69,12 +117,13 @@ public class ModerationServiceImpl implements ModerationService {
         listing.setLastModeratedAt(LocalDateTime.now());
         // listing.setLastModeratorId(moderatorId); // Если бы хранили ID модератора в Listing
 
-        Listing updatedListing = listingRepository.save(listing);
+        Listing updatedListing = listingRepository.saveAndFlush(listing); // Конфликт версий - до отправки события
         log.info("Listing ID: {} approved by moderator {}. New status: ACTIVE", listingId, moderatorId);
 
-        eventProducer.sendListingModerationStatusChangedEvent(
-                new ListingModerationStatusChangedEvent(listingId, ModerationStatus.ACTIVE, oldStatus, moderatorId)
-        );
+        ListingModerationStatusChangedEvent event =
+                new ListingModerationStatusChangedEvent(listingId, listing.getCategory().getId(), ModerationStatus.ACTIVE, oldStatus, moderatorId);
+        event.setVersion(updatedListing.getVersion());
+        eventProducer.sendListingModerationStatusChangedEvent(event);
 
         // Отправка уведомления пользователю об одобрении
         // sendUserNotification(updatedListing, NotificationType.LISTING_APPROVED, moderatorId, null);
@@ -90,6 +139,7 @@ public class ModerationServiceImpl implements ModerationService {
             throw new ListingOperationException("Комментарий модератора обязателен при отправке на доработку.");
         }
         Listing listing = findListingForModerationInternal(listingId);
+        ListingConflictException.checkVersion(listingId, request.getVersion(), listing.getVersion());
 
         if (listing.getModerationStatus() == ModerationStatus.ACTIVE ||
                 listing.getModerationStatus() == ModerationStatus.REJECTED) {
@@ -102,12 +152,13 @@ public class ModerationServiceImpl implements ModerationService {
         listing.setRejectionReason(request.getRejectionReason()); // Может быть null
         listing.setLastModeratedAt(LocalDateTime.now());
 
-        Listing updatedListing = listingRepository.save(listing);
+        Listing updatedListing = listingRepository.saveAndFlush(listing); // Конфликт версий - до отправки события
         log.info("Listing ID: {} sent for revision by moderator {}. New status: NEEDS_REVISION", listingId, moderatorId);
 
-        eventProducer.sendListingModerationStatusChangedEvent(
-                new ListingModerationStatusChangedEvent(listingId, ModerationStatus.NEEDS_REVISION, oldStatus, moderatorId)
-        );
+        ListingModerationStatusChangedEvent event =
+                new ListingModerationStatusChangedEvent(listingId, listing.getCategory().getId(), ModerationStatus.NEEDS_REVISION, oldStatus, moderatorId);
+        event.setVersion(updatedListing.getVersion());
+        eventProducer.sendListingModerationStatusChangedEvent(event);
 
         // Отправка уведомления пользователю о необходимости доработки
         // Map<String, String> params = Map.of(
@@ -129,6 +180,7 @@ public class ModerationServiceImpl implements ModerationService {
             throw new ListingOperationException("Комментарий модератора обязателен при отклонении.");
         }
         Listing listing = findListingForModerationInternal(listingId);
+        ListingConflictException.checkVersion(listingId, request.getVersion(), listing.getVersion());
 
         if (listing.getModerationStatus() == ModerationStatus.REJECTED ||
                 listing.getModerationStatus() == ModerationStatus.ACTIVE) { // Нельзя отклонить уже активное без предварительного перевода в другой статус
@@ -141,12 +193,13 @@ public class ModerationServiceImpl implements ModerationService {
         listing.setRejectionReason(request.getRejectionReason());
         listing.setLastModeratedAt(LocalDateTime.now());
 
-        Listing updatedListing = listingRepository.save(listing);
+        Listing updatedListing = listingRepository.saveAndFlush(listing); // Конфликт версий - до отправки события
         log.info("Listing ID: {} rejected by moderator {}. New status: REJECTED", listingId, moderatorId);
 
-        eventProducer.sendListingModerationStatusChangedEvent(
-                new ListingModerationStatusChangedEvent(listingId, ModerationStatus.REJECTED, oldStatus, moderatorId)
-        );
+        ListingModerationStatusChangedEvent event =
+                new ListingModerationStatusChangedEvent(listingId, listing.getCategory().getId(), ModerationStatus.REJECTED, oldStatus, moderatorId);
+        event.setVersion(updatedListing.getVersion());
+        eventProducer.sendListingModerationStatusChangedEvent(event);
 
         // Отправка уведомления пользователю об отклонении
         // Map<String, String> params = Map.of(
@@ -159,6 +212,87 @@ public class ModerationServiceImpl implements ModerationService {
         return buildListingResponse(updatedListing, null);
     }
 
+    @Override
+    @Transactional
+    public BulkModerationResponse moderateListings(UUID moderatorId, BulkModerateListingsRequest request) {
+        ModerationStatus newStatus = request.getNewStatus();
+        Set<ModerationStatus> allowedFrom = BULK_ALLOWED_TRANSITIONS.get(newStatus);
+        if (allowedFrom == null) {
+            throw new ListingOperationException("Массовая модерация поддерживает только статусы " + BULK_ALLOWED_TRANSITIONS.keySet());
+        }
+        if (newStatus != ModerationStatus.ACTIVE
+                && (request.getModerationComment() == null || request.getModerationComment().isBlank())) {
+            throw new ListingOperationException("Комментарий модератора обязателен для статуса " + newStatus);
+        }
+        List<UUID> listingIds = request.getListingIds().stream().distinct().toList();
+        log.info("Moderator {} bulk moderating {} listings -> {}", moderatorId, listingIds.size(), newStatus);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", listingIds)
+                .addValue("allowed", allowedFrom.stream().map(Enum::name).toList())
+                .addValue("newStatus", newStatus.name())
+                .addValue("comment", newStatus == ModerationStatus.ACTIVE ? null : request.getModerationComment())
+                .addValue("reason", newStatus == ModerationStatus.ACTIVE ? null : request.getRejectionReason());
+        Map<ModerationStatus, List<UUID>> updatedByOldStatus = new EnumMap<>(ModerationStatus.class);
+        jdbcTemplate.query(BULK_MODERATE_SQL, params, rs -> {
+            updatedByOldStatus.computeIfAbsent(ModerationStatus.valueOf(rs.getString("old_status")), k -> new ArrayList<>())
+                    .add(rs.getObject("id", UUID.class));
+        });
+
+        Set<UUID> updated = new HashSet<>();
+        updatedByOldStatus.values().forEach(updated::addAll);
+        List<BulkModerationItemResult> skipped = collectSkipped(listingIds, updated, newStatus);
+        log.info("Bulk moderation by {}: {} listings -> {}, {} skipped", moderatorId, updated.size(), newStatus, skipped.size());
+
+        // Индексатор перечитывает объявления пачки из БД, поэтому события уходят только после коммита.
+        // Отдельное событие на каждый исходный статус - по нему пересчитываются счетчики категорий
+        publishAfterCommit(() -> updatedByOldStatus.forEach((oldStatus, ids) ->
+                eventProducer.sendListingBatchModerationStatusChangedEvent(
+                        new ListingBatchModerationStatusChangedEvent(ids, newStatus, oldStatus, BULK_MODERATION_REASON))));
+
+        return BulkModerationResponse.builder()
+                .newStatus(newStatus)
+                .requested(listingIds.size())
+                .updated(listingIds.stream().filter(updated::contains).toList())
+                .skipped(skipped)
+                .build();
+    }
+
+    // Пропущенные объявления с причиной: не найдены или статус не допускает перехода
+    private List<BulkModerationItemResult> collectSkipped(List<UUID> listingIds, Set<UUID> updated, ModerationStatus newStatus) {
+        List<UUID> notUpdated = listingIds.stream().filter(id -> !updated.contains(id)).toList();
+        if (notUpdated.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, ModerationStatus> currentStatuses = new HashMap<>();
+        jdbcTemplate.query("SELECT id, moderation_status FROM listings WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", notUpdated),
+                rs -> {
+                    currentStatuses.put(rs.getObject("id", UUID.class), ModerationStatus.valueOf(rs.getString("moderation_status")));
+                });
+        List<BulkModerationItemResult> skipped = new ArrayList<>(notUpdated.size());
+        for (UUID listingId : notUpdated) {
+            ModerationStatus current = currentStatuses.get(listingId);
+            skipped.add(new BulkModerationItemResult(listingId, current, current == null
+                    ? "Объявление не найдено"
+                    : "Переход из статуса " + current + " в " + newStatus + " недопустим"));
+        }
+        return skipped;
+    }
+
+    private void publishAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     @Override
     @Transactional(readOnly = true)
     public ModerationListingResponse getListingForModeration(UUID listingId) {
@@ -220,6 +354,9 @@ public class ModerationServiceImpl implements ModerationService {
                 .createdAt(tempResponse.getCreatedAt())
                 .updatedAt(tempResponse.getUpdatedAt())
                 .lastModeratedAt(tempResponse.getLastModeratedAt())
+                .duplicateOfListingId(listing.getDuplicateOfListingId())
+                .duplicateSimilarity(listing.getDuplicateSimilarity())
+                .version(listing.getVersion())
                 // .lastModeratorId(listing.getLastModeratorId()) // Если бы хранили
                 .build();
     }
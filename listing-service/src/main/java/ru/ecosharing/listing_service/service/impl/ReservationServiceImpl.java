@@ -0,0 +1,234 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ecosharing.listing_service.config.ReservationProperties;
+import ru.ecosharing.listing_service.dto.kafka.ListingReservationsChangedEvent;
+import ru.ecosharing.listing_service.dto.request.CreateReservationRequest;
+import ru.ecosharing.listing_service.dto.response.ListingCalendarResponse;
+import ru.ecosharing.listing_service.dto.response.ReservationResponse;
+import ru.ecosharing.listing_service.dto.response.ReservedPeriodResponse;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+import ru.ecosharing.listing_service.exception.ListingConflictException;
+import ru.ecosharing.listing_service.exception.ListingOperationException;
+import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
+import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
+import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.model.ListingReservation;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.repository.ListingReservationRepository;
+import ru.ecosharing.listing_service.reservation.ReservationCalendar;
+import ru.ecosharing.listing_service.reservation.ReservationCalendarCache;
+import ru.ecosharing.listing_service.service.ReservationService;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReservationServiceImpl implements ReservationService {
+
+    // SQLSTATE exclusion_violation: вставка пересекается с активной бронью (excl_reservation_overlap)
+    private static final String EXCLUSION_VIOLATION = "23P01";
+    private static final Duration DEFAULT_CALENDAR_RANGE = Duration.ofDays(30);
+
+    private final ListingReservationRepository reservationRepository;
+    private final ListingRepository listingRepository;
+    private final ReservationCalendarCache reservationCalendarCache;
+    private final ListingEventProducer eventProducer;
+    private final ReservationProperties reservationProperties;
+
+    @Override
+    @Transactional
+    public ReservationResponse createReservation(UUID userId, CreateReservationRequest request) {
+        UUID listingId = request.getListingId();
+        Instant startsAt = request.getStartsAt().toInstant();
+        Instant endsAt = request.getEndsAt().toInstant();
+        log.info("User {} reserving listing {} for {} - {}", userId, listingId, startsAt, endsAt);
+        validatePeriod(startsAt, endsAt);
+
+        Listing listing = listingRepository.findById(listingId)
+                .orElseThrow(() -> ResourceNotFoundException.listingById(listingId));
+        if (listing.getModerationStatus() != ModerationStatus.ACTIVE) {
+            throw new ListingOperationException("Бронировать можно только активные объявления.");
+        }
+        if (listing.getAvailabilityStatus() == AvailabilityStatus.RENTED) {
+            throw new ListingOperationException("Объявление сейчас недоступно для бронирования.");
+        }
+        if (listing.getUserId().equals(userId)) {
+            throw new ListingOperationException("Нельзя забронировать собственное объявление.");
+        }
+
+        // Свободный по календарю период окончательно проверит constraint. Занятый перепроверяется по БД:
+        // календарь в кэше мог устареть (бронь отменена на другом инстансе, событие еще не дошло)
+        if (!reservationCalendarCache.get(listingId).isFree(startsAt, endsAt)) {
+            reservationCalendarCache.evict(listingId);
+            if (!reservationCalendarCache.get(listingId).isFree(startsAt, endsAt)) {
+                throw ListingConflictException.periodReserved(listingId);
+            }
+        }
+        ListingReservation reservation = ListingReservation.builder()
+                .listingId(listingId)
+                .userId(userId)
+                .startsAt(startsAt)
+                .endsAt(endsAt)
+                .status(ReservationStatus.ACTIVE)
+                .build();
+        try {
+            reservation = reservationRepository.saveAndFlush(reservation);
+        } catch (DataIntegrityViolationException e) {
+            if (isExclusionViolation(e)) {
+                // Параллельная бронь успела занять период: календарь в кэше устарел
+                reservationCalendarCache.evict(listingId);
+                throw ListingConflictException.periodReserved(listingId);
+            }
+            throw e;
+        }
+
+        onReservationsChanged(listingId, reservation.getId());
+        log.info("Reservation {} created for listing {} by user {}", reservation.getId(), listingId, userId);
+        return toResponse(reservation);
+    }
+
+    @Override
+    @Transactional
+    public ReservationResponse cancelReservation(UUID userId, UUID reservationId) {
+        log.info("User {} cancelling reservation {}", userId, reservationId);
+        ListingReservation reservation = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> ResourceNotFoundException.reservationById(reservationId));
+        if (!reservation.getUserId().equals(userId)) {
+            UUID ownerId = listingRepository.findById(reservation.getListingId())
+                    .map(Listing::getUserId)
+                    .orElse(null);
+            if (!userId.equals(ownerId)) {
+                throw new AccessDeniedException("Отменить бронь может только арендатор или владелец объявления.");
+            }
+        }
+        if (reservation.getStatus() != ReservationStatus.ACTIVE) {
+            throw new ListingOperationException("Бронь уже отменена.");
+        }
+        if (!reservation.getEndsAt().isAfter(Instant.now())) {
+            throw new ListingOperationException("Завершившуюся бронь нельзя отменить.");
+        }
+
+        reservation.setStatus(ReservationStatus.CANCELLED);
+        reservation.setCancelledAt(LocalDateTime.now());
+        reservation = reservationRepository.save(reservation);
+
+        onReservationsChanged(reservation.getListingId(), reservation.getId());
+        log.info("Reservation {} of listing {} cancelled by user {}", reservationId, reservation.getListingId(), userId);
+        return toResponse(reservation);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ReservationResponse> getMyReservations(UUID userId, Pageable pageable) {
+        return reservationRepository.findAllByUserId(userId, pageable).map(this::toResponse);
+    }
+
+    @Override
+    public ListingCalendarResponse getListingCalendar(UUID listingId, OffsetDateTime from, OffsetDateTime to) {
+        Instant fromInstant = from != null ? from.toInstant() : Instant.now();
+        Instant toInstant = to != null ? to.toInstant() : fromInstant.plus(DEFAULT_CALENDAR_RANGE);
+        if (!fromInstant.isBefore(toInstant)) {
+            throw new ListingOperationException("Начало периода должно быть раньше его конца.");
+        }
+        if (Duration.between(fromInstant, toInstant).compareTo(reservationProperties.getHorizon()) > 0) {
+            throw new ListingOperationException("Календарь можно запросить не более чем на " +
+                    reservationProperties.getHorizon().toDays() + " дней.");
+        }
+
+        // Календарь есть только у опубликованных объявлений: брони остальных не раскрываются
+        if (!listingRepository.existsByIdAndModerationStatus(listingId, ModerationStatus.ACTIVE)) {
+            throw ResourceNotFoundException.listingById(listingId);
+        }
+
+        ReservationCalendar calendar = reservationCalendarCache.get(listingId);
+        List<ReservedPeriodResponse> periods = calendar.reservedBetween(fromInstant, toInstant).stream()
+                .map(p -> ReservedPeriodResponse.builder().startsAt(p.getStartsAt()).endsAt(p.getEndsAt()).build())
+                .toList();
+        return ListingCalendarResponse.builder()
+                .listingId(listingId)
+                .from(fromInstant)
+                .to(toInstant)
+                .reservedPeriods(periods)
+                .build();
+    }
+
+    private void validatePeriod(Instant startsAt, Instant endsAt) {
+        Instant now = Instant.now();
+        if (!startsAt.isBefore(endsAt)) {
+            throw new ListingOperationException("Начало периода должно быть раньше его конца.");
+        }
+        // Бронь в прошлом заняла бы слоты календаря, которыми уже никто не воспользуется
+        if (startsAt.isBefore(now.minus(reservationProperties.getClockSkewTolerance()))) {
+            throw new ListingOperationException("Начало периода не может быть в прошлом.");
+        }
+        if (Duration.between(startsAt, endsAt).compareTo(reservationProperties.getMaxDuration()) > 0) {
+            throw new ListingOperationException("Бронь не может быть длиннее " +
+                    reservationProperties.getMaxDuration().toDays() + " дней.");
+        }
+        if (endsAt.isAfter(now.plus(reservationProperties.getHorizon()))) {
+            throw new ListingOperationException("Бронировать можно не более чем на " +
+                    reservationProperties.getHorizon().toDays() + " дней вперед.");
+        }
+    }
+
+    private boolean isExclusionViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Календарь этого инстанса сбрасывается сразу и после коммита, остальные инстансы и индекс ES
+     * узнают об изменении из события. Событие отправляется после коммита: получатель перечитывает брони из БД.
+     */
+    private void onReservationsChanged(UUID listingId, UUID reservationId) {
+        reservationCalendarCache.evict(listingId);
+        Runnable publish = () -> eventProducer.sendListingReservationsChangedEvent(
+                new ListingReservationsChangedEvent(listingId, reservationId));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
+        });
+    }
+
+    private ReservationResponse toResponse(ListingReservation reservation) {
+        return ReservationResponse.builder()
+                .id(reservation.getId())
+                .listingId(reservation.getListingId())
+                .userId(reservation.getUserId())
+                .startsAt(reservation.getStartsAt())
+                .endsAt(reservation.getEndsAt())
+                .status(reservation.getStatus())
+                .createdAt(reservation.getCreatedAt())
+                .cancelledAt(reservation.getCancelledAt())
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.dto.request.SavedSearchRequest;
+import ru.ecosharing.listing_service.dto.response.SavedSearchResponse;
+import ru.ecosharing.listing_service.exception.ListingOperationException;
+import ru.ecosharing.listing_service.exception.ResourceNotFoundException;
+import ru.ecosharing.listing_service.model.SavedSearch;
+import ru.ecosharing.listing_service.repository.CategoryRepository;
+import ru.ecosharing.listing_service.repository.SavedSearchRepository;
+import ru.ecosharing.listing_service.search.SavedSearchMatcher;
+import ru.ecosharing.listing_service.service.SavedSearchService;
+
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SavedSearchServiceImpl implements SavedSearchService {
+
+    private final SavedSearchRepository savedSearchRepository;
+    private final CategoryRepository categoryRepository;
+    private final SavedSearchMatcher savedSearchMatcher;
+
+    @Value("${app.saved-search.max-per-user:20}")
+    private int maxSavedSearchesPerUser;
+
+    @Override
+    @Transactional
+    public SavedSearchResponse createSavedSearch(UUID userId, SavedSearchRequest request) {
+        log.info("User {} saving search '{}'", userId, request.getName());
+        if (savedSearchRepository.countByUserId(userId) >= maxSavedSearchesPerUser) {
+            throw new ListingOperationException("Достигнут лимит сохраненных поисков: " + maxSavedSearchesPerUser);
+        }
+        if (request.getCategoryId() != null && !categoryRepository.existsById(request.getCategoryId())) {
+            throw ResourceNotFoundException.categoryById(request.getCategoryId());
+        }
+        if (request.getPriceFrom() != null && request.getPriceTo() != null
+                && request.getPriceFrom().compareTo(request.getPriceTo()) > 0) {
+            throw new ListingOperationException("Минимальная цена не может быть больше максимальной.");
+        }
+
+        SavedSearch savedSearch = SavedSearch.builder()
+                .userId(userId)
+                .name(request.getName().trim())
+                .categoryId(request.getCategoryId())
+                .searchTerm(request.getSearchTerm())
+                .locationText(request.getLocationText())
+                .priceFrom(request.getPriceFrom())
+                .priceTo(request.getPriceTo())
+                .availabilityStatus(request.getAvailabilityStatus())
+                .build();
+        savedSearch = savedSearchRepository.saveAndFlush(savedSearch);
+
+        // Индексация в ES внутри транзакции: при ошибке ES поиск не сохранится и в БД
+        savedSearchMatcher.index(savedSearch);
+        log.info("Saved search {} created for user {}", savedSearch.getId(), userId);
+        return toResponse(savedSearch);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<SavedSearchResponse> getMySavedSearches(UUID userId, Pageable pageable) {
+        return savedSearchRepository.findAllByUserId(userId, pageable).map(this::toResponse);
+    }
+
+    @Override
+    @Transactional
+    public void deleteSavedSearch(UUID userId, UUID savedSearchId) {
+        SavedSearch savedSearch = savedSearchRepository.findByIdAndUserId(savedSearchId, userId)
+                .orElseThrow(() -> ResourceNotFoundException.savedSearchById(savedSearchId));
+        savedSearchRepository.delete(savedSearch);
+        savedSearchMatcher.delete(savedSearchId);
+        log.info("Saved search {} deleted by user {}", savedSearchId, userId);
+    }
+
+    private SavedSearchResponse toResponse(SavedSearch savedSearch) {
+        return SavedSearchResponse.builder()
+                .id(savedSearch.getId())
+                .name(savedSearch.getName())
+                .categoryId(savedSearch.getCategoryId())
+                .searchTerm(savedSearch.getSearchTerm())
+                .locationText(savedSearch.getLocationText())
+                .priceFrom(savedSearch.getPriceFrom())
+                .priceTo(savedSearch.getPriceTo())
+                .availabilityStatus(savedSearch.getAvailabilityStatus())
+                .createdAt(savedSearch.getCreatedAt())
+                .build();
+    }
+}
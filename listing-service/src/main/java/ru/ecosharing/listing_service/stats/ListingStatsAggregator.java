@@ -0,0 +1,258 @@
+package ru.ecosharing.listing_service.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.ecosharing.listing_service.config.ListingStatsProperties;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Дневная статистика объявлений: просмотры и избранное копятся в памяти по ключу (объявление, день)
+ * и периодически выгружаются в listing_daily_stats одним batch-upsert'ом. Тысячи просмотров популярного
+ * объявления за период превращаются в одну запись в БД.
+ * <p>
+ * События по объявлению приходят в одну партицию (ключ - listingId), поэтому счетчик каждого объявления
+ * ведет один инстанс. Не выгруженные к аварийной остановке счетчики теряются (не больше одного периода выгрузки).
+ * <p>
+ * Offset'ы Kafka коммитятся независимо от выгрузки, поэтому вместе со счетчиками в той же транзакции сохраняется
+ * последний учтенный offset каждой партиции (listing_stats_offsets). Событие с offset'ом не больше сохраненного
+ * уже учтено - повторная доставка (после остановки или перебалансировки) его не задваивает. При отзыве партиций
+ * счетчики выгружаются сразу, чтобы новый владелец партиции получил полную отметку.
+ */
+@Slf4j
+@Component
+public class ListingStatsAggregator {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO listing_daily_stats (listing_id, stat_date, views, favorites_added, favorites_removed)
+            VALUES (:listingId, :statDate, :views, :favoritesAdded, :favoritesRemoved)
+            ON CONFLICT (listing_id, stat_date) DO UPDATE
+            SET views = listing_daily_stats.views + EXCLUDED.views,
+                favorites_added = listing_daily_stats.favorites_added + EXCLUDED.favorites_added,
+                favorites_removed = listing_daily_stats.favorites_removed + EXCLUDED.favorites_removed
+            """;
+
+    // Отметка только растет: выгрузки разных инстансов могут закоммититься в любом порядке
+    private static final String SAVE_OFFSET_SQL = """
+            INSERT INTO listing_stats_offsets (topic, partition_id, flushed_offset, updated_at)
+            VALUES (:topic, :partition, :offset, now())
+            ON CONFLICT (topic, partition_id) DO UPDATE
+            SET flushed_offset = GREATEST(listing_stats_offsets.flushed_offset, EXCLUDED.flushed_offset),
+                updated_at = now()
+            """;
+
+    private static final String LOAD_OFFSET_SQL =
+            "SELECT flushed_offset FROM listing_stats_offsets WHERE topic = :topic AND partition_id = :partition";
+
+    // Одинаковый порядок строк на всех инстансах - без взаимных блокировок при конкурирующих upsert'ах
+    private static final Comparator<StatKey> KEY_ORDER = Comparator
+            .comparing((StatKey key) -> key.getListingId().toString())
+            .thenComparing(StatKey::getDay);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ListingStatsProperties properties;
+    private final Counter flushFailedCounter;
+    private final Counter redeliveredCounter;
+
+    // Отметки партиций этого инстанса; загружаются из БД при первом событии партиции
+    private final Map<TopicPartition, Long> flushedOffsets = new ConcurrentHashMap<>();
+
+    // Счетчики и наибольшие offset'ы партиций, вошедшие в них, меняются и забираются на выгрузку вместе
+    private final Object pendingLock = new Object();
+    private Map<StatKey, PendingCounters> pending = new HashMap<>();
+    private Map<TopicPartition, Long> pendingOffsets = new HashMap<>();
+
+    public ListingStatsAggregator(NamedParameterJdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  ListingStatsProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        Gauge.builder("listing.stats.pending", this, ListingStatsAggregator::pendingSize)
+                .description("Счетчики (объявление, день), ожидающие выгрузки в БД")
+                .register(meterRegistry);
+        this.flushFailedCounter = Counter.builder("listing.stats.flush.failed")
+                .description("Выгрузки дневной статистики, завершившиеся ошибкой")
+                .register(meterRegistry);
+        this.redeliveredCounter = Counter.builder("listing.stats.redelivered")
+                .description("Повторно доставленные события, уже учтенные в статистике")
+                .register(meterRegistry);
+    }
+
+    public void recordView(UUID listingId, Instant at, ConsumerRecord<?, ?> source) {
+        record(listingId, at, source, 1, 0, 0);
+    }
+
+    public void recordFavoriteAdded(UUID listingId, Instant at, ConsumerRecord<?, ?> source) {
+        record(listingId, at, source, 0, 1, 0);
+    }
+
+    public void recordFavoriteRemoved(UUID listingId, Instant at, ConsumerRecord<?, ?> source) {
+        record(listingId, at, source, 0, 0, 1);
+    }
+
+    /**
+     * Удаляет статистику удаленного объявления (и в памяти, и в БД).
+     */
+    public void forget(UUID listingId) {
+        synchronized (pendingLock) {
+            pending.keySet().removeIf(key -> key.getListingId().equals(listingId));
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("listingId", listingId);
+        jdbcTemplate.update("DELETE FROM listing_daily_stats WHERE listing_id = :listingId", params);
+        jdbcTemplate.update("DELETE FROM listing_monthly_stats WHERE listing_id = :listingId", params);
+    }
+
+    /**
+     * Вызывается при отзыве партиций у этого инстанса: накопленное выгружается, отметки отозванных партиций
+     * забываются и будут перечитаны из БД, если партиции вернутся.
+     */
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        flush();
+        partitions.forEach(flushedOffsets::remove);
+    }
+
+    private void record(UUID listingId, Instant at, ConsumerRecord<?, ?> source,
+                        long views, long favoritesAdded, long favoritesRemoved) {
+        if (!properties.isEnabled() || listingId == null) {
+            return;
+        }
+        TopicPartition partition = new TopicPartition(source.topic(), source.partition());
+        long flushedOffset = flushedOffsets.computeIfAbsent(partition, this::loadFlushedOffset);
+        if (source.offset() <= flushedOffset) {
+            redeliveredCounter.increment();
+            log.debug("Stats event {}@{} already flushed, skipped", partition, source.offset());
+            return;
+        }
+        LocalDate day = LocalDate.ofInstant(at != null ? at : Instant.now(), properties.getZone());
+        synchronized (pendingLock) {
+            pending.computeIfAbsent(new StatKey(listingId, day), key -> new PendingCounters())
+                    .add(views, favoritesAdded, favoritesRemoved);
+            pendingOffsets.merge(partition, source.offset(), Math::max);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.flush-interval-ms:10000}")
+    public void flush() {
+        Map<StatKey, PendingCounters> batch;
+        Map<TopicPartition, Long> offsets;
+        synchronized (pendingLock) {
+            if (pending.isEmpty() && pendingOffsets.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            offsets = pendingOffsets;
+            pending = new HashMap<>();
+            pendingOffsets = new HashMap<>();
+        }
+        List<StatKey> keys = new ArrayList<>(batch.keySet());
+        keys.sort(KEY_ORDER);
+        try {
+            // Счетчики и отметки партиций - атомарно: иначе повтор после сбоя задвоил бы или потерял события
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < keys.size(); from += properties.getFlushBatchSize()) {
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, keys.subList(from, Math.min(from + properties.getFlushBatchSize(), keys.size()))
+                            .stream()
+                            .map(key -> toParams(key, batch.get(key)))
+                            .toArray(SqlParameterSource[]::new));
+                }
+                jdbcTemplate.batchUpdate(SAVE_OFFSET_SQL, offsets.entrySet().stream()
+                        .map(entry -> new MapSqlParameterSource()
+                                .addValue("topic", entry.getKey().topic())
+                                .addValue("partition", entry.getKey().partition())
+                                .addValue("offset", entry.getValue()))
+                        .toArray(SqlParameterSource[]::new));
+            });
+        } catch (Exception e) {
+            // Возвращаем счетчики обратно - они уйдут со следующей выгрузкой
+            flushFailedCounter.increment();
+            synchronized (pendingLock) {
+                batch.forEach((key, counters) -> pending.merge(key, counters, PendingCounters::merge));
+                offsets.forEach((partition, offset) -> pendingOffsets.merge(partition, offset, Math::max));
+            }
+            log.warn("Failed to flush {} listing stats rows: {}", batch.size(), e.getMessage());
+            return;
+        }
+        // Отозванные тем временем партиции не возвращаются: их отметку перечитает следующий владелец
+        offsets.forEach((partition, offset) -> flushedOffsets.computeIfPresent(partition, (p, flushed) -> Math.max(flushed, offset)));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private long loadFlushedOffset(TopicPartition partition) {
+        List<Long> offsets = jdbcTemplate.queryForList(LOAD_OFFSET_SQL, new MapSqlParameterSource()
+                .addValue("topic", partition.topic())
+                .addValue("partition", partition.partition()), Long.class);
+        return offsets.isEmpty() ? -1L : offsets.get(0);
+    }
+
+    private int pendingSize() {
+        synchronized (pendingLock) {
+            return pending.size();
+        }
+    }
+
+    private static SqlParameterSource toParams(StatKey key, PendingCounters counters) {
+        return new MapSqlParameterSource()
+                .addValue("listingId", key.getListingId())
+                .addValue("statDate", key.getDay())
+                .addValue("views", counters.views)
+                .addValue("favoritesAdded", counters.favoritesAdded)
+                .addValue("favoritesRemoved", counters.favoritesRemoved);
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class StatKey {
+        private final UUID listingId;
+        private final LocalDate day;
+    }
+
+    // Изменяется только под pendingLock или после того, как карта забрана на выгрузку
+    private static final class PendingCounters {
+        private long views;
+        private long favoritesAdded;
+        private long favoritesRemoved;
+
+        private void add(long views, long favoritesAdded, long favoritesRemoved) {
+            this.views += views;
+            this.favoritesAdded += favoritesAdded;
+            this.favoritesRemoved += favoritesRemoved;
+        }
+
+        private static PendingCounters merge(PendingCounters left, PendingCounters right) {
+            left.add(right.views, right.favoritesAdded, right.favoritesRemoved);
+            return left;
+        }
+    }
+}
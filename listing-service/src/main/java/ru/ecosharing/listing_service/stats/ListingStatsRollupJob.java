@@ -0,0 +1,78 @@
+package ru.ecosharing.listing_service.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.ecosharing.listing_service.config.ListingStatsProperties;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Свертка старой дневной статистики в помесячную: дни старше daily-retention переносятся в listing_monthly_stats
+ * (DELETE ... RETURNING + INSERT ... ON CONFLICT в одном запросе) по одному дню в транзакции, от самого старого.
+ * Удаленная строка дня достается только одному запросу, поэтому одновременный запуск на нескольких инстансах
+ * не задваивает суммы.
+ */
+@Slf4j
+@Component
+public class ListingStatsRollupJob {
+
+    private static final String OLDEST_DAY_SQL = "SELECT min(stat_date) FROM listing_daily_stats";
+
+    private static final String ROLLUP_DAY_SQL = """
+            WITH moved AS (
+                DELETE FROM listing_daily_stats
+                WHERE stat_date = :day
+                RETURNING listing_id, stat_date, views, favorites_added, favorites_removed
+            )
+            INSERT INTO listing_monthly_stats (listing_id, stat_month, views, favorites_added, favorites_removed)
+            SELECT listing_id, date_trunc('month', stat_date)::date, sum(views), sum(favorites_added), sum(favorites_removed)
+            FROM moved
+            GROUP BY listing_id, date_trunc('month', stat_date)::date
+            ON CONFLICT (listing_id, stat_month) DO UPDATE
+            SET views = listing_monthly_stats.views + EXCLUDED.views,
+                favorites_added = listing_monthly_stats.favorites_added + EXCLUDED.favorites_added,
+                favorites_removed = listing_monthly_stats.favorites_removed + EXCLUDED.favorites_removed
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ListingStatsProperties properties;
+
+    public ListingStatsRollupJob(NamedParameterJdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ListingStatsProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.rollup-interval-ms:3600000}", initialDelayString = "${app.stats.rollup-interval-ms:3600000}")
+    public void run() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now(properties.getZone()).minusDays(properties.getDailyRetention().toDays());
+        int days = 0;
+        int rows = 0;
+        while (days < properties.getRollupMaxDaysPerRun()) {
+            List<LocalDate> oldest = jdbcTemplate.queryForList(OLDEST_DAY_SQL, new MapSqlParameterSource(), LocalDate.class);
+            LocalDate day = oldest.isEmpty() ? null : oldest.get(0);
+            if (day == null || !day.isBefore(cutoff)) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(status ->
+                    jdbcTemplate.update(ROLLUP_DAY_SQL, new MapSqlParameterSource("day", day)));
+            rows += moved != null ? moved : 0;
+            days++;
+        }
+        if (days > 0) {
+            log.info("Listing stats rollup: {} days before {} moved into monthly stats ({} rows upserted)", days, cutoff, rows);
+        }
+    }
+}
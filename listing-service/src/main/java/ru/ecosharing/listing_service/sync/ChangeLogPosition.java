@@ -0,0 +1,23 @@
+package ru.ecosharing.listing_service.sync;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Позиция в журнале изменений: транзакция, записавшая строку (xid), и номер записи внутри нее (seq).
+ * Журнал читается по возрастанию пары (xid, seq).
+ */
+@Getter
+@RequiredArgsConstructor
+@EqualsAndHashCode
+@ToString
+public final class ChangeLogPosition {
+
+    // Начало журнала - синхронизация с нуля
+    public static final ChangeLogPosition START = new ChangeLogPosition(0L, 0L);
+
+    private final long xid;
+    private final long seq;
+}
@@ -0,0 +1,141 @@
+package ru.ecosharing.listing_service.sync;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Журнал изменений объявлений (таблица listing_changes) с компакцией по объявлению:
+ * каждое изменение переписывает единственную строку объявления с новым номером из последовательности
+ * и xid записавшей транзакции. Запись ведет ListingChangeLogUpdater по событиям Kafka,
+ * чтение - лента GET /api/listings/changes.
+ * <p>
+ * Лента упорядочена по (xid, seq) и отдает только строки транзакций старше xmin снимка читателя.
+ * Все такие транзакции завершены, а любая еще не закоммиченная запись имеет xid не меньше xmin,
+ * поэтому окажется после выданной клиенту позиции, сколько бы ни шла ее транзакция. Это же защищает
+ * от устаревшей карточки: транзакция объявления, отправившая событие до коммита, получила xid раньше
+ * журнала и держит xmin, пока не закоммитится.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListingChangeLog {
+
+    // Сортировка по id - одинаковый порядок блокировок строк у параллельных пачек
+    private static final String RECORD_SQL = """
+            INSERT INTO listing_changes (listing_id, seq, xid)
+            SELECT id, nextval('listing_changes_seq'), pg_current_xact_id()
+            FROM (SELECT DISTINCT id FROM unnest(ARRAY[:ids]::uuid[]) AS t(id) ORDER BY id) ids
+            ON CONFLICT (listing_id) DO UPDATE SET seq = EXCLUDED.seq, xid = EXCLUDED.xid
+            """;
+
+    // Переименование или перенос категории меняет карточки всех опубликованных объявлений поддерева
+    private static final String RECORD_CATEGORY_TREE_SQL = """
+            INSERT INTO listing_changes (listing_id, seq, xid)
+            SELECT id, nextval('listing_changes_seq'), pg_current_xact_id()
+            FROM (
+                SELECT l.id FROM listings l
+                WHERE l.moderation_status = :activeStatus
+                  AND l.category_id IN (WITH RECURSIVE subtree AS (
+                        SELECT id FROM categories WHERE id = :categoryId
+                        UNION ALL SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id
+                  ) SELECT id FROM subtree)
+                ORDER BY l.id
+            ) ids
+            ON CONFLICT (listing_id) DO UPDATE SET seq = EXCLUDED.seq, xid = EXCLUDED.xid
+            """;
+
+    // Берется на одну запись больше страницы, чтобы узнать, есть ли продолжение
+    private static final String READ_SQL = """
+            SELECT listing_id, xid::text AS xid, seq, xid < pg_snapshot_xmin(pg_current_snapshot()) AS settled
+            FROM listing_changes
+            WHERE (xid, seq) > (CAST(:sinceXid AS text)::xid8, :sinceSeq)
+            ORDER BY xid, seq
+            LIMIT :limit
+            """;
+
+    // xmax снимка - следующий xid; позиция не меньше него выдана до восстановления БД из бэкапа
+    private static final String IS_AHEAD_SQL = """
+            SELECT CAST(:xid AS text)::xid8 >= pg_snapshot_xmax(pg_current_snapshot())
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void record(Collection<UUID> listingIds) {
+        if (listingIds.isEmpty()) {
+            return;
+        }
+        int recorded = jdbcTemplate.update(RECORD_SQL, new MapSqlParameterSource("ids", listingIds));
+        log.debug("Change log: {} listings recorded", recorded);
+    }
+
+    public void recordCategoryTree(UUID categoryId) {
+        int recorded = jdbcTemplate.update(RECORD_CATEGORY_TREE_SQL, new MapSqlParameterSource()
+                .addValue("categoryId", categoryId)
+                .addValue("activeStatus", ModerationStatus.ACTIVE.name()));
+        log.debug("Change log: {} listings of category tree {} recorded", recorded, categoryId);
+    }
+
+    /**
+     * Изменения после позиции since по возрастанию (xid, seq), не больше limit.
+     * Чтение останавливается на первой записи незавершенной транзакции: все последующие строки
+     * тоже не старше xmin, и отдать их раньше нее значило бы перескочить через нее.
+     */
+    public Batch read(ChangeLogPosition since, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("sinceXid", since.getXid())
+                .addValue("sinceSeq", since.getSeq())
+                .addValue("limit", limit + 1);
+        List<Entry> rows = jdbcTemplate.query(READ_SQL, params, (rs, rowNum) -> new Entry(
+                rs.getObject("listing_id", UUID.class),
+                new ChangeLogPosition(Long.parseLong(rs.getString("xid")), rs.getLong("seq")),
+                rs.getBoolean("settled")));
+        return settledPage(rows, limit);
+    }
+
+    // Страница - начало выборки до первой незавершенной записи; продолжение есть, только если страница заполнена
+    static Batch settledPage(List<Entry> rows, int limit) {
+        int settled = 0;
+        while (settled < rows.size() && settled < limit && rows.get(settled).isSettled()) {
+            settled++;
+        }
+        boolean hasMore = settled == limit && rows.size() > limit;
+        return new Batch(List.copyOf(rows.subList(0, settled)), hasMore);
+    }
+
+    /**
+     * Выдана ли позиция раньше, чем БД восстановили из бэкапа (токен недействителен).
+     * Проверяется в отдельной транзакции на основной БД: счетчик транзакций реплики отстает,
+     * и токен, полученный с более свежей реплики, на другой выглядел бы недействительным.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean isAhead(ChangeLogPosition position) {
+        Boolean ahead = jdbcTemplate.queryForObject(IS_AHEAD_SQL, new MapSqlParameterSource("xid", position.getXid()), Boolean.class);
+        return Boolean.TRUE.equals(ahead);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final UUID listingId;
+        private final ChangeLogPosition position;
+        private final boolean settled;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Batch {
+        private final List<Entry> entries;
+        private final boolean hasMore;
+    }
+}
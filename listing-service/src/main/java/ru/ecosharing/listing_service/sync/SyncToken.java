@@ -0,0 +1,52 @@
+package ru.ecosharing.listing_service.sync;
+
+import ru.ecosharing.listing_service.exception.ListingOperationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Токен синхронизации - позиция в журнале изменений, закодированная непрозрачно для клиента.
+ * Версия формата в токене позволяет позже сменить содержимое, не ломая сохраненные у клиентов токены.
+ */
+public final class SyncToken {
+
+    private static final String PREFIX = "v2:";
+    // Токены с одним seq: порядок журнала сменился, по ним лента отдается с начала
+    private static final String LEGACY_PREFIX = "v1:";
+
+    private SyncToken() {
+    }
+
+    public static String encode(ChangeLogPosition position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + position.getXid() + ":" + position.getSeq()).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return Позиция; начало журнала для пустого токена.
+     */
+    public static ChangeLogPosition decode(String token) {
+        if (token == null || token.isBlank()) {
+            return ChangeLogPosition.START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.US_ASCII);
+            if (raw.startsWith(PREFIX)) {
+                String[] parts = raw.substring(PREFIX.length()).split(":", -1);
+                if (parts.length == 2) {
+                    long xid = Long.parseLong(parts[0]);
+                    long seq = Long.parseLong(parts[1]);
+                    if (xid >= 0 && seq >= 0) {
+                        return new ChangeLogPosition(xid, seq);
+                    }
+                }
+            } else if (raw.startsWith(LEGACY_PREFIX) && Long.parseLong(raw.substring(LEGACY_PREFIX.length())) >= 0) {
+                return ChangeLogPosition.START;
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException - тоже IllegalArgumentException
+        }
+        throw new ListingOperationException("Некорректный токен синхронизации.");
+    }
+}
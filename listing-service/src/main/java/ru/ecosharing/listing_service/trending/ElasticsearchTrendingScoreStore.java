@@ -0,0 +1,52 @@
+package ru.ecosharing.listing_service.trending;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Оценка популярности из документа объявления в Elasticsearch (поля trendingScore и trendingUpdatedAt).
+ */
+@Component
+@RequiredArgsConstructor
+public class ElasticsearchTrendingScoreStore implements TrendingScoreStore {
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final ListingIndexPlacement listingIndexPlacement;
+
+    @Override
+    public Optional<StoredScore> load(UUID listingId) {
+        NativeQuery query = NativeQuery.builder()
+                .withIdsWithRouting(List.of(new Query.IdWithRouting(listingId.toString(), listingRoutingResolver.forListing(listingId))))
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes("trendingScore", "trendingUpdatedAt").build())
+                .build();
+        for (IndexCoordinates index : listingIndexPlacement.lookupOrder()) {
+            Optional<ListingDocument> document = elasticsearchOperations.multiGet(query, ListingDocument.class, index).stream()
+                    .filter(MultiGetItem::hasItem)
+                    .map(MultiGetItem::getItem)
+                    .findFirst();
+            if (document.isPresent()) {
+                ListingDocument doc = document.get();
+                if (doc.getTrendingScore() == null) {
+                    return Optional.empty();
+                }
+                long updatedAt = doc.getTrendingUpdatedAt() != null ? doc.getTrendingUpdatedAt() : System.currentTimeMillis();
+                return Optional.of(new StoredScore(doc.getTrendingScore(), updatedAt));
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,211 @@
+package ru.ecosharing.listing_service.trending;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.TrendingProperties;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Экспоненциально затухающая оценка популярности объявления по потоку просмотров и избранного.
+ * <p>
+ * Используется "прямое" затухание: вклад сигнала в момент t равен weight * 2^((t - EPOCH) / halfLife),
+ * то есть новые сигналы весят больше старых, а уже посчитанные оценки со временем не меняются.
+ * Поэтому оценки, выгруженные в ES в разное время, остаются сравнимыми между собой, и в индекс нужно отправлять
+ * только объявления, по которым пришли новые сигналы. Чтобы не переполнять double, хранится log2 от суммы.
+ * <p>
+ * Сигналы по одному объявлению приходят в одну партицию Kafka (ключ - listingId), поэтому каждый инстанс
+ * ведет оценки только своей части объявлений. Состояние в памяти - лишь кэш: если объявления в нем нет
+ * (рестарт, ребалансировка партиций, вытеснение), оно восстанавливается из последней выгруженной оценки.
+ */
+@Slf4j
+@Component
+public class TrendingScoreEngine {
+
+    // Точка отсчета для "прямого" затухания. Не менять: от нее зависят все записанные в ES оценки
+    private static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final TrendingProperties properties;
+    private final TrendingScoreStore trendingScoreStore;
+    private final double halfLifeMillis;
+    private final Counter droppedCounter;
+    private final Map<UUID, ScoreState> scores = new ConcurrentHashMap<>();
+    // Объявления с новыми сигналами, еще не выгруженные в ES
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+
+    public TrendingScoreEngine(TrendingProperties properties, TrendingScoreStore trendingScoreStore, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.trendingScoreStore = trendingScoreStore;
+        this.halfLifeMillis = properties.getHalfLife().toMillis();
+        this.droppedCounter = Counter.builder("listing.trending.signals.dropped")
+                .description("Сигналы, не примененные из-за отсутствия или недоступности сохраненной оценки")
+                .register(meterRegistry);
+        Gauge.builder("listing.trending.tracked", scores, Map::size)
+                .description("Количество объявлений с оценкой популярности в памяти")
+                .register(meterRegistry);
+        Gauge.builder("listing.trending.pending", dirty, Set::size)
+                .description("Оценки, ожидающие выгрузки в Elasticsearch")
+                .register(meterRegistry);
+    }
+
+    public void recordView(UUID listingId, Instant at) {
+        record(listingId, properties.getViewWeight(), at);
+    }
+
+    public void recordFavoriteAdded(UUID listingId, Instant at) {
+        record(listingId, properties.getFavoriteWeight(), at);
+    }
+
+    public void recordFavoriteRemoved(UUID listingId, Instant at) {
+        record(listingId, -properties.getFavoriteWeight(), at);
+    }
+
+    public void forget(UUID listingId) {
+        scores.remove(listingId);
+        dirty.remove(listingId);
+    }
+
+    private void record(UUID listingId, double weight, Instant at) {
+        Instant signalTime = at != null ? at : Instant.now();
+        double signal = signalLogScore(weight, signalTime.toEpochMilli());
+        if (!scores.containsKey(listingId) && !seed(listingId)) {
+            return;
+        }
+        ScoreState updated = scores.computeIfPresent(listingId, (id, current) -> {
+            if (weight < 0 && current.logScore == Double.NEGATIVE_INFINITY) {
+                return current; // Отзывать нечего: сигнал, который отзывается, не был учтен
+            }
+            double next = weight > 0 ? logSumExp2(current.logScore, signal) : logDiffExp2(current.logScore, signal);
+            return new ScoreState(next, Math.max(current.lastSignalMillis, signalTime.toEpochMilli()));
+        });
+        if (updated != null) {
+            dirty.add(listingId);
+        }
+    }
+
+    /**
+     * Восстанавливает состояние объявления из хранилища. Объявление без сохраненной оценки начинает с нуля.
+     * Если хранилище недоступно, сигнал пропускается: иначе выгрузка затерла бы накопленную оценку.
+     *
+     * @return false, если состояние восстановить не удалось
+     */
+    private boolean seed(UUID listingId) {
+        ScoreState stored;
+        try {
+            stored = trendingScoreStore.load(listingId)
+                    .map(score -> new ScoreState(score.getLogScore(), score.getLastSignalMillis()))
+                    .orElseGet(() -> new ScoreState(Double.NEGATIVE_INFINITY, 0L));
+        } catch (Exception e) {
+            droppedCounter.increment();
+            log.warn("Failed to load stored trending score for listing {}, signal skipped: {}", listingId, e.getMessage());
+            return false;
+        }
+        scores.putIfAbsent(listingId, stored);
+        return true;
+    }
+
+    /**
+     * Забирает до limit изменившихся оценок для выгрузки в ES.
+     * Оценка null означает, что оценки больше нет (все сигналы отозваны).
+     */
+    public Map<UUID, PendingScore> drainPending(int limit) {
+        Map<UUID, PendingScore> batch = new LinkedHashMap<>();
+        Iterator<UUID> iterator = dirty.iterator();
+        while (iterator.hasNext() && batch.size() < limit) {
+            UUID listingId = iterator.next();
+            iterator.remove();
+            // Читаем после снятия отметки: сигнал, пришедший позже, снова пометит объявление
+            ScoreState state = scores.get(listingId);
+            if (state != null) {
+                batch.put(listingId, new PendingScore(Double.isFinite(state.logScore) ? state.logScore : null, state.lastSignalMillis));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Возвращает оценки в очередь выгрузки (например, после ошибки ES).
+     */
+    public void markPending(Collection<UUID> listingIds) {
+        listingIds.stream().filter(scores::containsKey).forEach(dirty::add);
+    }
+
+    /**
+     * Удаляет давно не обновлявшиеся оценки: их вклад пренебрежимо мал по сравнению с любым новым сигналом,
+     * а значение в ES остается и продолжает участвовать в сортировке.
+     */
+    public void evictStale() {
+        long cutoff = System.currentTimeMillis() - (long) (halfLifeMillis * properties.getRetentionHalfLives());
+        scores.entrySet().removeIf(e -> e.getValue().lastSignalMillis < cutoff && !dirty.contains(e.getKey()));
+
+        int excess = scores.size() - properties.getMaxTrackedListings();
+        if (excess > 0) {
+            scores.entrySet().stream()
+                    .filter(e -> !dirty.contains(e.getKey()))
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastSignalMillis))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(scores::remove);
+            log.warn("Trending score map exceeded {} entries, {} oldest evicted", properties.getMaxTrackedListings(), excess);
+        }
+    }
+
+    // log2 вклада сигнала с весом |weight| в момент signalMillis
+    double signalLogScore(double weight, long signalMillis) {
+        return log2(Math.abs(weight)) + (signalMillis - EPOCH.toEpochMilli()) / halfLifeMillis;
+    }
+
+    // log2(2^a + 2^b)
+    static double logSumExp2(double a, double b) {
+        if (a == Double.NEGATIVE_INFINITY) return b;
+        double max = Math.max(a, b);
+        return max + log2(1 + Math.pow(2, Math.min(a, b) - max));
+    }
+
+    // log2(2^a - 2^b), минус бесконечность при b >= a
+    static double logDiffExp2(double a, double b) {
+        if (b >= a) return Double.NEGATIVE_INFINITY; // Отозвано не меньше, чем накоплено
+        return a + log2(1 - Math.pow(2, b - a));
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    /**
+     * Оценка для выгрузки: log2 суммы сигналов (null - оценки нет) и время последнего учтенного сигнала.
+     */
+    public static final class PendingScore {
+        private final Double logScore;
+        private final long lastSignalMillis;
+
+        private PendingScore(Double logScore, long lastSignalMillis) {
+            this.logScore = logScore;
+            this.lastSignalMillis = lastSignalMillis;
+        }
+
+        public Double getLogScore() {
+            return logScore;
+        }
+
+        public long getLastSignalMillis() {
+            return lastSignalMillis;
+        }
+    }
+
+    private static final class ScoreState {
+        private final double logScore;
+        private final long lastSignalMillis;
+
+        private ScoreState(double logScore, long lastSignalMillis) {
+            this.logScore = logScore;
+            this.lastSignalMillis = lastSignalMillis;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.ecosharing.listing_service.trending;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.ecosharing.listing_service.config.TrendingProperties;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Периодически выгружает изменившиеся оценки популярности в поля trendingScore и trendingUpdatedAt
+ * частичными bulk-обновлениями. Документы, которых нет в горячем индексе, обновляются в архивном.
+ */
+@Slf4j
+@Component
+public class TrendingScorePublisher {
+
+    private final TrendingScoreEngine trendingScoreEngine;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final TrendingProperties properties;
+    private final ListingRoutingResolver listingRoutingResolver;
+    private final ListingIndexPlacement listingIndexPlacement;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+
+    public TrendingScorePublisher(TrendingScoreEngine trendingScoreEngine,
+                                  ElasticsearchOperations elasticsearchOperations,
+                                  TrendingProperties properties,
+                                  ListingRoutingResolver listingRoutingResolver,
+                                  ListingIndexPlacement listingIndexPlacement,
+                                  MeterRegistry meterRegistry) {
+        this.trendingScoreEngine = trendingScoreEngine;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.properties = properties;
+        this.listingRoutingResolver = listingRoutingResolver;
+        this.listingIndexPlacement = listingIndexPlacement;
+        this.publishedCounter = Counter.builder("listing.trending.published")
+                .description("Оценки популярности, записанные в Elasticsearch")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("listing.trending.publish.failed")
+                .description("Bulk-запросы выгрузки оценок, завершившиеся ошибкой")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.trending.push-interval-ms:30000}")
+    public void publishPendingScores() {
+        Map<UUID, TrendingScoreEngine.PendingScore> batch;
+        while (!(batch = trendingScoreEngine.drainPending(properties.getPushBatchSize())).isEmpty()) {
+            Map<UUID, String> routing = listingRoutingResolver.forListings(batch.keySet());
+            List<UpdateQuery> updates = batch.entrySet().stream()
+                    .map(entry -> {
+                        Map<String, Object> fields = new HashMap<>();
+                        fields.put("trendingScore", entry.getValue().getLogScore()); // null очищает поле
+                        fields.put("trendingUpdatedAt", entry.getValue().getLastSignalMillis());
+                        return UpdateQuery.builder(entry.getKey().toString())
+                                .withDocument(Document.from(fields))
+                                .withRouting(routing.get(entry.getKey()))
+                                .build();
+                    })
+                    .toList();
+            try {
+                publish(updates);
+                publishedCounter.increment(updates.size());
+            } catch (Exception e) {
+                // Частичные ошибки (например, документ уже удален) не повторяем, остальное - в следующий раз
+                failedCounter.increment();
+                log.warn("Failed to publish {} trending scores to Elasticsearch: {}", updates.size(), e.getMessage());
+                if (!(e instanceof BulkFailureException)) {
+                    trendingScoreEngine.markPending(batch.keySet());
+                    break;
+                }
+            }
+        }
+        trendingScoreEngine.evictStale();
+    }
+
+    // Обновления, не нашедшие документ в очередном индексе, повторяются в следующем по lookupOrder
+    private void publish(List<UpdateQuery> updates) {
+        List<UpdateQuery> remaining = updates;
+        BulkFailureException lastFailure = null;
+        for (IndexCoordinates index : listingIndexPlacement.lookupOrder()) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            try {
+                elasticsearchOperations.bulkUpdate(remaining, index);
+                return;
+            } catch (BulkFailureException e) {
+                lastFailure = e;
+                Map<String, ?> failed = e.getFailedDocuments();
+                remaining = remaining.stream().filter(update -> failed.containsKey(update.getId())).toList();
+            }
+        }
+        throw lastFailure;
+    }
+}
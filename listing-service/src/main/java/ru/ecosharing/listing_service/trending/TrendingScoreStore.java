@@ -0,0 +1,27 @@
+package ru.ecosharing.listing_service.trending;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Последняя выгруженная оценка популярности объявления. Из нее TrendingScoreEngine восстанавливает состояние
+ * объявлений, которых нет в памяти (после рестарта или ребалансировки партиций), прежде чем применить новый сигнал.
+ */
+public interface TrendingScoreStore {
+
+    /**
+     * @return Сохраненная оценка или пустой Optional, если оценки нет.
+     * @throws RuntimeException если хранилище недоступно - сигнал тогда не применяется, чтобы не затереть оценку.
+     */
+    Optional<StoredScore> load(UUID listingId);
+
+    @Getter
+    @RequiredArgsConstructor
+    class StoredScore {
+        private final double logScore;
+        private final long lastSignalMillis;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.ecosharing.listing_service.duplicate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHasherTest {
+
+    private static final String TITLE = "Велосипед горный Stels Navigator 500";
+    private static final String DESCRIPTION = "Отличное состояние, 21 скорость, дисковые тормоза. Самовывоз из центра города.";
+
+    private final MinHasher minHasher = new MinHasher(5, 32);
+
+    @Test
+    void signatureHasRequestedLengthAndIsStableAcrossInstances() {
+        int[] signature = minHasher.signature(TITLE, DESCRIPTION);
+
+        assertThat(signature).hasSize(32);
+        // Сиды фиксированы: подписи, построенные разными экземплярами, сравнимы
+        assertThat(new MinHasher(5, 32).signature(TITLE, DESCRIPTION)).isEqualTo(signature);
+    }
+
+    @Test
+    void caseAndPunctuationDoNotChangeSignature() {
+        int[] edited = minHasher.signature("ВЕЛОСИПЕД горный — Stels Navigator 500!",
+                "Отличное состояние; 21 скорость, дисковые   тормоза. Самовывоз из центра города");
+
+        assertThat(edited).isEqualTo(minHasher.signature(TITLE, DESCRIPTION));
+    }
+
+    @Test
+    void nearDuplicateIsMoreSimilarThanUnrelatedText() {
+        int[] original = minHasher.signature(TITLE, DESCRIPTION);
+        int[] nearDuplicate = minHasher.signature(TITLE,
+                "Отличное состояние, 21 скорость, дисковые тормоза. Самовывоз из центра.");
+        int[] unrelated = minHasher.signature("Детская коляска Cybex",
+                "Прогулочная коляска, использовалась одно лето, чехол в комплекте.");
+
+        assertThat(similarity(original, nearDuplicate)).isGreaterThanOrEqualTo(0.8);
+        assertThat(similarity(original, unrelated)).isLessThan(0.2);
+    }
+
+    @Test
+    void textShorterThanShingleIsHashedAsSingleShingle() {
+        int[] signature = minHasher.signature("ab", null);
+
+        assertThat(signature).doesNotContain(Integer.MAX_VALUE);
+        assertThat(minHasher.signature("AB", "")).isEqualTo(signature);
+        assertThat(minHasher.signature("cd", null)).isNotEqualTo(signature);
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.ecosharing.listing_service.duplicate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.ecosharing.listing_service.config.NearDuplicateProperties;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class NearDuplicateIndexTest {
+
+    private static final String TITLE = "Велосипед горный Stels Navigator 500";
+    private static final String DESCRIPTION = "Отличное состояние, 21 скорость, дисковые тормоза. Самовывоз из центра города.";
+    // Похожесть с DESCRIPTION ~0.88
+    private static final String EDITED_DESCRIPTION = "Отличное состояние, 21 скорость, дисковые тормоза. Самовывоз из центра.";
+    // Похожесть с DESCRIPTION ~0.72: общая полоса есть, но ниже порога по умолчанию
+    private static final String REWRITTEN_DESCRIPTION = "Отличное состояние, 21 скорость, дисковые тормоза. Самовывоз от метро.";
+
+    private final UUID original = UUID.randomUUID();
+    private NearDuplicateProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NearDuplicateProperties();
+    }
+
+    @Test
+    void lookupsAreSkippedUntilIndexIsBuilt() {
+        NearDuplicateIndex index = new NearDuplicateIndex(mock(NamedParameterJdbcTemplate.class), properties, new SimpleMeterRegistry());
+        index.put(original, TITLE, DESCRIPTION);
+
+        assertThat(index.isReady()).isFalse();
+        assertThat(index.findBestMatch(TITLE, DESCRIPTION, null)).isEmpty();
+    }
+
+    @Test
+    void findsNearDuplicate() {
+        NearDuplicateIndex index = readyIndex();
+        index.put(original, TITLE, DESCRIPTION);
+        index.put(UUID.randomUUID(), "Детская коляска Cybex", "Прогулочная коляска, использовалась одно лето, чехол в комплекте.");
+
+        Optional<NearDuplicateMatch> match = index.findBestMatch(TITLE, EDITED_DESCRIPTION, null);
+
+        assertThat(match).isPresent();
+        assertThat(match.get().getListingId()).isEqualTo(original);
+        assertThat(match.get().getSimilarity()).isGreaterThanOrEqualTo(properties.getSimilarityThreshold());
+    }
+
+    @Test
+    void picksMostSimilarCandidate() {
+        NearDuplicateIndex index = readyIndex();
+        UUID edited = UUID.randomUUID();
+        index.put(original, TITLE, DESCRIPTION);
+        index.put(edited, TITLE, EDITED_DESCRIPTION);
+
+        assertThat(index.findBestMatch(TITLE, DESCRIPTION, null))
+                .map(NearDuplicateMatch::getListingId)
+                .contains(original);
+        assertThat(index.findBestMatch(TITLE, EDITED_DESCRIPTION, null))
+                .map(NearDuplicateMatch::getListingId)
+                .contains(edited);
+    }
+
+    @Test
+    void excludedListingIsNotReportedAsItsOwnDuplicate() {
+        NearDuplicateIndex index = readyIndex();
+        index.put(original, TITLE, DESCRIPTION);
+
+        assertThat(index.findBestMatch(TITLE, DESCRIPTION, original)).isEmpty();
+    }
+
+    @Test
+    void candidatesBelowThresholdAreIgnored() {
+        NearDuplicateIndex index = readyIndex();
+        index.put(original, TITLE, DESCRIPTION);
+
+        assertThat(index.findBestMatch(TITLE, REWRITTEN_DESCRIPTION, null)).isEmpty();
+
+        properties.setSimilarityThreshold(0.7);
+        assertThat(index.findBestMatch(TITLE, REWRITTEN_DESCRIPTION, null))
+                .map(NearDuplicateMatch::getListingId)
+                .contains(original);
+    }
+
+    @Test
+    void removedAndReplacedTextsAreNotMatched() {
+        NearDuplicateIndex index = readyIndex();
+        index.put(original, TITLE, DESCRIPTION);
+        index.remove(original);
+
+        assertThat(index.size()).isZero();
+        assertThat(index.findBestMatch(TITLE, DESCRIPTION, null)).isEmpty();
+
+        // Повторный put заменяет подпись: старый текст больше не находится
+        index.put(original, TITLE, DESCRIPTION);
+        index.put(original, "Детская коляска Cybex", "Прогулочная коляска, использовалась одно лето, чехол в комплекте.");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findBestMatch(TITLE, DESCRIPTION, null)).isEmpty();
+    }
+
+    @Test
+    void oldestEntriesAreEvictedBeyondMaxEntries() {
+        properties.setMaxEntries(2);
+        NearDuplicateIndex index = readyIndex();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        index.put(original, TITLE, DESCRIPTION);
+        index.put(second, "Детская коляска Cybex", "Прогулочная коляска, использовалась одно лето, чехол в комплекте.");
+        index.put(third, "Палатка трехместная", "Двухслойная палатка, ставится за десять минут, вес четыре килограмма.");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.findBestMatch(TITLE, DESCRIPTION, null)).isEmpty();
+        assertThat(index.findBestMatch("Палатка трехместная", "Двухслойная палатка, ставится за десять минут, вес четыре килограмма.", null))
+                .map(NearDuplicateMatch::getListingId)
+                .contains(third);
+    }
+
+    // Мок JdbcTemplate возвращает пустые выборки: индекс строится пустым и становится готовым
+    private NearDuplicateIndex readyIndex() {
+        NearDuplicateIndex index = new NearDuplicateIndex(mock(NamedParameterJdbcTemplate.class), properties, new SimpleMeterRegistry());
+        index.rebuild();
+        return index;
+    }
+}
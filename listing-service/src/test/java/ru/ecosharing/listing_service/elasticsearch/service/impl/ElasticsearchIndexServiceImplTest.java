@@ -0,0 +1,124 @@
+package ru.ecosharing.listing_service.elasticsearch.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.DeleteQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
+import ru.ecosharing.listing_service.config.FxRateProperties;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.elasticsearch.mapper.ListingDocumentMapper;
+import ru.ecosharing.listing_service.elasticsearch.repository.ListingSearchRepository;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingIndexPlacement;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.fx.FxRateCache;
+import ru.ecosharing.listing_service.repository.CategoryRepository;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.repository.ListingReservationRepository;
+import ru.ecosharing.listing_service.trending.TrendingScoreEngine;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ElasticsearchIndexServiceImplTest {
+
+    private static final IndexCoordinates INDEX = IndexCoordinates.of("listings_idx");
+
+    private final UUID listingId = UUID.randomUUID();
+    private final ElasticsearchOperations elasticsearchOperations = mock(ElasticsearchOperations.class);
+    private final ListingDocumentMapper listingDocumentMapper = mock(ListingDocumentMapper.class);
+    private final ListingIndexPlacement listingIndexPlacement = mock(ListingIndexPlacement.class);
+    private ElasticsearchIndexServiceImpl indexService;
+
+    @BeforeEach
+    void setUp() {
+        when(listingIndexPlacement.indexFor(any())).thenReturn(INDEX);
+        when(listingIndexPlacement.allIndices()).thenReturn(INDEX);
+        // Документ из БД: оценки популярности в нем нет
+        when(listingDocumentMapper.toDocuments(any())).thenAnswer(invocation -> List.of(ListingDocument.builder()
+                .id(listingId.toString())
+                .listingId(listingId.toString())
+                .moderationStatus(ModerationStatus.ACTIVE)
+                .build()));
+        indexService = new ElasticsearchIndexServiceImpl(mock(ListingSearchRepository.class), mock(ListingRepository.class),
+                mock(CategoryRepository.class), elasticsearchOperations, listingDocumentMapper, mock(ListingRoutingResolver.class),
+                listingIndexPlacement, mock(TrendingScoreEngine.class), mock(FxRateCache.class), new FxRateProperties(),
+                mock(CategoryHierarchyCache.class), mock(ListingReservationRepository.class));
+    }
+
+    @Test
+    void reindexKeepsIndexedTrendingScore() {
+        indexedTrendingScore(3.5, 1_000L);
+
+        indexService.reindexListings(List.of(listingId));
+
+        ListingDocument written = savedDocument();
+        assertThat(written.getTrendingScore()).isEqualTo(3.5);
+        assertThat(written.getTrendingUpdatedAt()).isEqualTo(1_000L);
+    }
+
+    @Test
+    void reindexOfListingWithoutScoreWritesNoScore() {
+        searchReturns(List.of());
+
+        indexService.reindexListings(List.of(listingId));
+
+        assertThat(savedDocument().getTrendingScore()).isNull();
+    }
+
+    @Test
+    void scoreIsReadBeforePreviousCopiesAreDeleted() {
+        when(listingIndexPlacement.isEnabled()).thenReturn(true);
+        indexedTrendingScore(3.5, 1_000L);
+
+        indexService.reindexListings(List.of(listingId));
+
+        InOrder order = inOrder(elasticsearchOperations);
+        order.verify(elasticsearchOperations).search(any(Query.class), eq(ListingDocument.class), any(IndexCoordinates.class));
+        order.verify(elasticsearchOperations).delete(any(DeleteQuery.class), eq(ListingDocument.class), any(IndexCoordinates.class));
+        assertThat(savedDocument().getTrendingScore()).isEqualTo(3.5);
+    }
+
+    private void indexedTrendingScore(double score, long updatedAt) {
+        searchReturns(List.of(ListingDocument.builder()
+                .listingId(listingId.toString())
+                .trendingScore(score)
+                .trendingUpdatedAt(updatedAt)
+                .build()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void searchReturns(List<ListingDocument> documents) {
+        List<SearchHit<ListingDocument>> searchHits = documents.stream().map(doc -> {
+            SearchHit<ListingDocument> hit = mock(SearchHit.class);
+            when(hit.getContent()).thenReturn(doc);
+            return hit;
+        }).toList();
+        SearchHits<ListingDocument> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(searchHits);
+        when(elasticsearchOperations.search(any(Query.class), eq(ListingDocument.class), any(IndexCoordinates.class))).thenReturn(hits);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListingDocument savedDocument() {
+        ArgumentCaptor<Iterable<ListingDocument>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(elasticsearchOperations).save(saved.capture(), eq(INDEX));
+        assertThat(saved.getValue()).hasSize(1);
+        return saved.getValue().iterator().next();
+    }
+}
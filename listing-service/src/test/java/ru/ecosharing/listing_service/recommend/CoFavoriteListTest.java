@@ -0,0 +1,101 @@
+package ru.ecosharing.listing_service.recommend;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoFavoriteListTest {
+
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+    private final UUID c = UUID.randomUUID();
+    private final UUID d = UUID.randomUUID();
+    private final UUID e = UUID.randomUUID();
+
+    @Test
+    void topOrdersNeighboursByCount() {
+        CoFavoriteList list = new CoFavoriteList(4);
+        increment(list, a, 3);
+        increment(list, b, 1);
+        increment(list, c, 2);
+
+        assertThat(list.top(10)).containsExactly(a, c, b);
+        assertThat(list.top(2)).containsExactly(a, c);
+    }
+
+    @Test
+    void newNeighbourReplacesMinimumAndInheritsItsCount() {
+        CoFavoriteList list = new CoFavoriteList(4);
+        increment(list, a, 3);
+        increment(list, b, 2);
+        increment(list, c, 1);
+        increment(list, d, 1);
+
+        list.increment(e);
+
+        // e вытеснил c (первый из минимальных) и получил счетчик 1 + 1 - вровень с b
+        assertThat(list.top(10)).hasSize(4).doesNotContain(c);
+        assertThat(list.top(3)).containsExactlyInAnyOrder(a, b, e);
+        assertThat(list.top(1)).containsExactly(a);
+    }
+
+    @Test
+    void frequentNeighbourSurvivesStreamOfRareOnes() {
+        CoFavoriteList list = new CoFavoriteList(4);
+        // Сосед встречается в трети потока - чаще N / capacity, поэтому Space-Saving его не теряет
+        for (int i = 0; i < 300; i++) {
+            list.increment(a);
+            list.increment(UUID.randomUUID());
+            list.increment(UUID.randomUUID());
+        }
+
+        assertThat(list.top(1)).containsExactly(a);
+    }
+
+    @Test
+    void decrementRemovesNeighbourAtZero() {
+        CoFavoriteList list = new CoFavoriteList(4);
+        increment(list, a, 2);
+        list.increment(b);
+
+        list.decrement(b);
+        list.decrement(a);
+        list.decrement(c); // Неизвестный сосед - ничего не меняется
+
+        assertThat(list.top(10)).containsExactly(a);
+
+        list.decrement(a);
+        assertThat(list.isEmpty()).isTrue();
+    }
+
+    @Test
+    void roundTripsThroughStreamAndDropsNeighboursBeyondCapacity() throws IOException {
+        CoFavoriteList list = new CoFavoriteList(4);
+        increment(list, a, 3);
+        increment(list, b, 2);
+        list.increment(c);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.writeTo(new DataOutputStream(bytes));
+
+        CoFavoriteList restored = CoFavoriteList.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 4);
+        assertThat(restored.top(10)).containsExactly(a, b, c);
+        assertThat(restored.getLastUpdatedMillis()).isEqualTo(list.getLastUpdatedMillis());
+
+        // Capacity уменьшили между запусками: лишние записи отбрасываются
+        CoFavoriteList truncated = CoFavoriteList.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 2);
+        assertThat(truncated.top(10)).hasSize(2);
+    }
+
+    private static void increment(CoFavoriteList list, UUID neighbour, int times) {
+        for (int i = 0; i < times; i++) {
+            list.increment(neighbour);
+        }
+    }
+}
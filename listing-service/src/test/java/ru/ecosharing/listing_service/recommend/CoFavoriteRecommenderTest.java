@@ -0,0 +1,134 @@
+package ru.ecosharing.listing_service.recommend;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import ru.ecosharing.listing_service.config.CoFavoriteProperties;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoFavoriteRecommenderTest {
+
+    private final UUID user = UUID.randomUUID();
+    private final UUID otherUser = UUID.randomUUID();
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+    private final UUID c = UUID.randomUUID();
+
+    @TempDir
+    Path tempDir;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private CoFavoriteProperties properties;
+    private CoFavoriteRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        properties = new CoFavoriteProperties();
+        properties.setSnapshotPath(tempDir.resolve("co-favorites.snapshot").toString());
+        recommender = new CoFavoriteRecommender(jdbcTemplate, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void nothingIsRecommendedUntilInitialized() {
+        userFavorites(b);
+        recommender.onFavoriteAdded(user, a);
+
+        assertThat(recommender.similar(a, 10)).isEmpty();
+
+        recommender.initialize();
+        assertThat(recommender.similar(a, 10)).containsExactly(b);
+    }
+
+    @Test
+    void addedFavoriteLinksListingsBothWaysAndRanksByCount() {
+        recommender.initialize();
+
+        userFavorites(b);
+        recommender.onFavoriteAdded(user, a);
+        userFavorites(b, c);
+        recommender.onFavoriteAdded(otherUser, a);
+
+        assertThat(recommender.similar(a, 10)).containsExactly(b, c);
+        assertThat(recommender.similar(a, 1)).containsExactly(b);
+        assertThat(recommender.similar(b, 10)).containsExactly(a);
+        assertThat(recommender.similar(c, 10)).containsExactly(a);
+    }
+
+    @Test
+    void removedFavoriteUndoesAddedOne() {
+        recommender.initialize();
+        userFavorites(b);
+
+        recommender.onFavoriteAdded(user, a);
+        recommender.onFavoriteRemoved(user, a);
+
+        assertThat(recommender.similar(a, 10)).isEmpty();
+        assertThat(recommender.similar(b, 10)).isEmpty();
+    }
+
+    @Test
+    void forgottenListingHasNoRecommendations() {
+        recommender.initialize();
+        userFavorites(b);
+        recommender.onFavoriteAdded(user, a);
+
+        recommender.forget(a);
+
+        assertThat(recommender.similar(a, 10)).isEmpty();
+    }
+
+    @Test
+    void rebuildPairsFavoritesOfEachUser() {
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class))).thenReturn(List.of(
+                row(user, a), row(user, b),
+                row(otherUser, a), row(otherUser, b), row(otherUser, c)));
+
+        recommender.initialize();
+
+        assertThat(recommender.similar(a, 10)).containsExactly(b, c);
+        assertThat(recommender.similar(c, 10)).containsExactlyInAnyOrder(a, b);
+    }
+
+    @Test
+    void snapshotIsLoadedInsteadOfRebuild() {
+        recommender.initialize();
+        userFavorites(b, c);
+        recommender.onFavoriteAdded(user, a);
+        recommender.snapshot();
+
+        NamedParameterJdbcTemplate restartedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        CoFavoriteRecommender restarted = new CoFavoriteRecommender(restartedJdbcTemplate, properties, new SimpleMeterRegistry());
+        restarted.initialize();
+
+        assertThat(restarted.similar(a, 10)).containsExactlyInAnyOrder(b, c);
+        assertThat(restarted.similar(b, 10)).containsExactly(a);
+        verify(restartedJdbcTemplate, never()).queryForList(anyString(), any(SqlParameterSource.class));
+    }
+
+    // Последние избранные пользователя, кроме добавляемого объявления
+    private void userFavorites(UUID... listingIds) {
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class), eq(UUID.class)))
+                .thenReturn(List.of(listingIds));
+    }
+
+    private static Map<String, Object> row(UUID userId, UUID listingId) {
+        return Map.of("user_id", userId, "listing_id", listingId);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.ecosharing.listing_service.reconcile;
+
+import org.junit.jupiter.api.Test;
+import ru.ecosharing.listing_service.elasticsearch.document.ListingDocument;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListingIndexReconcilerTest {
+
+    @Test
+    void emptyPrefixCoversWholeUuidSpace() {
+        assertThat(ListingIndexReconciler.toUuidString("", '0')).isEqualTo("00000000-0000-0000-0000-000000000000");
+        assertThat(ListingIndexReconciler.toUuidString("", 'f')).isEqualTo("ffffffff-ffff-ffff-ffff-ffffffffffff");
+    }
+
+    @Test
+    void prefixBoundsAreInclusiveAndCrossDashes() {
+        assertThat(ListingIndexReconciler.toUuidString("ab", '0')).isEqualTo("ab000000-0000-0000-0000-000000000000");
+        assertThat(ListingIndexReconciler.toUuidString("ab", 'f')).isEqualTo("abffffff-ffff-ffff-ffff-ffffffffffff");
+        // Префиксы длиннее 8 символов берутся из listingId вместе с дефисом
+        assertThat(ListingIndexReconciler.toUuidString("0123abcd-9", '0')).isEqualTo("0123abcd-9000-0000-0000-000000000000");
+        assertThat(ListingIndexReconciler.toUuidString("0123abcd-9", 'f')).isEqualTo("0123abcd-9fff-ffff-ffff-ffffffffffff");
+    }
+
+    @Test
+    void uuidWithPrefixFallsIntoItsRange() {
+        UUID id = UUID.randomUUID();
+        String prefix = id.toString().substring(0, 3);
+
+        UUID lo = UUID.fromString(ListingIndexReconciler.toUuidString(prefix, '0'));
+        UUID hi = UUID.fromString(ListingIndexReconciler.toUuidString(prefix, 'f'));
+
+        // PostgreSQL сравнивает uuid побайтно, как строки в нижнем регистре
+        assertThat(lo.toString()).isLessThanOrEqualTo(id.toString());
+        assertThat(hi.toString()).isGreaterThanOrEqualTo(id.toString());
+    }
+
+    @Test
+    void indexRowKeyMatchesDatabaseRowKeyFormat() {
+        UUID id = UUID.randomUUID();
+        UUID categoryId = UUID.randomUUID();
+        ListingDocument doc = ListingDocument.builder()
+                .listingId(id.toString())
+                .moderationStatus(ModerationStatus.ACTIVE)
+                .availabilityStatus(AvailabilityStatus.AVAILABLE)
+                .categoryId(categoryId)
+                .version(3L)
+                .build();
+
+        // Тот же формат, что и l.id || '|' || moderation_status || '|' || availability_status || '|' || category_id
+        // || '|' || version || '|' || tier
+        assertThat(ListingIndexReconciler.rowKey(doc, ListingIndexReconciler.HOT_TIER))
+                .isEqualTo(id + "|ACTIVE|AVAILABLE|" + categoryId + "|3|hot");
+    }
+
+    @Test
+    void indexRowKeyDependsOnVersion() {
+        String id = UUID.randomUUID().toString();
+        ListingDocument indexed = ListingDocument.builder().listingId(id).moderationStatus(ModerationStatus.ACTIVE).version(3L).build();
+        ListingDocument edited = ListingDocument.builder().listingId(id).moderationStatus(ModerationStatus.ACTIVE).version(4L).build();
+
+        // Правка названия или цены меняет только версию строки - документ со старой версией устарел
+        assertThat(ListingIndexReconciler.rowKey(indexed, ListingIndexReconciler.HOT_TIER))
+                .isNotEqualTo(ListingIndexReconciler.rowKey(edited, ListingIndexReconciler.HOT_TIER));
+    }
+
+    @Test
+    void indexRowKeyDependsOnIndexTier() {
+        ListingDocument doc = ListingDocument.builder()
+                .listingId(UUID.randomUUID().toString())
+                .moderationStatus(ModerationStatus.ACTIVE)
+                .availabilityStatus(AvailabilityStatus.AVAILABLE)
+                .categoryId(UUID.randomUUID())
+                .build();
+
+        // Активный документ в архивном индексе не совпадает со строкой БД, ожидающей горячий индекс
+        assertThat(ListingIndexReconciler.rowKey(doc, ListingIndexReconciler.ARCHIVE_TIER))
+                .isNotEqualTo(ListingIndexReconciler.rowKey(doc, ListingIndexReconciler.HOT_TIER));
+    }
+
+    @Test
+    void indexRowKeyOfIncompleteDocumentNeverMatchesDatabase() {
+        ListingDocument doc = ListingDocument.builder().listingId(UUID.randomUUID().toString()).build();
+
+        assertThat(ListingIndexReconciler.rowKey(doc, ListingIndexReconciler.HOT_TIER)).endsWith("|||||hot");
+    }
+
+    @Test
+    void digestsCompareByCountAndSum() {
+        assertThat(new RangeDigest(0, 0)).isEqualTo(RangeDigest.EMPTY);
+        assertThat(new RangeDigest(3, 42)).isEqualTo(new RangeDigest(3, 42));
+        // Одинаковая сумма при разном числе строк - расхождение
+        assertThat(new RangeDigest(2, 42)).isNotEqualTo(new RangeDigest(3, 42));
+        assertThat(new RangeDigest(3, 41)).isNotEqualTo(new RangeDigest(3, 42));
+    }
+}
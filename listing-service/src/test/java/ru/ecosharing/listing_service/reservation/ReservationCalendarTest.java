@@ -0,0 +1,79 @@
+package ru.ecosharing.listing_service.reservation;
+
+import org.junit.jupiter.api.Test;
+import ru.ecosharing.listing_service.enums.ReservationStatus;
+import ru.ecosharing.listing_service.model.ListingReservation;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationCalendarTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    // Брони [10, 20) и [30, 40) часов от T0
+    private final ReservationCalendar calendar = ReservationCalendar.of(List.of(
+            reservation(10, 20),
+            reservation(30, 40)));
+
+    @Test
+    void emptyCalendarIsFreeEverywhere() {
+        ReservationCalendar empty = ReservationCalendar.of(List.of());
+
+        assertThat(empty.size()).isZero();
+        assertThat(empty.isFree(at(0), at(100))).isTrue();
+        assertThat(empty.reservedBetween(at(0), at(100))).isEmpty();
+    }
+
+    @Test
+    void intervalsBetweenAndAroundReservationsAreFree() {
+        assertThat(calendar.isFree(at(0), at(5))).isTrue();
+        assertThat(calendar.isFree(at(22), at(28))).isTrue();
+        assertThat(calendar.isFree(at(45), at(50))).isTrue();
+    }
+
+    @Test
+    void endsAreExclusiveSoAdjacentIntervalsAreFree() {
+        assertThat(calendar.isFree(at(0), at(10))).isTrue();
+        assertThat(calendar.isFree(at(20), at(30))).isTrue();
+        assertThat(calendar.isFree(at(40), at(41))).isTrue();
+    }
+
+    @Test
+    void overlappingIntervalsAreTaken() {
+        assertThat(calendar.isFree(at(5), at(11))).isFalse();   // Пересекает начало брони
+        assertThat(calendar.isFree(at(19), at(25))).isFalse();  // Пересекает конец брони
+        assertThat(calendar.isFree(at(12), at(18))).isFalse();  // Внутри брони
+        assertThat(calendar.isFree(at(0), at(50))).isFalse();   // Накрывает обе брони
+        assertThat(calendar.isFree(at(10), at(20))).isFalse();  // Совпадает с бронью
+    }
+
+    @Test
+    void reservedBetweenReturnsOverlappingPeriodsInOrder() {
+        List<ReservationCalendar.Period> periods = calendar.reservedBetween(at(15), at(35));
+
+        assertThat(periods).extracting(ReservationCalendar.Period::getStartsAt).containsExactly(at(10), at(30));
+        assertThat(periods).extracting(ReservationCalendar.Period::getEndsAt).containsExactly(at(20), at(40));
+    }
+
+    @Test
+    void reservedBetweenSkipsPeriodsTouchingTheInterval() {
+        assertThat(calendar.reservedBetween(at(20), at(30))).isEmpty();
+        assertThat(calendar.reservedBetween(at(0), at(10))).isEmpty();
+        assertThat(calendar.reservedBetween(at(40), at(50))).isEmpty();
+    }
+
+    private static Instant at(long hours) {
+        return T0.plusSeconds(hours * 3600);
+    }
+
+    private static ListingReservation reservation(long fromHours, long toHours) {
+        return ListingReservation.builder()
+                .startsAt(at(fromHours))
+                .endsAt(at(toHours))
+                .status(ReservationStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.ecosharing.listing_service.category.CategoryListingCounters;
+import ru.ecosharing.listing_service.category.CategoryTreeCache;
+import ru.ecosharing.listing_service.concurrency.OptimisticLockRetrier;
+import ru.ecosharing.listing_service.dto.kafka.CategoryLifecycleEvent;
+import ru.ecosharing.listing_service.dto.request.UpdateCategoryRequest;
+import ru.ecosharing.listing_service.elasticsearch.routing.CategoryHierarchyCache;
+import ru.ecosharing.listing_service.elasticsearch.routing.ListingRoutingResolver;
+import ru.ecosharing.listing_service.elasticsearch.service.ElasticsearchIndexService;
+import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
+import ru.ecosharing.listing_service.mapper.CategoryMapper;
+import ru.ecosharing.listing_service.model.Category;
+import ru.ecosharing.listing_service.repository.CategoryRepository;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryServiceImplTest {
+
+    private final UUID categoryId = UUID.randomUUID();
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final ListingEventProducer eventProducer = mock(ListingEventProducer.class);
+    private CategoryServiceImpl categoryService;
+
+    @BeforeEach
+    void setUp() {
+        Category category = Category.builder().id(categoryId).name("Велосипеды").build();
+        when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(category));
+        when(categoryRepository.save(any(Category.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        categoryService = new CategoryServiceImpl(categoryRepository, mock(CategoryMapper.class), mock(ListingRepository.class),
+                eventProducer, mock(CategoryHierarchyCache.class), mock(ListingRoutingResolver.class),
+                mock(ElasticsearchIndexService.class), mock(CategoryTreeCache.class), mock(CategoryListingCounters.class),
+                mock(OptimisticLockRetrier.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void categoryEventIsSentOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        categoryService.updateCategory(categoryId, descriptionUpdate());
+
+        // Транзакция еще не закоммичена: другие инстансы не должны узнать об изменении раньше, чем оно видно в БД
+        verify(eventProducer, never()).sendCategoryLifecycleEvent(any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        ArgumentCaptor<CategoryLifecycleEvent> event = ArgumentCaptor.forClass(CategoryLifecycleEvent.class);
+        verify(eventProducer).sendCategoryLifecycleEvent(event.capture());
+        assertThat(event.getValue().getCategoryId()).isEqualTo(categoryId);
+        assertThat(event.getValue().getEventType()).isEqualTo("CATEGORY_UPDATED");
+    }
+
+    @Test
+    void categoryEventIsNotSentOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        categoryService.updateCategory(categoryId, descriptionUpdate());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(eventProducer, never()).sendCategoryLifecycleEvent(any());
+    }
+
+    private static UpdateCategoryRequest descriptionUpdate() {
+        UpdateCategoryRequest request = new UpdateCategoryRequest();
+        request.setDescription("Горные и городские велосипеды");
+        return request;
+    }
+}
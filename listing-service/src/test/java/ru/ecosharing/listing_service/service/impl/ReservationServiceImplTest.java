@@ -0,0 +1,88 @@
+package ru.ecosharing.listing_service.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.ecosharing.listing_service.config.ReservationProperties;
+import ru.ecosharing.listing_service.dto.request.CreateReservationRequest;
+import ru.ecosharing.listing_service.dto.response.ReservationResponse;
+import ru.ecosharing.listing_service.enums.AvailabilityStatus;
+import ru.ecosharing.listing_service.enums.ModerationStatus;
+import ru.ecosharing.listing_service.exception.ListingOperationException;
+import ru.ecosharing.listing_service.kafka.producer.ListingEventProducer;
+import ru.ecosharing.listing_service.model.Listing;
+import ru.ecosharing.listing_service.model.ListingReservation;
+import ru.ecosharing.listing_service.repository.ListingRepository;
+import ru.ecosharing.listing_service.repository.ListingReservationRepository;
+import ru.ecosharing.listing_service.reservation.ReservationCalendar;
+import ru.ecosharing.listing_service.reservation.ReservationCalendarCache;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReservationServiceImplTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID listingId = UUID.randomUUID();
+    private final ListingReservationRepository reservationRepository = mock(ListingReservationRepository.class);
+    private final ListingRepository listingRepository = mock(ListingRepository.class);
+    private final ReservationCalendarCache reservationCalendarCache = mock(ReservationCalendarCache.class);
+    private ReservationServiceImpl reservationService;
+
+    @BeforeEach
+    void setUp() {
+        Listing listing = Listing.builder()
+                .id(listingId)
+                .userId(UUID.randomUUID())
+                .moderationStatus(ModerationStatus.ACTIVE)
+                .availabilityStatus(AvailabilityStatus.AVAILABLE)
+                .build();
+        when(listingRepository.findById(listingId)).thenReturn(Optional.of(listing));
+        when(reservationCalendarCache.get(listingId)).thenReturn(ReservationCalendar.of(List.of()));
+        when(reservationRepository.saveAndFlush(any(ListingReservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        reservationService = new ReservationServiceImpl(reservationRepository, listingRepository, reservationCalendarCache,
+                mock(ListingEventProducer.class), new ReservationProperties());
+    }
+
+    @Test
+    void reservationStartingInThePastIsRejected() {
+        OffsetDateTime now = OffsetDateTime.now();
+
+        // Бронь, которая уже наполовину прошла, не должна занимать календарь
+        assertThatThrownBy(() -> reservationService.createReservation(userId, request(now.minusDays(1), now.plusDays(1))))
+                .isInstanceOf(ListingOperationException.class);
+
+        verifyNoInteractions(listingRepository);
+        verify(reservationRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void startSlightlyInThePastIsAcceptedAsClockSkew() {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime startsAt = now.minus(Duration.ofMinutes(1));
+
+        ReservationResponse response = reservationService.createReservation(userId, request(startsAt, now.plusDays(1)));
+
+        assertThat(response.getStartsAt()).isEqualTo(startsAt.toInstant());
+        verify(reservationRepository).saveAndFlush(any(ListingReservation.class));
+    }
+
+    private CreateReservationRequest request(OffsetDateTime startsAt, OffsetDateTime endsAt) {
+        CreateReservationRequest request = new CreateReservationRequest();
+        request.setListingId(listingId);
+        request.setStartsAt(startsAt);
+        request.setEndsAt(endsAt);
+        return request;
+    }
+}
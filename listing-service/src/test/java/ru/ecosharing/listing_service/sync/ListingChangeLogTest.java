@@ -0,0 +1,96 @@
+package ru.ecosharing.listing_service.sync;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ListingChangeLogTest {
+
+    @Test
+    void pageStopsAtFirstUnsettledRow() {
+        List<ListingChangeLog.Entry> rows = List.of(entry(10, 1, true), entry(10, 2, true), entry(12, 3, false), entry(13, 4, true));
+
+        ListingChangeLog.Batch batch = ListingChangeLog.settledPage(rows, 3);
+
+        assertThat(batch.getEntries()).extracting(e -> e.getPosition().getSeq()).containsExactly(1L, 2L);
+        assertThat(batch.isHasMore()).isFalse();
+    }
+
+    @Test
+    void pageIsEmptyWhenFirstRowIsUnsettled() {
+        ListingChangeLog.Batch batch = ListingChangeLog.settledPage(List.of(entry(12, 3, false), entry(13, 4, true)), 10);
+
+        assertThat(batch.getEntries()).isEmpty();
+        assertThat(batch.isHasMore()).isFalse();
+    }
+
+    @Test
+    void fullPageWithExtraRowHasMore() {
+        List<ListingChangeLog.Entry> rows = List.of(entry(10, 1, true), entry(10, 2, true), entry(11, 3, true));
+
+        ListingChangeLog.Batch batch = ListingChangeLog.settledPage(rows, 2);
+
+        assertThat(batch.getEntries()).hasSize(2);
+        assertThat(batch.isHasMore()).isTrue();
+    }
+
+    @Test
+    void fullPageFollowedByUnsettledRowStillHasMore() {
+        // Продолжение есть, но следующая страница вернется пустой, пока транзакция не завершится
+        List<ListingChangeLog.Entry> rows = List.of(entry(10, 1, true), entry(10, 2, true), entry(11, 3, false));
+
+        ListingChangeLog.Batch batch = ListingChangeLog.settledPage(rows, 2);
+
+        assertThat(batch.getEntries()).hasSize(2);
+        assertThat(batch.isHasMore()).isTrue();
+    }
+
+    @Test
+    void lastPageHasNoMore() {
+        ListingChangeLog.Batch batch = ListingChangeLog.settledPage(List.of(entry(10, 1, true)), 2);
+
+        assertThat(batch.getEntries()).hasSize(1);
+        assertThat(batch.isHasMore()).isFalse();
+    }
+
+    @Test
+    void recordCompactsChangesPerListing() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        ListingChangeLog changeLog = new ListingChangeLog(jdbcTemplate);
+        UUID listingId = UUID.randomUUID();
+        List<UUID> ids = List.of(listingId, UUID.randomUUID(), listingId);
+
+        changeLog.record(ids);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).update(sql.capture(), params.capture());
+        // Повтор в пачке схлопывается до одной строки, повторное изменение переписывает строку объявления
+        assertThat(sql.getValue())
+                .contains("SELECT DISTINCT id")
+                .contains("ON CONFLICT (listing_id) DO UPDATE SET seq = EXCLUDED.seq, xid = EXCLUDED.xid");
+        assertThat(params.getValue().getValue("ids")).isEqualTo(ids);
+    }
+
+    @Test
+    void recordOfNothingDoesNotTouchDatabase() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+
+        new ListingChangeLog(jdbcTemplate).record(List.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static ListingChangeLog.Entry entry(long xid, long seq, boolean settled) {
+        return new ListingChangeLog.Entry(UUID.randomUUID(), new ChangeLogPosition(xid, seq), settled);
+    }
+}
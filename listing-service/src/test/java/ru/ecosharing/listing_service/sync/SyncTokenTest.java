@@ -0,0 +1,50 @@
+package ru.ecosharing.listing_service.sync;
+
+import org.junit.jupiter.api.Test;
+import ru.ecosharing.listing_service.exception.ListingOperationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncTokenTest {
+
+    @Test
+    void encodedPositionDecodesBack() {
+        ChangeLogPosition position = new ChangeLogPosition(4_294_967_301L, 42L);
+
+        String token = SyncToken.encode(position);
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(SyncToken.decode(token)).isEqualTo(position);
+        assertThat(SyncToken.decode("  " + token + " ")).isEqualTo(position);
+    }
+
+    @Test
+    void emptyTokenStartsFromBeginning() {
+        assertThat(SyncToken.decode(null)).isEqualTo(ChangeLogPosition.START);
+        assertThat(SyncToken.decode("")).isEqualTo(ChangeLogPosition.START);
+        assertThat(SyncToken.decode("   ")).isEqualTo(ChangeLogPosition.START);
+    }
+
+    @Test
+    void legacySeqOnlyTokenRestartsFromBeginning() {
+        assertThat(SyncToken.decode(raw("v1:1500"))).isEqualTo(ChangeLogPosition.START);
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        for (String token : new String[]{"not base64!", raw("v2:12"), raw("v2:1:2:3"), raw("v2:-1:5"),
+                raw("v2:1:x"), raw("v3:1:2"), raw("v1:-7"), raw("12")}) {
+            assertThatThrownBy(() -> SyncToken.decode(token))
+                    .as(token)
+                    .isInstanceOf(ListingOperationException.class);
+        }
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
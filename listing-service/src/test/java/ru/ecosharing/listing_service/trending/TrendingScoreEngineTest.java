@@ -0,0 +1,146 @@
+package ru.ecosharing.listing_service.trending;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.ecosharing.listing_service.config.TrendingProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TrendingScoreEngineTest {
+
+    private static final Instant NOW = Instant.parse("2025-06-01T12:00:00Z");
+
+    private final Map<UUID, TrendingScoreStore.StoredScore> stored = new HashMap<>();
+    private boolean storeUnavailable;
+    private int storeLoads;
+    private TrendingProperties properties;
+    private TrendingScoreEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TrendingProperties();
+        properties.setHalfLife(Duration.ofHours(12));
+        TrendingScoreStore store = listingId -> {
+            storeLoads++;
+            if (storeUnavailable) {
+                throw new IllegalStateException("Elasticsearch is unavailable");
+            }
+            return Optional.ofNullable(stored.get(listingId));
+        };
+        engine = new TrendingScoreEngine(properties, store, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void logSumExp2AddsValuesInLinearSpace() {
+        assertThat(TrendingScoreEngine.logSumExp2(3, 3)).isCloseTo(4, within(1e-9));
+        assertThat(TrendingScoreEngine.logSumExp2(3, 1)).isCloseTo(log2(10), within(1e-9));
+        assertThat(TrendingScoreEngine.logSumExp2(Double.NEGATIVE_INFINITY, 2)).isEqualTo(2);
+        // Большая разница порядков не переполняет double
+        assertThat(TrendingScoreEngine.logSumExp2(5000, 1)).isCloseTo(5000, within(1e-9));
+    }
+
+    @Test
+    void logDiffExp2SubtractsValuesInLinearSpace() {
+        assertThat(TrendingScoreEngine.logDiffExp2(3, 2)).isCloseTo(2, within(1e-9));
+        assertThat(TrendingScoreEngine.logDiffExp2(log2(10), 1)).isCloseTo(3, within(1e-9));
+        assertThat(TrendingScoreEngine.logDiffExp2(2, 2)).isEqualTo(Double.NEGATIVE_INFINITY);
+        assertThat(TrendingScoreEngine.logDiffExp2(Double.NEGATIVE_INFINITY, 1)).isEqualTo(Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    void signalWeightDoublesEveryHalfLife() {
+        long at = NOW.toEpochMilli();
+        long halfLife = properties.getHalfLife().toMillis();
+        double base = engine.signalLogScore(1, at);
+
+        assertThat(engine.signalLogScore(1, at + halfLife) - base).isCloseTo(1, within(1e-9));
+        assertThat(engine.signalLogScore(1, at + 3 * halfLife) - base).isCloseTo(3, within(1e-9));
+        assertThat(engine.signalLogScore(4, at) - base).isCloseTo(2, within(1e-9));
+    }
+
+    @Test
+    void viewsAccumulateAndFavoriteRemovalCancelsAddition() {
+        UUID listingId = UUID.randomUUID();
+        engine.recordView(listingId, NOW);
+        engine.recordView(listingId, NOW);
+
+        double twoViews = engine.signalLogScore(2 * properties.getViewWeight(), NOW.toEpochMilli());
+        assertThat(drain(listingId).getLogScore()).isCloseTo(twoViews, within(1e-9));
+
+        engine.recordFavoriteAdded(listingId, NOW);
+        engine.recordFavoriteRemoved(listingId, NOW);
+        assertThat(drain(listingId).getLogScore()).isCloseTo(twoViews, within(1e-9));
+    }
+
+    @Test
+    void missingStateIsSeededFromStoreBeforeApplyingSignal() {
+        UUID listingId = UUID.randomUUID();
+        double storedScore = engine.signalLogScore(10, NOW.minusSeconds(3600).toEpochMilli());
+        stored.put(listingId, new TrendingScoreStore.StoredScore(storedScore, NOW.minusSeconds(3600).toEpochMilli()));
+
+        engine.recordView(listingId, NOW);
+        engine.recordView(listingId, NOW);
+
+        double expected = TrendingScoreEngine.logSumExp2(storedScore,
+                engine.signalLogScore(2 * properties.getViewWeight(), NOW.toEpochMilli()));
+        TrendingScoreEngine.PendingScore pending = drain(listingId);
+        assertThat(pending.getLogScore()).isCloseTo(expected, within(1e-9));
+        assertThat(pending.getLastSignalMillis()).isEqualTo(NOW.toEpochMilli());
+        assertThat(storeLoads).isEqualTo(1);
+    }
+
+    @Test
+    void favoriteRemovalIsAppliedToSeededScore() {
+        UUID listingId = UUID.randomUUID();
+        double favorites = engine.signalLogScore(2 * properties.getFavoriteWeight(), NOW.toEpochMilli());
+        stored.put(listingId, new TrendingScoreStore.StoredScore(favorites, NOW.toEpochMilli()));
+
+        engine.recordFavoriteRemoved(listingId, NOW);
+
+        double oneFavorite = engine.signalLogScore(properties.getFavoriteWeight(), NOW.toEpochMilli());
+        assertThat(drain(listingId).getLogScore()).isCloseTo(oneFavorite, within(1e-9));
+    }
+
+    @Test
+    void negativeDeltaWithoutPriorStateIsDropped() {
+        UUID listingId = UUID.randomUUID();
+
+        engine.recordFavoriteRemoved(listingId, NOW);
+
+        assertThat(engine.drainPending(10)).isEmpty();
+    }
+
+    @Test
+    void signalIsSkippedWhenStoreIsUnavailable() {
+        UUID listingId = UUID.randomUUID();
+        storeUnavailable = true;
+
+        engine.recordView(listingId, NOW);
+        assertThat(engine.drainPending(10)).isEmpty();
+
+        // Следующий сигнал снова пытается восстановить состояние
+        storeUnavailable = false;
+        engine.recordView(listingId, NOW);
+        assertThat(drain(listingId).getLogScore())
+                .isCloseTo(engine.signalLogScore(properties.getViewWeight(), NOW.toEpochMilli()), within(1e-9));
+    }
+
+    private TrendingScoreEngine.PendingScore drain(UUID listingId) {
+        Map<UUID, TrendingScoreEngine.PendingScore> pending = engine.drainPending(10);
+        assertThat(pending).containsOnlyKeys(listingId);
+        return pending.get(listingId);
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
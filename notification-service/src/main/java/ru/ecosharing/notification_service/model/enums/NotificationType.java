@@ -6,7 +6,7 @@ public enum NotificationType {
     REGISTRATION_COMPLETE, PASSWORD_CHANGED, WELCOME_TELEGRAM,
 
     // Из Listing Service (примеры)
-    LISTING_APPROVED, LISTING_REJECTED, LISTING_EXPIRED,
+    LISTING_APPROVED, LISTING_REJECTED, LISTING_EXPIRED, SAVED_SEARCH_MATCH,
 
     // Из Subscription Service (примеры)
     SUBSCRIPTION_STARTED, SUBSCRIPTION_ENDING, SUBSCRIPTION_EXPIRED, PAYMENT_SUCCESS, PAYMENT_FAILED,